@@ -31,6 +31,7 @@ import java.util.Map;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.crunch.test.CrunchTestSupport;
+import org.apache.crunch.util.BlockedBloomFilter;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.util.bloom.BloomFilter;
 import org.apache.hadoop.util.bloom.Key;
@@ -59,4 +60,21 @@ public class BloomFiltersIT extends CrunchTestSupport implements Serializable {
     assertTrue(filter.membershipTest(new Key("apples".getBytes(Charset.forName("UTF-8")))));
   }
 
+  @Test
+  public void testBlockedFilterCreation() throws IOException {
+    String inputPath = tempDir.copyResourceFileName("shakes.txt");
+    BlockedBloomFilterFn<String> filterFn = new BlockedBloomFilterFn<String>() {
+      @Override
+      public Iterable<?> generateKeys(String input) {
+        return Arrays.asList(StringUtils.split(input, " "));
+      }
+    };
+    Map<String, BlockedBloomFilter> filterValues = BloomFilterFactory.createBlockedFilter(new Path(inputPath),
+        filterFn).getValue();
+    assertEquals(1, filterValues.size());
+    BlockedBloomFilter filter = filterValues.get("shakes.txt");
+    assertTrue(filter.mightContain("Mcbeth"));
+    assertTrue(filter.mightContain("apples"));
+  }
+
 }
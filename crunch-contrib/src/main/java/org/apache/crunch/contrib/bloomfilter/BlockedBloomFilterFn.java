@@ -0,0 +1,66 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.contrib.bloomfilter;
+
+import org.apache.crunch.DoFn;
+import org.apache.crunch.Emitter;
+import org.apache.crunch.Pair;
+import org.apache.crunch.util.BlockedBloomFilter;
+import org.apache.hadoop.conf.Configuration;
+
+/**
+ * The class is responsible for generating keys that are used in a {@link BlockedBloomFilter}, a
+ * cache-efficient alternative to the filters built by {@link BloomFilterFn}. The filter size is
+ * read from {@link BloomFilterFn#CRUNCH_FILTER_SIZE} and rounded up to a whole number of blocks.
+ */
+@SuppressWarnings("serial")
+public abstract class BlockedBloomFilterFn<S> extends DoFn<S, Pair<String, BlockedBloomFilter>> {
+  private transient BlockedBloomFilter bloomFilter = null;
+
+  @Override
+  public void initialize() {
+    super.initialize();
+    bloomFilter = initializeFilter(BloomFilterFn.getBloomFilterSize(getConfiguration()));
+  }
+
+  @Override
+  public void process(S input, Emitter<Pair<String, BlockedBloomFilter>> emitter) {
+    Iterable<?> keys = generateKeys(input);
+    if (keys != null) {
+      for (Object key : keys) {
+        bloomFilter.add(key);
+      }
+    }
+  }
+
+  /**
+   * Returns the keys to add to the filter for the given input. Strings, byte arrays and integral
+   * numbers are hashed without copying; other keys are hashed by their {@code hashCode}.
+   */
+  public abstract Iterable<?> generateKeys(S input);
+
+  @Override
+  public void cleanup(Emitter<Pair<String, BlockedBloomFilter>> emitter) {
+    String filterName = getConfiguration().get(BloomFilterFn.CRUNCH_FILTER_NAME);
+    emitter.emit(Pair.of(filterName, bloomFilter));
+  }
+
+  static BlockedBloomFilter initializeFilter(int size) {
+    return new BlockedBloomFilter(Math.max(1, (size + 511) / 512), 5);
+  }
+}
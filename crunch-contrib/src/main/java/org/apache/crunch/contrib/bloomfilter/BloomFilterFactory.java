@@ -24,10 +24,12 @@ import org.apache.crunch.Aggregator;
 import org.apache.crunch.PCollection;
 import org.apache.crunch.PObject;
 import org.apache.crunch.PTable;
+import org.apache.crunch.fn.Aggregators;
 import org.apache.crunch.impl.mr.MRPipeline;
 import org.apache.crunch.materialize.pobject.FirstElementPObject;
 import org.apache.crunch.types.PTypeFamily;
 import org.apache.crunch.types.writable.Writables;
+import org.apache.crunch.util.BlockedBloomFilter;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
@@ -77,6 +79,42 @@ public class BloomFilterFactory {
     return table.groupByKey(1).combineValues(new BloomFilterAggregator());
   }
 
+  /**
+   * Like {@link #createFilter(Path, BloomFilterFn)}, but generates cache-efficient
+   * {@link BlockedBloomFilter}s.
+   */
+  public static PObject<Map<String, BlockedBloomFilter>> createBlockedFilter(Path inputPath,
+      BlockedBloomFilterFn<String> filterFn) throws IOException {
+    MRPipeline pipeline = new MRPipeline(BloomFilterFactory.class);
+    FileStatus[] listStatus = FileSystem.get(pipeline.getConfiguration()).listStatus(inputPath);
+    PTable<String, BlockedBloomFilter> filterTable = null;
+    for (FileStatus fileStatus : listStatus) {
+      Path path = fileStatus.getPath();
+      PCollection<String> readTextFile = pipeline.readTextFile(path.toString());
+      pipeline.getConfiguration().set(BloomFilterFn.CRUNCH_FILTER_NAME, path.getName());
+      PTable<String, BlockedBloomFilter> currentTable = createBlockedFilterTable(readTextFile, filterFn);
+      if (filterTable != null) {
+        filterTable = filterTable.union(currentTable);
+      } else {
+        filterTable = currentTable;
+      }
+    }
+    return filterTable.asMap();
+  }
+
+  public static <T> PObject<BlockedBloomFilter> createBlockedFilter(PCollection<T> collection,
+      BlockedBloomFilterFn<T> filterFn) {
+    collection.getPipeline().getConfiguration().set(BloomFilterFn.CRUNCH_FILTER_NAME, collection.getName());
+    return new FirstElementPObject<BlockedBloomFilter>(createBlockedFilterTable(collection, filterFn).values());
+  }
+
+  private static <T> PTable<String, BlockedBloomFilter> createBlockedFilterTable(PCollection<T> collection,
+      BlockedBloomFilterFn<T> filterFn) {
+    PTypeFamily tf = collection.getTypeFamily();
+    PTable<String, BlockedBloomFilter> table = collection.parallelDo(filterFn,
+        tf.tableOf(tf.strings(), Writables.writables(BlockedBloomFilter.class)));
+    return table.groupByKey(1).combineValues(Aggregators.MERGE_BLOCKED_BLOOM_FILTERS());
+  }
 
   @SuppressWarnings("serial")
   private static class BloomFilterAggregator implements Aggregator<BloomFilter> {
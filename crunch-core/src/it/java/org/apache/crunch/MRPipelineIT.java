@@ -34,6 +34,7 @@ import org.apache.crunch.fn.FilterFns;
 import org.apache.crunch.fn.IdentityFn;
 import org.apache.crunch.impl.mr.MRPipeline;
 import org.apache.crunch.impl.mr.plan.PlanningParameters;
+import org.apache.crunch.impl.mr.run.RuntimeParameters;
 import org.apache.crunch.io.FormatBundle;
 import org.apache.crunch.io.To;
 import org.apache.crunch.io.text.TextFileTarget;
@@ -121,6 +122,26 @@ public class MRPipelineIT implements Serializable {
     assertTrue("DOT file name '" + fileName + "' did not match regex '" + regex + "'.", fileName.matches(regex));
   }
 
+  @Test
+  public void testWritingOfNodeProfileFromRunAsync() throws Exception {
+    File dotfileDir = Files.createTempDir();
+    Pipeline pipeline = new MRPipeline(MRPipelineIT.class, tmpDir.getDefaultConfiguration());
+    pipeline.getConfiguration().set(PlanningParameters.PIPELINE_DOTFILE_OUTPUT_DIR, dotfileDir.getAbsolutePath());
+    pipeline.getConfiguration().setBoolean(RuntimeParameters.PROFILE_NODES, true);
+
+    PCollection<String> lines = pipeline.readTextFile(tmpDir.copyResourceFileName("set1.txt"));
+    pipeline.write(
+        lines.parallelDo(IdentityFn.<String>getInstance(), Writables.strings()),
+        To.textFile(tmpDir.getFile("output").getAbsolutePath()));
+    PipelineExecution execution = pipeline.runAsync();
+    execution.waitUntilDone();
+
+    assertEquals(PipelineExecution.Status.SUCCEEDED, execution.getStatus());
+    File[] files = dotfileDir.listFiles((FileFilter) new SuffixFileFilter("_node_profile.json"));
+    assertEquals(1, files.length);
+    pipeline.done();
+  }
+
   @Test
   public void testJobCredentials() throws IOException {
     Pipeline pipeline = new MRPipeline(MRPipelineIT.class, tmpDir.getDefaultConfiguration());
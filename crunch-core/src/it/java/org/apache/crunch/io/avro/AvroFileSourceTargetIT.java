@@ -18,6 +18,7 @@
 package org.apache.crunch.io.avro;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 import java.io.File;
 import java.io.FileOutputStream;
@@ -27,6 +28,7 @@ import java.util.List;
 
 import com.google.common.collect.ImmutableList;
 import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
 import org.apache.avro.file.DataFileWriter;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericData.Record;
@@ -50,6 +52,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 
 @SuppressWarnings("serial")
@@ -226,4 +229,29 @@ public class AvroFileSourceTargetIT implements Serializable {
     StringWrapper stringWrapper = recordList.get(0);
     assertEquals("stringvalue", stringWrapper.getValue());
   }
+
+  @Test
+  public void testProjected() throws IOException {
+    GenericRecord savedRecord = new GenericData.Record(Person.SCHEMA$);
+    savedRecord.put("name", "John Doe");
+    savedRecord.put("age", 42);
+    savedRecord.put("siblingnames", Lists.newArrayList("Jimmy", "Jane"));
+    populateGenericFile(avroFile, Lists.newArrayList(savedRecord), Person.SCHEMA$);
+
+    Schema ageOnly = SchemaBuilder.record("AgeOnly").fields().optionalInt("age").endRecord();
+    Pipeline pipeline = new MRPipeline(AvroFileSourceTargetIT.class, tmpDir.getDefaultConfiguration());
+    PCollection<Record> ages = pipeline.read(AvroFileSource.projected(
+        ImmutableList.of(new Path(avroFile.getAbsolutePath())), Person.SCHEMA$, Avros.generics(ageOnly)));
+    Record age = Iterables.getOnlyElement(ages.materialize());
+    assertEquals(42, age.get("age"));
+    assertEquals(1, age.getSchema().getFields().size());
+
+    PCollection<GenericRecord> names = pipeline.read(AvroFileSource.builder(Person.SCHEMA$)
+        .includeField("name")
+        .build(new Path(avroFile.getAbsolutePath())));
+    GenericRecord name = Iterables.getOnlyElement(names.materialize());
+    assertEquals("John Doe", name.get("name").toString());
+    assertNull(name.getSchema().getField("age"));
+    pipeline.done();
+  }
 }
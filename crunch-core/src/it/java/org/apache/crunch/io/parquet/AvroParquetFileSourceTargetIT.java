@@ -25,8 +25,10 @@ import static org.junit.Assert.fail;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.List;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import org.apache.avro.Schema;
 import org.apache.avro.SchemaBuilder;
@@ -39,6 +41,7 @@ import org.apache.crunch.PCollection;
 import org.apache.crunch.Pipeline;
 import org.apache.crunch.Target;
 import org.apache.crunch.impl.mr.MRPipeline;
+import org.apache.crunch.io.ColumnPredicate;
 import org.apache.crunch.io.From;
 import org.apache.crunch.io.To;
 import org.apache.crunch.io.avro.AvroFileSource;
@@ -191,6 +194,69 @@ public class AvroParquetFileSourceTargetIT implements Serializable {
     }
   }
 
+  @Test
+  public void testProjected() throws IOException {
+    GenericRecord savedRecord = new Record(Person.SCHEMA$);
+    savedRecord.put("name", "John Doe");
+    savedRecord.put("age", 42);
+    savedRecord.put("siblingnames", Lists.newArrayList("Jimmy", "Jane"));
+    populateGenericFile(Lists.newArrayList(savedRecord), Person.SCHEMA$);
+
+    Schema ageOnly = SchemaBuilder.record("AgeOnly").fields().optionalInt("age").endRecord();
+    AvroParquetFileSource<Record> src = AvroParquetFileSource.projected(
+        ImmutableList.of(new Path(avroFile.getAbsolutePath())), Person.SCHEMA$, Avros.generics(ageOnly));
+    Pipeline pipeline = new MRPipeline(AvroParquetFileSourceTargetIT.class, tmpDir.getDefaultConfiguration());
+
+    // Read directly from the source
+    Record age = Iterables.getOnlyElement(pipeline.read(src).materialize());
+    assertEquals(ageOnly, age.getSchema());
+    assertEquals(42, age.get("age"));
+
+    // Read by the input format
+    File outputFile = tmpDir.getFile("output");
+    pipeline.read(src).write(To.avroFile(outputFile.getAbsolutePath()));
+    pipeline.done();
+    Pipeline pipeline2 = new MRPipeline(AvroParquetFileSourceTargetIT.class, tmpDir.getDefaultConfiguration());
+    Record written = Iterables.getOnlyElement(pipeline2.read(
+        new AvroFileSource<Record>(new Path(outputFile.getAbsolutePath()), Avros.generics(ageOnly))).materialize());
+    assertEquals(42, written.get("age"));
+  }
+
+  @Test
+  public void testProjectionWithPredicate() throws IOException {
+    List<GenericRecord> savedRecords = Lists.newArrayList();
+    for (int age = 40; age < 45; age++) {
+      GenericRecord savedRecord = new Record(Person.SCHEMA$);
+      savedRecord.put("name", "Person " + age);
+      savedRecord.put("age", age);
+      savedRecord.put("siblingnames", Lists.newArrayList());
+      savedRecords.add(savedRecord);
+    }
+    populateGenericFile(savedRecords, Person.SCHEMA$);
+
+    // The column of the predicate is read even though it is not included
+    Pipeline pipeline = new MRPipeline(AvroParquetFileSourceTargetIT.class, tmpDir.getDefaultConfiguration());
+    PCollection<Person> names = pipeline.read(
+        AvroParquetFileSource.builder(Person.class)
+            .includeField("name")
+            .predicate(ColumnPredicate.gtEq("age", 43))
+            .build(new Path(avroFile.getAbsolutePath())));
+
+    File outputFile = tmpDir.getFile("output");
+    names.write(To.avroFile(outputFile.getAbsolutePath()));
+    pipeline.done();
+
+    Pipeline pipeline2 = new MRPipeline(AvroParquetFileSourceTargetIT.class, tmpDir.getDefaultConfiguration());
+    List<String> written = Lists.newArrayList();
+    for (Person person : pipeline2.read(new AvroFileSource<Person>(new Path(outputFile.getAbsolutePath()),
+        Avros.specifics(Person.class))).materialize()) {
+      written.add(person.getName().toString());
+      assertNull(person.getSiblingnames());
+    }
+    Collections.sort(written);
+    assertEquals(Lists.newArrayList("Person 43", "Person 44"), written);
+  }
+
   @Test
   public void testCustomReadSchema_FieldSubset() throws IOException {
     Schema readSchema = SchemaBuilder.record("PersonSubset")
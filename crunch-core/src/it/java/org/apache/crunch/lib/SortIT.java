@@ -82,6 +82,12 @@ public class SortIT implements Serializable {
         "this doc has this text");
   }
 
+  @Test
+  public void testWritableSortByBytesSecondDescFirstAsc() throws Exception {
+    runPair(new MRPipeline(SortIT.class, tmpDir.getDefaultConfiguration()), WritableTypeFamily.getInstance(), by(2, DESCENDING), by(1, ASCENDING), "A",
+        "this doc has this text", true);
+  }
+
   @Test
   public void testWritableSortTripleAscDescAsc() throws Exception {
     runTriple(new MRPipeline(SortIT.class, tmpDir.getDefaultConfiguration()), WritableTypeFamily.getInstance(), by(1, ASCENDING), by(2, DESCENDING),
@@ -127,6 +133,12 @@ public class SortIT implements Serializable {
         "this doc has this text");
   }
 
+  @Test
+  public void testAvroSortByBytesAscDesc() throws Exception {
+    runPair(new MRPipeline(SortIT.class, tmpDir.getDefaultConfiguration()), AvroTypeFamily.getInstance(), by(1, ASCENDING), by(2, DESCENDING), "A",
+        "this doc has this text", true);
+  }
+
   @Test
   public void testAvroSortTripleAscDescAsc() throws Exception {
     runTriple(new MRPipeline(SortIT.class, tmpDir.getDefaultConfiguration()), AvroTypeFamily.getInstance(), by(1, ASCENDING), by(2, DESCENDING),
@@ -215,6 +227,11 @@ public class SortIT implements Serializable {
 
   private void runPair(Pipeline pipeline, PTypeFamily typeFamily, ColumnOrder first, ColumnOrder second,
       String firstField, String secondField) throws IOException {
+    runPair(pipeline, typeFamily, first, second, firstField, secondField, false);
+  }
+
+  private void runPair(Pipeline pipeline, PTypeFamily typeFamily, ColumnOrder first, ColumnOrder second,
+      String firstField, String secondField, boolean byBytes) throws IOException {
     String inputPath = tmpDir.copyResourceFileName("docs.txt");
 
     PCollection<String> input = pipeline.readTextFile(inputPath);
@@ -225,7 +242,8 @@ public class SortIT implements Serializable {
         emitter.emit(Pair.of(split[0], split[1]));
       }
     }, typeFamily.tableOf(typeFamily.strings(), typeFamily.strings()));
-    PCollection<Pair<String, String>> sorted = Sort.sortPairs(kv, first, second);
+    PCollection<Pair<String, String>> sorted = byBytes ? Sort.sortTuplesByBytes(kv, first, second)
+        : Sort.sortPairs(kv, first, second);
     List<Pair<String, String>> lines = Lists.newArrayList(sorted.materialize());
     Pair<String, String> l = lines.iterator().next();
     assertEquals(firstField, l.first());
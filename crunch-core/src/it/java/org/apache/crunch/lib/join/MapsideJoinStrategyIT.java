@@ -225,6 +225,52 @@ public class MapsideJoinStrategyIT {
                                   new MapsideJoinStrategy<Integer, String, String>(true));
   }
 
+  @Test
+  public void testMapsideJoin_OffHeap() throws IOException {
+    MRPipeline pipeline = new MRPipeline(MapsideJoinStrategyIT.class, tmpDir.getDefaultConfiguration());
+    PTable<Integer, String> customerTable = readTable(pipeline, "customers.txt");
+    PTable<Integer, String> orderTable = readTable(pipeline, "orders.txt");
+
+    PTable<Integer, String> custOrders = MapsideJoinStrategy.<Integer, String, String>create(false, true)
+        .join(orderTable, customerTable, JoinType.RIGHT_OUTER_JOIN)
+        .mapValues("concat", new ConcatValuesFn(), Writables.strings());
+
+    List<Pair<Integer, String>> expectedJoinResult = Lists.newArrayList();
+    expectedJoinResult.add(Pair.of(111, "[Corn flakes,John Doe]"));
+    expectedJoinResult.add(Pair.of(222, "[Toilet paper,Jane Doe]"));
+    expectedJoinResult.add(Pair.of(222, "[Toilet plunger,Jane Doe]"));
+    expectedJoinResult.add(Pair.of(333, "[Toilet brush,Someone Else]"));
+    expectedJoinResult.add(Pair.of(444, "[null,Has No Orders]"));
+    Iterable<Pair<Integer, String>> iter = custOrders.materialize();
+
+    // One job builds the index of the orders and another joins the customers with it
+    PipelineResult res = pipeline.run();
+    assertEquals(2, res.getStageResults().size());
+
+    List<Pair<Integer, String>> joinedResultList = Lists.newArrayList(iter);
+    Collections.sort(joinedResultList);
+
+    assertEquals(expectedJoinResult, joinedResultList);
+  }
+
+  @Test
+  public void testMapsideJoin_OffHeap_LeftSideIsEmpty() throws IOException {
+    MRPipeline pipeline = new MRPipeline(MapsideJoinStrategyIT.class, tmpDir.getDefaultConfiguration());
+    PTable<Integer, String> customerTable = readTable(pipeline, "customers.txt");
+    PTable<Integer, String> orderTable = readTable(pipeline, "orders.txt");
+
+    PTable<Integer, String> filteredCustomerTable = customerTable
+        .parallelDo(FilterFns.<Pair<Integer, String>>REJECT_ALL(), customerTable.getPTableType());
+
+    JoinStrategy<Integer, String, String> mapsideJoin = MapsideJoinStrategy.create(false, true);
+    PTable<Integer, Pair<String, String>> joined = mapsideJoin.join(filteredCustomerTable, orderTable,
+                                                                    JoinType.INNER_JOIN);
+
+    List<Pair<Integer, Pair<String, String>>> materializedJoin = Lists.newArrayList(joined.materialize());
+
+    assertTrue(materializedJoin.isEmpty());
+  }
+
   @Test
   public void testMapSideJoinWithImmutableBytesWritable() throws IOException, InterruptedException {
     //Write out input files
@@ -0,0 +1,100 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.lib.join;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.crunch.PTable;
+import org.apache.crunch.Pair;
+import org.apache.crunch.Pipeline;
+import org.apache.crunch.impl.mr.MRPipeline;
+import org.apache.crunch.io.From;
+import org.apache.crunch.test.TemporaryPath;
+import org.apache.crunch.test.TemporaryPaths;
+import org.apache.crunch.types.PTableType;
+import org.apache.crunch.types.PTypeFamily;
+import org.apache.crunch.types.avro.AvroTypeFamily;
+import org.apache.crunch.types.writable.WritableTypeFamily;
+import org.apache.hadoop.fs.Path;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class SortMergeBucketJoinIT {
+
+  @Rule
+  public TemporaryPath tmpDir = TemporaryPaths.create();
+
+  @Test
+  public void testWritables() throws Exception {
+    run(WritableTypeFamily.getInstance());
+  }
+
+  @Test
+  public void testAvro() throws Exception {
+    run(AvroTypeFamily.getInstance());
+  }
+
+  private void run(PTypeFamily ptf) throws Exception {
+    PTableType<Integer, String> type = ptf.tableOf(ptf.ints(), ptf.strings());
+    List<Pair<Integer, String>> left = Lists.newArrayList();
+    List<Pair<Integer, String>> right = Lists.newArrayList();
+    for (int i = 0; i < 500; i++) {
+      left.add(Pair.of(i % 100, "left" + i));
+      right.add(Pair.of(i % 150, "right" + i));
+    }
+    Path leftPath = tmpDir.getPath("left");
+    Path rightPath = tmpDir.getPath("right");
+
+    Pipeline pipeline = new MRPipeline(SortMergeBucketJoinIT.class, tmpDir.getDefaultConfiguration());
+    SortMergeBucketJoinStrategy.writeBucketed(pipeline.create(left, type), 4, leftPath);
+    SortMergeBucketJoinStrategy.writeBucketed(pipeline.create(right, type), 4, rightPath);
+    pipeline.run();
+
+    for (JoinType joinType : JoinType.values()) {
+      PTable<Integer, String> leftTable = read(pipeline, leftPath, type);
+      PTable<Integer, String> rightTable = read(pipeline, rightPath, type);
+      List<String> expected = materialize(new DefaultJoinStrategy<Integer, String, String>()
+          .join(leftTable, rightTable, joinType));
+      List<String> actual = materialize(new SortMergeBucketJoinStrategy<Integer, String, String>()
+          .join(leftTable, rightTable, joinType));
+      assertEquals(expected, actual);
+    }
+    pipeline.done();
+  }
+
+  private static PTable<Integer, String> read(Pipeline pipeline, Path path, PTableType<Integer, String> type) {
+    if (type.getFamily() == AvroTypeFamily.getInstance()) {
+      return pipeline.read(From.avroTableFile(path, type));
+    }
+    return pipeline.read(From.sequenceFile(path, type.getKeyType(), type.getValueType()));
+  }
+
+  private static List<String> materialize(PTable<Integer, Pair<String, String>> joined) {
+    List<String> ret = Lists.newArrayList();
+    for (Pair<Integer, Pair<String, String>> p : joined.materialize()) {
+      ret.add(p.toString());
+    }
+    Collections.sort(ret);
+    return ret;
+  }
+}
@@ -38,6 +38,10 @@ public interface PGroupedTable<K, V> extends PCollection<Pair<K, Iterable<V>>> {
   
   /**
    * Combines and reduces the values of this grouping using the given {@code CombineFn} instances.
+   * <p>
+   * When {@link org.apache.crunch.fn.MapSideCombineFn#MAX_ENTRIES} is set, the values are first
+   * combined in memory before the shuffle, by a separate grouping of the ungrouped table; other
+   * uses of this grouping then shuffle the values again.
    * 
    * @param combineFn
    *          The combiner function during the combine phase
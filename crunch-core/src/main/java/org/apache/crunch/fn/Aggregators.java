@@ -37,8 +37,14 @@ import org.apache.crunch.Tuple3;
 import org.apache.crunch.Tuple4;
 import org.apache.crunch.TupleN;
 import org.apache.crunch.types.PType;
+import org.apache.crunch.util.BlockedBloomFilter;
+import org.apache.crunch.util.HyperLogLog;
+import org.apache.crunch.util.QuantileSketch;
+import org.apache.crunch.util.SpaceSaving;
 import org.apache.crunch.util.Tuples;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.LongWritable;
 
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
@@ -132,7 +138,7 @@ public final class Aggregators {
    * @return The newly constructed instance
    */
   public static Aggregator<Long> MAX_LONGS() {
-    return new MaxComparables<Long>();
+    return new LongsAggregator(PrimitiveOp.MAX);
   }
 
   /**
@@ -150,7 +156,7 @@ public final class Aggregators {
    * @return The newly constructed instance
    */
   public static Aggregator<Integer> MAX_INTS() {
-    return new MaxComparables<Integer>();
+    return new IntsAggregator(PrimitiveOp.MAX);
   }
 
   /**
@@ -168,7 +174,7 @@ public final class Aggregators {
    * @return The newly constructed instance
    */
   public static Aggregator<Float> MAX_FLOATS() {
-    return new MaxComparables<Float>();
+    return new FloatsAggregator(PrimitiveOp.MAX);
   }
 
   /**
@@ -186,7 +192,7 @@ public final class Aggregators {
    * @return The newly constructed instance
    */
   public static Aggregator<Double> MAX_DOUBLES() {
-    return new MaxComparables<Double>();
+    return new DoublesAggregator(PrimitiveOp.MAX);
   }
 
   /**
@@ -270,7 +276,7 @@ public final class Aggregators {
    * @return The newly constructed instance
    */
   public static Aggregator<Long> MIN_LONGS() {
-    return new MinComparables<Long>();
+    return new LongsAggregator(PrimitiveOp.MIN);
   }
 
   /**
@@ -288,7 +294,7 @@ public final class Aggregators {
    * @return The newly constructed instance
    */
   public static Aggregator<Integer> MIN_INTS() {
-    return new MinComparables<Integer>();
+    return new IntsAggregator(PrimitiveOp.MIN);
   }
 
   /**
@@ -306,7 +312,7 @@ public final class Aggregators {
    * @return The newly constructed instance
    */
   public static Aggregator<Float> MIN_FLOATS() {
-    return new MinComparables<Float>();
+    return new FloatsAggregator(PrimitiveOp.MIN);
   }
 
   /**
@@ -324,7 +330,7 @@ public final class Aggregators {
    * @return The newly constructed instance
    */
   public static Aggregator<Double> MIN_DOUBLES() {
-    return new MinComparables<Double>();
+    return new DoublesAggregator(PrimitiveOp.MIN);
   }
 
   /**
@@ -394,6 +400,60 @@ public final class Aggregators {
     return new MinUniqueNAggregator<V>(n);
   }
 
+  /**
+   * Sum up all {@link LongWritable} values. The values are accumulated into a primitive field,
+   * so they do not need to be copied when they are passed to this aggregator.
+   * @return The newly constructed instance
+   */
+  public static Aggregator<LongWritable> SUM_LONG_WRITABLES() {
+    return new LongWritablesAggregator(PrimitiveOp.SUM);
+  }
+
+  /**
+   * Sum up all {@link DoubleWritable} values. The values are accumulated into a primitive field,
+   * so they do not need to be copied when they are passed to this aggregator.
+   * @return The newly constructed instance
+   */
+  public static Aggregator<DoubleWritable> SUM_DOUBLE_WRITABLES() {
+    return new DoubleWritablesAggregator(PrimitiveOp.SUM);
+  }
+
+  /**
+   * Return the maximum of all {@link LongWritable} values. The values are accumulated into a primitive field,
+   * so they do not need to be copied when they are passed to this aggregator.
+   * @return The newly constructed instance
+   */
+  public static Aggregator<LongWritable> MAX_LONG_WRITABLES() {
+    return new LongWritablesAggregator(PrimitiveOp.MAX);
+  }
+
+  /**
+   * Return the maximum of all {@link DoubleWritable} values. The values are accumulated into a primitive field,
+   * so they do not need to be copied when they are passed to this aggregator.
+   * @return The newly constructed instance
+   */
+  public static Aggregator<DoubleWritable> MAX_DOUBLE_WRITABLES() {
+    return new DoubleWritablesAggregator(PrimitiveOp.MAX);
+  }
+
+  /**
+   * Return the minimum of all {@link LongWritable} values. The values are accumulated into a primitive field,
+   * so they do not need to be copied when they are passed to this aggregator.
+   * @return The newly constructed instance
+   */
+  public static Aggregator<LongWritable> MIN_LONG_WRITABLES() {
+    return new LongWritablesAggregator(PrimitiveOp.MIN);
+  }
+
+  /**
+   * Return the minimum of all {@link DoubleWritable} values. The values are accumulated into a primitive field,
+   * so they do not need to be copied when they are passed to this aggregator.
+   * @return The newly constructed instance
+   */
+  public static Aggregator<DoubleWritable> MIN_DOUBLE_WRITABLES() {
+    return new DoubleWritablesAggregator(PrimitiveOp.MIN);
+  }
+
   /**
    * Return the first {@code n} values (or fewer if there are fewer values than {@code n}).
    *
@@ -488,6 +548,43 @@ public final class Aggregators {
   public static <V> Aggregator<V> SAMPLE_UNIQUE_ELEMENTS(int maximumSampleSize) {
     return new SetAggregator<V>(maximumSampleSize);
   }
+
+  /**
+   * Merge {@link BlockedBloomFilter}s into a single filter that contains all of the keys that were
+   * added to any of them. All of the filters must have the same dimensions.
+   * @return The newly constructed instance
+   */
+  public static Aggregator<BlockedBloomFilter> MERGE_BLOCKED_BLOOM_FILTERS() {
+    return new BlockedBloomFilterAggregator();
+  }
+
+  /**
+   * Merge {@link HyperLogLog} sketches into a single sketch that estimates the number of
+   * distinct values that were added to any of them. All of the sketches must have the same
+   * precision.
+   * @return The newly constructed instance
+   */
+  public static Aggregator<HyperLogLog> MERGE_HYPERLOGLOGS() {
+    return new HyperLogLogAggregator();
+  }
+
+  /**
+   * Merge {@link QuantileSketch} sketches into a single sketch that summarizes all of the values
+   * that were added to any of them. All of the sketches must have the same accuracy parameter.
+   * @return The newly constructed instance
+   */
+  public static Aggregator<QuantileSketch> MERGE_QUANTILE_SKETCHES() {
+    return new QuantileSketchAggregator();
+  }
+
+  /**
+   * Merge {@link SpaceSaving} summaries into a single summary of the most frequent items that
+   * were offered to any of them. The merged summary has the capacity of the first summary.
+   * @return The newly constructed instance
+   */
+  public static <T> Aggregator<SpaceSaving<T>> MERGE_SPACE_SAVINGS() {
+    return new SpaceSavingAggregator<T>();
+  }
   
   /**
    * Apply separate aggregators to each component of a {@link Pair}.
@@ -554,6 +651,209 @@ public final class Aggregators {
     }
   }
 
+  /**
+   * Base class for aggregators that accumulate their values into primitive fields and never hold on
+   * to the values that are passed to them, so the values do not need to be detached beforehand.
+   */
+  private static abstract class PrimitiveAggregator<T> extends SimpleAggregator<T> {
+  }
+
+  /**
+   * The operations supported by the aggregators that are specialized for primitive values.
+   */
+  private enum PrimitiveOp {
+    SUM, MAX, MIN;
+
+    long apply(long current, long next) {
+      switch (this) {
+      case SUM:
+        return current + next;
+      case MAX:
+        return Math.max(current, next);
+      default:
+        return Math.min(current, next);
+      }
+    }
+
+    // Uses the same ordering as Double#compareTo, so that NaN and -0.0 are handled like the boxed aggregators
+    double apply(double current, double next) {
+      switch (this) {
+      case SUM:
+        return current + next;
+      case MAX:
+        return Double.compare(current, next) >= 0 ? current : next;
+      default:
+        return Double.compare(current, next) <= 0 ? current : next;
+      }
+    }
+  }
+
+  private static abstract class LongAggregator<T> extends PrimitiveAggregator<T> {
+    private final PrimitiveOp op;
+    private long value;
+    private boolean empty = true;
+
+    LongAggregator(PrimitiveOp op) {
+      this.op = op;
+    }
+
+    protected abstract long toLong(T next);
+
+    protected abstract T fromLong(long result);
+
+    @Override
+    public void reset() {
+      value = 0;
+      empty = true;
+    }
+
+    @Override
+    public void update(T next) {
+      long v = toLong(next);
+      value = empty && op != PrimitiveOp.SUM ? v : op.apply(value, v);
+      empty = false;
+    }
+
+    @Override
+    public Iterable<T> results() {
+      if (empty && op != PrimitiveOp.SUM) {
+        return ImmutableList.of();
+      }
+      return ImmutableList.of(fromLong(value));
+    }
+  }
+
+  private static abstract class DoubleAggregator<T> extends PrimitiveAggregator<T> {
+    private final PrimitiveOp op;
+    private double value;
+    private boolean empty = true;
+
+    DoubleAggregator(PrimitiveOp op) {
+      this.op = op;
+    }
+
+    protected abstract double toDouble(T next);
+
+    protected abstract T fromDouble(double result);
+
+    @Override
+    public void reset() {
+      value = 0;
+      empty = true;
+    }
+
+    @Override
+    public void update(T next) {
+      double v = toDouble(next);
+      value = empty && op != PrimitiveOp.SUM ? v : op.apply(value, v);
+      empty = false;
+    }
+
+    @Override
+    public Iterable<T> results() {
+      if (empty && op != PrimitiveOp.SUM) {
+        return ImmutableList.of();
+      }
+      return ImmutableList.of(fromDouble(value));
+    }
+  }
+
+  private static class LongsAggregator extends LongAggregator<Long> {
+    LongsAggregator(PrimitiveOp op) {
+      super(op);
+    }
+
+    @Override
+    protected long toLong(Long next) {
+      return next;
+    }
+
+    @Override
+    protected Long fromLong(long result) {
+      return result;
+    }
+  }
+
+  private static class IntsAggregator extends LongAggregator<Integer> {
+    IntsAggregator(PrimitiveOp op) {
+      super(op);
+    }
+
+    @Override
+    protected long toLong(Integer next) {
+      return next;
+    }
+
+    @Override
+    protected Integer fromLong(long result) {
+      return (int) result;
+    }
+  }
+
+  private static class LongWritablesAggregator extends LongAggregator<LongWritable> {
+    LongWritablesAggregator(PrimitiveOp op) {
+      super(op);
+    }
+
+    @Override
+    protected long toLong(LongWritable next) {
+      return next.get();
+    }
+
+    @Override
+    protected LongWritable fromLong(long result) {
+      return new LongWritable(result);
+    }
+  }
+
+  private static class DoublesAggregator extends DoubleAggregator<Double> {
+    DoublesAggregator(PrimitiveOp op) {
+      super(op);
+    }
+
+    @Override
+    protected double toDouble(Double next) {
+      return next;
+    }
+
+    @Override
+    protected Double fromDouble(double result) {
+      return result;
+    }
+  }
+
+  private static class FloatsAggregator extends DoubleAggregator<Float> {
+    FloatsAggregator(PrimitiveOp op) {
+      super(op);
+    }
+
+    @Override
+    protected double toDouble(Float next) {
+      return next;
+    }
+
+    @Override
+    protected Float fromDouble(double result) {
+      return (float) result;
+    }
+  }
+
+  private static class DoubleWritablesAggregator extends DoubleAggregator<DoubleWritable> {
+    DoubleWritablesAggregator(PrimitiveOp op) {
+      super(op);
+    }
+
+    @Override
+    protected double toDouble(DoubleWritable next) {
+      return next.get();
+    }
+
+    @Override
+    protected DoubleWritable fromDouble(double result) {
+      return new DoubleWritable(result);
+    }
+  }
+
   /**
    * A {@code CombineFn} that delegates all of the actual work to an
    * {@code Aggregator} instance.
@@ -562,10 +862,12 @@ public final class Aggregators {
     // TODO: Has to be fully qualified until CombineFn.Aggregator can be removed.
     private final Aggregator<V> aggregator;
     private final PType<V> ptype;
+    private final boolean retainsValues;
 
     public AggregatorCombineFn(Aggregator<V> aggregator, PType<V> ptype) {
       this.aggregator = aggregator;
       this.ptype = ptype;
+      this.retainsValues = !(aggregator instanceof PrimitiveAggregator);
     }
 
     @Override
@@ -580,7 +882,7 @@ public final class Aggregators {
     public void process(Pair<K, Iterable<V>> input, Emitter<Pair<K, V>> emitter) {
       aggregator.reset();
       for (V v : input.second()) {
-        aggregator.update(ptype == null ? v : ptype.getDetachedValue(v));
+        aggregator.update(ptype == null || !retainsValues ? v : ptype.getDetachedValue(v));
       }
       for (V v : aggregator.results()) {
         emitter.emit(Pair.of(input.first(), v));
@@ -588,7 +890,7 @@ public final class Aggregators {
     }
   }
 
-  private static class SumLongs extends SimpleAggregator<Long> {
+  private static class SumLongs extends PrimitiveAggregator<Long> {
     private long sum = 0;
 
     @Override
@@ -607,7 +909,7 @@ public final class Aggregators {
     }
   }
 
-  private static class SumInts extends SimpleAggregator<Integer> {
+  private static class SumInts extends PrimitiveAggregator<Integer> {
     private int sum = 0;
 
     @Override
@@ -626,7 +928,7 @@ public final class Aggregators {
     }
   }
 
-  private static class SumFloats extends SimpleAggregator<Float> {
+  private static class SumFloats extends PrimitiveAggregator<Float> {
     private float sum = 0;
 
     @Override
@@ -645,7 +947,7 @@ public final class Aggregators {
     }
   }
 
-  private static class SumDoubles extends SimpleAggregator<Double> {
+  private static class SumDoubles extends PrimitiveAggregator<Double> {
     private double sum = 0;
 
     @Override
@@ -702,6 +1004,94 @@ public final class Aggregators {
     }
   }
 
+  private static class BlockedBloomFilterAggregator extends SimpleAggregator<BlockedBloomFilter> {
+    private BlockedBloomFilter merged = null;
+
+    @Override
+    public void reset() {
+      merged = null;
+    }
+
+    @Override
+    public void update(BlockedBloomFilter next) {
+      if (merged == null) {
+        merged = new BlockedBloomFilter(next.getNumBlocks(), next.getNumHashes());
+      }
+      merged.or(next);
+    }
+
+    @Override
+    public Iterable<BlockedBloomFilter> results() {
+      return merged == null ? ImmutableList.<BlockedBloomFilter>of() : ImmutableList.of(merged);
+    }
+  }
+
+  private static class HyperLogLogAggregator extends SimpleAggregator<HyperLogLog> {
+    private HyperLogLog merged = null;
+
+    @Override
+    public void reset() {
+      merged = null;
+    }
+
+    @Override
+    public void update(HyperLogLog next) {
+      if (merged == null) {
+        merged = new HyperLogLog(next.getPrecision());
+      }
+      merged.merge(next);
+    }
+
+    @Override
+    public Iterable<HyperLogLog> results() {
+      return merged == null ? ImmutableList.<HyperLogLog>of() : ImmutableList.of(merged);
+    }
+  }
+
+  private static class QuantileSketchAggregator extends SimpleAggregator<QuantileSketch> {
+    private QuantileSketch merged = null;
+
+    @Override
+    public void reset() {
+      merged = null;
+    }
+
+    @Override
+    public void update(QuantileSketch next) {
+      if (merged == null) {
+        merged = new QuantileSketch(next.getK());
+      }
+      merged.merge(next);
+    }
+
+    @Override
+    public Iterable<QuantileSketch> results() {
+      return merged == null ? ImmutableList.<QuantileSketch>of() : ImmutableList.of(merged);
+    }
+  }
+
+  private static class SpaceSavingAggregator<T> extends SimpleAggregator<SpaceSaving<T>> {
+    private SpaceSaving<T> merged = null;
+
+    @Override
+    public void reset() {
+      merged = null;
+    }
+
+    @Override
+    public void update(SpaceSaving<T> next) {
+      if (merged == null) {
+        merged = new SpaceSaving<T>(next.getCapacity());
+      }
+      merged.merge(next);
+    }
+
+    @Override
+    public Iterable<SpaceSaving<T>> results() {
+      return merged == null ? ImmutableList.<SpaceSaving<T>>of() : ImmutableList.of(merged);
+    }
+  }
+
   private static class MaxComparables<C extends Comparable<C>> extends SimpleAggregator<C> {
 
     private C max = null;
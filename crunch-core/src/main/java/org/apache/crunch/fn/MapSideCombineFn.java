@@ -0,0 +1,201 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.fn;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.crunch.CombineFn;
+import org.apache.crunch.DoFn;
+import org.apache.crunch.Emitter;
+import org.apache.crunch.Pair;
+import org.apache.crunch.types.PTableType;
+import org.apache.crunch.types.PType;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+
+import com.google.common.collect.Lists;
+
+/**
+ * A {@link DoFn} that applies a {@link CombineFn} to its input in an in-memory hash table before
+ * the records are written out for the shuffle, so that fewer records need to be serialized, sorted
+ * and spilled than when relying on the combiner alone.
+ * <p>
+ * The values for each key are buffered and periodically combined, and the table holds at most a
+ * fixed number of keys. When the table is full, either the least-recently-used key is combined and
+ * emitted ({@link Eviction#LRU}), or all of the keys are ({@link Eviction#FLUSH}). As with the
+ * combiner, the {@code CombineFn} must be associative and commutative.
+ * <p>
+ * This function is applied automatically by {@code PGroupedTable.combineValues} when
+ * {@link #MAX_ENTRIES} is set to a positive value in the pipeline's configuration. It is run over
+ * the ungrouped parent of the grouped table, whose output is then grouped again, so the combined
+ * values come from a grouping of their own. If the original grouped table is also processed in
+ * some other way, such as by a {@code parallelDo} or another {@code combineValues} call, its
+ * values are shuffled a second time; in that case, either leave map-side hash aggregation
+ * disabled or apply this function to the ungrouped table explicitly and group its output once.
+ */
+public class MapSideCombineFn<K, V> extends DoFn<Pair<K, V>, Pair<K, V>> {
+
+  /**
+   * The maximum number of keys to hold in the in-mapper hash table before combining and
+   * emitting them. Map-side hash aggregation is disabled if this is not a positive value,
+   * which is the default. When it is enabled, each {@code combineValues} call groups its
+   * input separately from the grouped table that it is called on (see above).
+   */
+  public static final String MAX_ENTRIES = "crunch.combine.hash.max.entries";
+
+  /**
+   * The {@link Eviction} policy used when the in-mapper hash table is full, either "LRU"
+   * (the default) or "FLUSH".
+   */
+  public static final String EVICTION = "crunch.combine.hash.eviction";
+
+  /**
+   * How keys are removed from the hash table when it is full.
+   */
+  public enum Eviction {
+    /** Only the least-recently-updated key is combined and emitted. */
+    LRU,
+    /** All of the keys in the table are combined and emitted. */
+    FLUSH
+  }
+
+  /**
+   * Creates a {@code MapSideCombineFn} for the given function using the settings from the given
+   * configuration, or returns null if map-side hash aggregation is not enabled.
+   */
+  public static <K, V> MapSideCombineFn<K, V> create(CombineFn<K, V> combineFn, PTableType<K, V> ptype,
+      Configuration conf) {
+    int maxEntries = conf.getInt(MAX_ENTRIES, 0);
+    if (maxEntries <= 0) {
+      return null;
+    }
+    Eviction eviction = Eviction.valueOf(conf.get(EVICTION, Eviction.LRU.name()).toUpperCase());
+    return new MapSideCombineFn<K, V>(combineFn, ptype, maxEntries, eviction);
+  }
+
+  // The number of values that are buffered for a key before they are first combined
+  private static final int COMBINE_EVERY = 32;
+
+  private final CombineFn<K, V> combineFn;
+  private final PType<K> keyType;
+  private final PType<V> valueType;
+  private final int maxEntries;
+  private final Eviction eviction;
+  private transient LinkedHashMap<K, Buffer<V>> table;
+  private transient List<V> combined;
+  private transient Emitter<Pair<K, V>> combinedEmitter;
+
+  public MapSideCombineFn(CombineFn<K, V> combineFn, PTableType<K, V> ptype, int maxEntries, Eviction eviction) {
+    this.combineFn = combineFn;
+    this.keyType = ptype.getKeyType();
+    this.valueType = ptype.getValueType();
+    this.maxEntries = maxEntries;
+    this.eviction = eviction;
+  }
+
+  private static class Buffer<V> {
+    private List<V> values = Lists.newArrayList();
+    private int combineAt = COMBINE_EVERY;
+  }
+
+  @Override
+  public void configure(Configuration conf) {
+    combineFn.configure(conf);
+  }
+
+  @Override
+  public void setContext(TaskInputOutputContext<?, ?, ?, ?> context) {
+    super.setContext(context);
+    combineFn.setContext(context);
+  }
+
+  @Override
+  public void setConfiguration(Configuration conf) {
+    super.setConfiguration(conf);
+    combineFn.setConfiguration(conf);
+  }
+
+  @Override
+  public void initialize() {
+    combineFn.initialize();
+    keyType.initialize(getConfiguration());
+    valueType.initialize(getConfiguration());
+    // Access ordering keeps the least-recently-updated key at the head of the table
+    table = new LinkedHashMap<K, Buffer<V>>(16, 0.75f, eviction == Eviction.LRU);
+    combined = Lists.newArrayList();
+    combinedEmitter = new Emitter<Pair<K, V>>() {
+      @Override
+      public void emit(Pair<K, V> emitted) {
+        combined.add(emitted.second());
+      }
+
+      @Override
+      public void flush() {
+      }
+    };
+  }
+
+  @Override
+  public void process(Pair<K, V> input, Emitter<Pair<K, V>> emitter) {
+    Buffer<V> buffer = table.get(input.first());
+    if (buffer == null) {
+      if (table.size() >= maxEntries) {
+        evict(emitter);
+      }
+      buffer = new Buffer<V>();
+      table.put(keyType.getDetachedValue(input.first()), buffer);
+    }
+    buffer.values.add(valueType.getDetachedValue(input.second()));
+    if (buffer.values.size() >= buffer.combineAt) {
+      combined.clear();
+      combineFn.process(Pair.<K, Iterable<V>>of(input.first(), buffer.values), combinedEmitter);
+      buffer.values = Lists.newArrayList(combined);
+      // Combine functions that emit multiple values per key would otherwise be re-run on every update
+      buffer.combineAt = Math.max(COMBINE_EVERY, 2 * buffer.values.size());
+    }
+  }
+
+  private void evict(Emitter<Pair<K, V>> emitter) {
+    Iterator<Map.Entry<K, Buffer<V>>> iter = table.entrySet().iterator();
+    while (iter.hasNext()) {
+      Map.Entry<K, Buffer<V>> e = iter.next();
+      combineFn.process(Pair.<K, Iterable<V>>of(e.getKey(), e.getValue().values), emitter);
+      iter.remove();
+      if (eviction == Eviction.LRU) {
+        break;
+      }
+    }
+  }
+
+  @Override
+  public void cleanup(Emitter<Pair<K, V>> emitter) {
+    for (Map.Entry<K, Buffer<V>> e : table.entrySet()) {
+      combineFn.process(Pair.<K, Iterable<V>>of(e.getKey(), e.getValue().values), emitter);
+    }
+    table.clear();
+    combineFn.cleanup(emitter);
+  }
+
+  @Override
+  public float scaleFactor() {
+    return combineFn.scaleFactor();
+  }
+}
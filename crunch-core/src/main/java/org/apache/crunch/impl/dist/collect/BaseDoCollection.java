@@ -61,6 +61,10 @@ public class BaseDoCollection<S> extends PCollectionImpl<S> {
     return new DelegatingReadableData(getOnlyParent().asReadable(false), fn);
   }
 
+  public DoFn<?, S> getDoFn() {
+    return fn;
+  }
+
   @Override
   public PType<S> getPType() {
     return ptype;
@@ -81,6 +81,14 @@ public class BaseDoTable<K, V> extends PTableBase<K, V> implements PTable<K, V>
     return Math.max(1L, (long) (fn.scaleFactor() * parentSize));
   }
 
+  public DoFn<?, Pair<K, V>> getDoFn() {
+    return fn;
+  }
+
+  public DoFn<?, Pair<K, V>> getCombineFn() {
+    return combineFn;
+  }
+
   @Override
   public PTableType<K, V> getPTableType() {
     return type;
@@ -32,6 +32,7 @@ import org.apache.crunch.Pair;
 import org.apache.crunch.ReadableData;
 import org.apache.crunch.Target;
 import org.apache.crunch.fn.Aggregators;
+import org.apache.crunch.fn.MapSideCombineFn;
 import org.apache.crunch.lib.PTables;
 import org.apache.crunch.types.PGroupedTableType;
 import org.apache.crunch.types.PType;
@@ -64,7 +65,11 @@ public class BaseGroupedTable<K, V> extends PCollectionImpl<Pair<K, Iterable<V>>
 
   @Override
   protected long getSizeInternal() {
-    return parent.getSizeInternal();
+    return parent.getSize();
+  }
+
+  public GroupingOptions getGroupingOptions() {
+    return groupingOptions;
   }
 
   @Override
@@ -74,6 +79,19 @@ public class BaseGroupedTable<K, V> extends PCollectionImpl<Pair<K, Iterable<V>>
 
   @Override
   public PTable<K, V> combineValues(CombineFn<K, V> combineFn, CombineFn<K, V> reduceFn) {
+    MapSideCombineFn<K, V> mapSideFn = MapSideCombineFn.create(combineFn, parent.getPTableType(),
+        pipeline.getConfiguration());
+    if (mapSideFn != null) {
+      // Aggregate the values in memory before they are written out for the shuffle
+      PTableBase<K, V> preCombined = (PTableBase<K, V>) parent.parallelDo("hash-combine", mapSideFn,
+          parent.getPTableType());
+      BaseGroupedTable<K, V> grouped = pipeline.getFactory().createGroupedTable(preCombined, groupingOptions);
+      return grouped.createCombineTable(combineFn, reduceFn);
+    }
+    return createCombineTable(combineFn, reduceFn);
+  }
+
+  private PTable<K, V> createCombineTable(CombineFn<K, V> combineFn, CombineFn<K, V> reduceFn) {
       return pipeline.getFactory().createDoTable(
           "combine",
           getChainingCollection(),
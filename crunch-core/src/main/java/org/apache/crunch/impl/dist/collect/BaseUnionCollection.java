@@ -28,7 +28,6 @@ import java.util.List;
 public class BaseUnionCollection<S> extends PCollectionImpl<S> {
 
   private List<PCollectionImpl<S>> parents;
-  private long size = 0;
   private long lastModifiedAt = -1;
   
   private static String flatName(List<? extends PCollectionImpl> collections) {
@@ -49,7 +48,6 @@ public class BaseUnionCollection<S> extends PCollectionImpl<S> {
       if (this.pipeline != parent.getPipeline()) {
         throw new IllegalStateException("Cannot union PCollections from different Pipeline instances");
       }
-      size += parent.getSize();
     }
   }
 
@@ -64,6 +62,11 @@ public class BaseUnionCollection<S> extends PCollectionImpl<S> {
 
   @Override
   protected long getSizeInternal() {
+    // Summed when asked for, so that the size follows the sizes of the parents when they are replaced
+    long size = 0;
+    for (PCollectionImpl<S> parent : parents) {
+      size += parent.getSize();
+    }
     return size;
   }
 
@@ -31,7 +31,6 @@ public class BaseUnionTable<K, V> extends PTableBase<K, V> {
 
   private PTableType<K, V> ptype;
   private List<PCollectionImpl<Pair<K, V>>> parents;
-  private long size;
   private long lastModifiedAt = -1;
   
   private static <K, V> String flatName(List<PTableBase<K, V>> tables) {
@@ -55,7 +54,6 @@ public class BaseUnionTable<K, V> extends PTableBase<K, V> {
         throw new IllegalStateException("Cannot union PTables from different Pipeline instances");
       }
       this.parents.add(parent);
-      size += parent.getSize();
     }
   }
 
@@ -69,6 +67,11 @@ public class BaseUnionTable<K, V> extends PTableBase<K, V> {
 
   @Override
   protected long getSizeInternal() {
+    // Summed when asked for, so that the size follows the sizes of the parents when they are replaced
+    long size = 0;
+    for (PCollectionImpl<Pair<K, V>> parent : parents) {
+      size += parent.getSize();
+    }
     return size;
   }
 
@@ -356,6 +356,14 @@ public abstract class PCollectionImpl<S> implements PCollection<S> {
     return size;
   }
 
+  /**
+   * Replaces the estimated size of this collection, e.g. with the size that was observed in a previous run of
+   * the pipeline. A negative size makes the collection estimate its size again.
+   */
+  public void setSize(long size) {
+    this.size = size;
+  }
+
   protected abstract long getSizeInternal();
 
   /**
@@ -51,7 +51,7 @@ class CountersWrapper extends Counters {
   }
 
   @Override
-  public Counter findCounter(String groupName, String counterName) {
+  public synchronized Counter findCounter(String groupName, String counterName) {
     Map<String, Counter> c = lookupCache.get(groupName);
     if (c == null) {
       c = Maps.newHashMap();
@@ -75,6 +75,37 @@ import org.slf4j.LoggerFactory;
 
 public class MemPipeline implements Pipeline {
 
+  /**
+   * The approximate number of bytes of serialized key/value data that a grouping operation will
+   * buffer on the heap before spilling a sorted run to local disk. The default of 0 keeps all
+   * grouped data in memory. Spilling requires the key and value types of the grouped table to be
+   * known, so it does not apply to untyped tables.
+   */
+  public static final String SHUFFLE_SPILL_BYTES = "crunch.mem.shuffle.spill.bytes";
+
+  /**
+   * The local directory that spilled runs of grouped data are written to. Defaults to the
+   * value of the {@code java.io.tmpdir} system property.
+   */
+  public static final String SHUFFLE_SPILL_DIR = "crunch.mem.shuffle.spill.dir";
+
+  /**
+   * The maximum number of spilled runs of grouped data that are merged at once. When there are more,
+   * runs are merged in several passes, which each rewrite the data of the runs that they merge.
+   * Defaults to {@link #DEFAULT_SHUFFLE_MERGE_FACTOR}.
+   */
+  public static final String SHUFFLE_MERGE_FACTOR = "crunch.mem.shuffle.merge.factor";
+
+  public static final int DEFAULT_SHUFFLE_MERGE_FACTOR = 64;
+
+  /**
+   * The number of threads used to run {@code DoFn}s and grouping operations over in-memory data.
+   * When this is greater than one, the data of each {@code PCollection} is split into chunks that
+   * are processed in parallel by separate copies of the {@code DoFn}, and grouped data is
+   * partitioned by key and shuffled in parallel. Defaults to 1.
+   */
+  public static final String PARALLELISM = "crunch.mem.parallelism";
+
   private static final Logger LOG = LoggerFactory.getLogger(MemPipeline.class);
   private static Counters COUNTERS = new CountersWrapper();
   private static final MemPipeline INSTANCE = new MemPipeline();
@@ -89,6 +120,22 @@ public class MemPipeline implements Pipeline {
     COUNTERS = new CountersWrapper();
   }
 
+  /**
+   * Creates a set of counters for a single task of a parallel in-memory operation. Their values
+   * should be added to the pipeline's counters with {@link #incrementCounters(Counters)} once the
+   * task is complete.
+   */
+  public static Counters createTaskCounters() {
+    return new CountersWrapper();
+  }
+
+  /**
+   * Adds the values of the given task counters to the counters of the pipeline.
+   */
+  public static void incrementCounters(Counters taskCounters) {
+    COUNTERS.incrAllCounters(taskCounters);
+  }
+
   public static Pipeline getInstance() {
     return INSTANCE;
   }
@@ -23,7 +23,9 @@ import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.lang.reflect.Method;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 import com.google.common.collect.Iterables;
 import javassist.util.proxy.MethodFilter;
@@ -57,6 +59,7 @@ import org.apache.crunch.types.PType;
 import org.apache.crunch.types.PTypeFamily;
 import org.apache.crunch.util.ClassloaderFallbackObjectInputStream;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.Counters;
 import org.apache.hadoop.mapreduce.OutputCommitter;
 import org.apache.hadoop.mapreduce.RecordWriter;
 import org.apache.hadoop.mapreduce.StatusReporter;
@@ -65,6 +68,7 @@ import org.apache.hadoop.mapreduce.TaskInputOutputContext;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 
 public class MemCollection<S> implements PCollection<S> {
 
@@ -162,16 +166,7 @@ public class MemCollection<S> implements PCollection<S> {
   public <T> PCollection<T> parallelDo(String name, DoFn<S, T> doFn, PType<T> type,
       ParallelDoOptions options) {
     doFn = verifySerializable(name, doFn);
-    InMemoryEmitter<T> emitter = new InMemoryEmitter<T>();
-    Configuration conf = getPipeline().getConfiguration();
-    doFn.configure(conf);
-    doFn.setContext(getInMemoryContext(conf));
-    doFn.initialize();
-    for (S s : collect) {
-      doFn.process(s, emitter);
-    }
-    doFn.cleanup(emitter);
-    return new MemCollection<T>(emitter.getOutput(), type, name);
+    return new MemCollection<T>(runDoFn(doFn), type, name);
   }
 
   @Override
@@ -187,16 +182,51 @@ public class MemCollection<S> implements PCollection<S> {
   @Override
   public <K, V> PTable<K, V> parallelDo(String name, DoFn<S, Pair<K, V>> doFn, PTableType<K, V> type,
       ParallelDoOptions options) {
-    InMemoryEmitter<Pair<K, V>> emitter = new InMemoryEmitter<Pair<K, V>>();
-    Configuration conf = getPipeline().getConfiguration();
+    return new MemTable<K, V>(runDoFn(doFn), type, name);
+  }
+
+  private <T> List<T> runDoFn(DoFn<S, T> doFn) {
+    final Configuration conf = getPipeline().getConfiguration();
     doFn.configure(conf);
-    doFn.setContext(getInMemoryContext(conf));
+    int parallelism = ParallelExecution.getParallelism(conf);
+    // The values of spilled groups are streamed from disk, so they must be processed in order
+    if (parallelism > 1 && !(collect instanceof SpillingShuffler)) {
+      List<List<S>> chunks = ParallelExecution.split(collect, parallelism);
+      if (chunks.size() > 1) {
+        // Each chunk gets its own copy of the DoFn, just like each task in a MapReduce job
+        final byte[] serializedFn = SerializationUtils.serialize(doFn);
+        List<Callable<List<T>>> tasks = Lists.newArrayListWithCapacity(chunks.size());
+        for (final List<S> chunk : chunks) {
+          tasks.add(new Callable<List<T>>() {
+            @Override
+            public List<T> call() {
+              Counters counters = MemPipeline.createTaskCounters();
+              List<T> output = processChunk((DoFn<S, T>) deserialize(serializedFn), chunk, conf, counters);
+              MemPipeline.incrementCounters(counters);
+              return output;
+            }
+          });
+        }
+        List<T> output = Lists.newArrayList();
+        for (List<T> chunkOutput : ParallelExecution.invokeAll(parallelism, tasks)) {
+          output.addAll(chunkOutput);
+        }
+        return output;
+      }
+    }
+    return processChunk(doFn, collect, conf, MemPipeline.getCounters());
+  }
+
+  private static <S, T> List<T> processChunk(DoFn<S, T> doFn, Iterable<S> input, Configuration conf,
+      Counters counters) {
+    InMemoryEmitter<T> emitter = new InMemoryEmitter<T>();
+    doFn.setContext(getInMemoryContext(conf, counters));
     doFn.initialize();
-    for (S s : collect) {
+    for (S s : input) {
       doFn.process(s, emitter);
     }
     doFn.cleanup(emitter);
-    return new MemTable<K, V>(emitter.getOutput(), type, name);
+    return emitter.getOutput();
   }
 
   @Override
@@ -336,7 +366,8 @@ public class MemCollection<S> implements PCollection<S> {
    * required to make the {@linkplain MemPipeline} work. It lacks even the basic
    * things that can proved some support for unit testing pipeline.
    */
-  private static TaskInputOutputContext<?, ?, ?, ?> getInMemoryContext(final Configuration conf) {
+  private static TaskInputOutputContext<?, ?, ?, ?> getInMemoryContext(final Configuration conf,
+      final Counters counters) {
     ProxyFactory factory = new ProxyFactory();
     Class<TaskInputOutputContext> superType = TaskInputOutputContext.class;
     Class[] types = new Class[0];
@@ -374,9 +405,9 @@ public class MemCollection<S> implements PCollection<S> {
           return 1;
         } else if ("getCounter".equals(name)){ // getCounter
           if (args.length == 1) {
-            return MemPipeline.getCounters().findCounter((Enum<?>) args[0]);
+            return counters.findCounter((Enum<?>) args[0]);
           } else {
-            return MemPipeline.getCounters().findCounter((String) args[0], (String) args[1]);
+            return counters.findCounter((String) args[0], (String) args[1]);
           }
         } else {
           throw new IllegalStateException("Unhandled method " + name);
@@ -41,7 +41,16 @@ class MemGroupedTable<K, V> extends MemCollection<Pair<K, Iterable<V>>> implemen
 
   private static <S, T> Iterable<Pair<S, Iterable<T>>> buildMap(MemTable<S, T> parent, GroupingOptions options) {
     PType<S> keyType = parent.getKeyType();
-    Shuffler<S, T> shuffler = Shuffler.create(keyType, options, parent.getPipeline());
+    int parallelism = ParallelExecution.getParallelism(parent.getPipeline().getConfiguration());
+    if (parallelism > 1 && ParallelShuffler.supports(keyType, options, parent.getPipeline())) {
+      ParallelShuffler<S, T> shuffler = ParallelShuffler.create(keyType, parent.getValueType(), options,
+          parent.getPipeline(), parallelism);
+      shuffler.addAll(parent.materialize());
+      return shuffler;
+    }
+
+    Shuffler<S, T> shuffler = Shuffler.create(keyType, parent.getValueType(), options,
+        parent.getPipeline());
 
     for (Pair<S, T> pair : parent.materialize()) {
       shuffler.add(pair);
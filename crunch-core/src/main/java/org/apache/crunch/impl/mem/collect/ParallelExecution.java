@@ -0,0 +1,93 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.impl.mem.collect;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.crunch.CrunchRuntimeException;
+import org.apache.crunch.impl.mem.MemPipeline;
+import org.apache.hadoop.conf.Configuration;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Utilities for running the work of in-memory operations over multiple threads when
+ * {@link MemPipeline#PARALLELISM} is greater than one.
+ */
+final class ParallelExecution {
+
+  /**
+   * Returns the number of threads that in-memory operations may use.
+   */
+  static int getParallelism(Configuration conf) {
+    return Math.max(1, conf.getInt(MemPipeline.PARALLELISM, 1));
+  }
+
+  /**
+   * Splits the given data into at most {@code numChunks} contiguous chunks of roughly equal size,
+   * preserving the original order of the elements.
+   */
+  static <T> List<List<T>> split(Iterable<T> data, int numChunks) {
+    List<T> all = data instanceof List ? (List<T>) data : Lists.newArrayList(data);
+    int chunks = Math.max(1, Math.min(numChunks, all.size()));
+    List<List<T>> ret = Lists.newArrayListWithCapacity(chunks);
+    int start = 0;
+    for (int i = 0; i < chunks; i++) {
+      int end = start + (all.size() - start) / (chunks - i);
+      ret.add(all.subList(start, end));
+      start = end;
+    }
+    return ret;
+  }
+
+  /**
+   * Runs the given tasks on a fork-join pool with the given parallelism and returns their
+   * results in the same order as the tasks.
+   */
+  static <R> List<R> invokeAll(int parallelism, List<? extends Callable<R>> tasks) {
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      List<R> results = Lists.newArrayListWithCapacity(tasks.size());
+      for (Future<R> future : pool.invokeAll(tasks)) {
+        results.add(future.get());
+      }
+      return results;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CrunchRuntimeException(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new CrunchRuntimeException((Exception) cause);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  // Not instantiated
+  private ParallelExecution() {
+  }
+}
@@ -0,0 +1,155 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.impl.mem.collect;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.apache.crunch.GroupingOptions;
+import org.apache.crunch.Pair;
+import org.apache.crunch.Pipeline;
+import org.apache.crunch.impl.mem.MemPipeline;
+import org.apache.crunch.types.PType;
+
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+
+/**
+ * A {@link Shuffler} that hash-partitions records by key across a number of in-memory
+ * shufflers, which are then filled in parallel. If the keys have a natural ordering, iterating
+ * over the shuffler merges the partitions so that groups are returned in key order.
+ */
+class ParallelShuffler<K, V> extends Shuffler<K, V> {
+
+  /**
+   * Returns true if grouping with the given options can be done in parallel. Keys that are ordered
+   * by a custom sort comparator are only ordered once they are converted for the shuffle, and the
+   * values of spilled groups are streamed, so both of those cases are handled sequentially.
+   */
+  static boolean supports(PType<?> keyType, GroupingOptions options, Pipeline pipeline) {
+    if (pipeline.getConfiguration().getLong(MemPipeline.SHUFFLE_SPILL_BYTES, 0L) > 0) {
+      return false;
+    }
+    return options == null || options.getSortComparatorClass() == null
+        || isSecondarySort(keyType, options);
+  }
+
+  private static boolean isSecondarySort(PType<?> keyType, GroupingOptions options) {
+    return keyType != null && options != null && Pair.class.equals(keyType.getTypeClass())
+        && options.getGroupingComparatorClass() != null;
+  }
+
+  static <S, T> ParallelShuffler<S, T> create(PType<S> keyType, PType<T> valueType,
+      GroupingOptions options, Pipeline pipeline, int parallelism) {
+    List<Shuffler<S, T>> partitions = Lists.newArrayListWithCapacity(parallelism);
+    for (int i = 0; i < parallelism; i++) {
+      partitions.add(Shuffler.<S, T>create(keyType, valueType, options, pipeline));
+    }
+    boolean secondarySort = isSecondarySort(keyType, options);
+    PType<?> groupKeyType = secondarySort ? keyType.getSubTypes().get(0) : keyType;
+    boolean ordered = groupKeyType != null
+        && Comparable.class.isAssignableFrom(groupKeyType.getTypeClass());
+    return new ParallelShuffler<S, T>(partitions, secondarySort, ordered);
+  }
+
+  private final List<Shuffler<K, V>> partitions;
+  private final boolean secondarySort;
+  private final boolean ordered;
+
+  private ParallelShuffler(List<Shuffler<K, V>> partitions, boolean secondarySort, boolean ordered) {
+    this.partitions = partitions;
+    this.secondarySort = secondarySort;
+    this.ordered = ordered;
+  }
+
+  private Object getGroupKey(K key) {
+    return secondarySort ? ((Pair<?, ?>) key).first() : key;
+  }
+
+  private int getPartition(K key) {
+    Object groupKey = getGroupKey(key);
+    return groupKey == null ? 0 : (groupKey.hashCode() & Integer.MAX_VALUE) % partitions.size();
+  }
+
+  @Override
+  public void add(Pair<K, V> record) {
+    partitions.get(getPartition(record.first())).add(record);
+  }
+
+  /**
+   * Adds all of the given records, first assigning chunks of them to partitions in parallel and
+   * then filling each of the partitions in parallel.
+   */
+  public void addAll(Iterable<Pair<K, V>> records) {
+    final int numPartitions = partitions.size();
+    List<Callable<List<List<Pair<K, V>>>>> assignTasks = Lists.newArrayList();
+    for (final List<Pair<K, V>> chunk : ParallelExecution.split(records, numPartitions)) {
+      assignTasks.add(new Callable<List<List<Pair<K, V>>>>() {
+        @Override
+        public List<List<Pair<K, V>>> call() {
+          List<List<Pair<K, V>>> assigned = Lists.newArrayListWithCapacity(numPartitions);
+          for (int i = 0; i < numPartitions; i++) {
+            assigned.add(Lists.<Pair<K, V>>newArrayList());
+          }
+          for (Pair<K, V> record : chunk) {
+            assigned.get(getPartition(record.first())).add(record);
+          }
+          return assigned;
+        }
+      });
+    }
+    final List<List<List<Pair<K, V>>>> assignments = ParallelExecution.invokeAll(numPartitions, assignTasks);
+
+    List<Callable<Void>> fillTasks = Lists.newArrayListWithCapacity(numPartitions);
+    for (int i = 0; i < numPartitions; i++) {
+      final int partition = i;
+      fillTasks.add(new Callable<Void>() {
+        @Override
+        public Void call() {
+          Shuffler<K, V> shuffler = partitions.get(partition);
+          for (List<List<Pair<K, V>>> assigned : assignments) {
+            for (Pair<K, V> record : assigned.get(partition)) {
+              shuffler.add(record);
+            }
+          }
+          return null;
+        }
+      });
+    }
+    ParallelExecution.invokeAll(numPartitions, fillTasks);
+  }
+
+  @Override
+  public Iterator<Pair<K, Iterable<V>>> iterator() {
+    List<Iterator<Pair<K, Iterable<V>>>> iterators = Lists.newArrayListWithCapacity(partitions.size());
+    for (Shuffler<K, V> partition : partitions) {
+      iterators.add(partition.iterator());
+    }
+    if (ordered) {
+      return Iterators.mergeSorted(iterators, new Comparator<Pair<K, Iterable<V>>>() {
+        @Override
+        public int compare(Pair<K, Iterable<V>> a, Pair<K, Iterable<V>> b) {
+          return ((Comparable) getGroupKey(a.first())).compareTo(getGroupKey(b.first()));
+        }
+      });
+    }
+    return Iterators.concat(iterators.iterator());
+  }
+}
@@ -0,0 +1,149 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.impl.mem.collect;
+
+import java.io.IOException;
+
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.crunch.CrunchRuntimeException;
+import org.apache.crunch.types.PType;
+import org.apache.crunch.types.avro.AvroMode;
+import org.apache.crunch.types.avro.AvroType;
+import org.apache.crunch.types.writable.WritableType;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/**
+ * Converts the values of a {@link PType} to and from the same binary form that they would have
+ * in the MapReduce shuffle, so that they can be buffered compactly and compared with the
+ * {@code RawComparator} implementations used by {@link org.apache.crunch.GroupingOptions}.
+ */
+abstract class RecordSerializer<T> {
+
+  /**
+   * Returns true if values of the given {@code PType} can be handled by a {@code RecordSerializer}.
+   */
+  static boolean supports(PType<?> ptype) {
+    return ptype instanceof WritableType || ptype instanceof AvroType;
+  }
+
+  static <T> RecordSerializer<T> create(PType<T> ptype, Configuration conf) {
+    ptype.initialize(conf);
+    if (ptype instanceof WritableType) {
+      return new WritableSerializer<T>((WritableType<T, ?>) ptype, conf);
+    } else if (ptype instanceof AvroType) {
+      return new AvroSerializer<T>((AvroType<T>) ptype, conf);
+    }
+    throw new IllegalArgumentException("Unsupported PType for serialization: " + ptype);
+  }
+
+  public abstract byte[] serialize(T value);
+
+  public abstract T deserialize(byte[] bytes, int offset, int length);
+
+  public T deserialize(byte[] bytes) {
+    return deserialize(bytes, 0, bytes.length);
+  }
+
+  private static class WritableSerializer<T> extends RecordSerializer<T> {
+    private final WritableType<T, ?> ptype;
+    private final Configuration conf;
+    private final DataOutputBuffer out = new DataOutputBuffer();
+    private final DataInputBuffer in = new DataInputBuffer();
+
+    WritableSerializer(WritableType<T, ?> ptype, Configuration conf) {
+      this.ptype = ptype;
+      this.conf = conf;
+    }
+
+    @Override
+    public byte[] serialize(T value) {
+      out.reset();
+      try {
+        ((Writable) ptype.getOutputMapFn().map(value)).write(out);
+      } catch (IOException e) {
+        throw new CrunchRuntimeException(e);
+      }
+      byte[] bytes = new byte[out.getLength()];
+      System.arraycopy(out.getData(), 0, bytes, 0, out.getLength());
+      return bytes;
+    }
+
+    @Override
+    public T deserialize(byte[] bytes, int offset, int length) {
+      // A fresh instance is needed for each record since the input MapFn may hold on to it
+      Writable writable = ReflectionUtils.newInstance(ptype.getSerializationClass(), conf);
+      in.reset(bytes, offset, length);
+      try {
+        writable.readFields(in);
+      } catch (IOException e) {
+        throw new CrunchRuntimeException(e);
+      }
+      return (T) ptype.getInputMapFn().map(writable);
+    }
+  }
+
+  private static class AvroSerializer<T> extends RecordSerializer<T> {
+    private final AvroType<T> ptype;
+    private final DatumWriter<Object> writer;
+    private final DatumReader<Object> reader;
+    private final DataOutputBuffer out = new DataOutputBuffer();
+    private BinaryEncoder encoder;
+    private BinaryDecoder decoder;
+
+    AvroSerializer(AvroType<T> ptype, Configuration conf) {
+      this.ptype = ptype;
+      AvroMode mode = AvroMode.fromType(ptype).withFactoryFromConfiguration(conf);
+      this.writer = mode.getWriter(ptype.getSchema());
+      this.reader = mode.getReader(ptype.getSchema());
+    }
+
+    @Override
+    public byte[] serialize(T value) {
+      out.reset();
+      encoder = EncoderFactory.get().directBinaryEncoder(out, encoder);
+      try {
+        writer.write(ptype.getOutputMapFn().map(value), encoder);
+        encoder.flush();
+      } catch (IOException e) {
+        throw new CrunchRuntimeException(e);
+      }
+      byte[] bytes = new byte[out.getLength()];
+      System.arraycopy(out.getData(), 0, bytes, 0, out.getLength());
+      return bytes;
+    }
+
+    @Override
+    public T deserialize(byte[] bytes, int offset, int length) {
+      decoder = DecoderFactory.get().binaryDecoder(bytes, offset, length, decoder);
+      try {
+        return ptype.getInputMapFn().map(reader.read(null, decoder));
+      } catch (IOException e) {
+        throw new CrunchRuntimeException(e);
+      }
+    }
+  }
+}
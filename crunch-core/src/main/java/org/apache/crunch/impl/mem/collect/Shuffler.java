@@ -17,6 +17,7 @@
  */
 package org.apache.crunch.impl.mem.collect;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
@@ -32,8 +33,11 @@ import org.apache.crunch.GroupingOptions;
 import org.apache.crunch.Pair;
 import org.apache.crunch.Pipeline;
 import org.apache.crunch.impl.SingleUseIterable;
+import org.apache.crunch.impl.mem.MemPipeline;
 import org.apache.crunch.types.PType;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.RawComparator;
+import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.util.ReflectionUtils;
 
@@ -42,12 +46,16 @@ import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * In-memory versions of common MapReduce patterns for aggregating key-value data.
  */
 abstract class Shuffler<K, V> implements Iterable<Pair<K, Iterable<V>>> {
 
+  private static final Logger LOG = LoggerFactory.getLogger(Shuffler.class);
+
   public abstract void add(Pair<K, V> record);
   
   private static <K, V> Map<K, V> getMapForKeyType(PType<?> ptype) {
@@ -58,6 +66,22 @@ abstract class Shuffler<K, V> implements Iterable<Pair<K, Iterable<V>>> {
     }
   }
   
+  public static <S, T> Shuffler<S, T> create(PType<S> keyType, PType<T> valueType,
+      GroupingOptions options, Pipeline pipeline) {
+    Configuration conf = pipeline.getConfiguration();
+    long spillBytes = conf.getLong(MemPipeline.SHUFFLE_SPILL_BYTES, 0L);
+    if (spillBytes > 0) {
+      if (SpillingShuffler.supports(keyType, valueType)) {
+        File spillDir = new File(conf.get(MemPipeline.SHUFFLE_SPILL_DIR,
+            System.getProperty("java.io.tmpdir")));
+        return SpillingShuffler.create(keyType, valueType, options, conf, spillBytes, spillDir);
+      }
+      LOG.warn("Cannot spill grouped data with key type {} and value type {}, keeping it in memory",
+          keyType, valueType);
+    }
+    return create(keyType, options, pipeline);
+  }
+
   public static <S, T> Shuffler<S, T> create(PType<S> keyType, GroupingOptions options,
       Pipeline pipeline) {
     Map<Object, Collection<T>> map = getMapForKeyType(keyType);
@@ -97,7 +121,8 @@ abstract class Shuffler<K, V> implements Iterable<Pair<K, Iterable<V>>> {
       if (keyType == null) {
         key = (K) input.getKey();
       } else {
-        Object k = keyType.getConverter().convertInput(input.getKey(), null);
+        Object k = input.getKey() instanceof Writable ? input.getKey()
+            : keyType.getConverter().convertInput(input.getKey(), null);
         key = keyType.getInputMapFn().map(k);
       }
       return Pair.<K, Iterable<V>>of(key, new SingleUseIterable<V>(input.getValue()));
@@ -127,7 +152,9 @@ abstract class Shuffler<K, V> implements Iterable<Pair<K, Iterable<V>>> {
     public void add(Pair<K, V> record) {
       Object key = record.first();
       if (keyType != null) {
-        key = keyType.getConverter().outputKey(keyType.getOutputMapFn().map((K) key));
+        Object output = keyType.getOutputMapFn().map((K) key);
+        // Writable keys are compared as they are, since the converter of a writable type drops its keys
+        key = output instanceof Writable ? output : keyType.getConverter().outputKey(output);
       }
       if (!map.containsKey(key)) {
         Collection<V> values = Lists.newArrayList();
@@ -0,0 +1,562 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.impl.mem.collect;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import org.apache.crunch.CrunchRuntimeException;
+import org.apache.crunch.GroupingOptions;
+import org.apache.crunch.Pair;
+import org.apache.crunch.impl.SingleUseIterable;
+import org.apache.crunch.impl.mem.MemPipeline;
+import org.apache.crunch.types.PType;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.RawComparator;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * A {@link Shuffler} that keeps a bounded amount of data on the heap. Records are serialized
+ * using their {@code PType}, buffered until the configured number of bytes is reached, and then
+ * sorted and written to a local temporary file as a run. Iterating over the shuffler performs a
+ * k-way merge of all of the spilled runs and the records that are still held in memory.
+ * <p>
+ * At most {@link MemPipeline#SHUFFLE_MERGE_FACTOR} runs are merged at once: whenever that many runs of
+ * the same size have been spilled they are merged into a single larger run, and any runs beyond the
+ * limit that remain when the shuffler is iterated are merged first. Merged runs are deleted as soon
+ * as the merge that reads them finishes. The final runs are kept so that the shuffler can be iterated
+ * again, and are deleted once the shuffler is no longer reachable.
+ * <p>
+ * As in a MapReduce reducer, the values for a key are streamed from the merge, so they must be
+ * consumed before moving on to the next key; any values that are not read are skipped.
+ */
+class SpillingShuffler<K, V> extends Shuffler<K, V> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SpillingShuffler.class);
+
+  private static final int BUFFER_SIZE = 32 * 1024;
+
+  // Approximate per-record overhead of a buffered record on the heap
+  private static final int RECORD_OVERHEAD = 64;
+
+  // The runs of the shufflers that have spilled, by phantom references to the shufflers, so that the runs
+  // of the shufflers that are no longer reachable can be deleted without waiting for the JVM to exit
+  private static final ReferenceQueue<Object> UNREACHABLE = new ReferenceQueue<Object>();
+  private static final Map<Reference<?>, List<Run>> LIVE_RUNS = Maps.newConcurrentMap();
+
+  /**
+   * Deletes the runs of the shufflers that have been garbage collected.
+   */
+  static void deleteUnreachableRuns() {
+    Reference<?> ref;
+    while ((ref = UNREACHABLE.poll()) != null) {
+      List<Run> runs = LIVE_RUNS.remove(ref);
+      if (runs != null) {
+        synchronized (runs) {
+          deleteRuns(runs);
+        }
+      }
+    }
+  }
+
+  private static void deleteRuns(List<Run> runs) {
+    for (Run run : runs) {
+      if (!run.file.delete() && run.file.exists()) {
+        LOG.warn("Could not delete spilled shuffle data in {}", run.file);
+      }
+    }
+    runs.clear();
+  }
+
+  /**
+   * Returns true if the key and value types can be serialized for spilling.
+   */
+  static boolean supports(PType<?> keyType, PType<?> valueType) {
+    return keyType != null && valueType != null
+        && RecordSerializer.supports(keyType) && RecordSerializer.supports(valueType);
+  }
+
+  static <S, T> SpillingShuffler<S, T> create(PType<S> keyType, PType<T> valueType,
+      GroupingOptions options, Configuration conf, long maxBufferBytes, File spillDir) {
+    RawComparator<?> sortComparator = null;
+    boolean secondarySort = false;
+    if (options != null) {
+      Job job;
+      try {
+        job = new Job(conf);
+      } catch (IOException e) {
+        throw new IllegalStateException("Could not create Job instance", e);
+      }
+      options.configure(job);
+      conf = job.getConfiguration();
+      if (Pair.class.equals(keyType.getTypeClass()) && options.getGroupingComparatorClass() != null) {
+        secondarySort = true;
+      } else if (options.getSortComparatorClass() != null) {
+        sortComparator = ReflectionUtils.newInstance(options.getSortComparatorClass(), conf);
+      }
+    }
+    boolean naturalOrder = sortComparator == null
+        && Comparable.class.isAssignableFrom(keyType.getTypeClass());
+    int mergeFactor = conf.getInt(MemPipeline.SHUFFLE_MERGE_FACTOR, MemPipeline.DEFAULT_SHUFFLE_MERGE_FACTOR);
+    Preconditions.checkArgument(mergeFactor > 1, "%s must be at least 2, got %s",
+        MemPipeline.SHUFFLE_MERGE_FACTOR, mergeFactor);
+    deleteUnreachableRuns();
+    SpillingShuffler<S, T> shuffler = new SpillingShuffler<S, T>(
+        RecordSerializer.create(keyType, conf),
+        RecordSerializer.create(valueType, conf),
+        sortComparator, naturalOrder, secondarySort, maxBufferBytes, mergeFactor, spillDir);
+    LIVE_RUNS.put(new PhantomReference<Object>(shuffler, UNREACHABLE), shuffler.runs);
+    return shuffler;
+  }
+
+  private final RecordSerializer<K> keySerializer;
+  private final RecordSerializer<V> valueSerializer;
+  private final Comparator<Record> sortOrder;
+  private final boolean secondarySort;
+  private final long maxBufferBytes;
+  private final int mergeFactor;
+  private final File spillDir;
+
+  private final List<Record> buffer = Lists.newArrayList();
+  // Guarded by itself, since the runs of unreachable shufflers are deleted by other threads
+  private final List<Run> runs = Lists.newArrayList();
+  private long bufferBytes = 0;
+  private boolean bufferSorted = false;
+
+  private SpillingShuffler(RecordSerializer<K> keySerializer, RecordSerializer<V> valueSerializer,
+      RawComparator<?> sortComparator, boolean naturalOrder, boolean secondarySort,
+      long maxBufferBytes, int mergeFactor, File spillDir) {
+    this.keySerializer = keySerializer;
+    this.valueSerializer = valueSerializer;
+    this.secondarySort = secondarySort;
+    this.maxBufferBytes = maxBufferBytes;
+    this.mergeFactor = mergeFactor;
+    this.spillDir = spillDir;
+    if (sortComparator != null) {
+      this.sortOrder = new RawRecordComparator(sortComparator);
+    } else if (naturalOrder) {
+      this.sortOrder = new NaturalRecordComparator();
+    } else {
+      // Keys with no natural ordering only need to be grouped, so ordering by bytes is sufficient
+      this.sortOrder = new RawRecordComparator(null);
+    }
+  }
+
+  @Override
+  public void add(Pair<K, V> record) {
+    Record r = new Record(keySerializer.serialize(record.first()),
+        valueSerializer.serialize(record.second()));
+    buffer.add(r);
+    bufferSorted = false;
+    bufferBytes += r.key.length + r.value.length + RECORD_OVERHEAD;
+    if (bufferBytes >= maxBufferBytes) {
+      spill();
+    }
+  }
+
+  private void sortBuffer() {
+    if (!bufferSorted) {
+      Collections.sort(buffer, sortOrder);
+      for (Record r : buffer) {
+        r.clearKey();
+      }
+      bufferSorted = true;
+    }
+  }
+
+  private void spill() {
+    sortBuffer();
+    Run run = writeRun(buffer.iterator(), buffer.size(), 0);
+    LOG.debug("Spilled {} records ({} bytes) to {}", new Object[] { buffer.size(), bufferBytes, run.file });
+    buffer.clear();
+    bufferBytes = 0;
+    synchronized (runs) {
+      runs.add(run);
+      // Runs are merged like the digits of a counter in base mergeFactor, so each record is rewritten once
+      // per level, and there are at most mergeFactor - 1 runs of each level
+      while (runs.size() >= mergeFactor && runs.get(runs.size() - mergeFactor).level == run.level) {
+        run = mergeRuns(mergeFactor);
+      }
+    }
+  }
+
+  /**
+   * Merges the last {@code count} runs, which are the smallest ones, into a single run that replaces them,
+   * and deletes them.
+   */
+  private Run mergeRuns(int count) {
+    List<Run> merged = Lists.newArrayList(runs.subList(runs.size() - count, runs.size()));
+    List<RunIterator> sources = Lists.newArrayListWithCapacity(count);
+    int records = 0;
+    int level = 0;
+    for (Run run : merged) {
+      RunIterator source = new RunIterator(run.file);
+      sources.add(source);
+      records += source.remaining;
+      level = Math.max(level, run.level + 1);
+    }
+    MergeIterator merge = new MergeIterator(sources);
+    Run run;
+    try {
+      run = writeRun(merge, records, level);
+    } finally {
+      merge.close();
+    }
+    LOG.debug("Merged {} runs into {}", count, run.file);
+    deleteRuns(merged);
+    runs.subList(runs.size() - count, runs.size()).clear();
+    runs.add(run);
+    return run;
+  }
+
+  private Run writeRun(Iterator<Record> records, int count, int level) {
+    DataOutputStream out = null;
+    File file = null;
+    try {
+      file = File.createTempFile("crunch-shuffle-", ".run", spillDir);
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+      out.writeInt(count);
+      while (records.hasNext()) {
+        Record r = records.next();
+        out.writeInt(r.key.length);
+        out.write(r.key);
+        out.writeInt(r.value.length);
+        out.write(r.value);
+      }
+      out.close();
+      out = null;
+      return new Run(file, level);
+    } catch (IOException e) {
+      if (file != null) {
+        file.delete();
+      }
+      throw new CrunchRuntimeException("Could not spill shuffle data to local disk", e);
+    } finally {
+      if (out != null) {
+        try {
+          out.close();
+        } catch (IOException e) {
+          // ignore close exception
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns an iterator over the groups of the shuffler, which also implements {@link Closeable} so that
+   * the files of the spilled runs that it reads can be closed when it is not exhausted.
+   */
+  @Override
+  public Iterator<Pair<K, Iterable<V>>> iterator() {
+    sortBuffer();
+    List<Iterator<Record>> sources;
+    synchronized (runs) {
+      int maxRuns = buffer.isEmpty() ? mergeFactor : mergeFactor - 1;
+      while (runs.size() > maxRuns) {
+        mergeRuns(Math.min(mergeFactor, runs.size() - maxRuns + 1));
+      }
+      sources = Lists.newArrayListWithCapacity(runs.size() + 1);
+      for (Run run : runs) {
+        sources.add(new RunIterator(run.file));
+      }
+    }
+    if (!buffer.isEmpty()) {
+      sources.add(buffer.iterator());
+    }
+    return new GroupIterator(new MergeIterator(sources));
+  }
+
+  /**
+   * A spilled run, and the number of times that its records have been merged.
+   */
+  private static class Run {
+    final File file;
+    final int level;
+
+    Run(File file, int level) {
+      this.file = file;
+      this.level = level;
+    }
+  }
+
+  /**
+   * A serialized key/value pair, along with a lazily deserialized copy of the key that is
+   * used when the keys are compared according to their natural ordering.
+   */
+  private class Record {
+    final byte[] key;
+    final byte[] value;
+    private K keyObject;
+
+    Record(byte[] key, byte[] value) {
+      this.key = key;
+      this.value = value;
+    }
+
+    K key() {
+      if (keyObject == null) {
+        keyObject = keySerializer.deserialize(key);
+      }
+      return keyObject;
+    }
+
+    void clearKey() {
+      keyObject = null;
+    }
+  }
+
+  private class RawRecordComparator implements Comparator<Record> {
+    private final RawComparator<?> rc;
+
+    RawRecordComparator(RawComparator<?> rc) {
+      this.rc = rc;
+    }
+
+    @Override
+    public int compare(Record a, Record b) {
+      if (rc == null) {
+        return WritableComparator.compareBytes(a.key, 0, a.key.length, b.key, 0, b.key.length);
+      }
+      return rc.compare(a.key, 0, a.key.length, b.key, 0, b.key.length);
+    }
+  }
+
+  private class NaturalRecordComparator implements Comparator<Record> {
+    @Override
+    public int compare(Record a, Record b) {
+      return ((Comparable) a.key()).compareTo(b.key());
+    }
+  }
+
+  /**
+   * Reads back the records of a single spilled run, in order.
+   */
+  private class RunIterator extends AbstractIterator<Record> implements Closeable {
+    private final File run;
+    private DataInputStream in;
+    private int remaining;
+
+    RunIterator(File run) {
+      this.run = run;
+      try {
+        this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(run), BUFFER_SIZE));
+        this.remaining = in.readInt();
+      } catch (IOException e) {
+        throw new CrunchRuntimeException("Could not read spilled shuffle data from " + run, e);
+      }
+    }
+
+    @Override
+    protected Record computeNext() {
+      try {
+        if (remaining == 0) {
+          close();
+          return endOfData();
+        }
+        remaining--;
+        byte[] key = new byte[in.readInt()];
+        in.readFully(key);
+        byte[] value = new byte[in.readInt()];
+        in.readFully(value);
+        return new Record(key, value);
+      } catch (IOException e) {
+        throw new CrunchRuntimeException("Could not read spilled shuffle data from " + run, e);
+      }
+    }
+
+    @Override
+    public void close() {
+      try {
+        in.close();
+      } catch (IOException e) {
+        LOG.warn("Could not close spilled shuffle data in " + run, e);
+      }
+    }
+  }
+
+  /**
+   * Merges a set of individually sorted record iterators into a single sorted iterator.
+   */
+  private class MergeIterator extends AbstractIterator<Record> implements Closeable {
+
+    private class Head {
+      final Record record;
+      final Iterator<Record> source;
+
+      Head(Record record, Iterator<Record> source) {
+        this.record = record;
+        this.source = source;
+      }
+    }
+
+    private final List<? extends Iterator<Record>> sources;
+    private final PriorityQueue<Head> queue;
+
+    MergeIterator(List<? extends Iterator<Record>> sources) {
+      this.sources = sources;
+      this.queue = new PriorityQueue<Head>(Math.max(1, sources.size()), new Comparator<Head>() {
+        @Override
+        public int compare(Head a, Head b) {
+          return sortOrder.compare(a.record, b.record);
+        }
+      });
+      for (Iterator<Record> source : sources) {
+        if (source.hasNext()) {
+          queue.add(new Head(source.next(), source));
+        }
+      }
+    }
+
+    @Override
+    protected Record computeNext() {
+      Head head = queue.poll();
+      if (head == null) {
+        return endOfData();
+      }
+      if (head.source.hasNext()) {
+        queue.add(new Head(head.source.next(), head.source));
+      }
+      return head.record;
+    }
+
+    /**
+     * Closes the files of all of the runs that are merged, whether or not they have been read to the end.
+     */
+    @Override
+    public void close() {
+      for (Iterator<Record> source : sources) {
+        if (source instanceof Closeable) {
+          ((RunIterator) source).close();
+        }
+      }
+    }
+  }
+
+  /**
+   * Splits the merged stream of records into groups of values that share the same key (or
+   * the same primary key when performing a secondary sort).
+   */
+  private class GroupIterator implements Iterator<Pair<K, Iterable<V>>>, Closeable {
+    private final MergeIterator records;
+    private Record next;
+    private ValueIterator current;
+
+    GroupIterator(MergeIterator records) {
+      this.records = records;
+      this.next = records.hasNext() ? records.next() : null;
+    }
+
+    private boolean sameGroup(Record a, Record b) {
+      if (secondarySort) {
+        Object primaryA = ((Pair) a.key()).first();
+        Object primaryB = ((Pair) b.key()).first();
+        if (primaryA instanceof Comparable) {
+          return ((Comparable) primaryA).compareTo(primaryB) == 0;
+        }
+        return primaryA == null ? primaryB == null : primaryA.equals(primaryB);
+      }
+      return sortOrder.compare(a, b) == 0;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (current != null) {
+        // Skip over any values the caller did not consume
+        while (current.hasNext()) {
+          current.next();
+        }
+        current = null;
+      }
+      return next != null;
+    }
+
+    @Override
+    public Pair<K, Iterable<V>> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Record first = next;
+      final ValueIterator values = new ValueIterator(first);
+      current = values;
+      return Pair.<K, Iterable<V>>of(first.key(), new SingleUseIterable<V>(new Iterable<V>() {
+        @Override
+        public Iterator<V> iterator() {
+          return values;
+        }
+      }));
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+      records.close();
+      next = null;
+    }
+
+    private class ValueIterator extends AbstractIterator<V> {
+      private final Record groupStart;
+
+      ValueIterator(Record groupStart) {
+        this.groupStart = groupStart;
+      }
+
+      @Override
+      protected V computeNext() {
+        if (next == null || !sameGroup(groupStart, next)) {
+          return endOfData();
+        }
+        V value = valueSerializer.deserialize(next.value);
+        if (next != groupStart) {
+          next.clearKey();
+        }
+        next = records.hasNext() ? records.next() : null;
+        return value;
+      }
+    }
+  }
+}
@@ -30,6 +30,7 @@ import java.util.Map.Entry;
 import com.google.common.base.Charsets;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import org.apache.crunch.CachingOptions;
 import org.apache.crunch.CrunchRuntimeException;
@@ -43,6 +44,7 @@ import org.apache.crunch.impl.mr.collect.MRCollectionFactory;
 import org.apache.crunch.impl.mr.exec.MRExecutor;
 import org.apache.crunch.impl.mr.plan.MSCRPlanner;
 import org.apache.crunch.impl.mr.plan.PlanningParameters;
+import org.apache.crunch.impl.mr.run.RuntimeParameters;
 import org.apache.crunch.io.ReadableSource;
 import org.apache.crunch.materialize.MaterializableIterable;
 import org.apache.hadoop.conf.Configuration;
@@ -156,10 +158,17 @@ public class MRPipeline extends DistributedPipeline {
   
   @Override
   public MRPipelineExecution runAsync() {
-    MRExecutor mrExecutor = plan();
+    final MRExecutor mrExecutor = plan();
     for (Entry<String, String> dotEntry: mrExecutor.getNamedDotFiles().entrySet()){
       writePlanDotFile(dotEntry.getKey(), dotEntry.getValue());
     }
+    // Runs in the executor's thread before it is done, however the pipeline was started
+    mrExecutor.addListener(new Runnable() {
+      @Override
+      public void run() {
+        writeNodeProfiles(mrExecutor);
+      }
+    }, MoreExecutors.sameThreadExecutor());
     MRPipelineExecution res = mrExecutor.execute();
     outputTargets.clear();
     return res;
@@ -182,6 +191,20 @@ public class MRPipeline extends DistributedPipeline {
     materialize(pcollection);
   }
 
+  /**
+   * Writes the runtime node statistics of a completed pipeline as a JSON report, along with the runtime
+   * plan dot file overlaid with those statistics, if {@link RuntimeParameters#PROFILE_NODES} is enabled.
+   */
+  private void writeNodeProfiles(MRExecutor mrExecutor) {
+    if (getConfiguration().getBoolean(RuntimeParameters.PROFILE_NODES, false)) {
+      writePlanFile("node_profile", "json", mrExecutor.getNodeProfileReport());
+      String profileDotFile = mrExecutor.getNamedDotFiles().get("rt_profile_plan");
+      if (profileDotFile != null) {
+        writePlanDotFile("rt_profile_plan", profileDotFile);
+      }
+    }
+  }
+
   /**
    * Writes the MR job plan dot file contents to a timestamped file if the PIPELINE_DOTFILE_OUTPUT_DIR
    * config key is set with an output directory.
@@ -189,6 +212,10 @@ public class MRPipeline extends DistributedPipeline {
    * @param dotFileContents contents to be written to the dot file
    */
   private void writePlanDotFile(String fileName, String dotFileContents) {
+    writePlanFile(fileName, "dot", dotFileContents);
+  }
+
+  private void writePlanFile(String fileName, String extension, String contents) {
     String dotFileDir = getConfiguration().get(PlanningParameters.PIPELINE_DOTFILE_OUTPUT_DIR);
     if (dotFileDir != null) {
       FSDataOutputStream outputStream = null;
@@ -197,7 +224,7 @@ public class MRPipeline extends DistributedPipeline {
         URI uri = new URI(dotFileDir);
         FileSystem fs = FileSystem.get(uri, getConfiguration());
         SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd_HH.mm.ss.SSS");
-        String filenameSuffix = String.format("_%s_%s.dot", dateFormat.format(new Date()), fileName);
+        String filenameSuffix = String.format("_%s_%s.%s", dateFormat.format(new Date()), fileName, extension);
         String encodedName = URLEncoder.encode(getName(), "UTF-8");
         // We limit the pipeline name to the first 150 characters to keep the output dotfile length less 
         // than 200, as it's not clear what the exact limits are on the filesystem we're writing to (this
@@ -207,7 +234,7 @@ public class MRPipeline extends DistributedPipeline {
         Path jobPlanPath = new Path(uri.getPath(), filenamePrefix + filenameSuffix);
         LOG.info("Writing jobplan to {}", jobPlanPath);
         outputStream = fs.create(jobPlanPath, true);
-        outputStream.write(dotFileContents.getBytes(Charsets.UTF_8));
+        outputStream.write(contents.getBytes(Charsets.UTF_8));
       } catch (URISyntaxException e) {
         thrownException = e;
         throw new CrunchRuntimeException("Invalid dot file dir URI, job plan will not be written: " + dotFileDir, e);
@@ -37,11 +37,19 @@ public class IntermediateEmitter implements Emitter<Object> {
   private final List<RTNode> children;
   private final PType<Object> outputPType;
   private final boolean needDetachedValues;
+  private final boolean timeDeepCopies;
+  private long deepCopyNanos;
 
   public IntermediateEmitter(PType<Object> outputPType, List<RTNode> children, Configuration conf,
                              boolean disableDeepCopy) {
+    this(outputPType, children, conf, disableDeepCopy, false);
+  }
+
+  public IntermediateEmitter(PType<Object> outputPType, List<RTNode> children, Configuration conf,
+                             boolean disableDeepCopy, boolean timeDeepCopies) {
     this.outputPType = outputPType;
     this.children = ImmutableList.copyOf(children);
+    this.timeDeepCopies = timeDeepCopies;
     outputPType.initialize(conf);
     needDetachedValues = !disableDeepCopy && this.children.size() > 1;
   }
@@ -51,12 +59,25 @@ public class IntermediateEmitter implements Emitter<Object> {
     for (RTNode child : children) {
       Object value = emitted;
       if (needDetachedValues) {
-        value = this.outputPType.getDetachedValue(emitted);
+        if (timeDeepCopies) {
+          long start = System.nanoTime();
+          value = this.outputPType.getDetachedValue(emitted);
+          deepCopyNanos += System.nanoTime() - start;
+        } else {
+          value = this.outputPType.getDetachedValue(emitted);
+        }
       }
       child.process(value);
     }
   }
 
+  /**
+   * @return the total time spent making detached copies of emitted values, if timing was enabled
+   */
+  public long getDeepCopyNanos() {
+    return deepCopyNanos;
+  }
+
   @Override
   public void flush() {
     // No-op
@@ -20,8 +20,10 @@ package org.apache.crunch.impl.mr.exec;
 import com.google.common.base.Function;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.AbstractFuture;
 
+import org.apache.crunch.CrunchRuntimeException;
 import org.apache.crunch.PipelineCallable;
 import org.apache.crunch.PipelineResult;
 import org.apache.crunch.SourceTarget;
@@ -31,12 +33,18 @@ import org.apache.crunch.hadoop.mapreduce.lib.jobcontrol.CrunchJobControl;
 import org.apache.crunch.impl.dist.collect.PCollectionImpl;
 import org.apache.crunch.impl.mr.MRJob;
 import org.apache.crunch.impl.mr.MRPipelineExecution;
+import org.apache.crunch.impl.mr.plan.DotfileUtil;
+import org.apache.crunch.impl.mr.plan.DotfileWriterRTNodes;
+import org.apache.crunch.impl.mr.plan.PlanStatistics;
+import org.apache.crunch.impl.mr.run.NodeProfile;
 import org.apache.crunch.impl.mr.run.RuntimeParameters;
 import org.apache.crunch.materialize.MaterializableIterable;
 import org.apache.hadoop.conf.Configuration;
+import org.codehaus.jackson.map.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -73,7 +81,11 @@ public class MRExecutor extends AbstractFuture<PipelineResult> implements MRPipe
   private boolean started;
 
   private Map<String, String> namedDotFiles;
-  
+  private final Configuration conf;
+  private final Class<?> jarClass;
+  private volatile Map<Integer, Map<String, NodeProfile>> nodeProfiles = ImmutableMap.of();
+  private PlanStatistics planStatistics;
+
   public MRExecutor(
       Configuration conf,
       Class<?> jarClass,
@@ -92,6 +104,8 @@ public class MRExecutor extends AbstractFuture<PipelineResult> implements MRPipe
       }
     });
     this.pollInterval = getPollInterval(conf);
+    this.conf = conf;
+    this.jarClass = jarClass;
 
     this.namedDotFiles = new ConcurrentHashMap<String, String>();
   }
@@ -100,6 +114,14 @@ public class MRExecutor extends AbstractFuture<PipelineResult> implements MRPipe
     this.control.addJob(job);
   }
 
+  /**
+   * Sets the statistics that are updated with the sizes observed in this execution once it succeeds,
+   * or {@code null} if no statistics are kept.
+   */
+  public void setPlanStatistics(PlanStatistics planStatistics) {
+    this.planStatistics = planStatistics;
+  }
+
   public void addNamedDotFile(String fileName, String planDotFile) {
     this.namedDotFiles.put(fileName, planDotFile);
   }
@@ -153,6 +175,10 @@ public class MRExecutor extends AbstractFuture<PipelineResult> implements MRPipe
             job.getStartTimeMsec(), job.getJobStartTimeMsec(), job.getJobEndTimeMsec(), job.getEndTimeMsec()));
       }
 
+      if (conf.getBoolean(RuntimeParameters.PROFILE_NODES, false)) {
+        collectNodeProfiles(control.getSuccessfulJobList());
+      }
+
       if (!hasFailures) {
         for (PCollectionImpl<?> c : outputTargets.keySet()) {
           if (toMaterialize.containsKey(c)) {
@@ -179,6 +205,10 @@ public class MRExecutor extends AbstractFuture<PipelineResult> implements MRPipe
             }
           }
         }
+        if (planStatistics != null) {
+          planStatistics.record(conf, outputTargets, control.getSuccessfulJobList());
+          planStatistics.save(conf);
+        }
       }
 
       synchronized (this) {
@@ -203,6 +233,54 @@ public class MRExecutor extends AbstractFuture<PipelineResult> implements MRPipe
     }
   }
 
+  private void collectNodeProfiles(List<CrunchControlledJob> jobs) {
+    Map<Integer, Map<String, NodeProfile>> profiles = Maps.newTreeMap();
+    for (CrunchControlledJob job : jobs) {
+      profiles.put(job.getJobID(), NodeProfile.fromCounters(job.getCounters()));
+    }
+    nodeProfiles = profiles;
+    if (DotfileUtil.isDebugDotfilesEnabled(conf)) {
+      try {
+        addNamedDotFile("rt_profile_plan", new DotfileWriterRTNodes(getJobs(), profiles)
+            .buildDiagram("Run Time Profile (" + jarClass.getSimpleName() + ")"));
+      } catch (Exception ex) {
+        LOG.error("Problem creating profile dotfile:", ex);
+      }
+    }
+  }
+
+  /**
+   * Returns the statistics of the runtime nodes of each successful job, keyed by Crunch job ID and
+   * node ID. Statistics are only collected if {@link RuntimeParameters#PROFILE_NODES} is enabled.
+   */
+  public Map<Integer, Map<String, NodeProfile>> getNodeProfiles() {
+    return nodeProfiles;
+  }
+
+  /**
+   * Returns the statistics from {@link #getNodeProfiles()} as a JSON report, along with the name
+   * of each job.
+   */
+  public String getNodeProfileReport() {
+    Map<String, Object> report = Maps.newLinkedHashMap();
+    for (CrunchControlledJob job : control.getSuccessfulJobList()) {
+      Map<String, NodeProfile> profiles = nodeProfiles.get(job.getJobID());
+      if (profiles == null) {
+        continue;
+      }
+      Map<String, Object> nodes = Maps.newLinkedHashMap();
+      for (Map.Entry<String, NodeProfile> e : profiles.entrySet()) {
+        nodes.put(e.getKey(), e.getValue().toMap());
+      }
+      report.put(String.valueOf(job.getJobID()), ImmutableMap.of("name", job.getJobName(), "nodes", nodes));
+    }
+    try {
+      return new ObjectMapper().writeValueAsString(report);
+    } catch (IOException e) {
+      throw new CrunchRuntimeException(e);
+    }
+  }
+
   @Override
   public void waitFor(long timeout, TimeUnit timeUnit) throws InterruptedException {
     doneSignal.await(timeout, timeUnit);
@@ -30,6 +30,7 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.crunch.CrunchRuntimeException;
 import org.apache.crunch.impl.mr.MRJob;
 import org.apache.crunch.impl.mr.run.NodeContext;
+import org.apache.crunch.impl.mr.run.NodeProfile;
 import org.apache.crunch.impl.mr.run.RTNode;
 import org.apache.crunch.io.CrunchInputs;
 import org.apache.crunch.io.CrunchOutputs;
@@ -41,6 +42,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
 
 import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 
 /**
@@ -54,12 +56,25 @@ public class DotfileWriterRTNodes extends CommonDotfileWriter {
   private static final String CYAN = "cyan";
   private static final String BLUE = "blue";
   private static final String BLACK = "black";
+  private static final String ORANGE = "orange";
 
   private List<MRJob> mrJobs;
+  private Map<Integer, Map<String, NodeProfile>> nodeProfiles;
 
   public DotfileWriterRTNodes(List<MRJob> mrJobs) {
+    this(mrJobs, ImmutableMap.<Integer, Map<String, NodeProfile>>of());
+  }
+
+  /**
+   * Creates a writer that overlays the given node statistics onto the runtime nodes of each job.
+   *
+   * @param mrJobs the jobs of the pipeline
+   * @param nodeProfiles the statistics of the profiled nodes of each job, keyed by Crunch job ID and node ID
+   */
+  public DotfileWriterRTNodes(List<MRJob> mrJobs, Map<Integer, Map<String, NodeProfile>> nodeProfiles) {
     super();
     this.mrJobs = mrJobs;
+    this.nodeProfiles = nodeProfiles;
   }
 
   private String getId(RTNode rtNode) {
@@ -88,21 +103,28 @@ public class DotfileWriterRTNodes extends CommonDotfileWriter {
     return sb.toString();
   }
 
-  private String formatRTNode(RTNode rtNode) {
+  private String formatRTNode(RTNode rtNode, NodeProfile profile) {
+    if (profile != null) {
+      return format("%s [label=\"{{%s | %s} | %s | %s | { %s | %s } | %s }\" shape=record; color = %s;];\n",
+          getId(rtNode), label(rtNode.getNodeName()), label(rtNode.getOutputName()), className(rtNode.getDoFn()),
+          formatPType(rtNode.getPType()), formatConvertor(rtNode.getInputConverter()),
+          formatConvertor(rtNode.getOutputConverter()), profile, ORANGE);
+    }
     return format("%s [label=\"{{%s | %s} | %s | %s | { %s | %s } }\" shape=record; color = black;];\n", getId(rtNode),
         label(rtNode.getNodeName()), label(rtNode.getOutputName()), className(rtNode.getDoFn()),
         formatPType(rtNode.getPType()), formatConvertor(rtNode.getInputConverter()),
         formatConvertor(rtNode.getOutputConverter()));
   }
 
-  private void formatRTNodeTree(RTNode parentRTNode) {
+  private void formatRTNodeTree(RTNode parentRTNode, Map<String, NodeProfile> profiles, String nodeId) {
 
-    contentBuilder.append(formatRTNode(parentRTNode));
+    contentBuilder.append(formatRTNode(parentRTNode, profiles.get(nodeId)));
 
     if (!isEmpty(parentRTNode.getChildren())) {
-      for (RTNode child : parentRTNode.getChildren()) {
+      for (int i = 0; i < parentRTNode.getChildren().size(); i++) {
+        RTNode child = parentRTNode.getChildren().get(i);
         // process child nodes
-        formatRTNodeTree(child);
+        formatRTNodeTree(child, profiles, nodeId + "/" + i);
         // link parent to child node
         link(getId(parentRTNode), getId(child), BLACK);
       }
@@ -118,8 +140,12 @@ public class DotfileWriterRTNodes extends CommonDotfileWriter {
     contentBuilder.append("subgraph \"cluster-job" + jobId + "_" + nodeContext + "\" {\n");
     contentBuilder.append(" label=\"" + nodeContext + "\"; color=" + color + "; fontsize=14;\n");
 
-    for (RTNode rtn : rtNodes) {
-      formatRTNodeTree(rtn);
+    Map<String, NodeProfile> profiles = nodeProfiles.get(jobId);
+    if (profiles == null) {
+      profiles = ImmutableMap.of();
+    }
+    for (int i = 0; i < rtNodes.size(); i++) {
+      formatRTNodeTree(rtNodes.get(i), profiles, nodeContext + "/" + i);
     }
     contentBuilder.append("}\n");
 
@@ -281,7 +307,11 @@ public class DotfileWriterRTNodes extends CommonDotfileWriter {
   @Override
   protected void doGetLegend(StringBuilder lsb) {
     lsb.append(
-        "\"RTNodes\"  [label=\"{{RTNode Name | Output Name } | DoFn | PType | { Input Converter | Output Converter}}\"; shape=record;]\n")
+        "\"RTNodes\"  [label=\"{{RTNode Name | Output Name } | DoFn | PType | { Input Converter | Output Converter}}\"; shape=record;]\n");
+    if (!nodeProfiles.isEmpty()) {
+      lsb.append("\"Profiled RTNodes\"  [label=\"{{RTNode Name | Output Name } | DoFn | PType | { Input Converter | Output Converter} | Profile}\"; shape=record; color = orange]\n");
+    }
+    lsb
         .append("\"Inputs\"  [label=\"{InputFormat Name | {Node Index | Path List}}\"; shape=record; color = green]\n")
         .append(
             "\"Outputs\"  [label=\"{Output Name | OutputFormat Name |{Key Class | Value Class}}\"; shape=record; color = magenta]\n")
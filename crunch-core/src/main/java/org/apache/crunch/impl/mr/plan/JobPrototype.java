@@ -111,6 +111,10 @@ class JobPrototype {
     return this.group == null;
   }
 
+  PGroupedTableImpl<?, ?> getGroup() {
+    return group;
+  }
+
   Set<NodePath> getMapNodePaths() {
     return mapNodePaths;
   }
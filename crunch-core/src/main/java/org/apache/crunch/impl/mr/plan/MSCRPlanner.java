@@ -55,6 +55,7 @@ public class MSCRPlanner {
   private final Map<PCollectionImpl<?>, MaterializableIterable> toMaterialize;
   private final Set<Target> appendedTargets;
   private final Map<PipelineCallable<?>, Set<Target>> pipelineCallables;
+  private ResultCache resultCache;
   private int lastJobID = 0;
 
   public MSCRPlanner(MRPipeline pipeline, Map<PCollectionImpl<?>, Set<Target>> outputs,
@@ -89,6 +90,20 @@ public class MSCRPlanner {
 
     DotfileUtil dotfileUtil = new DotfileUtil(jarClass, conf);
 
+    // Read collections that previous runs left in the result cache (if configuration is enabled)
+    resultCache = ResultCache.create(conf);
+    if (resultCache != null) {
+      resultCache.evict();
+      LOG.info("Reusing {} collections from previous runs", resultCache.reuse(outputs.keySet()));
+    }
+
+    // Use the sizes observed in previous runs of this pipeline (if configuration is enabled)
+    PlanStatistics planStatistics = PlanStatistics.load(conf);
+    if (planStatistics != null) {
+      LOG.info("Using {} collection sizes observed in previous runs",
+          planStatistics.apply(outputs.keySet()));
+    }
+
     // Generate the debug lineage dotfiles (if configuration is enabled)
     dotfileUtil.buildLineageDotfile(outputs);
 
@@ -211,8 +226,12 @@ public class MSCRPlanner {
     dotfileUtil.buildPlanDotfile(exec, assignments, pipeline, lastJobID);
 
     for (JobPrototype proto : Sets.newHashSet(assignments.values())) {
+      if (planStatistics != null && !proto.isMapOnly()) {
+        planStatistics.addGrouping(proto.getJobID(), proto.getGroup());
+      }
       exec.addJob(proto.getCrunchJob(jarClass, conf, pipeline, lastJobID));
     }
+    exec.setPlanStatistics(planStatistics);
 
     // Generate the debug RTNode dotfiles (if configuration is enabled)
     dotfileUtil.buildRTNodesDotfile(exec);
@@ -455,7 +474,12 @@ public class MSCRPlanner {
     if (targetToReplace != null) {
       outputs.get(splitTarget).remove(targetToReplace);
     } else if (srcTarget == null) {
-      srcTarget = pipeline.createIntermediateOutput(splitTarget.getPType());
+      if (resultCache != null) {
+        srcTarget = resultCache.createOutput(splitTarget);
+      }
+      if (srcTarget == null) {
+        srcTarget = pipeline.createIntermediateOutput(splitTarget.getPType());
+      }
     }
     outputs.get(splitTarget).add(srcTarget);
     splitTarget.materializeAt(srcTarget);
@@ -0,0 +1,222 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.impl.mr.plan;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.crunch.Target;
+import org.apache.crunch.hadoop.mapreduce.lib.jobcontrol.CrunchControlledJob;
+import org.apache.crunch.impl.dist.collect.BaseInputCollection;
+import org.apache.crunch.impl.dist.collect.BaseInputTable;
+import org.apache.crunch.impl.dist.collect.PCollectionImpl;
+import org.apache.crunch.impl.mr.collect.PGroupedTableImpl;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.TaskCounter;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * The sizes of collections that were observed in previous runs of a pipeline, which the {@link MSCRPlanner} uses in
+ * place of the sizes estimated from the sizes of the sources and the scale factors of the {@code DoFn}s. The sizes
+ * of materialized collections are the sizes of their outputs, and the size of a grouping is the number of map output
+ * bytes of its job.
+ * <p>
+ * Collections are identified across runs by a fingerprint of their names and those of their ancestors, down to
+ * the sources that they were read from, so sizes are only reused for the same pipeline reading the same inputs.
+ *
+ * @see PlanningParameters#PLAN_STATISTICS_PATH
+ */
+public class PlanStatistics {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PlanStatistics.class);
+
+  private static final HashFunction HASH = Hashing.murmur3_128();
+
+  private final Path path;
+  private final Map<String, Long> sizes;
+  private final Map<PCollectionImpl<?>, String> fingerprints = Maps.newHashMap();
+  private final Map<Integer, PGroupedTableImpl<?, ?>> groupings = Maps.newHashMap();
+
+  PlanStatistics(Path path, Map<String, Long> sizes) {
+    this.path = path;
+    this.sizes = sizes;
+  }
+
+  /**
+   * Reads the statistics from the path given by {@link PlanningParameters#PLAN_STATISTICS_PATH}, or returns
+   * {@code null} if no path is configured. A missing or unreadable file yields empty statistics.
+   */
+  public static PlanStatistics load(Configuration conf) {
+    String pathName = conf.get(PlanningParameters.PLAN_STATISTICS_PATH);
+    if (pathName == null || pathName.isEmpty()) {
+      return null;
+    }
+    Path path = new Path(pathName);
+    Map<String, Long> sizes = Maps.newHashMap();
+    try {
+      FileSystem fs = path.getFileSystem(conf);
+      if (fs.exists(path)) {
+        InputStream in = fs.open(path);
+        try {
+          @SuppressWarnings("unchecked")
+          Map<String, Number> stored = new ObjectMapper().readValue(in, Map.class);
+          for (Map.Entry<String, Number> e : stored.entrySet()) {
+            sizes.put(e.getKey(), e.getValue().longValue());
+          }
+        } finally {
+          in.close();
+        }
+      }
+    } catch (IOException e) {
+      LOG.warn("Could not read plan statistics from " + path, e);
+    }
+    return new PlanStatistics(path, sizes);
+  }
+
+  /**
+   * Writes the statistics to the file that they were loaded from.
+   */
+  public void save(Configuration conf) {
+    try {
+      FileSystem fs = path.getFileSystem(conf);
+      OutputStream out = fs.create(path, true);
+      try {
+        out.write(new ObjectMapper().writeValueAsString(Maps.newTreeMap(sizes)).getBytes(Charsets.UTF_8));
+      } finally {
+        out.close();
+      }
+      LOG.info("Saved {} plan statistics to {}", sizes.size(), path);
+    } catch (IOException e) {
+      LOG.warn("Could not save plan statistics to " + path, e);
+    }
+  }
+
+  /**
+   * Replaces the estimated sizes of the given collections and their ancestors with the sizes observed in
+   * previous runs, where there are any, and makes the descendants of the replaced collections estimate their
+   * sizes again. Collections that are already materialized keep their actual sizes.
+   *
+   * @return the number of collections whose size was replaced
+   */
+  public int apply(Iterable<? extends PCollectionImpl<?>> collections) {
+    Map<PCollectionImpl<?>, Boolean> changed = Maps.newHashMap();
+    for (PCollectionImpl<?> c : collections) {
+      apply(c, changed);
+    }
+    int applied = 0;
+    for (Map.Entry<PCollectionImpl<?>, Boolean> e : changed.entrySet()) {
+      if (e.getValue() && sizes.containsKey(getFingerprint(e.getKey()))) {
+        applied++;
+      }
+    }
+    return applied;
+  }
+
+  private boolean apply(PCollectionImpl<?> collection, Map<PCollectionImpl<?>, Boolean> changed) {
+    Boolean done = changed.get(collection);
+    if (done != null) {
+      return done;
+    }
+    boolean parentChanged = false;
+    for (PCollectionImpl<?> parent : collection.getParents()) {
+      parentChanged |= apply(parent, changed);
+    }
+    boolean result = false;
+    if (!collection.getParents().isEmpty() && collection.getMaterializedAt() == null) {
+      Long size = sizes.get(getFingerprint(collection));
+      if (size != null) {
+        collection.setSize(size);
+        result = true;
+      } else if (parentChanged) {
+        collection.setSize(-1L);
+        result = true;
+      }
+    }
+    changed.put(collection, result);
+    return result;
+  }
+
+  /**
+   * Notes the grouping of the job with the given ID, so that its map output bytes can be recorded.
+   */
+  void addGrouping(int jobID, PGroupedTableImpl<?, ?> grouping) {
+    groupings.put(jobID, grouping);
+  }
+
+  /**
+   * Records the sizes of the materialized outputs and of the groupings of the given successful jobs.
+   */
+  public void record(Configuration conf, Map<PCollectionImpl<?>, Set<Target>> outputs,
+      List<CrunchControlledJob> jobs) {
+    for (PCollectionImpl<?> c : outputs.keySet()) {
+      if (c.getMaterializedAt() != null && !c.getParents().isEmpty()) {
+        long size = c.getMaterializedAt().getSize(conf);
+        if (size >= 0) {
+          sizes.put(getFingerprint(c), size);
+        }
+      }
+    }
+    for (CrunchControlledJob job : jobs) {
+      PGroupedTableImpl<?, ?> grouping = groupings.get(job.getJobID());
+      Counters counters = job.getCounters();
+      if (grouping != null && counters != null) {
+        sizes.put(getFingerprint(grouping), counters.findCounter(TaskCounter.MAP_OUTPUT_BYTES).getValue());
+      }
+    }
+  }
+
+  /**
+   * Returns the size that was observed for the given collection in a previous run, or {@code null} if there
+   * is none.
+   */
+  public Long getSize(PCollectionImpl<?> collection) {
+    return sizes.get(getFingerprint(collection));
+  }
+
+  String getFingerprint(PCollectionImpl<?> collection) {
+    String fingerprint = fingerprints.get(collection);
+    if (fingerprint == null) {
+      StringBuilder sb = new StringBuilder(String.valueOf(collection.getName())).append('(');
+      if (collection instanceof BaseInputCollection) {
+        sb.append(((BaseInputCollection<?>) collection).getSource());
+      } else if (collection instanceof BaseInputTable) {
+        sb.append(((BaseInputTable<?, ?>) collection).getSource());
+      }
+      for (PCollectionImpl<?> parent : collection.getParents()) {
+        sb.append(getFingerprint(parent)).append(',');
+      }
+      fingerprint = HASH.hashString(sb.append(')')).toString();
+      fingerprints.put(collection, fingerprint);
+    }
+    return fingerprint;
+  }
+}
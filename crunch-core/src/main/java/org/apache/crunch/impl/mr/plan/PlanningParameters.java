@@ -49,6 +49,40 @@ public final class PlanningParameters {
 
   public static final String JOB_NAME_MAX_STACK_LENGTH = "crunch.job.name.max.stack.length";
 
+  /**
+   * Configuration key for the path of a file in which the sizes of the intermediate and final outputs and the map
+   * output bytes of each grouping are kept between runs of a pipeline. When it is set, the planner uses the sizes
+   * observed in previous runs instead of the estimates based on source sizes and {@code DoFn.scaleFactor()} to choose
+   * which collections to materialize and how many reducers to use, and updates the file after each successful run.
+   */
+  public static final String PLAN_STATISTICS_PATH = "crunch.planner.statistics.path";
+
+  /**
+   * Configuration key for a directory in which intermediate outputs are kept between runs of a pipeline. When it is
+   * set, intermediate outputs are written to a sub-directory named by a fingerprint of the collection, and a later
+   * run that plans a collection with the same fingerprint reads it from there instead of recomputing it.
+   */
+  public static final String RESULT_CACHE_DIR = "crunch.result.cache.dir";
+
+  /**
+   * Configuration key for the age in milliseconds after which an unused entry of the {@link #RESULT_CACHE_DIR} is
+   * deleted. Defaults to one week.
+   */
+  public static final String RESULT_CACHE_MAX_AGE_MS = "crunch.result.cache.max.age.ms";
+
+  /**
+   * Configuration key for the number of bytes that the {@link #RESULT_CACHE_DIR} may hold before its least recently
+   * used entries are deleted. Defaults to 0, which means that there is no limit.
+   */
+  public static final String RESULT_CACHE_MAX_BYTES = "crunch.result.cache.max.bytes";
+
+  /**
+   * Configuration key for a comma-separated list of other configuration keys whose values are part of the
+   * fingerprints of the collections in the {@link #RESULT_CACHE_DIR}, for settings that change what the
+   * {@code DoFn}s of a pipeline compute.
+   */
+  public static final String RESULT_CACHE_CONF_KEYS = "crunch.result.cache.conf.keys";
+
   private PlanningParameters() {
   }
 }
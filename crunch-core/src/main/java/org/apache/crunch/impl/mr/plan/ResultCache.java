@@ -0,0 +1,309 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.impl.mr.plan;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.SerializationException;
+import org.apache.commons.lang.SerializationUtils;
+import org.apache.crunch.CrunchRuntimeException;
+import org.apache.crunch.DoFn;
+import org.apache.crunch.GroupingOptions;
+import org.apache.crunch.Source;
+import org.apache.crunch.SourceTarget;
+import org.apache.crunch.impl.dist.collect.BaseDoCollection;
+import org.apache.crunch.impl.dist.collect.BaseDoTable;
+import org.apache.crunch.impl.dist.collect.BaseGroupedTable;
+import org.apache.crunch.impl.dist.collect.BaseInputCollection;
+import org.apache.crunch.impl.dist.collect.BaseInputTable;
+import org.apache.crunch.impl.dist.collect.PCollectionImpl;
+import org.apache.crunch.types.PType;
+import org.apache.crunch.types.avro.AvroType;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Closeables;
+
+/**
+ * A directory of intermediate outputs that are kept between runs of a pipeline, so that a run can reuse the
+ * outputs of a previous run whose inputs and {@code DoFn}s were the same instead of recomputing them.
+ * <p>
+ * Each output is stored in a sub-directory that is named by a fingerprint of the collection it holds. The
+ * fingerprint covers the paths, sizes and modification times of the sources that the collection is computed from,
+ * the serialized form and the class files of the {@code DoFn}s that compute it, its {@code PType} and those of its
+ * ancestors, the comparators and partitioners of its groupings, and the values of the configuration keys listed in
+ * {@link PlanningParameters#RESULT_CACHE_CONF_KEYS}. Changes to other classes that the {@code DoFn}s call, or to
+ * other configuration that they read, are not detected; clear the cache directory after making them.
+ * <p>
+ * An output is only reused once the job that wrote it succeeded, which is signalled by its {@code _SUCCESS} file.
+ * Entries that have not been used for {@link PlanningParameters#RESULT_CACHE_MAX_AGE_MS} are deleted when a
+ * pipeline is planned, as are the least recently used entries while the cache holds more than
+ * {@link PlanningParameters#RESULT_CACHE_MAX_BYTES}.
+ */
+class ResultCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ResultCache.class);
+
+  private static final HashFunction HASH = Hashing.murmur3_128();
+  private static final long DEFAULT_MAX_AGE_MS = 7 * 24 * 60 * 60 * 1000L;
+  private static final String SUCCESS_FILE = "_SUCCESS";
+
+  private final Path dir;
+  private final Configuration conf;
+  private final Map<PCollectionImpl<?>, String> fingerprints = Maps.newHashMap();
+
+  ResultCache(Path dir, Configuration conf) {
+    this.dir = dir;
+    this.conf = conf;
+  }
+
+  /**
+   * Returns the cache in the directory given by {@link PlanningParameters#RESULT_CACHE_DIR}, or {@code null} if
+   * no directory is configured.
+   */
+  static ResultCache create(Configuration conf) {
+    String dirName = conf.get(PlanningParameters.RESULT_CACHE_DIR);
+    if (dirName == null || dirName.isEmpty()) {
+      return null;
+    }
+    return new ResultCache(new Path(dirName), conf);
+  }
+
+  /**
+   * Materializes the given collections, or the closest of their ancestors, at the outputs of previous runs where
+   * the cache holds them, so that they are not recomputed.
+   *
+   * @return the number of collections that are read from the cache
+   */
+  int reuse(Iterable<? extends PCollectionImpl<?>> collections) throws IOException {
+    Set<PCollectionImpl<?>> visited = Sets.newHashSet();
+    int reused = 0;
+    for (PCollectionImpl<?> c : collections) {
+      reused += reuse(c, visited);
+    }
+    return reused;
+  }
+
+  private int reuse(PCollectionImpl<?> collection, Set<PCollectionImpl<?>> visited) throws IOException {
+    if (!visited.add(collection) || collection.getMaterializedAt() != null) {
+      return 0;
+    }
+    SourceTarget source = getCachedOutput(collection);
+    if (source != null) {
+      LOG.info("Reusing {} from {}", collection.getName(), source);
+      collection.materializeAt(source);
+      return 1;
+    }
+    int reused = 0;
+    for (PCollectionImpl<?> parent : collection.getParents()) {
+      reused += reuse(parent, visited);
+    }
+    return reused;
+  }
+
+  private SourceTarget<?> getCachedOutput(PCollectionImpl<?> collection) throws IOException {
+    if (collection instanceof BaseGroupedTable || collection.getParents().isEmpty()) {
+      return null;
+    }
+    String fingerprint = getFingerprint(collection);
+    if (fingerprint == null) {
+      return null;
+    }
+    Path path = new Path(dir, fingerprint);
+    FileSystem fs = path.getFileSystem(conf);
+    if (!fs.exists(new Path(path, SUCCESS_FILE))) {
+      return null;
+    }
+    // Mark the entry as recently used
+    fs.setTimes(path, System.currentTimeMillis(), -1);
+    return collection.getPType().getDefaultFileSource(path);
+  }
+
+  /**
+   * Returns an intermediate output for the given collection in the cache directory, or {@code null} if the
+   * collection cannot be fingerprinted. Any incomplete output that a failed run left behind is deleted.
+   */
+  SourceTarget<?> createOutput(PCollectionImpl<?> collection) {
+    if (collection instanceof BaseGroupedTable) {
+      return null;
+    }
+    String fingerprint = getFingerprint(collection);
+    if (fingerprint == null) {
+      return null;
+    }
+    Path path = new Path(dir, fingerprint);
+    try {
+      FileSystem fs = path.getFileSystem(conf);
+      if (fs.exists(path)) {
+        fs.delete(path, true);
+      }
+    } catch (IOException e) {
+      throw new CrunchRuntimeException("Could not clear cached output " + path, e);
+    }
+    return collection.getPType().getDefaultFileSource(path);
+  }
+
+  /**
+   * Deletes the entries that are older than the maximum age, and then the least recently used entries while the
+   * cache is larger than its maximum size.
+   */
+  void evict() throws IOException {
+    FileSystem fs = dir.getFileSystem(conf);
+    if (!fs.exists(dir)) {
+      return;
+    }
+    long maxAge = conf.getLong(PlanningParameters.RESULT_CACHE_MAX_AGE_MS, DEFAULT_MAX_AGE_MS);
+    long maxBytes = conf.getLong(PlanningParameters.RESULT_CACHE_MAX_BYTES, 0L);
+    FileStatus[] entries = fs.listStatus(dir);
+    Arrays.sort(entries, new Comparator<FileStatus>() {
+      @Override
+      public int compare(FileStatus left, FileStatus right) {
+        return Long.compare(left.getModificationTime(), right.getModificationTime());
+      }
+    });
+    long[] sizes = new long[entries.length];
+    long totalBytes = 0;
+    for (int i = 0; i < entries.length; i++) {
+      sizes[i] = fs.getContentSummary(entries[i].getPath()).getLength();
+      totalBytes += sizes[i];
+    }
+    long now = System.currentTimeMillis();
+    for (int i = 0; i < entries.length; i++) {
+      boolean expired = now - entries[i].getModificationTime() > maxAge;
+      if (expired || (maxBytes > 0 && totalBytes > maxBytes)) {
+        LOG.info("Evicting cached output {} ({} bytes)", entries[i].getPath(), sizes[i]);
+        fs.delete(entries[i].getPath(), true);
+        totalBytes -= sizes[i];
+      }
+    }
+  }
+
+  /**
+   * Returns the fingerprint of the given collection, or {@code null} if it depends on a source whose modification
+   * time is unknown or on a {@code DoFn} that cannot be serialized.
+   */
+  String getFingerprint(PCollectionImpl<?> collection) {
+    if (fingerprints.containsKey(collection)) {
+      return fingerprints.get(collection);
+    }
+    String fingerprint = computeFingerprint(collection);
+    fingerprints.put(collection, fingerprint);
+    return fingerprint;
+  }
+
+  private String computeFingerprint(PCollectionImpl<?> collection) {
+    Hasher hasher = HASH.newHasher();
+    hasher.putString(collection.getClass().getName());
+    putPType(hasher, collection.getPType());
+    Source<?> source = null;
+    if (collection instanceof BaseInputCollection) {
+      source = ((BaseInputCollection<?>) collection).getSource();
+    } else if (collection instanceof BaseInputTable) {
+      source = ((BaseInputTable<?, ?>) collection).getSource();
+    }
+    if (source != null) {
+      long lastModifiedAt = source.getLastModifiedAt(conf);
+      if (lastModifiedAt < 0) {
+        return null;
+      }
+      hasher.putString(source.toString()).putLong(lastModifiedAt).putLong(source.getSize(conf));
+    } else if (collection.getParents().isEmpty()) {
+      return null;
+    }
+    for (PCollectionImpl<?> parent : collection.getParents()) {
+      String parentFingerprint = getFingerprint(parent);
+      if (parentFingerprint == null) {
+        return null;
+      }
+      hasher.putString(parentFingerprint);
+    }
+    if (collection instanceof BaseDoCollection) {
+      if (!putFn(hasher, ((BaseDoCollection<?>) collection).getDoFn())) {
+        return null;
+      }
+    } else if (collection instanceof BaseDoTable) {
+      BaseDoTable<?, ?> table = (BaseDoTable<?, ?>) collection;
+      if (!putFn(hasher, table.getDoFn()) || !putFn(hasher, table.getCombineFn())) {
+        return null;
+      }
+    } else if (collection instanceof BaseGroupedTable) {
+      GroupingOptions options = ((BaseGroupedTable<?, ?>) collection).getGroupingOptions();
+      if (options != null) {
+        hasher.putString(String.valueOf(options.getSortComparatorClass()))
+            .putString(String.valueOf(options.getGroupingComparatorClass()))
+            .putString(String.valueOf(options.getPartitionerClass()));
+      }
+    }
+    for (String key : conf.getStringCollection(PlanningParameters.RESULT_CACHE_CONF_KEYS)) {
+      hasher.putString(key).putString(String.valueOf(conf.get(key)));
+    }
+    return hasher.hash().toString();
+  }
+
+  private static void putPType(Hasher hasher, PType<?> ptype) {
+    hasher.putString(ptype.getFamily().getClass().getName()).putString(ptype.getTypeClass().getName());
+    if (ptype instanceof AvroType) {
+      hasher.putString(((AvroType<?>) ptype).getSchema().toString());
+    }
+    for (PType<?> subType : ptype.getSubTypes()) {
+      putPType(hasher, subType);
+    }
+  }
+
+  private static boolean putFn(Hasher hasher, DoFn<?, ?> fn) {
+    if (fn == null) {
+      return true;
+    }
+    try {
+      hasher.putBytes(SerializationUtils.serialize(fn));
+    } catch (SerializationException e) {
+      LOG.warn("Could not fingerprint {}, so its output will not be cached", fn.getClass().getName());
+      return false;
+    }
+    // The serialized form only names the class, so changes to its code are detected through its class file
+    Class<?> fnClass = fn.getClass();
+    ClassLoader classLoader = fnClass.getClassLoader();
+    InputStream in = classLoader == null ? null
+        : classLoader.getResourceAsStream(fnClass.getName().replace('.', '/') + ".class");
+    if (in != null) {
+      try {
+        hasher.putBytes(ByteStreams.toByteArray(in));
+      } catch (IOException e) {
+        return false;
+      } finally {
+        Closeables.closeQuietly(in);
+      }
+    }
+    return true;
+  }
+}
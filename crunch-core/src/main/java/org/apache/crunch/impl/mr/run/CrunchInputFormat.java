@@ -34,14 +34,13 @@ import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
 import org.apache.hadoop.util.ReflectionUtils;
 
-import com.google.common.collect.Lists;
-
 public class CrunchInputFormat<K, V> extends InputFormat<K, V> {
 
   @Override
   public List<InputSplit> getSplits(JobContext job) throws IOException, InterruptedException {
-    List<InputSplit> splits = Lists.newArrayList();
     Configuration base = job.getConfiguration();
+    boolean planSplits = base.getBoolean(RuntimeParameters.PLAN_SPLITS, false);
+    CrunchSplitPlanner planner = new CrunchSplitPlanner(base.getInt(RuntimeParameters.MAX_SPLITS, 0));
     Map<FormatBundle, Map<Integer, List<Path>>> formatNodeMap = CrunchInputs.getFormatNodeMap(job);
 
     // First, build a map of InputFormats to Paths
@@ -52,7 +51,9 @@ public class CrunchInputFormat<K, V> extends InputFormat<K, V> {
       Job jobCopy = new Job(conf);
       InputFormat<?, ?> format = (InputFormat<?, ?>) ReflectionUtils.newInstance(inputBundle.getFormatClass(),
           jobCopy.getConfiguration());
-      if (format instanceof FileInputFormat && !conf.getBoolean(RuntimeParameters.DISABLE_COMBINE_FILE, true)) {
+      boolean combine = format instanceof FileInputFormat
+          && !conf.getBoolean(RuntimeParameters.DISABLE_COMBINE_FILE, true);
+      if (combine && !planSplits) {
         format = new CrunchCombineFileInputFormat<Object, Object>(jobCopy);
       }
       for (Map.Entry<Integer, List<Path>> nodeEntry : entry.getValue().entrySet()) {
@@ -63,12 +64,16 @@ public class CrunchInputFormat<K, V> extends InputFormat<K, V> {
         // Get splits for each input path and tag with InputFormat
         // and Mapper types by wrapping in a TaggedInputSplit.
         List<InputSplit> pathSplits = format.getSplits(jobCopy);
-        for (InputSplit pathSplit : pathSplits) {
-          splits.add(new CrunchInputSplit(pathSplit, inputBundle, nodeIndex, jobCopy.getConfiguration()));
+        if (combine && planSplits) {
+          planner.add(inputBundle, nodeIndex, jobCopy.getConfiguration(), pathSplits);
+        } else {
+          for (InputSplit pathSplit : pathSplits) {
+            planner.addFixed(new CrunchInputSplit(pathSplit, inputBundle, nodeIndex, jobCopy.getConfiguration()));
+          }
         }
       }
     }
-    return splits;
+    return planner.plan();
   }
 
   @Override
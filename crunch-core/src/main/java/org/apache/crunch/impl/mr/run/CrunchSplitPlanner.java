@@ -0,0 +1,255 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.impl.mr.run;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.crunch.io.FormatBundle;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.lib.input.CombineFileSplit;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Combines the {@link FileSplit}s of the inputs of a job into balanced {@link CombineFileSplit}s.
+ * <p>
+ * Splits are balanced by their estimated size after decompression, so that a compressed file, which
+ * cannot be combined with others as cheaply as its length suggests, counts for
+ * {@link RuntimeParameters#SPLIT_COMPRESSION_RATIO} times its length. Each input is combined up to its own
+ * {@link RuntimeParameters#COMBINE_FILE_BLOCK_SIZE}, which may be set per source. Splits are first combined
+ * with other splits that are stored on the same host, and only the remainder is combined regardless of
+ * locality. If the job would have more than {@link RuntimeParameters#MAX_SPLITS} splits, the target sizes of
+ * all of the inputs are raised accordingly.
+ */
+@SuppressWarnings({ "rawtypes", "unchecked" })
+class CrunchSplitPlanner {
+
+  private static final long DEFAULT_TARGET_SIZE = 134217728L;
+  private static final int MAX_LOCATIONS = 3;
+
+  private final int maxSplits;
+  private final List<Input> inputs = Lists.newArrayList();
+  private final List<InputSplit> fixedSplits = Lists.newArrayList();
+
+  CrunchSplitPlanner(int maxSplits) {
+    this.maxSplits = maxSplits;
+  }
+
+  /**
+   * Adds splits that are passed through as they are, but still count towards the maximum number of splits.
+   */
+  void addFixed(InputSplit split) {
+    fixedSplits.add(split);
+  }
+
+  /**
+   * Adds the splits of one input, which are combined unless they are not all {@code FileSplit}s.
+   */
+  void add(FormatBundle bundle, int nodeIndex, Configuration conf, List<InputSplit> splits) throws IOException {
+    List<Chunk> chunks = Lists.newArrayListWithCapacity(splits.size());
+    CompressionCodecFactory codecs = new CompressionCodecFactory(conf);
+    float compressionRatio = conf.getFloat(RuntimeParameters.SPLIT_COMPRESSION_RATIO, 4.0f);
+    for (InputSplit split : splits) {
+      if (!(split instanceof FileSplit)) {
+        for (InputSplit s : splits) {
+          fixedSplits.add(new CrunchInputSplit(s, bundle, nodeIndex, conf));
+        }
+        return;
+      }
+      FileSplit fileSplit = (FileSplit) split;
+      long weight = fileSplit.getLength();
+      if (codecs.getCodec(fileSplit.getPath()) != null) {
+        weight = (long) (weight * compressionRatio);
+      }
+      chunks.add(new Chunk(fileSplit, weight));
+    }
+    long targetSize = conf.getLong(RuntimeParameters.COMBINE_FILE_BLOCK_SIZE,
+        conf.getLongBytes("dfs.blocksize", DEFAULT_TARGET_SIZE));
+    inputs.add(new Input(bundle, nodeIndex, conf, chunks, Math.max(1L, targetSize)));
+  }
+
+  List<InputSplit> plan() throws IOException {
+    double scale = 1.0;
+    if (maxSplits > 0) {
+      long estimated = 0;
+      for (Input input : inputs) {
+        estimated += (input.totalWeight + input.targetSize - 1) / input.targetSize;
+      }
+      long available = Math.max(1, maxSplits - fixedSplits.size());
+      if (estimated > available) {
+        scale = (double) estimated / available;
+      }
+    }
+    List<InputSplit> ret = Lists.newArrayList(fixedSplits);
+    for (Input input : inputs) {
+      long targetSize = (long) Math.ceil(input.targetSize * scale);
+      for (List<Chunk> group : combine(input.chunks, targetSize)) {
+        ret.add(new CrunchInputSplit(toSplit(group), input.bundle, input.nodeIndex, input.conf));
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * Groups chunks into groups of about the target size, preferring groups of chunks that share a host.
+   */
+  static List<List<Chunk>> combine(List<Chunk> chunks, long targetSize) {
+    List<List<Chunk>> groups = Lists.newArrayList();
+    Map<String, List<Chunk>> chunksByHost = Maps.newHashMap();
+    for (Chunk chunk : chunks) {
+      if (chunk.weight >= targetSize) {
+        chunk.assigned = true;
+        groups.add(Collections.singletonList(chunk));
+        continue;
+      }
+      for (String host : chunk.hosts) {
+        List<Chunk> hostChunks = chunksByHost.get(host);
+        if (hostChunks == null) {
+          hostChunks = Lists.newArrayList();
+          chunksByHost.put(host, hostChunks);
+        }
+        hostChunks.add(chunk);
+      }
+    }
+
+    // Hosts with the most data first, so that their groups are the most likely to be complete
+    List<Map.Entry<String, List<Chunk>>> hosts = Lists.newArrayList(chunksByHost.entrySet());
+    Collections.sort(hosts, new Comparator<Map.Entry<String, List<Chunk>>>() {
+      @Override
+      public int compare(Map.Entry<String, List<Chunk>> left, Map.Entry<String, List<Chunk>> right) {
+        return Long.compare(totalWeight(right.getValue()), totalWeight(left.getValue()));
+      }
+    });
+    for (Map.Entry<String, List<Chunk>> host : hosts) {
+      List<Chunk> group = Lists.newArrayList();
+      long groupWeight = 0;
+      for (Chunk chunk : host.getValue()) {
+        if (chunk.assigned) {
+          continue;
+        }
+        group.add(chunk);
+        groupWeight += chunk.weight;
+        if (groupWeight >= targetSize) {
+          for (Chunk c : group) {
+            c.assigned = true;
+          }
+          groups.add(group);
+          group = Lists.newArrayList();
+          groupWeight = 0;
+        }
+      }
+    }
+
+    List<Chunk> group = Lists.newArrayList();
+    long groupWeight = 0;
+    for (Chunk chunk : chunks) {
+      if (chunk.assigned) {
+        continue;
+      }
+      chunk.assigned = true;
+      group.add(chunk);
+      groupWeight += chunk.weight;
+      if (groupWeight >= targetSize) {
+        groups.add(group);
+        group = Lists.newArrayList();
+        groupWeight = 0;
+      }
+    }
+    if (!group.isEmpty()) {
+      groups.add(group);
+    }
+    return groups;
+  }
+
+  private static long totalWeight(List<Chunk> chunks) {
+    long total = 0;
+    for (Chunk chunk : chunks) {
+      total += chunk.weight;
+    }
+    return total;
+  }
+
+  private static InputSplit toSplit(List<Chunk> group) throws IOException {
+    if (group.size() == 1) {
+      return group.get(0).split;
+    }
+    Path[] paths = new Path[group.size()];
+    long[] starts = new long[group.size()];
+    long[] lengths = new long[group.size()];
+    final Map<String, Integer> hostCounts = Maps.newHashMap();
+    for (int i = 0; i < group.size(); i++) {
+      FileSplit split = group.get(i).split;
+      paths[i] = split.getPath();
+      starts[i] = split.getStart();
+      lengths[i] = split.getLength();
+      for (String host : group.get(i).hosts) {
+        Integer count = hostCounts.get(host);
+        hostCounts.put(host, count == null ? 1 : count + 1);
+      }
+    }
+    List<String> hosts = Lists.newArrayList(hostCounts.keySet());
+    Collections.sort(hosts, new Comparator<String>() {
+      @Override
+      public int compare(String left, String right) {
+        return hostCounts.get(right) - hostCounts.get(left);
+      }
+    });
+    List<String> locations = hosts.subList(0, Math.min(MAX_LOCATIONS, hosts.size()));
+    return new CombineFileSplit(paths, starts, lengths, locations.toArray(new String[locations.size()]));
+  }
+
+  static class Chunk {
+    final FileSplit split;
+    final long weight;
+    final String[] hosts;
+    boolean assigned;
+
+    Chunk(FileSplit split, long weight) throws IOException {
+      this.split = split;
+      this.weight = weight;
+      this.hosts = split.getLocations();
+    }
+  }
+
+  private static class Input {
+    final FormatBundle bundle;
+    final int nodeIndex;
+    final Configuration conf;
+    final List<Chunk> chunks;
+    final long targetSize;
+    final long totalWeight;
+
+    Input(FormatBundle bundle, int nodeIndex, Configuration conf, List<Chunk> chunks, long targetSize) {
+      this.bundle = bundle;
+      this.nodeIndex = nodeIndex;
+      this.conf = conf;
+      this.chunks = chunks;
+      this.targetSize = targetSize;
+      this.totalWeight = totalWeight(chunks);
+    }
+  }
+}
@@ -0,0 +1,154 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.impl.mr.run;
+
+import java.util.Map;
+
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.CounterGroup;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+/**
+ * Execution statistics for a single {@link RTNode}, collected when {@link RuntimeParameters#PROFILE_NODES}
+ * is enabled and published as Hadoop counters when the task completes.
+ * <p>
+ * Nodes are identified by their position in the runtime plan of a job: the {@link NodeContext}, the index
+ * of the root node within that context, and the index of each child on the path to the node, e.g.
+ * {@code MAP/0/1/0}.
+ */
+public class NodeProfile {
+
+  /** The counter group that node statistics are published to. */
+  public static final String COUNTER_GROUP = "Crunch Node Profile";
+
+  private static final String RECORDS_IN = "in";
+  private static final String RECORDS_OUT = "out";
+  private static final String NANOS = "nanos";
+  private static final String DEEP_COPY_NANOS = "copy_nanos";
+
+  private long recordsIn;
+  private long recordsOut;
+  private long nanos;
+  private long deepCopyNanos;
+
+  /** @return the number of records that were passed to the node's {@code DoFn} */
+  public long getRecordsIn() {
+    return recordsIn;
+  }
+
+  /** @return the number of records that were emitted by the node's {@code DoFn} */
+  public long getRecordsOut() {
+    return recordsOut;
+  }
+
+  /**
+   * @return the time spent in the node's {@code DoFn}, excluding the time spent in the nodes that it
+   * emits to
+   */
+  public long getNanos() {
+    return nanos;
+  }
+
+  /** @return the time spent making detached copies of the values that the node emitted */
+  public long getDeepCopyNanos() {
+    return deepCopyNanos;
+  }
+
+  void incrementRecordsIn() {
+    recordsIn++;
+  }
+
+  void incrementRecordsOut() {
+    recordsOut++;
+  }
+
+  void addNanos(long delta) {
+    nanos += delta;
+  }
+
+  void addDeepCopyNanos(long delta) {
+    deepCopyNanos += delta;
+  }
+
+  void publish(TaskInputOutputContext<?, ?, ?, ?> context, String nodeId) {
+    context.getCounter(COUNTER_GROUP, counterName(nodeId, RECORDS_IN)).increment(recordsIn);
+    context.getCounter(COUNTER_GROUP, counterName(nodeId, RECORDS_OUT)).increment(recordsOut);
+    context.getCounter(COUNTER_GROUP, counterName(nodeId, NANOS)).increment(nanos);
+    context.getCounter(COUNTER_GROUP, counterName(nodeId, DEEP_COPY_NANOS)).increment(deepCopyNanos);
+  }
+
+  private static String counterName(String nodeId, String stat) {
+    return nodeId + ":" + stat;
+  }
+
+  /**
+   * Returns a map of the node statistics that were published to the given job counters, keyed by node ID.
+   */
+  public static Map<String, NodeProfile> fromCounters(Counters counters) {
+    Map<String, NodeProfile> profiles = Maps.newTreeMap();
+    if (counters == null) {
+      return profiles;
+    }
+    CounterGroup group = counters.getGroup(COUNTER_GROUP);
+    for (Counter counter : group) {
+      String name = counter.getName();
+      int sep = name.lastIndexOf(':');
+      if (sep < 0) {
+        continue;
+      }
+      String nodeId = name.substring(0, sep);
+      NodeProfile profile = profiles.get(nodeId);
+      if (profile == null) {
+        profile = new NodeProfile();
+        profiles.put(nodeId, profile);
+      }
+      String stat = name.substring(sep + 1);
+      if (RECORDS_IN.equals(stat)) {
+        profile.recordsIn = counter.getValue();
+      } else if (RECORDS_OUT.equals(stat)) {
+        profile.recordsOut = counter.getValue();
+      } else if (NANOS.equals(stat)) {
+        profile.nanos = counter.getValue();
+      } else if (DEEP_COPY_NANOS.equals(stat)) {
+        profile.deepCopyNanos = counter.getValue();
+      }
+    }
+    return profiles;
+  }
+
+  /**
+   * @return the statistics of this node as a map, suitable for serializing to JSON
+   */
+  public Map<String, Long> toMap() {
+    return ImmutableMap.of(
+        "recordsIn", recordsIn,
+        "recordsOut", recordsOut,
+        "nanos", nanos,
+        "deepCopyNanos", deepCopyNanos);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("in=%d, out=%d, ms=%.1f, copy ms=%.1f", recordsIn, recordsOut,
+        nanos / 1e6, deepCopyNanos / 1e6);
+  }
+}
@@ -23,15 +23,20 @@ import java.util.List;
 import org.apache.crunch.CrunchRuntimeException;
 import org.apache.crunch.DoFn;
 import org.apache.crunch.Emitter;
+import org.apache.crunch.FilterFn;
+import org.apache.crunch.MapFn;
 import org.apache.crunch.impl.mr.emit.IntermediateEmitter;
 import org.apache.crunch.impl.mr.emit.MultipleOutputEmitter;
 import org.apache.crunch.impl.mr.emit.OutputEmitter;
 import org.apache.crunch.types.Converter;
 import org.apache.crunch.types.PType;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Lists;
+
 public class RTNode implements Serializable {
 
   private static final Logger LOG = LoggerFactory.getLogger(RTNode.class);
@@ -45,6 +50,14 @@ public class RTNode implements Serializable {
   private final String outputName;
 
   private transient Emitter<Object> emitter;
+  private transient List<RTNode> fusedChain;
+
+  // Only set when RuntimeParameters.PROFILE_NODES is enabled
+  private transient String nodeId;
+  private transient NodeProfile profile;
+  private transient ProfilingEmitter profilingEmitter;
+  private transient TaskInputOutputContext<?, ?, ?, ?> taskContext;
+  private transient long totalNanos;
 
   public RTNode(DoFn<Object, Object> fn,
       PType<Object> outputPType,
@@ -63,14 +76,27 @@ public class RTNode implements Serializable {
   }
 
   public void initialize(CrunchTaskContext ctxt) {
+    String id = null;
+    if (ctxt.getContext().getConfiguration().getBoolean(RuntimeParameters.PROFILE_NODES, false)) {
+      id = ctxt.getNodeContext() + "/" + ctxt.getNodes().indexOf(this);
+    }
+    initialize(ctxt, id);
+  }
+
+  /**
+   * Initializes this node and its children. If the given node ID is not null, the execution of
+   * the nodes is profiled and their statistics are published under that ID and the IDs of the
+   * children derived from it.
+   */
+  public void initialize(CrunchTaskContext ctxt, String id) {
     if (emitter != null) {
       // Already initialized
       return;
     }
     fn.setContext(ctxt.getContext());
     fn.initialize();
-    for (RTNode child : children) {
-      child.initialize(ctxt);
+    for (int i = 0; i < children.size(); i++) {
+      children.get(i).initialize(ctxt, id == null ? null : id + "/" + i);
     }
 
     if (outputConverter != null) {
@@ -83,10 +109,55 @@ public class RTNode implements Serializable {
     } else if (!children.isEmpty()) {
       Configuration conf = ctxt.getContext().getConfiguration();
       boolean disableDeepCopy = conf.getBoolean(RuntimeParameters.DISABLE_DEEP_COPY, false);
-      this.emitter = new IntermediateEmitter(outputPType, children, conf, disableDeepCopy || fn.disableDeepCopy());
+      this.emitter = new IntermediateEmitter(outputPType, children, conf, disableDeepCopy || fn.disableDeepCopy(),
+          id != null);
     } else {
       throw new CrunchRuntimeException("Invalid RTNode config: no emitter for: " + nodeName);
     }
+
+    if (id != null) {
+      // Fusion is skipped when profiling so that each node's statistics can be tracked separately
+      this.nodeId = id;
+      this.profile = new NodeProfile();
+      this.taskContext = ctxt.getContext();
+      this.profilingEmitter = new ProfilingEmitter(emitter);
+      this.emitter = profilingEmitter;
+    } else if (ctxt.getContext().getConfiguration().getBoolean(RuntimeParameters.FUSE_NODES, true)) {
+      this.fusedChain = createFusedChain();
+    }
+  }
+
+  /**
+   * Returns the chain of nodes starting at this one that only contain map or filter functions and
+   * that each have a single child, so that records can be passed straight from one function to the
+   * next. Returns null if there is no such chain of at least two nodes.
+   */
+  private List<RTNode> createFusedChain() {
+    if (!isFusable(fn)) {
+      return null;
+    }
+    List<RTNode> chain = Lists.newArrayList(this);
+    RTNode current = this;
+    while (current.outputConverter == null && current.children.size() == 1
+        && isFusable(current.children.get(0).fn)) {
+      current = current.children.get(0);
+      chain.add(current);
+    }
+    return chain.size() > 1 ? chain : null;
+  }
+
+  private static boolean isFusable(DoFn<?, ?> fn) {
+    if (!(fn instanceof MapFn) && !(fn instanceof FilterFn)) {
+      return false;
+    }
+    // Functions that override process may do more than map or filter a single record
+    try {
+      Class<?> declaring = fn.getClass().getMethod("process", Object.class, Emitter.class)
+          .getDeclaringClass();
+      return declaring == MapFn.class || declaring == FilterFn.class;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
   }
 
   public boolean isLeafNode() {
@@ -94,14 +165,52 @@ public class RTNode implements Serializable {
   }
 
   public void process(Object input) {
+    if (fusedChain != null) {
+      processFused(input);
+      return;
+    }
+    long start = 0;
+    if (profile != null) {
+      profile.incrementRecordsIn();
+      start = System.nanoTime();
+    }
     try {
       fn.process(input, emitter);
     } catch (CrunchRuntimeException e) {
-      if (!e.wasLogged()) {
-        LOG.info("Crunch exception in '{}' for input: {}", new Object[]{nodeName, input, e});
-        e.markLogged();
-      }
+      logException(nodeName, input, e);
       throw e;
+    } finally {
+      if (profile != null) {
+        totalNanos += System.nanoTime() - start;
+      }
+    }
+  }
+
+  private void processFused(Object input) {
+    Object value = input;
+    RTNode node = this;
+    for (int i = 0; i < fusedChain.size(); i++) {
+      node = fusedChain.get(i);
+      try {
+        if (node.fn instanceof FilterFn) {
+          if (!((FilterFn<Object>) node.fn).accept(value)) {
+            return;
+          }
+        } else {
+          value = ((MapFn<Object, Object>) node.fn).map(value);
+        }
+      } catch (CrunchRuntimeException e) {
+        logException(node.nodeName, value, e);
+        throw e;
+      }
+    }
+    node.emitter.emit(value);
+  }
+
+  private static void logException(String nodeName, Object input, CrunchRuntimeException e) {
+    if (!e.wasLogged()) {
+      LOG.info("Crunch exception in '{}' for input: {}", new Object[]{nodeName, input, e});
+      e.markLogged();
     }
   }
 
@@ -114,13 +223,48 @@ public class RTNode implements Serializable {
   }
 
   public void cleanup() {
+    long start = System.nanoTime();
     fn.cleanup(emitter);
     emitter.flush();
+    if (profile != null) {
+      totalNanos += System.nanoTime() - start;
+      profile.addNanos(totalNanos - profilingEmitter.downstreamNanos);
+      if (profilingEmitter.delegate instanceof IntermediateEmitter) {
+        profile.addDeepCopyNanos(((IntermediateEmitter) profilingEmitter.delegate).getDeepCopyNanos());
+      }
+      profile.publish(taskContext, nodeId);
+    }
     for (RTNode child : children) {
       child.cleanup();
     }
   }
 
+  /**
+   * Counts the records emitted by a profiled node and tracks the time spent downstream of it, so
+   * that it can be excluded from the time attributed to the node itself.
+   */
+  private class ProfilingEmitter implements Emitter<Object> {
+    private final Emitter<Object> delegate;
+    private long downstreamNanos;
+
+    ProfilingEmitter(Emitter<Object> delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void emit(Object emitted) {
+      profile.incrementRecordsOut();
+      long start = System.nanoTime();
+      delegate.emit(emitted);
+      downstreamNanos += System.nanoTime() - start;
+    }
+
+    @Override
+    public void flush() {
+      delegate.flush();
+    }
+  }
+
   @Override
   public String toString() {
     return "RTNode [nodeName=" + nodeName + ", fn=" + fn + ", children=" + children + ", inputConverter="
@@ -159,4 +303,11 @@ public class RTNode implements Serializable {
   public Emitter<Object> getEmitter() {
     return emitter;
   }
+
+  /**
+   * @return the execution statistics of this node, or null if profiling is not enabled
+   */
+  public NodeProfile getProfile() {
+    return profile;
+  }
 }
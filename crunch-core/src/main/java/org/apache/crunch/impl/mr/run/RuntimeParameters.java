@@ -37,14 +37,71 @@ public final class RuntimeParameters {
 
   public static final String COMBINE_FILE_BLOCK_SIZE = "crunch.combine.file.block.size";
 
+  /**
+   * Runtime property which enables the split planner for inputs that combine files. Instead of packing files by
+   * their length alone, the planner balances splits by their estimated size after decompression, prefers to
+   * combine splits that are stored on the same host, and honors {@link #MAX_SPLITS}. Defaults to {@code false}.
+   */
+  public static final String PLAN_SPLITS = "crunch.plan.splits";
+
+  /**
+   * Runtime property for the maximum number of splits of a job when {@link #PLAN_SPLITS} is enabled. If the inputs
+   * would have more splits, the splits of the inputs that combine files are made larger. Defaults to 0, which means
+   * that there is no maximum.
+   */
+  public static final String MAX_SPLITS = "crunch.max.splits";
+
+  /**
+   * Runtime property for the factor by which compressed input files are assumed to expand when they are read,
+   * which is used by the split planner to weigh them against uncompressed files. May be set per source.
+   * Defaults to 4.
+   */
+  public static final String SPLIT_COMPRESSION_RATIO = "crunch.split.compression.ratio";
+
   public static final String CREATE_DIR = "mapreduce.jobcontrol.createdir.ifnotexist";
 
   public static final String DISABLE_DEEP_COPY = "crunch.disable.deep.copy";
 
+  /**
+   * Runtime property which indicates whether linear chains of {@link org.apache.crunch.MapFn} and
+   * {@link org.apache.crunch.FilterFn} nodes should be executed as a single fused node, without passing
+   * each record through an intermediate emitter between them. Defaults to {@code true}.
+   */
+  public static final String FUSE_NODES = "crunch.fuse.nodes";
+
+  /**
+   * Runtime property which enables profiling of the runtime nodes of each job. When it is {@code true}, the
+   * number of records in and out, the time spent and the time spent making deep copies are tracked for every
+   * node and published as counters in the {@link NodeProfile#COUNTER_GROUP} group. Each node uses four counters,
+   * so jobs with many nodes may need a higher {@code mapreduce.job.counters.max}. Defaults to {@code false}.
+   */
+  public static final String PROFILE_NODES = "crunch.profile.nodes";
+
   public static final String MAX_RUNNING_JOBS = "crunch.max.running.jobs";
 
   public static final String FILE_TARGET_MAX_THREADS = "crunch.file.target.max.threads";
 
+  /**
+   * Runtime property which enables directory-level commits of file targets. When it is {@code true} and a
+   * job's output is written to a new or empty directory on the same file system as the job's working directory,
+   * and its output files already have their final names, the whole working directory is renamed into place.
+   * Otherwise the files are renamed one by one, using {@link #FILE_TARGET_MAX_THREADS} threads, which
+   * defaults to 16 in this mode instead of 1. Defaults to {@code false}.
+   */
+  public static final String FILE_TARGET_COMMIT_DIRECTORY = "crunch.file.target.commit.directory";
+
+  /**
+   * Runtime property for the number of times a failed rename or copy of an output file is retried before the
+   * output of a file target is considered incomplete. Defaults to 3.
+   */
+  public static final String FILE_TARGET_MAX_RETRIES = "crunch.file.target.max.retries";
+
+  /**
+   * Runtime property for the number of milliseconds to wait before the first retry of a failed rename or copy of
+   * an output file, which doubles for each further retry. Defaults to 1000.
+   */
+  public static final String FILE_TARGET_RETRY_BACKOFF_MS = "crunch.file.target.retry.backoff.ms";
+
   public static final String MAX_POLL_INTERVAL = "crunch.max.poll.interval";
 
   public static final String FILE_TARGET_USE_DISTCP = "crunch.file.target.use.distcp";
@@ -53,6 +110,20 @@ public final class RuntimeParameters {
 
   public static final String FILE_TARGET_MAX_DISTCP_TASK_BANDWIDTH_MB = "crunch.file.target.max.distcp.task.bandwidth.mb";
 
+  /**
+   * Runtime property for the maximum number of files that the path-per-key output formats keep open in each task.
+   * When a key is written after its file was closed to stay within this limit, its records go to a new part file.
+   * Defaults to 16.
+   */
+  public static final String PATH_PER_KEY_MAX_OPEN_WRITERS = "crunch.path.per.key.max.open.writers";
+
+  /**
+   * Runtime property for the maximum number of bytes that the open writers of the path-per-key output formats are
+   * estimated to buffer in each task, which mostly matters for the row groups of Parquet files. Defaults to 0, which
+   * means that only {@link #PATH_PER_KEY_MAX_OPEN_WRITERS} applies.
+   */
+  public static final String PATH_PER_KEY_MAX_OPEN_BYTES = "crunch.path.per.key.max.open.bytes";
+
   // Not instantiated
   private RuntimeParameters() {
   }
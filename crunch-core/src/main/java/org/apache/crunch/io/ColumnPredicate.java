@@ -0,0 +1,251 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.io;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * A predicate on the columns of a columnar file, such as a Parquet or ORC file, that a source pushes down to
+ * its input format so that row groups or stripes whose column statistics show that none of their records can
+ * match are not read at all.
+ * <p>
+ * Predicates compare a column, named by its (dotted, for nested columns) path, with {@code Integer},
+ * {@code Long}, {@code Float}, {@code Double}, {@code Boolean} or {@code String} values, and may be combined
+ * with {@link #and}, {@link #or} and {@link #not}. Whether records in the row groups that are read are also
+ * filtered depends on the file format, so a pipeline that needs exact results should still apply the equivalent
+ * {@link org.apache.crunch.FilterFn} to the records that it reads.
+ */
+public final class ColumnPredicate implements Serializable {
+
+  /**
+   * The operators of column predicates.
+   */
+  public enum Operator {
+    EQ("=="), NOT_EQ("!="), LT("<"), LT_EQ("<="), GT(">"), GT_EQ(">="), IN("in"), IS_NULL("is null"),
+    IS_NOT_NULL("is not null"), AND("and"), OR("or"), NOT("not");
+
+    private final String symbol;
+
+    Operator(String symbol) {
+      this.symbol = symbol;
+    }
+  }
+
+  private static final ImmutableSet<Class<?>> VALUE_CLASSES = ImmutableSet.<Class<?>>of(
+      Integer.class, Long.class, Float.class, Double.class, Boolean.class, String.class);
+
+  private final Operator operator;
+  private final String column;
+  private final List<Object> values;
+  private final List<ColumnPredicate> children;
+
+  private ColumnPredicate(Operator operator, String column, List<Object> values, List<ColumnPredicate> children) {
+    this.operator = operator;
+    this.column = column;
+    this.values = values;
+    this.children = children;
+  }
+
+  public static ColumnPredicate eq(String column, Object value) {
+    return compare(Operator.EQ, column, value);
+  }
+
+  public static ColumnPredicate notEq(String column, Object value) {
+    return compare(Operator.NOT_EQ, column, value);
+  }
+
+  public static ColumnPredicate lt(String column, Object value) {
+    return compare(Operator.LT, column, value);
+  }
+
+  public static ColumnPredicate ltEq(String column, Object value) {
+    return compare(Operator.LT_EQ, column, value);
+  }
+
+  public static ColumnPredicate gt(String column, Object value) {
+    return compare(Operator.GT, column, value);
+  }
+
+  public static ColumnPredicate gtEq(String column, Object value) {
+    return compare(Operator.GT_EQ, column, value);
+  }
+
+  /**
+   * Matches records whose column is equal to any of the given values.
+   */
+  public static ColumnPredicate in(String column, Object... values) {
+    return in(column, Arrays.asList(values));
+  }
+
+  /**
+   * Matches records whose column is equal to any of the given values.
+   */
+  public static ColumnPredicate in(String column, Collection<?> values) {
+    Preconditions.checkArgument(!values.isEmpty(), "No values for column %s", column);
+    List<Object> checked = Lists.newArrayListWithCapacity(values.size());
+    for (Object value : values) {
+      checked.add(checkValue(column, value));
+    }
+    return new ColumnPredicate(Operator.IN, checkColumn(column), checked, null);
+  }
+
+  public static ColumnPredicate isNull(String column) {
+    return new ColumnPredicate(Operator.IS_NULL, checkColumn(column), null, null);
+  }
+
+  public static ColumnPredicate isNotNull(String column) {
+    return new ColumnPredicate(Operator.IS_NOT_NULL, checkColumn(column), null, null);
+  }
+
+  public static ColumnPredicate and(ColumnPredicate... predicates) {
+    return combine(Operator.AND, predicates);
+  }
+
+  public static ColumnPredicate or(ColumnPredicate... predicates) {
+    return combine(Operator.OR, predicates);
+  }
+
+  public static ColumnPredicate not(ColumnPredicate predicate) {
+    return combine(Operator.NOT, predicate);
+  }
+
+  private static ColumnPredicate compare(Operator operator, String column, Object value) {
+    Object checked = checkValue(column, value);
+    Preconditions.checkArgument(!(checked instanceof Boolean) || operator == Operator.EQ
+        || operator == Operator.NOT_EQ, "Boolean column %s can only be compared for equality", column);
+    List<Object> values = Lists.newArrayList(checked);
+    return new ColumnPredicate(operator, checkColumn(column), values, null);
+  }
+
+  private static ColumnPredicate combine(Operator operator, ColumnPredicate... predicates) {
+    Preconditions.checkArgument(predicates.length > 0, "No predicates to combine with %s", operator);
+    for (ColumnPredicate predicate : predicates) {
+      Preconditions.checkNotNull(predicate);
+    }
+    return new ColumnPredicate(operator, null, null, Lists.newArrayList(predicates));
+  }
+
+  private static String checkColumn(String column) {
+    Preconditions.checkArgument(column != null && !column.isEmpty(), "No column name");
+    return column;
+  }
+
+  private static Object checkValue(String column, Object value) {
+    Preconditions.checkNotNull(value, "Null value for column %s, use isNull or isNotNull instead", column);
+    if (value instanceof CharSequence) {
+      return value.toString();
+    }
+    Preconditions.checkArgument(VALUE_CLASSES.contains(value.getClass()),
+        "Unsupported value for column %s: %s", column, value.getClass());
+    return value;
+  }
+
+  public Operator getOperator() {
+    return operator;
+  }
+
+  /**
+   * Returns the path of the column that is compared, or {@code null} for the operators that combine predicates.
+   */
+  public String getColumn() {
+    return column;
+  }
+
+  /**
+   * Returns the values that the column is compared with, which are empty for null checks and the operators that
+   * combine predicates.
+   */
+  public List<Object> getValues() {
+    return values == null ? ImmutableList.of() : values;
+  }
+
+  /**
+   * Returns the predicates that are combined by {@code AND}, {@code OR} or {@code NOT}, which are empty for the
+   * operators that compare a column.
+   */
+  public List<ColumnPredicate> getChildren() {
+    return children == null ? ImmutableList.<ColumnPredicate>of() : children;
+  }
+
+  /**
+   * Returns the paths of all of the columns that this predicate and the predicates that it combines compare, in
+   * the order that they first appear.
+   */
+  public Set<String> getColumns() {
+    Set<String> columns = Sets.newLinkedHashSet();
+    addColumns(columns);
+    return columns;
+  }
+
+  private void addColumns(Set<String> columns) {
+    if (column != null) {
+      columns.add(column);
+    }
+    for (ColumnPredicate child : getChildren()) {
+      child.addColumns(columns);
+    }
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (!(other instanceof ColumnPredicate)) {
+      return false;
+    }
+    ColumnPredicate that = (ColumnPredicate) other;
+    return operator == that.operator && Objects.equal(column, that.column)
+        && getValues().equals(that.getValues()) && getChildren().equals(that.getChildren());
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(operator, column, getValues(), getChildren());
+  }
+
+  @Override
+  public String toString() {
+    switch (operator) {
+      case AND:
+      case OR:
+        return "(" + Joiner.on(" " + operator.symbol + " ").join(children) + ")";
+      case NOT:
+        return "not " + children.get(0);
+      case IS_NULL:
+      case IS_NOT_NULL:
+        return column + " " + operator.symbol;
+      case IN:
+        return column + " in (" + Joiner.on(", ").join(values) + ")";
+      default:
+        return column + " " + operator.symbol + " " + values.get(0);
+    }
+  }
+}
@@ -0,0 +1,204 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.io;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.crunch.impl.mr.run.RuntimeParameters;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Maps;
+
+/**
+ * The open writers of an output format that writes the records for each key to a file in a sub-directory named
+ * after the key. Writers are kept open in least-recently-used order, and the least recently used writer is closed
+ * whenever the number of open writers or the number of bytes that they are estimated to buffer would exceed the
+ * limits given by {@link RuntimeParameters#PATH_PER_KEY_MAX_OPEN_WRITERS} and
+ * {@link RuntimeParameters#PATH_PER_KEY_MAX_OPEN_BYTES}.
+ * <p>
+ * Files are never appended to or overwritten: if a key is written again after its writer was closed, its records
+ * go to a new part file whose name is the task's unique file name with a sequence number before the extension,
+ * e.g. {@code part-r-00000-1.avro}. Writing the records for each key together, for example with
+ * {@link org.apache.crunch.lib.Shard#clusterByKey(org.apache.crunch.PTable)}, keeps the number of files low.
+ *
+ * @param <W> the type of the writers
+ */
+public abstract class PathPerKeyWriterPool<W> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PathPerKeyWriterPool.class);
+
+  private static final int DEFAULT_MAX_OPEN_WRITERS = 16;
+
+  private final Path basePath;
+  private final String uniqueFileName;
+  private final Configuration conf;
+  private final int maxOpenWriters;
+  private final long maxOpenBytes;
+  private final long maxBufferedBytes;
+  private final LinkedHashMap<String, OpenWriter<W>> openWriters = new LinkedHashMap<String, OpenWriter<W>>(
+      16, 0.75f, true);
+  private final Map<String, Integer> fileCounts = Maps.newHashMap();
+  private OpenWriter<W> current;
+  private long openBytes;
+  private int rolledFiles;
+
+  /**
+   * @param basePath the directory that holds the sub-directory of each key
+   * @param uniqueFileName the name of the first file written for each key in this task
+   * @param conf the configuration of the task
+   * @param maxBufferedBytes the most bytes that one writer buffers before it writes them out, which caps the
+   *     estimate of the bytes held by each writer
+   */
+  protected PathPerKeyWriterPool(Path basePath, String uniqueFileName, Configuration conf, long maxBufferedBytes) {
+    this.basePath = basePath;
+    this.uniqueFileName = uniqueFileName;
+    this.conf = conf;
+    this.maxOpenWriters = Math.max(1, conf.getInt(RuntimeParameters.PATH_PER_KEY_MAX_OPEN_WRITERS,
+        DEFAULT_MAX_OPEN_WRITERS));
+    long maxBytes = conf.getLong(RuntimeParameters.PATH_PER_KEY_MAX_OPEN_BYTES, 0L);
+    this.maxOpenBytes = maxBytes > 0 ? maxBytes : Long.MAX_VALUE;
+    this.maxBufferedBytes = maxBufferedBytes;
+  }
+
+  /**
+   * Opens a writer for the given file.
+   */
+  protected abstract W open(Path file) throws IOException, InterruptedException;
+
+  /**
+   * Flushes and closes the given writer.
+   */
+  protected abstract void close(W writer) throws IOException, InterruptedException;
+
+  /**
+   * Returns the writer for the given key, opening a new file for it if necessary.
+   */
+  public W get(String key) throws IOException, InterruptedException {
+    if (current != null && current.key.equals(key)) {
+      return current.writer;
+    }
+    current = openWriters.get(key);
+    if (current == null) {
+      while (openWriters.size() >= maxOpenWriters) {
+        closeEldest();
+      }
+      current = new OpenWriter<W>(key, open(nextFile(key)));
+      openWriters.put(key, current);
+    }
+    return current.writer;
+  }
+
+  /**
+   * Returns true if the open writers are limited by the number of bytes that they hold, so that the sizes of the
+   * records need to be passed to {@link #written(long)}. Output formats whose size estimates are costly to compute
+   * can skip them when this is false.
+   */
+  public boolean isLimitingBytes() {
+    return maxOpenBytes != Long.MAX_VALUE;
+  }
+
+  /**
+   * Adds the estimated size of a record that was just written with the writer returned by the last call to
+   * {@link #get(String)}, and closes the least recently used writers if the open writers now hold too many bytes.
+   */
+  public void written(long bytes) throws IOException, InterruptedException {
+    long estimate = Math.min(maxBufferedBytes, current.bytes + bytes);
+    openBytes += estimate - current.bytes;
+    current.bytes = estimate;
+    while (openBytes > maxOpenBytes && openWriters.size() > 1) {
+      closeEldest();
+    }
+  }
+
+  /**
+   * Closes all of the open writers.
+   */
+  public void close() throws IOException, InterruptedException {
+    for (OpenWriter<W> openWriter : openWriters.values()) {
+      close(openWriter.writer);
+    }
+    openWriters.clear();
+    current = null;
+    openBytes = 0;
+    if (rolledFiles > 0) {
+      LOG.info("Wrote {} files for {} keys under {} with at most {} open writers",
+          new Object[] { fileCounts.size() + rolledFiles, fileCounts.size(), basePath, maxOpenWriters });
+    }
+  }
+
+  /**
+   * Returns the number of writers that are currently open.
+   */
+  public int getOpenWriterCount() {
+    return openWriters.size();
+  }
+
+  private void closeEldest() throws IOException, InterruptedException {
+    Iterator<OpenWriter<W>> iter = openWriters.values().iterator();
+    OpenWriter<W> eldest = iter.next();
+    iter.remove();
+    openBytes -= eldest.bytes;
+    close(eldest.writer);
+  }
+
+  private Path nextFile(String key) throws IOException {
+    Path dir = new Path(basePath, key);
+    Integer count = fileCounts.get(key);
+    if (count == null) {
+      FileSystem fs = dir.getFileSystem(conf);
+      if (!fs.exists(dir)) {
+        fs.mkdirs(dir);
+      }
+      fileCounts.put(key, 1);
+      return new Path(dir, uniqueFileName);
+    }
+    fileCounts.put(key, count + 1);
+    rolledFiles++;
+    return new Path(dir, getRolledFileName(uniqueFileName, count));
+  }
+
+  /**
+   * Returns the name of the file with the given sequence number, which is inserted before the extension of the
+   * given unique file name so that the partition number can still be extracted from the end of its stem.
+   */
+  public static String getRolledFileName(String uniqueFileName, int sequence) {
+    int dot = uniqueFileName.indexOf('.');
+    if (dot < 0) {
+      return uniqueFileName + "-" + sequence;
+    }
+    return uniqueFileName.substring(0, dot) + "-" + sequence + uniqueFileName.substring(dot);
+  }
+
+  private static class OpenWriter<W> {
+    private final String key;
+    private final W writer;
+    private long bytes;
+
+    OpenWriter(String key, W writer) {
+      this.key = key;
+      this.writer = writer;
+    }
+  }
+}
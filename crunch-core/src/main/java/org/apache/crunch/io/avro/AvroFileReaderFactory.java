@@ -44,6 +44,7 @@ public class AvroFileReaderFactory<T> implements FileReaderFactory<T> {
 
   private DatumReader<T> reader;
   private final AvroType<?> atype;
+  private final Schema readerSchema;
   private final MapFn<T, T> mapFn;
 
   public AvroFileReaderFactory(Schema schema) {
@@ -55,8 +56,21 @@ public class AvroFileReaderFactory<T> implements FileReaderFactory<T> {
   }
 
   public AvroFileReaderFactory(DatumReader<T> reader, AvroType<?> atype) {
+    this(reader, atype, atype.getSchema());
+  }
+
+  /**
+   * Reads records of the given type with the given reader schema, which may have an alias for the
+   * name of the written schema or fewer fields than it.
+   */
+  public AvroFileReaderFactory(AvroType<?> atype, Schema readerSchema) {
+    this(null, atype, readerSchema);
+  }
+
+  private AvroFileReaderFactory(DatumReader<T> reader, AvroType<?> atype, Schema readerSchema) {
     this.reader = reader;
     this.atype = atype;
+    this.readerSchema = readerSchema;
     this.mapFn = (MapFn<T, T>) atype.getInputMapFn();
   }
 
@@ -67,7 +81,7 @@ public class AvroFileReaderFactory<T> implements FileReaderFactory<T> {
   @Override
   public Iterator<T> read(FileSystem fs, final Path path) {
     AvroMode mode = AvroMode.fromType(atype).withFactoryFromConfiguration(fs.getConf());
-    final DatumReader recordReader = reader == null ? mode.getReader(atype.getSchema()) : reader;
+    final DatumReader recordReader = reader == null ? mode.getReader(readerSchema) : reader;
     this.mapFn.initialize();
     try {
       FsInput fsi = new FsInput(path, fs.getConf());
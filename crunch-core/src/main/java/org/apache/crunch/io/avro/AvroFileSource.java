@@ -20,6 +20,9 @@ package org.apache.crunch.io.avro;
 import java.io.IOException;
 
 import java.util.List;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
 import org.apache.avro.io.DatumReader;
 import org.apache.avro.mapred.AvroJob;
 import org.apache.crunch.ReadableData;
@@ -34,12 +37,20 @@ import org.apache.crunch.types.avro.Avros;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
 
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
 public class AvroFileSource<T> extends FileSourceImpl<T> implements ReadableSource<T> {
 
   private static <S> FormatBundle getBundle(AvroType<S> ptype, AvroMode mode) {
+    return getBundle(ptype, ptype.getSchema(), mode);
+  }
+
+  private static <S> FormatBundle getBundle(AvroType<S> ptype, Schema readerSchema, AvroMode mode) {
     FormatBundle bundle = FormatBundle.forInput(AvroInputFormat.class)
           .set(AvroJob.INPUT_IS_REFLECT, String.valueOf(ptype.hasReflect()))
-          .set(AvroJob.INPUT_SCHEMA, ptype.getSchema().toString())
+          .set(AvroJob.INPUT_SCHEMA, readerSchema.toString())
           .set(Avros.REFLECT_DATA_FACTORY_CLASS, Avros.REFLECT_DATA_FACTORY.getClass().getName())
           .set(RuntimeParameters.DISABLE_COMBINE_FILE, Boolean.FALSE.toString());
     mode.configure(bundle);
@@ -52,7 +63,8 @@ public class AvroFileSource<T> extends FileSourceImpl<T> implements ReadableSour
   }
 
   private DatumReader<T> reader;
-  
+  private String readerSchema;
+
   public AvroFileSource(Path path, AvroType<T> ptype) {
     super(path, ptype, getBundle(ptype));
   }
@@ -77,11 +89,71 @@ public class AvroFileSource<T> extends FileSourceImpl<T> implements ReadableSour
   public AvroFileSource(List<Path> paths, AvroType<T> ptype, DatumReader<T> reader) {
     super(paths, ptype, getBundle(ptype));
     this.reader = reader;
-  }  
+  }
+
+  private AvroFileSource(List<Path> paths, AvroType<T> ptype, Schema readerSchema) {
+    super(paths, ptype, getBundle(ptype, readerSchema, AvroMode.fromType(ptype)));
+    this.readerSchema = readerSchema.toString();
+  }
+
+  /**
+   * Read the Avro data at the given paths, which was written with the given schema, as records of an
+   * {@code AvroType} whose schema has a subset of the written fields, such as a smaller generic, specific
+   * or reflect record. The fields that are not in the schema of the {@code AvroType} are skipped while
+   * decoding instead of being materialized. The record names of the two schemas may differ.
+   *
+   * @param paths the list of paths to read
+   * @param writtenSchema the schema that the data was written with
+   * @param ptype the AvroType to read the data as
+   */
+  public static <T> AvroFileSource<T> projected(List<Path> paths, Schema writtenSchema, AvroType<T> ptype) {
+    return new AvroFileSource<T>(paths, ptype, AvroProjection.aliasTo(ptype.getSchema(), writtenSchema));
+  }
+
+  /**
+   * Returns a builder for reading a subset of the fields of Avro data that was written with the given
+   * record schema as generic records.
+   */
+  public static Builder builder(Schema schema) {
+    Preconditions.checkNotNull(schema);
+    Preconditions.checkArgument(Schema.Type.RECORD.equals(schema.getType()));
+    return new Builder(schema);
+  }
+
+  /**
+   * Helper class for constructing an {@code AvroFileSource} that only reads a subset of the
+   * fields defined in an Avro schema.
+   */
+  public static class Builder {
+    private final Schema baseSchema;
+    private final List<String> fieldPaths = Lists.newArrayList();
+
+    private Builder(Schema baseSchema) {
+      this.baseSchema = baseSchema;
+    }
+
+    /**
+     * Includes the field with the given name, or the nested field with the given dotted path.
+     */
+    public Builder includeField(String fieldPath) {
+      AvroProjection.project(baseSchema, ImmutableList.of(fieldPath));
+      fieldPaths.add(fieldPath);
+      return this;
+    }
+
+    public AvroFileSource<GenericRecord> build(Path path) {
+      return build(ImmutableList.of(path));
+    }
+
+    public AvroFileSource<GenericRecord> build(List<Path> paths) {
+      Schema schema = fieldPaths.isEmpty() ? baseSchema : AvroProjection.project(baseSchema, fieldPaths);
+      return new AvroFileSource<GenericRecord>(paths, Avros.generics(schema));
+    }
+  }
 
   @Override
   public String toString() {
-    return "Avro(" + pathsAsString() + ")";
+    return "Avro(" + pathsAsString() + ((readerSchema == null) ? ")" : ") -> " + readerSchema);
   }
 
   @Override
@@ -91,10 +163,13 @@ public class AvroFileSource<T> extends FileSourceImpl<T> implements ReadableSour
 
   @Override
   public ReadableData<T> asReadable() {
-    return new AvroReadableData<T>(this.paths, (AvroType<T>) ptype);
+    return new AvroReadableData<T>(this.paths, (AvroType<T>) ptype, readerSchema);
   }
 
   protected AvroFileReaderFactory<T> getFileReaderFactory(AvroType<T> ptype){
+    if (reader == null && readerSchema != null) {
+      return new AvroFileReaderFactory<T>(ptype, new Schema.Parser().parse(readerSchema));
+    }
     return new AvroFileReaderFactory(reader, ptype);
   }
 }
@@ -0,0 +1,204 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.io.avro;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.avro.JsonProperties;
+import org.apache.avro.Schema;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Builds projections of Avro record schemas, which hold a subset of the fields of a schema, for reading only
+ * those fields from Avro and Parquet files.
+ */
+public class AvroProjection {
+
+  private AvroProjection() {
+  }
+
+  /**
+   * Returns a copy of the given record schema that only has the given fields, in the order of the schema. The fields
+   * of nested records may be selected with dotted paths such as {@code "user.id"}, which keep only the named fields
+   * of the nested record; a field that is a union of {@code null} and a record is projected within the union.
+   *
+   * @throws IllegalArgumentException if a path does not name a field of the schema
+   */
+  public static Schema project(Schema schema, Iterable<String> fieldPaths) {
+    Selection selection = new Selection();
+    for (String fieldPath : fieldPaths) {
+      Selection current = selection;
+      for (String name : fieldPath.split("\\.")) {
+        if (current.fields == null) {
+          break; // an enclosing field is already selected as a whole
+        }
+        Selection next = current.fields.get(name);
+        if (next == null) {
+          next = new Selection();
+          current.fields.put(name, next);
+        }
+        current = next;
+      }
+      current.fields = null;
+    }
+    return project(schema, selection);
+  }
+
+  /**
+   * Returns a copy of the given record schema that only has the fields that are also in the given subset, so that
+   * the fields that a record type reads can be inferred from its schema. Nested records are projected to the fields of
+   * the corresponding records in the subset. Fields of the subset that are not in the schema are ignored.
+   */
+  public static Schema project(Schema schema, Schema subset) {
+    return project(schema, subset, Sets.newSetFromMap(new IdentityHashMap<Schema, Boolean>()));
+  }
+
+  /**
+   * Returns a copy of the given reader record schema with the full name of the given written record schema as an
+   * alias, so that data that was written with one resolves against the other even though their names differ.
+   */
+  public static Schema aliasTo(Schema reader, Schema written) {
+    if (reader.getFullName().equals(written.getFullName())) {
+      return reader;
+    }
+    List<Schema.Field> fields = Lists.newArrayList();
+    for (Schema.Field field : reader.getFields()) {
+      fields.add(copyField(field, field.schema()));
+    }
+    Schema aliased = copyRecord(reader, fields);
+    aliased.addAlias(written.getFullName());
+    return aliased;
+  }
+
+  private static class Selection {
+    private Map<String, Selection> fields = Maps.newLinkedHashMap();
+  }
+
+  private static Schema project(Schema schema, Selection selection) {
+    List<Schema.Field> fields = Lists.newArrayList();
+    for (Schema.Field field : schema.getFields()) {
+      Selection fieldSelection = selection.fields.get(field.name());
+      if (fieldSelection == null) {
+        continue;
+      }
+      if (fieldSelection.fields == null) {
+        fields.add(copyField(field, field.schema()));
+      } else {
+        Schema record = getRecord(field.schema());
+        if (record == null) {
+          throw new IllegalArgumentException("Field " + field.name() + " in schema: " + schema.getName()
+              + " is not a record");
+        }
+        fields.add(copyField(field, replaceRecord(field.schema(), project(record, fieldSelection))));
+      }
+    }
+    for (String name : selection.fields.keySet()) {
+      if (schema.getField(name) == null) {
+        throw new IllegalArgumentException("No field " + name + " in schema: " + schema.getName());
+      }
+    }
+    return copyRecord(schema, fields);
+  }
+
+  private static Schema project(Schema schema, Schema subset, Set<Schema> projecting) {
+    projecting.add(schema);
+    List<Schema.Field> fields = Lists.newArrayList();
+    for (Schema.Field field : schema.getFields()) {
+      Schema.Field subsetField = subset.getField(field.name());
+      if (subsetField == null) {
+        continue;
+      }
+      Schema record = getRecord(field.schema());
+      Schema subsetRecord = getRecord(subsetField.schema());
+      if (record != null && subsetRecord != null && !projecting.contains(record)) {
+        fields.add(copyField(field, replaceRecord(field.schema(), project(record, subsetRecord, projecting))));
+      } else {
+        // Recursive records are kept whole
+        fields.add(copyField(field, field.schema()));
+      }
+    }
+    projecting.remove(schema);
+    return copyRecord(schema, fields);
+  }
+
+  /**
+   * Returns the record schema, or the only record in a union schema, or {@code null} if there is none.
+   */
+  private static Schema getRecord(Schema schema) {
+    if (schema.getType() == Schema.Type.RECORD) {
+      return schema;
+    } else if (schema.getType() == Schema.Type.UNION) {
+      Schema record = null;
+      for (Schema type : schema.getTypes()) {
+        if (type.getType() == Schema.Type.RECORD) {
+          if (record != null) {
+            return null;
+          }
+          record = type;
+        }
+      }
+      return record;
+    }
+    return null;
+  }
+
+  private static Schema replaceRecord(Schema schema, Schema projected) {
+    if (schema.getType() == Schema.Type.RECORD) {
+      return projected;
+    }
+    List<Schema> types = Lists.newArrayList();
+    for (Schema type : schema.getTypes()) {
+      types.add(type.getType() == Schema.Type.RECORD ? projected : type);
+    }
+    return Schema.createUnion(types);
+  }
+
+  private static Schema.Field copyField(Schema.Field field, Schema schema) {
+    // A default of a record that has been projected no longer matches its schema
+    Object defaultValue = field.defaultVal();
+    if (schema != field.schema() && defaultValue != JsonProperties.NULL_VALUE) {
+      defaultValue = null;
+    }
+    Schema.Field copy = new Schema.Field(field.name(), schema, field.doc(), defaultValue, field.order());
+    for (String alias : field.aliases()) {
+      copy.addAlias(alias);
+    }
+    for (Map.Entry<String, Object> prop : field.getObjectProps().entrySet()) {
+      copy.addProp(prop.getKey(), prop.getValue());
+    }
+    return copy;
+  }
+
+  private static Schema copyRecord(Schema schema, List<Schema.Field> fields) {
+    Schema copy = Schema.createRecord(schema.getName(), schema.getDoc(), schema.getNamespace(), schema.isError());
+    copy.setFields(fields);
+    for (String alias : schema.getAliases()) {
+      copy.addAlias(alias);
+    }
+    for (Map.Entry<String, Object> prop : schema.getObjectProps().entrySet()) {
+      copy.addProp(prop.getKey(), prop.getValue());
+    }
+    return copy;
+  }
+}
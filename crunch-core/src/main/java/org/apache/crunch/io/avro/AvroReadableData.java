@@ -17,6 +17,7 @@
  */
 package org.apache.crunch.io.avro;
 
+import org.apache.avro.Schema;
 import org.apache.crunch.io.FileReaderFactory;
 import org.apache.crunch.io.impl.ReadableDataImpl;
 import org.apache.crunch.types.avro.AvroType;
@@ -27,14 +28,23 @@ import java.util.List;
 public class AvroReadableData<T> extends ReadableDataImpl<T> {
 
   private final AvroType<T> avroType;
+  private final String readerSchema;
 
   public AvroReadableData(List<Path> paths, AvroType<T> avroType) {
+    this(paths, avroType, null);
+  }
+
+  AvroReadableData(List<Path> paths, AvroType<T> avroType, String readerSchema) {
     super(paths);
     this.avroType = avroType;
+    this.readerSchema = readerSchema;
   }
 
   @Override
   protected FileReaderFactory<T> getFileReaderFactory() {
+    if (readerSchema != null) {
+      return new AvroFileReaderFactory<T>(avroType, new Schema.Parser().parse(readerSchema));
+    }
     return new AvroFileReaderFactory<T>(avroType);
   }
 }
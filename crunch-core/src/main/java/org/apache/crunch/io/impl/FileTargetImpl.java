@@ -18,12 +18,14 @@
 package org.apache.crunch.io.impl;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
@@ -33,6 +35,7 @@ import java.util.regex.Pattern;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
@@ -53,6 +56,7 @@ import org.apache.crunch.types.Converter;
 import org.apache.crunch.types.PType;
 import org.apache.crunch.util.CrunchRenameCopyListing;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.FileUtil;
 import org.apache.hadoop.fs.Path;
@@ -164,20 +168,61 @@ public class FileTargetImpl implements PathTarget {
     private FileSystem srcFs;
     private FileSystem dstFs;
     private boolean sameFs;
-
+    private int maxRetries;
+    private long retryBackoffMs;
 
     public WorkingPathFileMover(Configuration conf, Path src, Path dst,
-                                FileSystem srcFs, FileSystem dstFs, boolean sameFs) {
+                                FileSystem srcFs, FileSystem dstFs, boolean sameFs, int maxRetries,
+                                long retryBackoffMs) {
       this.conf = conf;
       this.src = src;
       this.dst = dst;
       this.srcFs = srcFs;
       this.dstFs = dstFs;
       this.sameFs = sameFs;
+      this.maxRetries = maxRetries;
+      this.retryBackoffMs = retryBackoffMs;
     }
 
     @Override
     public Boolean call() throws IOException {
+      for (int attempt = 0; ; attempt++) {
+        try {
+          if (move()) {
+            return true;
+          }
+        } catch (IOException e) {
+          if (attempt >= maxRetries) {
+            throw e;
+          }
+          LOG.warn("Failed to move {} to {}, retrying", src, dst, e);
+        }
+        // A failed call may still have moved the file, e.g. when an object store request timed out
+        if (!srcFs.exists(src) && dstFs.exists(dst)) {
+          return true;
+        }
+        if (attempt >= maxRetries) {
+          LOG.error("Failed to move {} to {} after {} attempts", new Object[] { src, dst, attempt + 1 });
+          return false;
+        }
+        backOff(attempt);
+      }
+    }
+
+    /**
+     * Waits before the next attempt, twice as long after each failed one, so that retries do not add to the load
+     * of a throttling file system.
+     */
+    private void backOff(int attempt) throws IOException {
+      try {
+        Thread.sleep(retryBackoffMs << Math.min(attempt, 10));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while moving " + src + " to " + dst);
+      }
+    }
+
+    private boolean move() throws IOException {
       if (sameFs) {
         return srcFs.rename(src, dst);
       } else {
@@ -188,6 +233,7 @@ public class FileTargetImpl implements PathTarget {
 
   @Override
   public void handleOutputs(Configuration conf, Path workingPath, int index) throws IOException {
+    long start = System.currentTimeMillis();
     FileSystem srcFs = workingPath.getFileSystem(conf);
     Configuration dstFsConf = getEffectiveBundleConfig(conf);
     FileSystem dstFs = path.getFileSystem(dstFsConf);
@@ -200,7 +246,10 @@ public class FileTargetImpl implements PathTarget {
     int maxDistributedCopyTasks = conf.getInt(RuntimeParameters.FILE_TARGET_MAX_DISTCP_TASKS, 100);
     int maxDistributedCopyTaskBandwidthMB = conf.getInt(RuntimeParameters.FILE_TARGET_MAX_DISTCP_TASK_BANDWIDTH_MB,
         DistCpConstants.DEFAULT_BANDWIDTH_MB);
-    int maxThreads = conf.getInt(RuntimeParameters.FILE_TARGET_MAX_THREADS, 1);
+    boolean commitDirectory = conf.getBoolean(RuntimeParameters.FILE_TARGET_COMMIT_DIRECTORY, false);
+    int maxThreads = conf.getInt(RuntimeParameters.FILE_TARGET_MAX_THREADS, commitDirectory ? 16 : 1);
+    int maxRetries = conf.getInt(RuntimeParameters.FILE_TARGET_MAX_RETRIES, 3);
+    long retryBackoffMs = conf.getLong(RuntimeParameters.FILE_TARGET_RETRY_BACKOFF_MS, 1000L);
 
     if (!sameFs) {
       if (useDistributedCopy) {
@@ -210,28 +259,47 @@ public class FileTargetImpl implements PathTarget {
             maxDistributedCopyTaskBandwidthMB);
       } else {
         LOG.info("Source and destination are in different file systems, performing asynch copies from {} to {}", srcPattern, path);
-        handleOutputsAsynchronously(conf, srcPattern, srcFs, dstFs, sameFs, maxThreads);
+        handleOutputsAsynchronously(conf, workingPath, srcPattern, srcFs, dstFs, sameFs, false, maxThreads,
+            maxRetries, retryBackoffMs);
       }
     } else {
       LOG.info("Source and destination are in the same file system, performing asynch renames from {} to {}", srcPattern, path);
-      handleOutputsAsynchronously(conf, srcPattern, srcFs, dstFs, sameFs, maxThreads);
+      handleOutputsAsynchronously(conf, workingPath, srcPattern, srcFs, dstFs, sameFs, commitDirectory, maxThreads,
+          maxRetries, retryBackoffMs);
     }
+    LOG.info("Committed output to {} in {} ms", path, System.currentTimeMillis() - start);
   }
 
-  private void handleOutputsAsynchronously(Configuration conf, Path srcPattern, FileSystem srcFs, FileSystem dstFs,
-          boolean sameFs, int maxThreads) throws IOException {
+  private void handleOutputsAsynchronously(Configuration conf, Path workingPath, Path srcPattern, FileSystem srcFs,
+          FileSystem dstFs, boolean sameFs, boolean commitDirectory, int maxThreads, int maxRetries,
+          long retryBackoffMs) throws IOException {
     Configuration dstFsConf = getEffectiveBundleConfig(conf);
     Path[] srcs = FileUtil.stat2Paths(srcFs.globStatus(srcPattern), srcPattern);
+    // The destination names must be chosen before anything is moved, since naming schemes may look at the
+    // files that are already in the destination directory
+    Path[] dsts = new Path[srcs.length];
+    for (int i = 0; i < srcs.length; i++) {
+      dsts[i] = getDestFile(dstFsConf, srcs[i], path, srcs[i].getName().contains("-m-"));
+    }
+    if (commitDirectory && moveWorkingDirectory(workingPath, srcs, dsts, srcFs, dstFs)) {
+      LOG.info("Renamed working directory {} to {}", workingPath, path);
+      for (int i = 0; i < srcs.length; i++) {
+        srcs[i] = new Path(path, srcs[i].getName());
+      }
+    }
     List<ListenableFuture<Boolean>> renameFutures = Lists.newArrayList();
     ListeningExecutorService executorService =
         MoreExecutors.listeningDecorator(
             Executors.newFixedThreadPool(
                 maxThreads));
-    for (Path s : srcs) {
-      Path d = getDestFile(dstFsConf, s, path, s.getName().contains("-m-"));
+    for (int i = 0; i < srcs.length; i++) {
+      if (srcs[i].equals(dsts[i])) {
+        renameFutures.add(Futures.immediateFuture(true));
+        continue;
+      }
       renameFutures.add(
           executorService.submit(
-              new WorkingPathFileMover(conf, s, d, srcFs, dstFs, sameFs)));
+              new WorkingPathFileMover(conf, srcs[i], dsts[i], srcFs, dstFs, sameFs, maxRetries, retryBackoffMs)));
     }
     if (sameFs) {
       LOG.info("Renaming {} files using at most {} threads.", renameFutures.size(), maxThreads);
@@ -248,7 +316,8 @@ public class FileTargetImpl implements PathTarget {
     } finally {
       executorService.shutdownNow();
     }
-    if (renameResults != null && !renameResults.contains(false)) {
+    // Movers that failed with an exception after their last attempt have null results
+    if (renameResults != null && !renameResults.contains(false) && !renameResults.contains(null)) {
       if (sameFs) {
         LOG.info("Renamed {} files.", renameFutures.size());
       } else {
@@ -256,7 +325,54 @@ public class FileTargetImpl implements PathTarget {
       }
       dstFs.create(getSuccessIndicator(), true).close();
       LOG.info("Created success indicator file");
+    } else {
+      LOG.error("Not all files could be moved to {}, not creating success indicator file", path);
+    }
+  }
+
+  /**
+   * Renames the working directory to the (empty) output directory when all of the output files in it belong to
+   * this target and already have their final names, which replaces one rename per file by a single directory
+   * rename. Files that would still need to be renamed afterwards would be moved twice, which on object stores
+   * means copied twice, so the directory is not renamed if any of them does. Bookkeeping files such as
+   * {@code _SUCCESS} are removed from the moved directory, and an empty working directory is left behind for any
+   * other readers of it.
+   *
+   * @return true if the working directory was moved
+   */
+  private boolean moveWorkingDirectory(Path workingPath, Path[] srcs, Path[] dsts, FileSystem srcFs,
+      FileSystem dstFs) throws IOException {
+    if (srcs.length == 0 || dstFs.listStatus(path).length > 0) {
+      return false;
+    }
+    Set<String> srcNames = Sets.newHashSet();
+    for (int i = 0; i < srcs.length; i++) {
+      if (!srcs[i].getName().equals(dsts[i].getName())) {
+        return false;
+      }
+      srcNames.add(srcs[i].getName());
     }
+    for (FileStatus status : srcFs.listStatus(workingPath)) {
+      String name = status.getPath().getName();
+      if (!srcNames.contains(name) && !name.startsWith("_") && !name.startsWith(".")) {
+        return false;
+      }
+    }
+    if (!dstFs.delete(path, false)) {
+      return false;
+    }
+    if (!srcFs.rename(workingPath, path)) {
+      LOG.warn("Could not rename working directory {} to {}, renaming files instead", workingPath, path);
+      dstFs.mkdirs(path);
+      return false;
+    }
+    srcFs.mkdirs(workingPath);
+    for (FileStatus status : dstFs.listStatus(path)) {
+      if (status.getPath().getName().startsWith("_")) {
+        dstFs.delete(status.getPath(), true);
+      }
+    }
+    return true;
   }
 
   private void handleOutputsDistributedCopy(Configuration conf, Path srcPattern, FileSystem srcFs, FileSystem dstFs,
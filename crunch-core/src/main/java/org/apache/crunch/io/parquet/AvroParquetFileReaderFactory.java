@@ -22,8 +22,10 @@ import java.io.IOException;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import org.apache.avro.Schema;
 import org.apache.avro.generic.IndexedRecord;
 import org.apache.crunch.CrunchRuntimeException;
+import org.apache.crunch.io.ColumnPredicate;
 import org.apache.crunch.io.FileReaderFactory;
 import org.apache.crunch.io.impl.AutoClosingIterator;
 import org.apache.crunch.types.avro.AvroType;
@@ -31,15 +33,34 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.parquet.avro.AvroReadSupport;
+import org.apache.parquet.filter2.compat.FilterCompat;
 import org.apache.parquet.hadoop.ParquetReader;
 import org.apache.parquet.schema.MessageType;
 
 class AvroParquetFileReaderFactory<T> implements FileReaderFactory<T> {
 
   private AvroType<T> avroType;
+  private Schema projSchema;
+  private ColumnPredicate predicate;
 
   public AvroParquetFileReaderFactory(AvroType<T> avroType) {
+    this(avroType, null);
+  }
+
+  public AvroParquetFileReaderFactory(AvroType<T> avroType, ColumnPredicate predicate) {
+    this(avroType, null, predicate);
+  }
+
+  /**
+   * @param avroType the type of the records that are read
+   * @param projSchema the subset of the written columns to read, or {@code null} to read the columns of the
+   *     fields of the schema of the {@code AvroType}
+   * @param predicate the predicate that the records that are read must match, or {@code null}
+   */
+  public AvroParquetFileReaderFactory(AvroType<T> avroType, Schema projSchema, ColumnPredicate predicate) {
     this.avroType = avroType;
+    this.projSchema = projSchema;
+    this.predicate = predicate;
   }
 
   @Override
@@ -48,7 +69,9 @@ class AvroParquetFileReaderFactory<T> implements FileReaderFactory<T> {
     Path p = fs.makeQualified(path);
     final ParquetReader reader;
     try {
-      reader = new ParquetReader(p, new CrunchAvroReadSupport(avroType));
+      FilterCompat.Filter filter = predicate == null ? FilterCompat.NOOP
+          : FilterCompat.get(ParquetPredicates.toFilterPredicate(predicate, avroType.getSchema()));
+      reader = ParquetReader.builder(new CrunchAvroReadSupport(avroType, projSchema), p).withFilter(filter).build();
     } catch (IOException e) {
       throw new CrunchRuntimeException(e);
     }
@@ -84,14 +107,26 @@ class AvroParquetFileReaderFactory<T> implements FileReaderFactory<T> {
 
   static class CrunchAvroReadSupport<T extends IndexedRecord> extends AvroReadSupport<T> {
     private AvroType<T> avroType;
+    private Schema projSchema;
 
     public CrunchAvroReadSupport(AvroType<T> avroType) {
+      this(avroType, null);
+    }
+
+    public CrunchAvroReadSupport(AvroType<T> avroType, Schema projSchema) {
       this.avroType = avroType;
+      this.projSchema = projSchema;
     }
 
     @Override
     public ReadContext init(Configuration configuration, Map<String, String> keyValueMetaData, MessageType fileSchema) {
-      if (avroType != null) {
+      if (projSchema != null) {
+        // Read the projected columns, as in the input format, into records of the schema of the type
+        setRequestedProjection(configuration, projSchema);
+        if (avroType != null) {
+          setAvroReadSchema(configuration, avroType.getSchema());
+        }
+      } else if (avroType != null) {
         setRequestedProjection(configuration, avroType.getSchema());
       }
       return super.init(configuration, keyValueMetaData, fileSchema);
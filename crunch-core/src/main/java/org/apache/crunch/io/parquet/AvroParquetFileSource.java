@@ -29,8 +29,10 @@ import org.apache.avro.generic.IndexedRecord;
 import org.apache.avro.specific.SpecificRecord;
 import org.apache.crunch.ReadableData;
 import org.apache.crunch.impl.mr.run.RuntimeParameters;
+import org.apache.crunch.io.ColumnPredicate;
 import org.apache.crunch.io.FormatBundle;
 import org.apache.crunch.io.ReadableSource;
+import org.apache.crunch.io.avro.AvroProjection;
 import org.apache.crunch.io.impl.FileSourceImpl;
 import org.apache.crunch.types.Converter;
 import org.apache.crunch.types.avro.AvroType;
@@ -43,6 +45,7 @@ import org.apache.hadoop.util.ReflectionUtils;
 import org.apache.parquet.avro.AvroParquetInputFormat;
 import org.apache.parquet.avro.AvroReadSupport;
 import org.apache.parquet.filter.UnboundRecordFilter;
+import org.apache.parquet.hadoop.ParquetInputFormat;
 import org.apache.parquet.hadoop.ParquetInputSplit;
 
 public class AvroParquetFileSource<T extends IndexedRecord> extends FileSourceImpl<T> implements ReadableSource<T> {
@@ -50,11 +53,13 @@ public class AvroParquetFileSource<T extends IndexedRecord> extends FileSourceIm
   private static final String AVRO_READ_SCHEMA = "parquet.avro.read.schema";
 
   private final String projSchema;
+  private final ColumnPredicate predicate;
 
   private static <S> FormatBundle<AvroParquetInputFormat> getBundle(
       AvroType<S> ptype,
       Schema projSchema,
-      Class<? extends UnboundRecordFilter> filterClass) {
+      Class<? extends UnboundRecordFilter> filterClass,
+      ColumnPredicate predicate) {
     FormatBundle<AvroParquetInputFormat> fb = FormatBundle.forInput(AvroParquetInputFormat.class)
         .set(AVRO_READ_SCHEMA, ptype.getSchema().toString());
 
@@ -64,6 +69,10 @@ public class AvroParquetFileSource<T extends IndexedRecord> extends FileSourceIm
     if (filterClass != null) {
       fb.set("parquet.read.filter", filterClass.getName());
     }
+    if (predicate != null) {
+      Preconditions.checkArgument(filterClass == null, "Cannot use both a filter class and a column predicate");
+      fb.set(ParquetInputFormat.FILTER_PREDICATE, ParquetPredicates.serialize(predicate, ptype.getSchema()));
+    }
     if (!FileSplit.class.isAssignableFrom(ParquetInputSplit.class)) {
       // Older ParquetRecordReader expects ParquetInputSplits, not FileSplits, so it
       // doesn't work with CombineFileInputFormat
@@ -120,12 +129,25 @@ public class AvroParquetFileSource<T extends IndexedRecord> extends FileSourceIm
    */
   public AvroParquetFileSource(List<Path> paths, AvroType<T> ptype, Schema projSchema,
                                Class<? extends UnboundRecordFilter> filterClass) {
-    super(paths, ptype, getBundle(ptype, projSchema, filterClass));
+    this(paths, ptype, projSchema, filterClass, null);
+  }
+
+  private AvroParquetFileSource(List<Path> paths, AvroType<T> ptype, Schema projSchema,
+                                Class<? extends UnboundRecordFilter> filterClass, ColumnPredicate predicate) {
+    super(paths, ptype, getBundle(ptype, projSchema, filterClass, predicate));
     this.projSchema = projSchema == null ? null : projSchema.toString();
+    this.predicate = predicate;
   }
 
   public Schema getProjectedSchema() {
-    return (new Schema.Parser()).parse(projSchema);
+    return projSchema == null ? null : (new Schema.Parser()).parse(projSchema);
+  }
+
+  /**
+   * Returns the predicate that is used to skip row groups and filter records, or {@code null} if there is none.
+   */
+  public ColumnPredicate getPredicate() {
+    return predicate;
   }
 
   @Override
@@ -135,11 +157,11 @@ public class AvroParquetFileSource<T extends IndexedRecord> extends FileSourceIm
 
   @Override
   public ReadableData<T> asReadable() {
-    return new AvroParquetReadableData<T>(paths, (AvroType<T>) ptype);
+    return new AvroParquetReadableData<T>(paths, (AvroType<T>) ptype, getProjectedSchema(), predicate);
   }
 
   protected AvroParquetFileReaderFactory<T> getFileReaderFactory(AvroType<T> ptype){
-    return new AvroParquetFileReaderFactory<T>(ptype);
+    return new AvroParquetFileReaderFactory<T>(ptype, getProjectedSchema(), predicate);
   }
 
   @Override
@@ -149,7 +171,22 @@ public class AvroParquetFileSource<T extends IndexedRecord> extends FileSourceIm
 
   @Override
   public String toString() {
-    return "Parquet(" + pathsAsString() + ((projSchema == null) ? ")" : ") -> " + projSchema);
+    return "Parquet(" + pathsAsString() + ((projSchema == null) ? ")" : ") -> " + projSchema)
+        + ((predicate == null) ? "" : " where " + predicate);
+  }
+
+  /**
+   * Read the Parquet data at the given paths, which was written with the given schema, as records of an
+   * {@code AvroType} whose schema has a subset of the written fields. Only the columns of the fields
+   * that are in the schema of the {@code AvroType} are read.
+   *
+   * @param paths the list of paths to read
+   * @param writtenSchema the schema that the data was written with
+   * @param ptype the AvroType to read the data as
+   */
+  public static <T extends IndexedRecord> AvroParquetFileSource<T> projected(List<Path> paths,
+      Schema writtenSchema, AvroType<T> ptype) {
+    return new AvroParquetFileSource<T>(paths, ptype, AvroProjection.project(writtenSchema, ptype.getSchema()));
   }
 
   public static <T extends SpecificRecord> Builder<T> builder(Class<T> clazz) {
@@ -169,8 +206,9 @@ public class AvroParquetFileSource<T extends IndexedRecord> extends FileSourceIm
   public static class Builder<T extends IndexedRecord> {
     private Class<T> clazz;
     private Schema baseSchema;
-    private List<Schema.Field> fields = Lists.newArrayList();
+    private List<String> fieldPaths = Lists.newArrayList();
     private Class<? extends UnboundRecordFilter> filterClass;
+    private ColumnPredicate predicate;
 
     private Builder(Class<T> clazz) {
       this.clazz = clazz;
@@ -181,12 +219,13 @@ public class AvroParquetFileSource<T extends IndexedRecord> extends FileSourceIm
       this.baseSchema = baseSchema;
     }
 
+    /**
+     * Includes the field with the given name, or the nested field with the given dotted path, so that
+     * only the columns of the other fields of a nested record are skipped.
+     */
     public Builder includeField(String fieldName) {
-      Schema.Field field = baseSchema.getField(fieldName);
-      if (field == null) {
-        throw new IllegalArgumentException("No field " + fieldName + " in schema: " + baseSchema.getName());
-      }
-      fields.add(new Schema.Field(field.name(), field.schema(), field.doc(), field.defaultVal(), field.order()));
+      AvroProjection.project(baseSchema, ImmutableList.of(fieldName));
+      fieldPaths.add(fieldName);
       return this;
     }
 
@@ -195,23 +234,33 @@ public class AvroParquetFileSource<T extends IndexedRecord> extends FileSourceIm
       return this;
     }
 
+    /**
+     * Skips the row groups whose column statistics show that none of their records match the given predicate,
+     * and filters out the records of the other row groups that do not match it. The types of the columns are
+     * taken from the schema of the records, and cannot be unions other than those with {@code null}. When only
+     * some fields are included, the fields of the columns of the predicate are included as well, since Parquet
+     * can only filter on the columns that it reads.
+     */
+    public Builder predicate(ColumnPredicate predicate) {
+      this.predicate = predicate;
+      return this;
+    }
+
     public AvroParquetFileSource<T> build(Path path) {
       return build(ImmutableList.of(path));
     }
 
     public AvroParquetFileSource<T> build(List<Path> paths) {
       AvroType at = clazz == null ? Avros.generics(baseSchema) : Avros.specifics((Class) clazz);
-      if (fields.isEmpty()) {
-        return new AvroParquetFileSource<T>(paths, at, filterClass);
-      } else {
-        Schema projected = Schema.createRecord(
-            baseSchema.getName(),
-            baseSchema.getDoc(),
-            baseSchema.getNamespace(),
-            baseSchema.isError());
-        projected.setFields(fields);
-        return new AvroParquetFileSource<T>(paths, at, projected, filterClass);
+      Schema projected = null;
+      if (!fieldPaths.isEmpty()) {
+        List<String> readPaths = Lists.newArrayList(fieldPaths);
+        if (predicate != null) {
+          readPaths.addAll(predicate.getColumns());
+        }
+        projected = AvroProjection.project(baseSchema, readPaths);
       }
+      return new AvroParquetFileSource<T>(paths, at, projected, filterClass, predicate);
     }
   }
 }
@@ -17,25 +17,35 @@
  */
 package org.apache.crunch.io.parquet;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.IndexedRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.EncoderFactory;
 import org.apache.avro.mapred.AvroWrapper;
 import org.apache.avro.mapred.Pair;
+import org.apache.avro.specific.SpecificDatumWriter;
 import org.apache.avro.util.Utf8;
+import org.apache.crunch.io.PathPerKeyWriterPool;
 import org.apache.hadoop.conf.Configuration;
-import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.RecordWriter;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.parquet.hadoop.ParquetOutputFormat;
+import org.apache.parquet.hadoop.ParquetWriter;
 
 /**
  * A {@link FileOutputFormat} that takes in a {@link Utf8} and an Avro record and writes the Avro records to
  * a sub-directory of the output path whose name is equal to the string-form of the {@code Utf8}.
  *
- * This {@code OutputFormat} only keeps one {@code RecordWriter} open at a time, so it's a very good idea to write
- * out all of the records for the same key at the same time within each partition so as not to be frequently opening
- * and closing files.
+ * This {@code OutputFormat} keeps a bounded number of files open in each task with a {@link PathPerKeyWriterPool},
+ * whose byte limit is applied to the estimated size of the buffered row groups, and starts a new file for a key
+ * whenever its file had to be closed. So it's a very good idea to write out all of the records for the same key at
+ * the same time within each partition so as not to be frequently opening and closing files.
  */
 public class AvroParquetPathPerKeyOutputFormat<T> extends FileOutputFormat<AvroWrapper<Pair<Utf8, T>>, NullWritable> {
   @Override
@@ -49,47 +59,71 @@ public class AvroParquetPathPerKeyOutputFormat<T> extends FileOutputFormat<AvroW
 
   private class AvroParquetFilePerKeyRecordWriter<T> extends RecordWriter<AvroWrapper<Pair<Utf8, T>>, NullWritable> {
 
-    private final Path basePath;
-    private final String uniqueFileName;
-    private final Configuration conf;
-    private String currentKey;
-    private RecordWriter<Void, T> currentWriter;
+    private final PathPerKeyWriterPool<RecordWriter<Void, T>> writers;
+    private final RecordSizeEstimator sizeEstimator = new RecordSizeEstimator();
 
-    public AvroParquetFilePerKeyRecordWriter(Path basePath, String uniqueFileName, Configuration conf) {
-      this.basePath = basePath;
-      this.uniqueFileName = uniqueFileName;
-      this.conf = conf;
+    public AvroParquetFilePerKeyRecordWriter(Path basePath, String uniqueFileName, final Configuration conf) {
+      this.writers = new PathPerKeyWriterPool<RecordWriter<Void, T>>(basePath, uniqueFileName, conf,
+          conf.getLong(ParquetOutputFormat.BLOCK_SIZE, ParquetWriter.DEFAULT_BLOCK_SIZE)) {
+        @Override
+        @SuppressWarnings("unchecked")
+        protected RecordWriter<Void, T> open(Path file) throws IOException, InterruptedException {
+          return (RecordWriter<Void, T>) new AvroParquetFileTarget.CrunchAvroParquetOutputFormat().getRecordWriter(
+              conf, file, AvroParquetFileTarget.CrunchAvroParquetOutputFormat.getCompression(conf));
+        }
+
+        @Override
+        protected void close(RecordWriter<Void, T> writer) throws IOException, InterruptedException {
+          writer.close(null); // TaskAttemptContext not used for close
+        }
+      };
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public void write(AvroWrapper<Pair<Utf8, T>> record, NullWritable n) throws IOException, InterruptedException {
-      String key = record.datum().key().toString();
-      if (!key.equals(currentKey)) {
-        if (currentWriter != null) {
-          currentWriter.close(null); // TaskAttemptContext not used for close
-        }
-        currentKey = key;
-        Path dir = new Path(basePath, key);
-        FileSystem fs = dir.getFileSystem(conf);
-        if (!fs.exists(dir)) {
-          fs.mkdirs(dir);
-        }
-        currentWriter = (RecordWriter<Void, T>)
-            new AvroParquetFileTarget.CrunchAvroParquetOutputFormat().getRecordWriter(conf,
-                new Path(dir, uniqueFileName),
-                AvroParquetFileTarget.CrunchAvroParquetOutputFormat.getCompression(conf));
+      T value = record.datum().value();
+      writers.get(record.datum().key().toString()).write(null, value);
+      if (writers.isLimitingBytes()) {
+        writers.written(sizeEstimator.estimate((IndexedRecord) value));
       }
-      currentWriter.write(null, record.datum().value());
     }
 
     @Override
     public void close(TaskAttemptContext taskAttemptContext) throws IOException, InterruptedException {
-      if (currentWriter != null) {
-        currentWriter.close(taskAttemptContext);
-        currentKey = null;
-        currentWriter = null;
+      writers.close();
+    }
+  }
+
+  /**
+   * Estimates the size of the records buffered in a row group by the average size of their Avro encoding, which is
+   * measured on a sample of the records.
+   */
+  private static class RecordSizeEstimator {
+
+    private static final int SAMPLE_INTERVAL = 100;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private BinaryEncoder encoder;
+    private DatumWriter<IndexedRecord> writer;
+    private Schema schema;
+    private long count;
+    private long sampledBytes;
+    private long sampledCount;
+
+    long estimate(IndexedRecord record) throws IOException {
+      if (count++ % SAMPLE_INTERVAL == 0) {
+        if (!record.getSchema().equals(schema)) {
+          schema = record.getSchema();
+          writer = new SpecificDatumWriter<IndexedRecord>(schema);
+        }
+        out.reset();
+        encoder = EncoderFactory.get().binaryEncoder(out, encoder);
+        writer.write(record, encoder);
+        encoder.flush();
+        sampledBytes += out.size();
+        sampledCount++;
       }
+      return sampledBytes / sampledCount;
     }
   }
 }
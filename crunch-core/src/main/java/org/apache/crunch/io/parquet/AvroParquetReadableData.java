@@ -17,6 +17,8 @@
  */
 package org.apache.crunch.io.parquet;
 
+import org.apache.avro.Schema;
+import org.apache.crunch.io.ColumnPredicate;
 import org.apache.crunch.io.FileReaderFactory;
 import org.apache.crunch.io.impl.ReadableDataImpl;
 import org.apache.crunch.types.avro.AvroType;
@@ -27,14 +29,29 @@ import java.util.List;
 public class AvroParquetReadableData<T> extends ReadableDataImpl<T> {
 
   private final AvroType<T> avroType;
+  private final String projSchema;
+  private final ColumnPredicate predicate;
 
   public AvroParquetReadableData(List<Path> paths, AvroType<T> avroType) {
+    this(paths, avroType, null);
+  }
+
+  public AvroParquetReadableData(List<Path> paths, AvroType<T> avroType, ColumnPredicate predicate) {
+    this(paths, avroType, null, predicate);
+  }
+
+  public AvroParquetReadableData(List<Path> paths, AvroType<T> avroType, Schema projSchema,
+                                 ColumnPredicate predicate) {
     super(paths);
     this.avroType = avroType;
+    // Schemas are not serializable, so the projection is kept as JSON
+    this.projSchema = projSchema == null ? null : projSchema.toString();
+    this.predicate = predicate;
   }
 
   @Override
   protected FileReaderFactory<T> getFileReaderFactory() {
-    return new AvroParquetFileReaderFactory<T>(avroType);
+    Schema schema = projSchema == null ? null : new Schema.Parser().parse(projSchema);
+    return new AvroParquetFileReaderFactory<T>(avroType, schema, predicate);
   }
 }
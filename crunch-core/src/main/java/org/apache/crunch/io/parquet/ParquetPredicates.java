@@ -0,0 +1,231 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.io.parquet;
+
+import java.util.List;
+
+import org.apache.avro.Schema;
+import org.apache.crunch.io.ColumnPredicate;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.filter2.predicate.FilterApi;
+import org.apache.parquet.filter2.predicate.FilterPredicate;
+import org.apache.parquet.filter2.predicate.Operators;
+import org.apache.parquet.hadoop.ParquetInputFormat;
+import org.apache.parquet.io.api.Binary;
+
+/**
+ * Translates {@link ColumnPredicate}s into Parquet {@link FilterPredicate}s, which Parquet uses to skip row groups
+ * by their column statistics and dictionaries and to filter the records of the row groups that it reads.
+ */
+class ParquetPredicates {
+
+  private ParquetPredicates() {
+  }
+
+  /**
+   * Returns the serialized form of the filter predicate for the given predicate that
+   * {@link ParquetInputFormat#setFilterPredicate} stores in a configuration.
+   */
+  static String serialize(ColumnPredicate predicate, Schema schema) {
+    Configuration conf = new Configuration(false);
+    ParquetInputFormat.setFilterPredicate(conf, toFilterPredicate(predicate, schema));
+    return conf.get(ParquetInputFormat.FILTER_PREDICATE);
+  }
+
+  /**
+   * Returns the filter predicate for the given predicate on records with the given Avro schema. The types of the
+   * columns are those of the fields of the schema, and the values that they are compared with are converted to
+   * the types of the columns.
+   *
+   * @throws IllegalArgumentException if a column is not a primitive field of the schema or a value cannot be
+   *     converted to the type of its column
+   */
+  static FilterPredicate toFilterPredicate(ColumnPredicate predicate, Schema schema) {
+    List<ColumnPredicate> children = predicate.getChildren();
+    switch (predicate.getOperator()) {
+      case AND:
+        FilterPredicate and = toFilterPredicate(children.get(0), schema);
+        for (int i = 1; i < children.size(); i++) {
+          and = FilterApi.and(and, toFilterPredicate(children.get(i), schema));
+        }
+        return and;
+      case OR:
+        FilterPredicate or = toFilterPredicate(children.get(0), schema);
+        for (int i = 1; i < children.size(); i++) {
+          or = FilterApi.or(or, toFilterPredicate(children.get(i), schema));
+        }
+        return or;
+      case NOT:
+        return FilterApi.not(toFilterPredicate(children.get(0), schema));
+      default:
+        return compare(predicate, schema);
+    }
+  }
+
+  private static FilterPredicate compare(ColumnPredicate predicate, Schema schema) {
+    String column = predicate.getColumn();
+    Schema.Type type = getColumnType(schema, column);
+    switch (type) {
+      case INT:
+        return compare(predicate, FilterApi.intColumn(column), type);
+      case LONG:
+        return compare(predicate, FilterApi.longColumn(column), type);
+      case FLOAT:
+        return compare(predicate, FilterApi.floatColumn(column), type);
+      case DOUBLE:
+        return compare(predicate, FilterApi.doubleColumn(column), type);
+      case STRING:
+      case ENUM:
+        return compare(predicate, FilterApi.binaryColumn(column), type);
+      case BOOLEAN:
+        return compareBooleans(predicate, FilterApi.booleanColumn(column));
+      default:
+        throw new IllegalArgumentException("Cannot filter on column " + column + " of type " + type);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T extends Comparable<T>, C extends Operators.Column<T> & Operators.SupportsLtGt>
+      FilterPredicate compare(ColumnPredicate predicate, C column, Schema.Type type) {
+    List<Object> values = predicate.getValues();
+    switch (predicate.getOperator()) {
+      case EQ:
+        return FilterApi.eq(column, (T) convert(values.get(0), type, predicate));
+      case NOT_EQ:
+        return FilterApi.notEq(column, (T) convert(values.get(0), type, predicate));
+      case LT:
+        return FilterApi.lt(column, (T) convert(values.get(0), type, predicate));
+      case LT_EQ:
+        return FilterApi.ltEq(column, (T) convert(values.get(0), type, predicate));
+      case GT:
+        return FilterApi.gt(column, (T) convert(values.get(0), type, predicate));
+      case GT_EQ:
+        return FilterApi.gtEq(column, (T) convert(values.get(0), type, predicate));
+      case IN:
+        FilterPredicate in = FilterApi.eq(column, (T) convert(values.get(0), type, predicate));
+        for (int i = 1; i < values.size(); i++) {
+          in = FilterApi.or(in, FilterApi.eq(column, (T) convert(values.get(i), type, predicate)));
+        }
+        return in;
+      case IS_NULL:
+        return FilterApi.eq(column, (T) null);
+      case IS_NOT_NULL:
+        return FilterApi.notEq(column, (T) null);
+      default:
+        throw new IllegalArgumentException("Unexpected operator: " + predicate.getOperator());
+    }
+  }
+
+  private static FilterPredicate compareBooleans(ColumnPredicate predicate, Operators.BooleanColumn column) {
+    List<Object> values = predicate.getValues();
+    switch (predicate.getOperator()) {
+      case EQ:
+        return FilterApi.eq(column, (Boolean) convert(values.get(0), Schema.Type.BOOLEAN, predicate));
+      case NOT_EQ:
+        return FilterApi.notEq(column, (Boolean) convert(values.get(0), Schema.Type.BOOLEAN, predicate));
+      case IN:
+        FilterPredicate in = FilterApi.eq(column, (Boolean) convert(values.get(0), Schema.Type.BOOLEAN, predicate));
+        for (int i = 1; i < values.size(); i++) {
+          in = FilterApi.or(in,
+              FilterApi.eq(column, (Boolean) convert(values.get(i), Schema.Type.BOOLEAN, predicate)));
+        }
+        return in;
+      case IS_NULL:
+        return FilterApi.eq(column, (Boolean) null);
+      case IS_NOT_NULL:
+        return FilterApi.notEq(column, (Boolean) null);
+      default:
+        throw new IllegalArgumentException("Cannot compare boolean column " + predicate.getColumn()
+            + " with operator " + predicate.getOperator());
+    }
+  }
+
+  private static Object convert(Object value, Schema.Type type, ColumnPredicate predicate) {
+    switch (type) {
+      case INT:
+        if (value instanceof Integer) {
+          return value;
+        } else if (value instanceof Long && ((Long) value).intValue() == (Long) value) {
+          return ((Long) value).intValue();
+        }
+        break;
+      case LONG:
+        if (value instanceof Integer || value instanceof Long) {
+          return ((Number) value).longValue();
+        }
+        break;
+      case FLOAT:
+        if (value instanceof Number) {
+          return ((Number) value).floatValue();
+        }
+        break;
+      case DOUBLE:
+        if (value instanceof Number) {
+          return ((Number) value).doubleValue();
+        }
+        break;
+      case STRING:
+      case ENUM:
+        if (value instanceof String) {
+          return Binary.fromString((String) value);
+        }
+        break;
+      case BOOLEAN:
+        if (value instanceof Boolean) {
+          return value;
+        }
+        break;
+      default:
+    }
+    throw new IllegalArgumentException("Cannot compare column " + predicate.getColumn() + " of type " + type
+        + " with value: " + value);
+  }
+
+  /**
+   * Returns the type of the field at the given dotted path of the schema, where records and primitive types
+   * may be unions with {@code null}.
+   */
+  private static Schema.Type getColumnType(Schema schema, String column) {
+    Schema current = schema;
+    for (String name : column.split("\\.")) {
+      current = getNonNull(current, column);
+      Schema.Field field = current.getType() == Schema.Type.RECORD ? current.getField(name) : null;
+      if (field == null) {
+        throw new IllegalArgumentException("No column " + column + " in schema: " + schema.getName());
+      }
+      current = field.schema();
+    }
+    return getNonNull(current, column).getType();
+  }
+
+  private static Schema getNonNull(Schema schema, String column) {
+    if (schema.getType() != Schema.Type.UNION) {
+      return schema;
+    }
+    Schema nonNull = null;
+    for (Schema type : schema.getTypes()) {
+      if (type.getType() != Schema.Type.NULL) {
+        if (nonNull != null) {
+          throw new IllegalArgumentException("Cannot filter on union column " + column);
+        }
+        nonNull = type;
+      }
+    }
+    return nonNull == null ? schema : nonNull;
+  }
+}
@@ -17,8 +17,8 @@
  */
 package org.apache.crunch.io.text;
 
+import org.apache.crunch.io.PathPerKeyWriterPool;
 import org.apache.hadoop.conf.Configuration;
-import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
@@ -34,7 +34,16 @@ import org.apache.hadoop.util.ReflectionUtils;
 import java.io.DataOutputStream;
 import java.io.IOException;
 
+/**
+ * A {@link TextOutputFormat} that writes each value to a text file in a sub-directory of the output path whose
+ * name is equal to its key. The files are kept open by a {@link PathPerKeyWriterPool}, which bounds the number of
+ * files that each task keeps open.
+ */
 public class TextPathPerKeyOutputFormat<V> extends TextOutputFormat<Text, V> {
+
+    // The output stream buffers about one HDFS packet before sending it
+    private static final long MAX_BUFFERED_BYTES = 64 * 1024;
+
     @Override
     public RecordWriter<Text, V> getRecordWriter(TaskAttemptContext taskAttemptContext) throws IOException {
         Configuration conf = taskAttemptContext.getConfiguration();
@@ -58,68 +67,42 @@ public class TextPathPerKeyOutputFormat<V> extends TextOutputFormat<Text, V> {
 
     private class TextPathPerKeyRecordWriter<V> extends RecordWriter<Text, V> {
 
-        private final Path basePath;
-        private final String uniqueFileName;
-        private final Configuration conf;
-        private String currentKey;
-        private RecordWriter<V, NullWritable> currentWriter;
-        private CompressionCodec compressionCodec;
-        private boolean isCompressed;
-        private TaskAttemptContext taskAttemptContext;
-
-        public TextPathPerKeyRecordWriter(Path basePath, String uniqueFileName, boolean isCompressed,
-                                          CompressionCodec codec, TaskAttemptContext context) {
-            this.basePath = basePath;
-            this.uniqueFileName = uniqueFileName;
-            this.conf = context.getConfiguration();
-            this.isCompressed = isCompressed;
-            this.compressionCodec = codec;
-            this.taskAttemptContext = context;
-        }
-
-        @Override
-        public void write(Text record, V n) throws IOException, InterruptedException {
-            String key = record.toString();
-            if (!key.equals(currentKey)) {
-                if (currentWriter != null) {
-                    currentWriter.close(taskAttemptContext);
+        private final PathPerKeyWriterPool<RecordWriter<V, NullWritable>> writers;
+
+        public TextPathPerKeyRecordWriter(Path basePath, String uniqueFileName, final boolean isCompressed,
+                                          final CompressionCodec codec, final TaskAttemptContext context) {
+            final Configuration conf = context.getConfiguration();
+            this.writers = new PathPerKeyWriterPool<RecordWriter<V, NullWritable>>(basePath, uniqueFileName, conf,
+                    MAX_BUFFERED_BYTES) {
+                @Override
+                protected RecordWriter<V, NullWritable> open(Path filePath) throws IOException {
+                    DataOutputStream dataOutputStream = filePath.getFileSystem(conf).create(filePath, false);
+                    if (isCompressed && codec != null) {
+                        dataOutputStream = new DataOutputStream(codec.createOutputStream(dataOutputStream));
+                    }
+
+                    String keyValueSeparator = conf.get(SEPERATOR, "\t");
+                    return new LineRecordWriter<>(dataOutputStream, keyValueSeparator);
                 }
 
-                currentKey = key;
-                Path dir = new Path(basePath, key);
-                FileSystem fs = dir.getFileSystem(conf);
-                if (!fs.exists(dir)) {
-                    fs.mkdirs(dir);
-                }
-
-                Path filePath = new Path(dir, uniqueFileName);
-
-                DataOutputStream dataOutputStream;
-
-                if (fs.exists(filePath)) {
-                    dataOutputStream = fs.append(filePath);
-                } else {
-                    dataOutputStream = fs.create(filePath);
-                }
-
-                if (isCompressed && compressionCodec != null) {
-                    dataOutputStream = new DataOutputStream(compressionCodec.createOutputStream(dataOutputStream));
+                @Override
+                protected void close(RecordWriter<V, NullWritable> writer) throws IOException, InterruptedException {
+                    writer.close(context);
                 }
+            };
+        }
 
-                String keyValueSeparator = conf.get(SEPERATOR, "\t");
-                currentWriter = new LineRecordWriter<>(dataOutputStream, keyValueSeparator);
+        @Override
+        public void write(Text record, V n) throws IOException, InterruptedException {
+            writers.get(record.toString()).write(n, NullWritable.get());
+            if (writers.isLimitingBytes()) {
+                writers.written(n instanceof Text ? ((Text) n).getLength() + 1 : String.valueOf(n).length() + 1);
             }
-
-            currentWriter.write(n, NullWritable.get());
         }
 
         @Override
         public void close(TaskAttemptContext taskAttemptContext) throws IOException, InterruptedException {
-            if (currentWriter != null) {
-                currentWriter.close(taskAttemptContext);
-                currentKey = null;
-                currentWriter = null;
-            }
+            writers.close();
         }
     }
 }
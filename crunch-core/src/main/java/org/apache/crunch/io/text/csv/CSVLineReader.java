@@ -25,6 +25,7 @@ import java.nio.CharBuffer;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetEncoder;
+import java.util.Arrays;
 
 import javax.annotation.ParametersAreNonnullByDefault;
 
@@ -37,6 +38,13 @@ import com.google.common.base.Preconditions;
 /**
  * A record reader written specifically to read individual lines from CSV files.
  * Most notably, it can read CSV records which span multiple lines.
+ * <p>
+ * When the input is UTF-8 (or ASCII) and the quote and escape characters are ASCII
+ * characters, the reader works directly on the raw bytes of the input: every byte of a
+ * multi-byte UTF-8 character is at least 0x80, so the control characters can be found by
+ * comparing bytes, bytes consumed are counted without re-encoding, and records are copied
+ * into the {@link Text} without being decoded into {@code String}s. Other encodings are
+ * decoded through an {@link InputStreamReader}.
  */
 @ParametersAreNonnullByDefault
 public class CSVLineReader {
@@ -47,6 +55,7 @@ public class CSVLineReader {
    * The default buffer size (64k) to be used when reading from the InputStream
    */
   public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+  private final InputStream inputStream;
   private final InputStreamReader inputStreamReader;
   private final String inputFileEncoding;
   private final CharsetEncoder charsetEncoder;
@@ -91,6 +100,13 @@ public class CSVLineReader {
   private boolean endOfLineReached = false;
   private Text inputText = new Text();
 
+  // Byte path variables
+  private final boolean bytePath;
+  private final boolean[] controlBytes;
+  private byte[] byteBuffer;
+  private byte[] record;
+  private int recordLength = 0;
+
   /**
    * This constructor will use default values for buffer size and control
    * characters.
@@ -134,6 +150,13 @@ public class CSVLineReader {
    */
   public CSVLineReader(final InputStream inputStream, final int bufferSize, final String inputFileEncoding,
       final char openQuoteChar, final char closeQuoteChar, final char escapeChar, final int maximumRecordSize) {
+    this(inputStream, bufferSize, inputFileEncoding, openQuoteChar, closeQuoteChar, escapeChar, maximumRecordSize,
+        true);
+  }
+
+  CSVLineReader(final InputStream inputStream, final int bufferSize, final String inputFileEncoding,
+      final char openQuoteChar, final char closeQuoteChar, final char escapeChar, final int maximumRecordSize,
+      final boolean allowBytePath) {
     Preconditions.checkNotNull(inputStream, "inputStream may not be null");
     Preconditions.checkNotNull(inputFileEncoding, "inputFileEncoding may not be null");
     if (bufferSize <= 0) {
@@ -141,13 +164,31 @@ public class CSVLineReader {
     }
 
     // Input Stream related variables
+    final Charset charset;
     try {
-      this.inputStreamReader = new InputStreamReader(inputStream, inputFileEncoding);
-    } catch (final UnsupportedEncodingException uee) {
-      throw new RuntimeException(inputFileEncoding + " is not a supported encoding.", uee);
+      charset = Charset.forName(inputFileEncoding);
+    } catch (final IllegalArgumentException iae) {
+      throw new RuntimeException(inputFileEncoding + " is not a supported encoding.", iae);
     }
+    this.bytePath = allowBytePath && isAsciiCompatible(charset)
+        && openQuoteChar < 0x80 && closeQuoteChar < 0x80 && escapeChar < 0x80;
+    this.inputStream = inputStream;
     this.bufferSize = bufferSize;
-    this.buffer = new char[this.bufferSize];
+    if (bytePath) {
+      this.inputStreamReader = null;
+      this.byteBuffer = new byte[bufferSize];
+      this.record = new byte[Math.min(bufferSize, 1024)];
+      this.controlBytes = new boolean[128];
+      controlBytes[openQuoteChar] = true;
+      controlBytes[closeQuoteChar] = true;
+      controlBytes[escapeChar] = true;
+      controlBytes[CR] = true;
+      controlBytes[LF] = true;
+    } else {
+      this.inputStreamReader = new InputStreamReader(inputStream, charset);
+      this.buffer = new char[this.bufferSize];
+      this.controlBytes = null;
+    }
 
     // CSV parsing related variables
     if (isSameCharacter(openQuoteChar, escapeChar)) {
@@ -162,7 +203,7 @@ public class CSVLineReader {
     this.closeQuoteChar = closeQuoteChar;
     this.escape = escapeChar;
     this.inputFileEncoding = inputFileEncoding;
-    this.charsetEncoder = Charset.forName(inputFileEncoding).newEncoder();
+    this.charsetEncoder = charset.newEncoder();
     this.maximumRecordSize = maximumRecordSize;
   }
 
@@ -189,6 +230,9 @@ public class CSVLineReader {
     if (inMultiLine) {
       throw new RuntimeException("Cannot begin reading a CSV record while inside of a multi-line CSV record.");
     }
+    if (bytePath) {
+      return readCSVLineBytes(input);
+    }
 
     final StringBuilder stringBuilder = new StringBuilder();
     do {
@@ -240,6 +284,12 @@ public class CSVLineReader {
     if (endOfFile) {
       return 0;
     }
+    if (bytePath) {
+      recordLength = 0;
+      final long bytesConsumed = readLineBytes();
+      input.set(record, 0, recordLength);
+      return (int) bytesConsumed;
+    }
 
     // This integer keeps track of the number of newline characters used to
     // terminate the line being read. This could be 1, in the case of LF or CR,
@@ -373,6 +423,184 @@ public class CSVLineReader {
     currentlyInQuotes = false;
   }
 
+  /**
+   * Finds the fields of a CSV record that was read by this reader, working
+   * directly on the UTF-8 bytes of the {@link Text} so that no {@code String}
+   * has to be created for the record. Delimiters inside of quotes, and quotes
+   * and escapes that are escaped, are handled as by the record parsing itself.
+   * Field {@code i} is made up of the bytes from {@code offsets[i]} up to (but
+   * not including) {@code offsets[i + 1] - 1}; quotes are not removed.
+   * 
+   * @param input
+   *          a CSV record read by {@link #readCSVLine(Text)}
+   * @param delimiter
+   *          the ASCII character that separates fields
+   * @param offsets
+   *          the array to store the field offsets in, which needs room for
+   *          one more than the number of fields. If it is too small, the
+   *          offsets that do not fit are not stored.
+   * @return the number of fields in the record
+   */
+  public int getFieldOffsets(final Text input, final char delimiter, final int[] offsets) {
+    Preconditions.checkArgument(delimiter < 0x80, "delimiter must be an ASCII character");
+    Preconditions.checkState(openQuoteChar < 0x80 && closeQuoteChar < 0x80 && escape < 0x80,
+        "field offsets can only be found with ASCII quote and escape characters");
+    final byte[] bytes = input.getBytes();
+    final int length = input.getLength();
+    int fields = 0;
+    boolean inQuotes = false;
+    store(offsets, fields, 0);
+    for (int i = 0; i < length; i++) {
+      final byte b = bytes[i];
+      if (b == escape) {
+        if (inQuotes && i + 1 < length && isEscapable(bytes[i + 1])) {
+          ++i;
+        }
+      } else if (b == openQuoteChar || b == closeQuoteChar) {
+        inQuotes = !inQuotes;
+      } else if (b == delimiter && !inQuotes) {
+        store(offsets, ++fields, i + 1);
+      }
+    }
+    store(offsets, ++fields, length + 1);
+    return fields;
+  }
+
+  private static void store(final int[] offsets, final int index, final int value) {
+    if (index < offsets.length) {
+      offsets[index] = value;
+    }
+  }
+
+  /**
+   * Returns true if this reader works directly on the bytes of the input.
+   */
+  boolean isBytePath() {
+    return bytePath;
+  }
+
+  private static boolean isAsciiCompatible(final Charset charset) {
+    return "UTF-8".equals(charset.name()) || "US-ASCII".equals(charset.name());
+  }
+
+  private int readCSVLineBytes(final Text input) throws IOException {
+    recordLength = 0;
+    long totalBytesConsumed = 0;
+    do {
+      totalBytesConsumed += readLineBytes();
+      if (currentlyInQuotes && !endOfFile) {
+        // Lines of a multi-line record are joined with a newline
+        appendToRecord(LF);
+        if (totalBytesConsumed > maximumRecordSize || totalBytesConsumed > Integer.MAX_VALUE) {
+          int firstLineLength = 0;
+          while (record[firstLineLength] != LF) {
+            firstLineLength++;
+          }
+          LOGGER.error("Possibly malformed file encountered. First line of record: {}",
+              Text.decode(record, 0, firstLineLength));
+          throw new IOException("Possibly malformed file encountered. Check log statements for more information");
+        }
+      }
+    } while (currentlyInQuotes && !endOfFile);
+
+    input.set(record, 0, recordLength);
+    return (int) totalBytesConsumed;
+  }
+
+  /**
+   * The byte path equivalent of {@link #readFileLine(Text)}: appends the next
+   * line, without its line terminator, to the record buffer and returns the
+   * number of bytes consumed. Bytes that are not control characters are
+   * skipped over with a single table lookup each.
+   */
+  private long readLineBytes() throws IOException {
+    long bytesConsumed = 0;
+    boolean escapePending = false;
+    endOfLineReached = false;
+    while (true) {
+      if (bufferPosition >= bufferLength && !refillByteBuffer()) {
+        break;
+      }
+      final int start = bufferPosition;
+      int i = start;
+      if (escapePending) {
+        // The previous buffer ended with an escape character
+        escapePending = false;
+        if (isEscapable(byteBuffer[i])) {
+          ++i;
+        }
+      }
+      for (; i < bufferLength; ++i) {
+        final byte b = byteBuffer[i];
+        if (b < 0 || !controlBytes[b]) {
+          continue;
+        }
+        if (b == escape) {
+          if (currentlyInQuotes) {
+            if (i + 1 == bufferLength) {
+              escapePending = true;
+            } else if (isEscapable(byteBuffer[i + 1])) {
+              ++i;
+            }
+          }
+        } else if (b == openQuoteChar || b == closeQuoteChar) {
+          currentlyInQuotes = !currentlyInQuotes;
+        } else if (b == LF || b == CR) {
+          appendToRecord(start, i - start);
+          bufferPosition = i + 1;
+          bytesConsumed += bufferPosition - start;
+          if (b == CR && (bufferPosition < bufferLength || refillByteBuffer())
+              && byteBuffer[bufferPosition] == LF) {
+            ++bufferPosition;
+            ++bytesConsumed;
+          }
+          endOfLineReached = true;
+          inMultiLine = currentlyInQuotes;
+          return bytesConsumed;
+        }
+      }
+      appendToRecord(start, bufferLength - start);
+      bytesConsumed += bufferLength - start;
+      bufferPosition = bufferLength;
+      if (bytesConsumed > Integer.MAX_VALUE) {
+        throw new IOException("Too many bytes consumed before newline: " + Integer.MAX_VALUE);
+      }
+    }
+    return bytesConsumed;
+  }
+
+  private boolean isEscapable(final byte b) {
+    return b >= 0 && (b == closeQuoteChar || b == openQuoteChar || b == this.escape);
+  }
+
+  private boolean refillByteBuffer() throws IOException {
+    bufferPosition = 0;
+    bufferLength = inputStream.read(byteBuffer, 0, byteBuffer.length);
+    if (bufferLength <= 0) {
+      bufferLength = 0;
+      endOfFile = true;
+      return false;
+    }
+    return true;
+  }
+
+  private void appendToRecord(final int start, final int length) {
+    ensureRecordCapacity(length);
+    System.arraycopy(byteBuffer, start, record, recordLength, length);
+    recordLength += length;
+  }
+
+  private void appendToRecord(final char c) {
+    ensureRecordCapacity(1);
+    record[recordLength++] = (byte) c;
+  }
+
+  private void ensureRecordCapacity(final int length) {
+    if (recordLength + length > record.length) {
+      record = Arrays.copyOf(record, Math.max(record.length * 2, recordLength + length));
+    }
+  }
+
   private boolean isSameCharacter(final char c1, final char c2) {
     return c1 != NULL_CHARACTER && c1 == c2;
   }
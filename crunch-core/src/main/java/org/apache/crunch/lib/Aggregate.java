@@ -38,8 +38,13 @@ import org.apache.crunch.materialize.pobject.FirstElementPObject;
 import org.apache.crunch.types.PTableType;
 import org.apache.crunch.types.PType;
 import org.apache.crunch.types.PTypeFamily;
+import org.apache.crunch.types.PTypes;
+import org.apache.crunch.util.HyperLogLog;
 import org.apache.crunch.util.PartitionUtils;
+import org.apache.crunch.util.SpaceSaving;
+import org.apache.crunch.util.ValueHasher;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 
 /**
@@ -95,6 +100,102 @@ public class Aggregate {
     return new FirstElementPObject<Long>(count, 0L);
   }
 
+  /**
+   * Returns an estimate of the number of distinct elements in the given collection, computed using
+   * a {@link HyperLogLog} sketch with the default precision.
+   */
+  public static <S> PObject<Long> approxCountDistinct(PCollection<S> collect) {
+    return approxCountDistinct(collect, HyperLogLog.DEFAULT_PRECISION);
+  }
+
+  /**
+   * Returns an estimate of the number of distinct elements in the given collection, computed using
+   * a {@link HyperLogLog} sketch with the given precision. Each task builds a sketch of its input,
+   * and only the sketches are shuffled.
+   */
+  public static <S> PObject<Long> approxCountDistinct(PCollection<S> collect, int precision) {
+    PTypeFamily tf = collect.getTypeFamily();
+    PCollection<Long> count = collect
+        .parallelDo("Aggregate.approxCountDistinct", new HyperLogLogFn<S>(precision, collect.getPType()),
+            tf.tableOf(tf.ints(), PTypes.hyperLogLogs(tf)))
+        .groupByKey(GroupingOptions.builder().numReducers(1).build())
+        .combineValues(Aggregators.MERGE_HYPERLOGLOGS())
+        .values()
+        .parallelDo(new CardinalityFn(), tf.longs());
+    return new FirstElementPObject<Long>(count, 0L);
+  }
+
+  /**
+   * Returns a {@code PTable} that contains an estimate of the number of distinct values for each key
+   * of the given table, computed using {@link HyperLogLog} sketches with the default precision.
+   */
+  public static <K, V> PTable<K, Long> approxCountDistinctValues(PTable<K, V> table) {
+    return approxCountDistinctValues(table, HyperLogLog.DEFAULT_PRECISION);
+  }
+
+  /**
+   * Returns a {@code PTable} that contains an estimate of the number of distinct values for each key
+   * of the given table, computed using {@link HyperLogLog} sketches with the given precision.
+   */
+  public static <K, V> PTable<K, Long> approxCountDistinctValues(PTable<K, V> table, final int precision) {
+    PTypeFamily tf = table.getTypeFamily();
+    final ValueHasher<V> hasher = new ValueHasher<V>(table.getValueType());
+    return table
+        .mapValues("Aggregate.approxCountDistinctValues", new MapFn<V, HyperLogLog>() {
+          @Override
+          public void initialize() {
+            hasher.initialize(getConfiguration());
+          }
+
+          @Override
+          public HyperLogLog map(V input) {
+            return new HyperLogLog(precision).addHash(hasher.hash(input));
+          }
+        }, PTypes.hyperLogLogs(tf))
+        .groupByKey()
+        .combineValues(Aggregators.MERGE_HYPERLOGLOGS())
+        .mapValues(new CardinalityFn(), tf.longs());
+  }
+
+  private static class HyperLogLogFn<S> extends DoFn<S, Pair<Integer, HyperLogLog>> {
+    private final int precision;
+    private final ValueHasher<S> hasher;
+    private transient HyperLogLog sketch;
+
+    HyperLogLogFn(int precision, PType<S> ptype) {
+      this.precision = precision;
+      this.hasher = new ValueHasher<S>(ptype);
+    }
+
+    @Override
+    public void initialize() {
+      sketch = new HyperLogLog(precision);
+      hasher.initialize(getConfiguration());
+    }
+
+    @Override
+    public void process(S input, Emitter<Pair<Integer, HyperLogLog>> emitter) {
+      sketch.addHash(hasher.hash(input));
+    }
+
+    @Override
+    public void cleanup(Emitter<Pair<Integer, HyperLogLog>> emitter) {
+      emitter.emit(Pair.of(1, sketch));
+    }
+
+    @Override
+    public float scaleFactor() {
+      return 0.0f;
+    }
+  }
+
+  private static class CardinalityFn extends MapFn<HyperLogLog, Long> {
+    @Override
+    public Long map(HyperLogLog input) {
+      return input.cardinality();
+    }
+  }
+
   public static class PairValueComparator<K, V> implements Comparator<Pair<K, V>> {
     private final boolean ascending;
 
@@ -206,6 +307,72 @@ public class Aggregate {
         }, base);
   }
 
+  /**
+   * Returns an estimate of the {@code k} most frequent elements of the given collection and their
+   * counts, computed using {@link SpaceSaving} summaries that monitor {@code 10 * k} elements.
+   */
+  public static <S> PTable<S, Long> approxTop(PCollection<S> collect, int k) {
+    return approxTop(collect, k, 10 * k);
+  }
+
+  /**
+   * Returns an estimate of the {@code k} most frequent elements of the given collection and their
+   * counts, computed using {@link SpaceSaving} summaries with the given capacity. Each task builds a
+   * summary of its input, and only the summaries are shuffled. The estimated counts are never less than
+   * the true counts, and are at most {@code N / capacity} too high for a collection of {@code N} elements.
+   */
+  public static <S> PTable<S, Long> approxTop(PCollection<S> collect, final int k, int capacity) {
+    Preconditions.checkArgument(k > 0 && k <= capacity, "k must be between 1 and the capacity: %s", k);
+    PTypeFamily tf = collect.getTypeFamily();
+    PType<S> ptype = collect.getPType();
+    return collect
+        .parallelDo("Aggregate.approxTop", new SpaceSavingFn<S>(capacity, ptype),
+            tf.tableOf(tf.ints(), PTypes.spaceSavings(ptype)))
+        .groupByKey(GroupingOptions.builder().numReducers(1).build())
+        .combineValues(Aggregators.<S>MERGE_SPACE_SAVINGS())
+        .values()
+        .parallelDo("top" + k, new DoFn<SpaceSaving<S>, Pair<S, Long>>() {
+          @Override
+          public void process(SpaceSaving<S> input, Emitter<Pair<S, Long>> emitter) {
+            for (Pair<S, Long> p : input.top(k)) {
+              emitter.emit(p);
+            }
+          }
+        }, tf.tableOf(ptype, tf.longs()));
+  }
+
+  private static class SpaceSavingFn<S> extends DoFn<S, Pair<Integer, SpaceSaving<S>>> {
+    private final int capacity;
+    private final PType<S> ptype;
+    private transient SpaceSaving<S> summary;
+
+    SpaceSavingFn(int capacity, PType<S> ptype) {
+      this.capacity = capacity;
+      this.ptype = ptype;
+    }
+
+    @Override
+    public void initialize() {
+      ptype.initialize(getConfiguration());
+      summary = new SpaceSaving<S>(capacity);
+    }
+
+    @Override
+    public void process(S input, Emitter<Pair<Integer, SpaceSaving<S>>> emitter) {
+      summary.offer(ptype.getDetachedValue(input));
+    }
+
+    @Override
+    public void cleanup(Emitter<Pair<Integer, SpaceSaving<S>>> emitter) {
+      emitter.emit(Pair.of(1, summary));
+    }
+
+    @Override
+    public float scaleFactor() {
+      return 0.0f;
+    }
+  }
+
   /**
    * Returns the largest numerical element from the input collection.
    */
@@ -24,20 +24,42 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.PeekingIterator;
+import org.apache.crunch.CombineFn;
+import org.apache.crunch.DoFn;
+import org.apache.crunch.Emitter;
 import org.apache.crunch.MapFn;
 import org.apache.crunch.PTable;
 import org.apache.crunch.Pair;
+import org.apache.crunch.fn.Aggregators;
+import org.apache.crunch.types.PTableType;
 import org.apache.crunch.types.PType;
 import org.apache.crunch.types.PTypeFamily;
+import org.apache.crunch.types.PTypes;
+import org.apache.crunch.util.QuantileSketch;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 public class Quantiles {
 
+  /**
+   * The number of bytes of memory that each task of {@link #approximate} uses for the sketches of the keys
+   * that it has seen. The number of keys whose sketches are kept is this budget divided by the largest size
+   * of a sketch, and the sketch of the least-recently-updated key is written out when a new key does not fit.
+   */
+  public static final String SKETCH_MEMORY_BYTES = "crunch.quantiles.sketch.memory.bytes";
+
+  private static final long DEFAULT_SKETCH_MEMORY_BYTES = 64L * 1024 * 1024;
+
+  // A sketch retains about 3k values, in arrays that may be up to twice their size
+  private static final long MAX_SKETCH_BYTES = 2 * 3 * 8 * QuantileSketch.DEFAULT_K + 256;
+
   /**
    * Calculate a set of quantiles for each key in a numerically-valued table.
    *
@@ -101,6 +123,158 @@ public class Quantiles {
                         ptf.tableOf(table.getKeyType(), Result.pType(table.getValueType())));
   }
 
+  /**
+   * Calculate a set of approximate quantiles for each key in a numerically-valued table.
+   *
+   * Quantiles are estimated on a per-key basis by summarizing the values of each key in a mergeable
+   * {@link QuantileSketch}. Each map task keeps one sketch per key in a table bounded by
+   * {@link #SKETCH_MEMORY_BYTES}, and the sketches are merged in the combiner and reducer, so neither a sort of the
+   * values nor buffering all of them in memory is required. The rank error of the estimates is about 1.7%, and
+   * the minimum and maximum values of each key are exact.
+   *
+   * The sketches hold the values as doubles, so the estimates of long values whose magnitude exceeds 2^53 and of
+   * BigInteger and BigDecimal values are rounded to the nearest double.
+   *
+   * The quantile definition that we use here is the "nearest rank" defined here:
+   * http://en.wikipedia.org/wiki/Percentile#Definition
+   *
+   * @param table numerically-valued PTable
+   * @param p1 First quantile (in the range 0.0 - 1.0)
+   * @param pn More quantiles (in the range 0.0 - 1.0)
+   * @param <K> Key type of the table
+   * @param <V> Value type of the table (must be one of the boxed primitive number types, BigInteger or BigDecimal)
+   * @return PTable of each key with a collection of pairs of the quantile provided and it's result.
+   */
+  public static <K, V extends Number> PTable<K, Result<V>> approximate(PTable<K, V> table,
+          double p1, double... pn) {
+    final List<Double> quantileList = createListFromVarargs(p1, pn);
+    Class<V> valueClass = table.getValueType().getTypeClass();
+    checkSupported(valueClass);
+
+    PTypeFamily ptf = table.getTypeFamily();
+    PTableType<K, QuantileSketch> sketchTableType = ptf.tableOf(table.getKeyType(), PTypes.quantileSketches(ptf));
+
+    return table
+            .parallelDo("Quantiles.sketch", new SketchFn<K, V>(table.getKeyType()), sketchTableType)
+            .groupByKey()
+            .combineValues(mergeFn(sketchTableType))
+            .mapValues("Quantiles.approximate", new SketchQuantiles<V>(quantileList, valueClass),
+                Result.pType(table.getValueType()));
+  }
+
+  private static <K> CombineFn<K, QuantileSketch> mergeFn(PTableType<K, QuantileSketch> sketchTableType) {
+    return Aggregators.toCombineFn(Aggregators.MERGE_QUANTILE_SKETCHES(), sketchTableType.getValueType());
+  }
+
+  private static void checkSupported(Class<?> valueClass) {
+    if (!(valueClass == Integer.class || valueClass == Long.class || valueClass == Short.class
+        || valueClass == Byte.class || valueClass == Float.class || valueClass == Double.class
+        || valueClass == BigInteger.class || valueClass == BigDecimal.class)) {
+      throw new IllegalArgumentException("Cannot compute approximate quantiles of values of type: " + valueClass);
+    }
+  }
+
+  /**
+   * Converts an estimate back to the value type. Estimates are doubles, so long, BigInteger and BigDecimal
+   * results are only exact up to the 53 bits of precision of a double.
+   */
+  private static <V> V toNumber(double value, Class<V> valueClass) {
+    Object ret;
+    if (valueClass == Integer.class) {
+      ret = (int) value;
+    } else if (valueClass == Long.class) {
+      ret = (long) value;
+    } else if (valueClass == Short.class) {
+      ret = (short) value;
+    } else if (valueClass == Byte.class) {
+      ret = (byte) value;
+    } else if (valueClass == Float.class) {
+      ret = (float) value;
+    } else if (valueClass == BigInteger.class) {
+      ret = BigDecimal.valueOf(value).toBigInteger();
+    } else if (valueClass == BigDecimal.class) {
+      ret = BigDecimal.valueOf(value);
+    } else {
+      ret = value;
+    }
+    return valueClass.cast(ret);
+  }
+
+  /**
+   * Adds the values of each key to a sketch of its own, which is written out when the key is evicted from the
+   * table or the task ends, so that each key is written once per task unless the table overflows.
+   */
+  private static class SketchFn<K, V extends Number> extends DoFn<Pair<K, V>, Pair<K, QuantileSketch>> {
+    private final PType<K> keyType;
+    private transient LinkedHashMap<K, QuantileSketch> sketches;
+    private transient long maxSketches;
+
+    public SketchFn(PType<K> keyType) {
+      this.keyType = keyType;
+    }
+
+    @Override
+    public void initialize() {
+      keyType.initialize(getConfiguration());
+      // Access ordering keeps the least-recently-updated key at the head of the table
+      sketches = new LinkedHashMap<K, QuantileSketch>(16, 0.75f, true);
+      long memory = getConfiguration().getLong(SKETCH_MEMORY_BYTES, DEFAULT_SKETCH_MEMORY_BYTES);
+      maxSketches = Math.max(1, memory / MAX_SKETCH_BYTES);
+    }
+
+    @Override
+    public void process(Pair<K, V> input, Emitter<Pair<K, QuantileSketch>> emitter) {
+      QuantileSketch sketch = sketches.get(input.first());
+      if (sketch == null) {
+        if (sketches.size() >= maxSketches) {
+          Iterator<Map.Entry<K, QuantileSketch>> iter = sketches.entrySet().iterator();
+          Map.Entry<K, QuantileSketch> eldest = iter.next();
+          emitter.emit(Pair.of(eldest.getKey(), eldest.getValue()));
+          iter.remove();
+        }
+        sketch = new QuantileSketch();
+        sketches.put(keyType.getDetachedValue(input.first()), sketch);
+      }
+      if (input.second() != null) {
+        sketch.add(input.second().doubleValue());
+      }
+    }
+
+    @Override
+    public void cleanup(Emitter<Pair<K, QuantileSketch>> emitter) {
+      for (Map.Entry<K, QuantileSketch> e : sketches.entrySet()) {
+        emitter.emit(Pair.of(e.getKey(), e.getValue()));
+      }
+      sketches.clear();
+    }
+  }
+
+  private static class SketchQuantiles<V> extends MapFn<QuantileSketch, Result<V>> {
+    private final List<Double> quantileList;
+    private final Class<V> valueClass;
+
+    public SketchQuantiles(List<Double> quantileList, Class<V> valueClass) {
+      this.quantileList = quantileList;
+      this.valueClass = valueClass;
+    }
+
+    @Override
+    public Result<V> map(QuantileSketch input) {
+      double[] quantiles = new double[quantileList.size()];
+      for (int i = 0; i < quantiles.length; i++) {
+        quantiles[i] = quantileList.get(i);
+      }
+      double[] values = input.getQuantiles(quantiles);
+      Collection<Pair<Double, V>> output = Lists.newArrayList();
+      if (input.getCount() > 0) {
+        for (int i = 0; i < quantiles.length; i++) {
+          output.add(Pair.of(quantiles[i], toNumber(values[i], valueClass)));
+        }
+      }
+      return new Result<V>(input.getCount(), output);
+    }
+  }
+
   private static List<Double> createListFromVarargs(double p1, double[] pn) {
     final List<Double> quantileList = Lists.newArrayList(p1);
     for (double p: pn) {
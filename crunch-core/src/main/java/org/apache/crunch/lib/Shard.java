@@ -19,6 +19,7 @@ package org.apache.crunch.lib;
 
 import org.apache.crunch.MapFn;
 import org.apache.crunch.PCollection;
+import org.apache.crunch.PTable;
 
 /**
  * Utilities for controlling how the data in a {@code PCollection} is balanced across reducers
@@ -42,6 +43,32 @@ public class Shard {
         .values();
   }
   
+  /**
+   * Creates a {@code PTable<K, V>} that has the same contents as its input argument but sends all of the
+   * records for each key to the same reducer, which sees them one key at a time. Writing the result to a
+   * path-per-key target such as {@link org.apache.crunch.io.avro.AvroPathPerKeyTarget} then needs only one
+   * open file per task, and creates only one file per key.
+   *
+   * @param table The {@code PTable<K, V>} to cluster
+   * @return A {@code PTable<K, V>} with the same contents as the input whose records are grouped by key
+   */
+  public static <K, V> PTable<K, V> clusterByKey(PTable<K, V> table) {
+    return table.groupByKey().ungroup();
+  }
+
+  /**
+   * Creates a {@code PTable<K, V>} that has the same contents as its input argument but sends all of the
+   * records for each key to the same one of the given number of reducers.
+   *
+   * @param table The {@code PTable<K, V>} to cluster
+   * @param numPartitions The number of reducers to use
+   * @return A {@code PTable<K, V>} with the same contents as the input whose records are grouped by key
+   * @see #clusterByKey(PTable)
+   */
+  public static <K, V> PTable<K, V> clusterByKey(PTable<K, V> table, int numPartitions) {
+    return table.groupByKey(numPartitions).ungroup();
+  }
+
   private static class ShardFn<T> extends MapFn<T, Integer> {
 
     private int count;
@@ -17,6 +17,8 @@
  */
 package org.apache.crunch.lib;
 
+import java.nio.ByteBuffer;
+
 import org.apache.avro.Schema;
 import org.apache.crunch.DoFn;
 import org.apache.crunch.Emitter;
@@ -29,6 +31,8 @@ import org.apache.crunch.Tuple;
 import org.apache.crunch.Tuple3;
 import org.apache.crunch.Tuple4;
 import org.apache.crunch.TupleN;
+import org.apache.crunch.lib.sort.AvroBytesComparator;
+import org.apache.crunch.lib.sort.OrderedBytes;
 import org.apache.crunch.lib.sort.SortFns;
 import org.apache.crunch.lib.sort.TotalOrderPartitioner;
 import org.apache.crunch.lib.sort.ReverseAvroComparator;
@@ -44,6 +48,7 @@ import org.apache.crunch.types.writable.WritableType;
 import org.apache.crunch.types.writable.WritableTypeFamily;
 import org.apache.crunch.util.PartitionUtils;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.BytesWritable;
 
 /**
  * Utilities for sorting {@code PCollection} instances.
@@ -220,6 +225,52 @@ public class Sort {
     return pt.groupByKey(options).ungroup().values();
   }
 
+  /**
+   * Sorts the {@code PCollection} of tuples using the specified column ordering, shuffling them by a key that
+   * encodes the ordered columns with {@link OrderedBytes}. The keys are compared as raw bytes, which is cheaper
+   * than comparing them column by column as {@link #sortTuples(PCollection, ColumnOrder...)} does, but every
+   * ordered column must be of a primitive, string or bytes type.
+   *
+   * @return a {@code PCollection} representing the sorted collection.
+   */
+  public static <T extends Tuple> PCollection<T> sortTuplesByBytes(PCollection<T> collection,
+      ColumnOrder... columnOrders) {
+    return sortTuplesByBytes(collection, -1, columnOrders);
+  }
+
+  /**
+   * Sorts the {@code PCollection} of tuples by an encoded key, as {@link #sortTuplesByBytes(PCollection,
+   * ColumnOrder...)} does, using a client-specified number of reducers.
+   *
+   * @return a {@code PCollection} representing the sorted collection.
+   */
+  public static <T extends Tuple> PCollection<T> sortTuplesByBytes(PCollection<T> collection, int numReducers,
+      ColumnOrder... columnOrders) {
+    PType<T> pType = collection.getPType();
+    for (ColumnOrder columnOrder : columnOrders) {
+      Class<?> columnClass = pType.getSubTypes().get(columnOrder.column() - 1).getTypeClass();
+      if (!OrderedBytes.isSupported(columnClass)) {
+        throw new IllegalArgumentException("Cannot sort by bytes on column " + columnOrder.column()
+            + " of type " + columnClass.getName());
+      }
+    }
+    PTypeFamily tf = collection.getTypeFamily();
+    PTable<ByteBuffer, T> pt = collection.by(new SortFns.OrderedBytesKeyFn<T>(columnOrders), tf.bytes());
+    Configuration conf = collection.getPipeline().getConfiguration();
+    // The keys must be compared as unsigned bytes, including by the in-memory shuffle
+    GroupingOptions.Builder builder = GroupingOptions.builder();
+    if (tf == WritableTypeFamily.getInstance()) {
+      builder.sortComparatorClass(BytesWritable.Comparator.class);
+    } else if (tf == AvroTypeFamily.getInstance()) {
+      builder.sortComparatorClass(AvroBytesComparator.class);
+    } else {
+      throw new RuntimeException("Unrecognized type family: " + tf);
+    }
+    builder.requireSortedKeys();
+    configureReducers(builder, pt, conf, numReducers);
+    return pt.groupByKey(builder.build()).ungroup().values();
+  }
+
   // TODO: move to type family?
   private static <K, V> GroupingOptions buildGroupingOptions(PTable<K, V> ptable, Configuration conf,
       int numReducers, Order order) {
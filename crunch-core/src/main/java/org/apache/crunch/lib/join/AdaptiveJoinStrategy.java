@@ -0,0 +1,253 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.lib.join;
+
+import org.apache.crunch.PTable;
+import org.apache.crunch.Pair;
+import org.apache.crunch.fn.IdentityFn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Join strategy that chooses between the other join strategies at planning time, based on the
+ * sizes of the joined tables and optional hints about the number of distinct keys in them.
+ * <p>
+ * The choice is made in the following order:
+ * <ol>
+ *   <li>If one side is no larger than the broadcast threshold and the join type allows it, that
+ *   side is loaded into memory with a {@link MapsideJoinStrategy} and no shuffle is needed.</li>
+ *   <li>If a key cardinality hint shows that the average key of the larger side carries more data
+ *   than the skew threshold, a {@link ShardedJoinStrategy} spreads each key over several reducers.</li>
+ *   <li>If the right side is much larger than the left side and a Bloom filter of the left-side keys
+ *   would be small enough, a {@link BloomFilterJoinStrategy} filters the right side before the shuffle.</li>
+ *   <li>Otherwise a {@link DefaultJoinStrategy} performs a reduce-side join.</li>
+ * </ol>
+ * If the size of either table is unknown, the reduce-side join is used. The chosen strategy is logged
+ * and recorded in the name of the joined table, so that it shows up in the plan dotfiles.
+ * <p>
+ * Instances are created with {@link #builder()}.
+ */
+public class AdaptiveJoinStrategy<K, U, V> implements JoinStrategy<K, U, V> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AdaptiveJoinStrategy.class);
+
+  /**
+   * The join strategies that {@code AdaptiveJoinStrategy} can choose from.
+   */
+  public enum Choice {
+    BROADCAST_LEFT,
+    BROADCAST_RIGHT,
+    SHARDED,
+    BLOOM_FILTER,
+    REDUCE_SIDE
+  }
+
+  // Bits per key in a blocked Bloom filter with a 5% false positive rate
+  private static final double BLOOM_FILTER_BITS_PER_KEY = 7.5;
+  private static final float BLOOM_FILTER_FALSE_POSITIVE_RATE = 0.05f;
+
+  private final long broadcastThreshold;
+  private final long skewThreshold;
+  private final int maxShards;
+  private final double bloomFilterRatio;
+  private final long maxBloomFilterSize;
+  private final long bytesPerKeyEstimate;
+  private final long leftKeyCardinality;
+  private final long rightKeyCardinality;
+  private final int numReducers;
+
+  private AdaptiveJoinStrategy(Builder builder) {
+    this.broadcastThreshold = builder.broadcastThreshold;
+    this.skewThreshold = builder.skewThreshold;
+    this.maxShards = builder.maxShards;
+    this.bloomFilterRatio = builder.bloomFilterRatio;
+    this.maxBloomFilterSize = builder.maxBloomFilterSize;
+    this.bytesPerKeyEstimate = builder.bytesPerKeyEstimate;
+    this.leftKeyCardinality = builder.leftKeyCardinality;
+    this.rightKeyCardinality = builder.rightKeyCardinality;
+    this.numReducers = builder.numReducers;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Builder for {@link AdaptiveJoinStrategy} instances. Sizes are given in bytes.
+   */
+  public static class Builder {
+    private long broadcastThreshold = 64L * 1024 * 1024;
+    private long skewThreshold = 1024L * 1024 * 1024;
+    private int maxShards = 32;
+    private double bloomFilterRatio = 10.0;
+    private long maxBloomFilterSize = 64L * 1024 * 1024;
+    private long bytesPerKeyEstimate = 64L;
+    private long leftKeyCardinality = -1L;
+    private long rightKeyCardinality = -1L;
+    private int numReducers = -1;
+
+    /**
+     * The maximum size of a table that is loaded into memory for a map-side join. Defaults to 64MB.
+     */
+    public Builder broadcastThreshold(long broadcastThreshold) {
+      this.broadcastThreshold = broadcastThreshold;
+      return this;
+    }
+
+    /**
+     * The average amount of data per key above which keys are sharded over several reducers, and
+     * the maximum number of shards per key. Defaults to 1GB and 32 shards.
+     */
+    public Builder skewThreshold(long skewThreshold, int maxShards) {
+      Preconditions.checkArgument(maxShards > 0, "Max shards must be positive: %s", maxShards);
+      this.skewThreshold = skewThreshold;
+      this.maxShards = maxShards;
+      return this;
+    }
+
+    /**
+     * How many times larger the right side must be than the left side before it is filtered with a
+     * Bloom filter of the left-side keys, and the maximum size of that filter. Defaults to 10 and 64MB.
+     */
+    public Builder bloomFilter(double ratio, long maxFilterSize) {
+      this.bloomFilterRatio = ratio;
+      this.maxBloomFilterSize = maxFilterSize;
+      return this;
+    }
+
+    /**
+     * The average size of a record that is used to estimate the number of keys of a table when no
+     * cardinality hint is given. Defaults to 64 bytes.
+     */
+    public Builder bytesPerKeyEstimate(long bytesPerKeyEstimate) {
+      Preconditions.checkArgument(bytesPerKeyEstimate > 0, "Bytes per key must be positive: %s",
+          bytesPerKeyEstimate);
+      this.bytesPerKeyEstimate = bytesPerKeyEstimate;
+      return this;
+    }
+
+    /**
+     * Hints for the number of distinct keys in the left and right tables, or -1 if unknown.
+     */
+    public Builder keyCardinalities(long left, long right) {
+      this.leftKeyCardinality = left;
+      this.rightKeyCardinality = right;
+      return this;
+    }
+
+    /**
+     * The number of reducers to use for reduce-side joins, or -1 to let the planner choose.
+     */
+    public Builder numReducers(int numReducers) {
+      this.numReducers = numReducers;
+      return this;
+    }
+
+    public <K, U, V> AdaptiveJoinStrategy<K, U, V> build() {
+      return new AdaptiveJoinStrategy<K, U, V>(this);
+    }
+  }
+
+  @Override
+  public PTable<K, Pair<U, V>> join(PTable<K, U> left, PTable<K, V> right, JoinType joinType) {
+    long leftSize = left.getSize();
+    long rightSize = right.getSize();
+    Choice choice = choose(leftSize, rightSize, joinType);
+    String description = String.format("Adaptive %s join: %s (left=%d bytes, right=%d bytes)",
+        joinType, choice, leftSize, rightSize);
+    LOG.info(description);
+
+    PTable<K, Pair<U, V>> joined = getStrategy(choice, leftSize, rightSize).join(left, right, joinType);
+    return joined.parallelDo(description, IdentityFn.<Pair<K, Pair<U, V>>>getInstance(), joined.getPTableType());
+  }
+
+  /**
+   * Chooses the join strategy for tables of the given sizes, which are negative if unknown.
+   */
+  Choice choose(long leftSize, long rightSize, JoinType joinType) {
+    if (leftSize < 0 || rightSize < 0) {
+      return Choice.REDUCE_SIDE;
+    }
+    boolean canBroadcastLeft = joinType == JoinType.INNER_JOIN || joinType == JoinType.RIGHT_OUTER_JOIN;
+    boolean canBroadcastRight = joinType == JoinType.INNER_JOIN || joinType == JoinType.LEFT_OUTER_JOIN;
+    if (canBroadcastLeft && leftSize <= broadcastThreshold && (leftSize <= rightSize || !canBroadcastRight)) {
+      return Choice.BROADCAST_LEFT;
+    }
+    if (canBroadcastRight && rightSize <= broadcastThreshold) {
+      return Choice.BROADCAST_RIGHT;
+    }
+    boolean canShard = joinType == JoinType.INNER_JOIN || joinType == JoinType.RIGHT_OUTER_JOIN;
+    if (canShard && getNumShards(leftSize, rightSize) > 1) {
+      return Choice.SHARDED;
+    }
+    if (rightSize >= bloomFilterRatio * leftSize
+        && estimateKeys(leftSize, leftKeyCardinality) * BLOOM_FILTER_BITS_PER_KEY / 8 <= maxBloomFilterSize) {
+      return Choice.BLOOM_FILTER;
+    }
+    return Choice.REDUCE_SIDE;
+  }
+
+  @SuppressWarnings("deprecation")
+  private JoinStrategy<K, U, V> getStrategy(Choice choice, long leftSize, long rightSize) {
+    switch (choice) {
+    case BROADCAST_LEFT:
+      return MapsideJoinStrategy.create();
+    case BROADCAST_RIGHT:
+      // The deprecated constructor is the only way to load the right side into memory
+      return new MapsideJoinStrategy<K, U, V>(true);
+    case SHARDED:
+      int numShards = getNumShards(leftSize, rightSize);
+      return numReducers > 0 ? new ShardedJoinStrategy<K, U, V>(numShards, numReducers)
+          : new ShardedJoinStrategy<K, U, V>(numShards);
+    case BLOOM_FILTER:
+      int numElements = (int) Math.min(Integer.MAX_VALUE, estimateKeys(leftSize, leftKeyCardinality));
+      return new BloomFilterJoinStrategy<K, U, V>(numElements, BLOOM_FILTER_FALSE_POSITIVE_RATE,
+          new DefaultJoinStrategy<K, U, V>(numReducers), true);
+    default:
+      return new DefaultJoinStrategy<K, U, V>(numReducers);
+    }
+  }
+
+  /**
+   * Returns the number of shards per key that keeps the average amount of data per key and shard
+   * under the skew threshold. Sharding needs a cardinality hint, since sizes alone say nothing about
+   * how the data is spread over the keys.
+   */
+  private int getNumShards(long leftSize, long rightSize) {
+    long bytesPerKey = 0L;
+    if (leftKeyCardinality > 0) {
+      bytesPerKey = leftSize / leftKeyCardinality;
+    }
+    if (rightKeyCardinality > 0) {
+      bytesPerKey = Math.max(bytesPerKey, rightSize / rightKeyCardinality);
+    }
+    if (bytesPerKey <= skewThreshold) {
+      return 1;
+    }
+    return (int) Math.min(maxShards, (bytesPerKey + skewThreshold - 1) / skewThreshold);
+  }
+
+  private long estimateKeys(long size, long cardinalityHint) {
+    if (cardinalityHint > 0) {
+      return cardinalityHint;
+    }
+    return Math.max(1L, size / bytesPerKeyEstimate);
+  }
+}
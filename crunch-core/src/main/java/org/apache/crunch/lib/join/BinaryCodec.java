@@ -0,0 +1,171 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.lib.join;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.avro.io.BinaryData;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.crunch.CrunchRuntimeException;
+import org.apache.crunch.types.PType;
+import org.apache.crunch.types.avro.AvroMode;
+import org.apache.crunch.types.avro.AvroType;
+import org.apache.crunch.types.writable.WritableType;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.RawComparator;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/**
+ * Converts the values of a {@link PType} to and from their binary serialized form. Instances are
+ * not thread-safe.
+ */
+abstract class BinaryCodec<T> {
+
+  /**
+   * Returns the serialized form of the given value.
+   */
+  abstract byte[] toBytes(T value);
+
+  /**
+   * Returns a new value that is read from the given range of serialized bytes.
+   */
+  abstract T fromBytes(byte[] bytes, int offset, int length);
+
+  /**
+   * Compares two serialized values in the order that they are sorted in by the shuffle.
+   */
+  abstract int compare(byte[] left, byte[] right);
+
+  /**
+   * Creates a codec for the given (initialized) {@code PType}.
+   */
+  static <T> BinaryCodec<T> create(PType<T> ptype, Configuration conf) {
+    if (ptype instanceof AvroType) {
+      return new AvroCodec<T>((AvroType<T>) ptype, conf);
+    }
+    if (ptype instanceof WritableType) {
+      return new WritableCodec<T>((WritableType<T, ?>) ptype, conf);
+    }
+    throw new IllegalStateException("Unrecognized PType: " + ptype);
+  }
+
+  private static class WritableCodec<T> extends BinaryCodec<T> {
+
+    private final WritableType<T, ?> ptype;
+    private final Configuration conf;
+    private final DataOutputBuffer output = new DataOutputBuffer();
+    private final DataInputBuffer input = new DataInputBuffer();
+    private RawComparator<?> comparator;
+
+    WritableCodec(WritableType<T, ?> ptype, Configuration conf) {
+      this.ptype = ptype;
+      this.conf = conf;
+    }
+
+    @Override
+    byte[] toBytes(T value) {
+      output.reset();
+      try {
+        ((Writable) ptype.getOutputMapFn().map(value)).write(output);
+      } catch (IOException e) {
+        throw new CrunchRuntimeException(e);
+      }
+      return Arrays.copyOf(output.getData(), output.getLength());
+    }
+
+    @Override
+    T fromBytes(byte[] bytes, int offset, int length) {
+      input.reset(bytes, offset, length);
+      Writable writable = ReflectionUtils.newInstance(ptype.getSerializationClass(), conf);
+      try {
+        writable.readFields(input);
+      } catch (IOException e) {
+        throw new CrunchRuntimeException(e);
+      }
+      return (T) ptype.getInputMapFn().map(writable);
+    }
+
+    @Override
+    int compare(byte[] left, byte[] right) {
+      if (comparator == null) {
+        if (!WritableComparable.class.isAssignableFrom(ptype.getSerializationClass())) {
+          throw new IllegalStateException("Values of " + ptype + " are not comparable");
+        }
+        comparator = WritableComparator.get(ptype.getSerializationClass().asSubclass(WritableComparable.class), conf);
+      }
+      return comparator.compare(left, 0, left.length, right, 0, right.length);
+    }
+  }
+
+  private static class AvroCodec<T> extends BinaryCodec<T> {
+
+    private final AvroType<T> ptype;
+    private final DatumWriter<Object> writer;
+    private final DatumReader<Object> reader;
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private BinaryEncoder encoder;
+    private BinaryDecoder decoder;
+
+    AvroCodec(AvroType<T> ptype, Configuration conf) {
+      this.ptype = ptype;
+      AvroMode mode = AvroMode.fromType(ptype).withFactoryFromConfiguration(conf);
+      this.writer = mode.getWriter(ptype.getSchema());
+      this.reader = mode.getReader(ptype.getSchema());
+    }
+
+    @Override
+    byte[] toBytes(T value) {
+      output.reset();
+      encoder = EncoderFactory.get().binaryEncoder(output, encoder);
+      try {
+        writer.write(ptype.getOutputMapFn().map(value), encoder);
+        encoder.flush();
+      } catch (IOException e) {
+        throw new CrunchRuntimeException(e);
+      }
+      return output.toByteArray();
+    }
+
+    @Override
+    T fromBytes(byte[] bytes, int offset, int length) {
+      decoder = DecoderFactory.get().binaryDecoder(bytes, offset, length, decoder);
+      try {
+        return ptype.getInputMapFn().map(reader.read(null, decoder));
+      } catch (IOException e) {
+        throw new CrunchRuntimeException(e);
+      }
+    }
+
+    @Override
+    int compare(byte[] left, byte[] right) {
+      return BinaryData.compare(left, 0, right, 0, ptype.getSchema());
+    }
+  }
+}
@@ -45,6 +45,7 @@ import org.apache.crunch.types.avro.Avros;
 import org.apache.crunch.types.writable.WritableType;
 import org.apache.crunch.types.writable.WritableTypeFamily;
 import org.apache.crunch.types.writable.Writables;
+import org.apache.crunch.util.BlockedBloomFilter;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.DataOutputBuffer;
 import org.apache.hadoop.io.Writable;
@@ -64,12 +65,19 @@ import org.apache.hadoop.util.hash.Hash;
  * Implementation Note: right and full outer join type are handled by splitting the right-side
  * table (the bigger one) into two disjunctive streams: negatively filtered (right outer part)
  * and positively filtered (passed to delegate strategy).
+ * <p>
+ * A {@link BlockedBloomFilter} can be used instead of the standard Hadoop {@code BloomFilter}. It
+ * keeps the bits of each key within one cache line and hashes keys without copying them, which makes
+ * filtering a large right-side table considerably cheaper at the price of slightly more space.
  */
 public class BloomFilterJoinStrategy<K, U, V> implements JoinStrategy<K, U, V> {
 
+  private int numElements;
+  private float falsePositiveRate;
   private int vectorSize;
   private int nbHash;
   private JoinStrategy<K, U, V> delegateJoinStrategy;
+  private boolean blocked;
 
   /**
    * Instantiate with the expected number of unique keys in the left table.
@@ -104,9 +112,27 @@ public class BloomFilterJoinStrategy<K, U, V> implements JoinStrategy<K, U, V> {
    * @param delegateJoinStrategy join strategy to delegate to after filtering
    */
   public BloomFilterJoinStrategy(int numElements, float falsePositiveRate, JoinStrategy<K,U,V> delegateJoinStrategy) {
+    this(numElements, falsePositiveRate, delegateJoinStrategy, false);
+  }
+
+  /**
+   * Instantiate with the expected number of unique keys in the left table, the acceptable
+   * false positive rate for the Bloom filter, an underlying join strategy to delegate to, and
+   * whether to use a cache-efficient {@link BlockedBloomFilter}.
+   *
+   * @param numElements expected number of unique keys
+   * @param falsePositiveRate acceptable false positive rate for Bloom Filter
+   * @param delegateJoinStrategy join strategy to delegate to after filtering
+   * @param blocked use a {@code BlockedBloomFilter} instead of a standard Bloom filter
+   */
+  public BloomFilterJoinStrategy(int numElements, float falsePositiveRate, JoinStrategy<K,U,V> delegateJoinStrategy,
+      boolean blocked) {
+    this.numElements = numElements;
+    this.falsePositiveRate = falsePositiveRate;
     this.vectorSize = getOptimalVectorSize(numElements, falsePositiveRate);
     this.nbHash = getOptimalNumHash(numElements, vectorSize);
     this.delegateJoinStrategy = delegateJoinStrategy;
+    this.blocked = blocked;
   }
   
   /**
@@ -127,15 +153,27 @@ public class BloomFilterJoinStrategy<K, U, V> implements JoinStrategy<K, U, V> {
   @Override
   public PTable<K, Pair<U, V>> join(PTable<K, U> left, PTable<K, V> right, JoinType joinType) {
 
-    PType<BloomFilter> bloomFilterType = getBloomFilterType(left.getTypeFamily());
-    PCollection<BloomFilter> bloomFilters = left.keys().parallelDo(
-        "Create bloom filters",
-        new CreateBloomFilterFn<>(vectorSize, nbHash, left.getKeyType()),
-        bloomFilterType);
-
-    ReadableData<BloomFilter> bloomData = bloomFilters.asReadable(true);
-    FilterKeysWithBloomFilterFn<K, V> filterKeysFn = new FilterKeysWithBloomFilterFn<>(
-        bloomData, vectorSize, nbHash, left.getKeyType());
+    ReadableData<?> bloomData;
+    FilterFn<Pair<K, V>> filterKeysFn;
+    if (blocked) {
+      PType<BlockedBloomFilter> bloomFilterType = getBloomFilterType(BlockedBloomFilter.class, left.getTypeFamily());
+      PCollection<BlockedBloomFilter> bloomFilters = left.keys().parallelDo(
+          "Create blocked bloom filters",
+          new CreateBlockedBloomFilterFn<>(numElements, falsePositiveRate, left.getKeyType()),
+          bloomFilterType);
+      ReadableData<BlockedBloomFilter> blockedData = bloomFilters.asReadable(true);
+      bloomData = blockedData;
+      filterKeysFn = new FilterKeysWithBlockedBloomFilterFn<>(blockedData, left.getKeyType());
+    } else {
+      PType<BloomFilter> bloomFilterType = getBloomFilterType(BloomFilter.class, left.getTypeFamily());
+      PCollection<BloomFilter> bloomFilters = left.keys().parallelDo(
+          "Create bloom filters",
+          new CreateBloomFilterFn<>(vectorSize, nbHash, left.getKeyType()),
+          bloomFilterType);
+      ReadableData<BloomFilter> standardData = bloomFilters.asReadable(true);
+      bloomData = standardData;
+      filterKeysFn = new FilterKeysWithBloomFilterFn<>(standardData, vectorSize, nbHash, left.getKeyType());
+    }
 
     if (joinType != JoinType.INNER_JOIN && joinType != JoinType.LEFT_OUTER_JOIN) {
       right = right.parallelDo(
@@ -256,6 +294,91 @@ public class BloomFilterJoinStrategy<K, U, V> implements JoinStrategy<K, U, V> {
     }
   }
   
+  /**
+   * Creates blocked Bloom filter(s) for filtering of right-side keys.
+   */
+  private static class CreateBlockedBloomFilterFn<K> extends DoFn<K, BlockedBloomFilter> {
+
+    private int numElements;
+    private float falsePositiveRate;
+    private PType<K> ptype;
+    private transient BlockedBloomFilter bloomFilter;
+    private transient KeyHasher<K> keyHasher;
+
+    CreateBlockedBloomFilterFn(int numElements, float falsePositiveRate, PType<K> ptype) {
+      this.numElements = numElements;
+      this.falsePositiveRate = falsePositiveRate;
+      this.ptype = ptype;
+    }
+
+    @Override
+    public void initialize() {
+      super.initialize();
+      bloomFilter = BlockedBloomFilter.create(numElements, falsePositiveRate);
+      ptype.initialize(getConfiguration());
+      keyHasher = KeyHasher.create(ptype, getConfiguration());
+    }
+
+    @Override
+    public void process(K input, Emitter<BlockedBloomFilter> emitter) {
+      bloomFilter.addHash(keyHasher.hash(input));
+    }
+
+    @Override
+    public void cleanup(Emitter<BlockedBloomFilter> emitter) {
+      emitter.emit(bloomFilter);
+    }
+  }
+
+  /**
+   * Filters right-side keys with a blocked Bloom filter before passing them off to the delegate join strategy.
+   */
+  private static class FilterKeysWithBlockedBloomFilterFn<K, V> extends FilterFn<Pair<K, V>> {
+
+    private PType<K> keyType;
+    private ReadableData<BlockedBloomFilter> bloomData;
+    private transient BlockedBloomFilter bloomFilter;
+    private transient KeyHasher<K> keyHasher;
+
+    FilterKeysWithBlockedBloomFilterFn(ReadableData<BlockedBloomFilter> bloomData, PType<K> keyType) {
+      this.bloomData = bloomData;
+      this.keyType = keyType;
+    }
+
+    @Override
+    public void configure(Configuration conf) {
+      bloomData.configure(conf);
+    }
+
+    @Override
+    public void initialize() {
+      super.initialize();
+      keyType.initialize(getConfiguration());
+      keyHasher = KeyHasher.create(keyType, getConfiguration());
+
+      Iterable<BlockedBloomFilter> iterable;
+      try {
+        iterable = bloomData.read(getContext());
+      } catch (IOException e) {
+        throw new CrunchRuntimeException("Error reading right-side of map side join: ", e);
+      }
+
+      bloomFilter = null;
+      for (BlockedBloomFilter subFilter : iterable) {
+        if (bloomFilter == null) {
+          // The filters read back may be reused instances, so copy the first one
+          bloomFilter = new BlockedBloomFilter(subFilter.getNumBlocks(), subFilter.getNumHashes());
+        }
+        bloomFilter.or(subFilter);
+      }
+    }
+
+    @Override
+    public boolean accept(Pair<K, V> input) {
+      return bloomFilter != null && bloomFilter.mightContainHash(keyHasher.hash(input.first()));
+    }
+  }
+
   /**
    * Returns the appropriate MapFn for converting the key type into byte arrays.
    */
@@ -273,11 +396,11 @@ public class BloomFilterJoinStrategy<K, U, V> implements JoinStrategy<K, U, V> {
    * Returns the appropriate PType for serializing BloomFilters using the same
    * type family as is used for the input collections.
    */
-  private static PType<BloomFilter> getBloomFilterType(PTypeFamily typeFamily) {
+  private static <F extends Writable> PType<F> getBloomFilterType(Class<F> filterClass, PTypeFamily typeFamily) {
     if (typeFamily.equals(AvroTypeFamily.getInstance())) {
-      return Avros.writables(BloomFilter.class);
+      return Avros.writables(filterClass);
     } else if (typeFamily.equals(WritableTypeFamily.getInstance())) {
-      return Writables.writables(BloomFilter.class);
+      return Writables.writables(filterClass);
     } else {
       throw new IllegalStateException("Unrecognized PTypeFamily: " + typeFamily);
     }
@@ -0,0 +1,71 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.lib.join;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+
+/**
+ * Writes the serialized entries of a table to an {@link OffHeapJoinIndex} file, which is written out
+ * when the task is done. The value of each entry is empty for a null value, and otherwise is the
+ * serialized value behind a single marker byte.
+ */
+class JoinIndexOutputFormat extends FileOutputFormat<BytesWritable, BytesWritable> {
+
+  static byte[] toValueBytes(byte[] value) {
+    if (value == null) {
+      return new byte[0];
+    }
+    byte[] marked = new byte[value.length + 1];
+    marked[0] = 1;
+    System.arraycopy(value, 0, marked, 1, value.length);
+    return marked;
+  }
+
+  @Override
+  public RecordWriter<BytesWritable, BytesWritable> getRecordWriter(TaskAttemptContext context)
+      throws IOException {
+    final Path path = getDefaultWorkFile(context, "");
+    final FileSystem fs = path.getFileSystem(context.getConfiguration());
+    final OffHeapJoinIndex.Writer writer = new OffHeapJoinIndex.Writer();
+    return new RecordWriter<BytesWritable, BytesWritable>() {
+      @Override
+      public void write(BytesWritable key, BytesWritable value) throws IOException {
+        writer.add(key.copyBytes(),
+            value.getLength() == 0 ? null : Arrays.copyOfRange(value.getBytes(), 1, value.getLength()));
+      }
+
+      @Override
+      public void close(TaskAttemptContext context) throws IOException {
+        try (OutputStream out = fs.create(path, false)) {
+          writer.writeTo(out);
+        } finally {
+          writer.close();
+        }
+      }
+    };
+  }
+}
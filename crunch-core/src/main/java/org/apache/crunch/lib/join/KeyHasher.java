@@ -0,0 +1,126 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.lib.join;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.crunch.CrunchRuntimeException;
+import org.apache.crunch.types.PType;
+import org.apache.crunch.types.avro.AvroMode;
+import org.apache.crunch.types.avro.AvroType;
+import org.apache.crunch.types.writable.WritableType;
+import org.apache.crunch.util.BlockedBloomFilter;
+import org.apache.crunch.util.HashUtil;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.Writable;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Computes 64-bit hashes of the values of a {@link PType} without copying their serialized form.
+ * Strings and integral numbers are hashed directly; other values are serialized into a reused buffer
+ * that is hashed in place. Instances are not thread-safe.
+ */
+abstract class KeyHasher<T> {
+
+  private static final ImmutableSet<Class<?>> DIRECT_TYPES = ImmutableSet.<Class<?>>of(
+      String.class, Long.class, Integer.class, Short.class, Byte.class);
+
+  abstract long hash(T value);
+
+  /**
+   * Creates a hasher for the given (initialized) {@code PType}.
+   */
+  static <T> KeyHasher<T> create(PType<T> ptype, Configuration conf) {
+    if (DIRECT_TYPES.contains(ptype.getTypeClass())) {
+      return new DirectHasher<T>();
+    }
+    if (ptype instanceof AvroType) {
+      return new AvroHasher<T>((AvroType<T>) ptype, conf);
+    }
+    if (ptype instanceof WritableType) {
+      return new WritableHasher<T>((WritableType<T, ?>) ptype);
+    }
+    throw new IllegalStateException("Unrecognized PType: " + ptype);
+  }
+
+  private static class DirectHasher<T> extends KeyHasher<T> {
+    @Override
+    long hash(T value) {
+      return BlockedBloomFilter.hash(value);
+    }
+  }
+
+  private static class WritableHasher<T> extends KeyHasher<T> {
+
+    private final WritableType<T, ?> ptype;
+    private final DataOutputBuffer output = new DataOutputBuffer();
+
+    WritableHasher(WritableType<T, ?> ptype) {
+      this.ptype = ptype;
+    }
+
+    @Override
+    long hash(T value) {
+      output.reset();
+      try {
+        ((Writable) ptype.getOutputMapFn().map(value)).write(output);
+      } catch (IOException e) {
+        throw new CrunchRuntimeException(e);
+      }
+      return HashUtil.hashBytes64(output.getData(), 0, output.getLength());
+    }
+  }
+
+  private static class AvroHasher<T> extends KeyHasher<T> {
+
+    private final AvroType<T> ptype;
+    private final DatumWriter<Object> writer;
+    private final ExposedByteArrayOutputStream output = new ExposedByteArrayOutputStream();
+    private BinaryEncoder encoder;
+
+    AvroHasher(AvroType<T> ptype, Configuration conf) {
+      this.ptype = ptype;
+      this.writer = AvroMode.fromType(ptype).withFactoryFromConfiguration(conf).getWriter(ptype.getSchema());
+    }
+
+    @Override
+    long hash(T value) {
+      output.reset();
+      encoder = EncoderFactory.get().binaryEncoder(output, encoder);
+      try {
+        writer.write(ptype.getOutputMapFn().map(value), encoder);
+        encoder.flush();
+      } catch (IOException e) {
+        throw new CrunchRuntimeException(e);
+      }
+      return output.hash();
+    }
+  }
+
+  private static class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+    long hash() {
+      return HashUtil.hashBytes64(buf, 0, count);
+    }
+  }
+}
@@ -18,6 +18,7 @@
 package org.apache.crunch.lib.join;
 
 import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Multimap;
 import org.apache.crunch.CrunchRuntimeException;
 import org.apache.crunch.DoFn;
@@ -27,11 +28,22 @@ import org.apache.crunch.PTable;
 import org.apache.crunch.Pair;
 import org.apache.crunch.ParallelDoOptions;
 import org.apache.crunch.ReadableData;
+import org.apache.crunch.Target;
+import org.apache.crunch.impl.dist.DistributedPipeline;
+import org.apache.crunch.io.SequentialFileNamingScheme;
+import org.apache.crunch.io.impl.FileTargetImpl;
 import org.apache.crunch.types.PTableType;
 import org.apache.crunch.types.PTypeFamily;
+import org.apache.crunch.types.writable.Writables;
+import org.apache.crunch.util.DistCache;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 
+import java.io.File;
+import java.io.FileFilter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 
 /**
@@ -51,6 +63,7 @@ import java.util.Collection;
 public class MapsideJoinStrategy<K, U, V> implements JoinStrategy<K, U, V> {
 
   private boolean materialize;
+  private boolean offHeap;
 
   /**
    * Constructs a new instance of the {@code MapsideJoinStratey}, materializing the right-side
@@ -76,7 +89,12 @@ public class MapsideJoinStrategy<K, U, V> implements JoinStrategy<K, U, V> {
    */
   @Deprecated
   public MapsideJoinStrategy(boolean materialize) {
+    this(materialize, false);
+  }
+
+  private MapsideJoinStrategy(boolean materialize, boolean offHeap) {
     this.materialize = materialize;
+    this.offHeap = offHeap;
   }
 
   /**
@@ -100,7 +118,25 @@ public class MapsideJoinStrategy<K, U, V> implements JoinStrategy<K, U, V> {
    * @param materialize Whether or not to materialize the left-side table before the join
    */
   public static <K, U, V> MapsideJoinStrategy<K, U, V> create(boolean materialize) {
-    return new LoadLeftSideMapsideJoinStrategy(materialize);
+    return create(materialize, false);
+  }
+
+  /**
+   * Create a new {@code MapsideJoinStrategy} instance that will load its left-side table into memory.
+   * <p/>
+   * If the {@code offHeap} parameter is true, then the left-side table is serialized into a hash index in a file
+   * that is memory-mapped by each task instead of being loaded onto the Java heap, and values from the index are
+   * only deserialized when their key is matched. This allows much larger tables to be joined with a small task
+   * heap, at the cost of serializing each key that is looked up. Keys are matched on their serialized form. On
+   * distributed pipelines the index is built once by a single-reducer job before the join, and is shipped to the
+   * tasks of the join through the distributed cache; the left-side table is read by that job whatever the value
+   * of {@code materialize}.
+   *
+   * @param materialize Whether or not to materialize the left-side table before the join
+   * @param offHeap Whether or not to store the left-side table in memory-mapped files instead of on the heap
+   */
+  public static <K, U, V> MapsideJoinStrategy<K, U, V> create(boolean materialize, boolean offHeap) {
+    return new LoadLeftSideMapsideJoinStrategy(materialize, offHeap);
   }
 
   @Override
@@ -119,33 +155,105 @@ public class MapsideJoinStrategy<K, U, V> implements JoinStrategy<K, U, V> {
 
   private PTable<K, Pair<U,V>> joinInternal(PTable<K, U> left, PTable<K, V> right, boolean includeUnmatchedLeftValues) {
     PTypeFamily tf = left.getTypeFamily();
-    ReadableData<Pair<K, V>> rightReadable = right.asReadable(materialize);
-    MapsideJoinDoFn<K, U, V> mapJoinDoFn = new MapsideJoinDoFn<K, U, V>(
-              rightReadable, right.getPTableType(), includeUnmatchedLeftValues);
-    ParallelDoOptions options = ParallelDoOptions.builder()
-        .sourceTargets(rightReadable.getSourceTargets())
-        .build();
+    MapsideJoinDoFn<K, U, V> mapJoinDoFn;
+    ParallelDoOptions options;
+    if (offHeap && right.getPipeline() instanceof DistributedPipeline) {
+      Path indexPath = ((DistributedPipeline) right.getPipeline()).createTempPath();
+      Target indexTarget = new FileTargetImpl(indexPath, JoinIndexOutputFormat.class,
+          SequentialFileNamingScheme.getInstance());
+      // A single partition writes all of the entries to one index file
+      right.parallelDo("mapjoin-index", new SerializeEntryFn<K, V>(right.getPTableType()),
+              Writables.tableOf(Writables.bytes(), Writables.bytes()))
+          .groupByKey(1)
+          .ungroup()
+          .write(indexTarget);
+      mapJoinDoFn = new MapsideJoinDoFn<K, U, V>(indexPath, right.getPTableType(), includeUnmatchedLeftValues);
+      options = ParallelDoOptions.builder().targets(indexTarget).build();
+    } else {
+      ReadableData<Pair<K, V>> rightReadable = right.asReadable(materialize);
+      mapJoinDoFn = new MapsideJoinDoFn<K, U, V>(
+          rightReadable, right.getPTableType(), includeUnmatchedLeftValues, offHeap);
+      options = ParallelDoOptions.builder()
+          .sourceTargets(rightReadable.getSourceTargets())
+          .build();
+    }
     return left.parallelDo("mapjoin", mapJoinDoFn,
         tf.tableOf(left.getKeyType(), tf.pairs(left.getValueType(), right.getValueType())),
         options);
   }
 
+  /**
+   * Serializes the entries of a table for the {@link JoinIndexOutputFormat}, skipping the entries with a null key.
+   */
+  private static class SerializeEntryFn<K, V> extends DoFn<Pair<K, V>, Pair<ByteBuffer, ByteBuffer>> {
+
+    private final PTableType<K, V> tableType;
+    private transient BinaryCodec<K> keyCodec;
+    private transient BinaryCodec<V> valueCodec;
+
+    SerializeEntryFn(PTableType<K, V> tableType) {
+      this.tableType = tableType;
+    }
+
+    @Override
+    public void initialize() {
+      tableType.initialize(getConfiguration());
+      keyCodec = BinaryCodec.create(tableType.getKeyType(), getConfiguration());
+      valueCodec = BinaryCodec.create(tableType.getValueType(), getConfiguration());
+    }
+
+    @Override
+    public void process(Pair<K, V> input, Emitter<Pair<ByteBuffer, ByteBuffer>> emitter) {
+      if (input.first() != null) {
+        byte[] value = input.second() == null ? null : valueCodec.toBytes(input.second());
+        emitter.emit(Pair.of(ByteBuffer.wrap(keyCodec.toBytes(input.first())),
+            ByteBuffer.wrap(JoinIndexOutputFormat.toValueBytes(value))));
+      }
+    }
+  }
+
   static class MapsideJoinDoFn<K, U, V> extends DoFn<Pair<K, U>, Pair<K, Pair<U, V>>> {
 
     private final ReadableData<Pair<K, V>> readable;
+    private final String indexPath;
     private final PTableType<K, V> tableType;
     private final boolean includeUnmatched;
+    private final boolean offHeap;
     private Multimap<K, V> joinMap;
+    private transient OffHeapJoinIndex<K, V> joinIndex;
 
     public MapsideJoinDoFn(ReadableData<Pair<K, V>> rs, PTableType<K, V> tableType, boolean includeUnmatched) {
+      this(rs, tableType, includeUnmatched, false);
+    }
+
+    public MapsideJoinDoFn(ReadableData<Pair<K, V>> rs, PTableType<K, V> tableType, boolean includeUnmatched,
+        boolean offHeap) {
       this.readable = rs;
+      this.indexPath = null;
       this.tableType = tableType;
       this.includeUnmatched = includeUnmatched;
+      this.offHeap = offHeap;
+    }
+
+    /**
+     * Creates a join function that maps the index that was written to the given path by a
+     * {@link JoinIndexOutputFormat}, which is shipped to the tasks through the distributed cache.
+     */
+    MapsideJoinDoFn(Path indexPath, PTableType<K, V> tableType, boolean includeUnmatched) {
+      this.readable = null;
+      this.indexPath = indexPath.toString();
+      this.tableType = tableType;
+      this.includeUnmatched = includeUnmatched;
+      this.offHeap = true;
     }
 
     @Override
     public void configure(Configuration conf) {
-      readable.configure(conf);
+      if (indexPath != null) {
+        DistCache.addCacheFile(new Path(indexPath), conf);
+      } else {
+        readable.configure(conf);
+      }
     }
     
     @Override
@@ -153,6 +261,22 @@ public class MapsideJoinStrategy<K, U, V> implements JoinStrategy<K, U, V> {
       super.initialize();
       tableType.initialize(getConfiguration());
 
+      if (indexPath != null) {
+        try {
+          joinIndex = openIndex();
+        } catch (IOException e) {
+          throw new CrunchRuntimeException("Error opening map-side join index", e);
+        }
+        return;
+      }
+      if (offHeap) {
+        try {
+          joinIndex = OffHeapJoinIndex.build(readable.read(getContext()), tableType, getConfiguration());
+        } catch (IOException e) {
+          throw new CrunchRuntimeException("Error building map-side join index", e);
+        }
+        return;
+      }
       joinMap = ArrayListMultimap.create();
       try {
         for (Pair<K, V> joinPair : readable.read(getContext())) {
@@ -164,11 +288,31 @@ public class MapsideJoinStrategy<K, U, V> implements JoinStrategy<K, U, V> {
       }
     }
 
+    private OffHeapJoinIndex<K, V> openIndex() throws IOException {
+      Configuration conf = getConfiguration();
+      Path local = DistCache.getPathToCacheFile(new Path(indexPath), conf);
+      if (local == null) {
+        throw new CrunchRuntimeException("Can't find local cache file for '" + indexPath + "'");
+      }
+      File[] files = FileSystem.getLocal(conf).pathToFile(local).listFiles(new FileFilter() {
+        @Override
+        public boolean accept(File file) {
+          return file.isFile() && !file.getName().startsWith("_") && !file.getName().startsWith(".");
+        }
+      });
+      if (files == null || files.length > 1) {
+        throw new CrunchRuntimeException("Expected a single map-side join index file in " + local);
+      }
+      // The reducer of an empty table may not write an index at all
+      return files.length == 0 ? OffHeapJoinIndex.build(ImmutableList.<Pair<K, V>>of(), tableType, conf)
+          : OffHeapJoinIndex.open(files[0], tableType, conf);
+    }
+
     @Override
     public void process(Pair<K, U> input, Emitter<Pair<K, Pair<U, V>>> emitter) {
       K key = input.first();
       U value = input.second();
-      Collection<V> joinValues = joinMap.get(key);
+      Collection<V> joinValues = offHeap ? joinIndex.get(key) : joinMap.get(key);
       if (includeUnmatched && joinValues.isEmpty()) {
         emitter.emit(Pair.of(key, Pair.<U,V>of(value, null)));
       } else {
@@ -178,6 +322,14 @@ public class MapsideJoinStrategy<K, U, V> implements JoinStrategy<K, U, V> {
         }
       }
     }
+
+    @Override
+    public void cleanup(Emitter<Pair<K, Pair<U, V>>> emitter) {
+      if (joinIndex != null) {
+        joinIndex.close();
+        joinIndex = null;
+      }
+    }
   }
 
   /**
@@ -187,8 +339,8 @@ public class MapsideJoinStrategy<K, U, V> implements JoinStrategy<K, U, V> {
 
     private MapsideJoinStrategy<K, V, U> mapsideJoinStrategy;
 
-    public LoadLeftSideMapsideJoinStrategy(boolean materialize) {
-      mapsideJoinStrategy = new MapsideJoinStrategy<K, V, U>(materialize);
+    public LoadLeftSideMapsideJoinStrategy(boolean materialize, boolean offHeap) {
+      mapsideJoinStrategy = new MapsideJoinStrategy<K, V, U>(materialize, offHeap);
     }
 
     @Override
@@ -0,0 +1,362 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.lib.join;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.crunch.Pair;
+import org.apache.crunch.types.PTableType;
+import org.apache.hadoop.conf.Configuration;
+
+import com.google.common.collect.Lists;
+import com.google.common.hash.HashFunction;
+import com.google.common.io.Files;
+import com.google.common.hash.Hashing;
+
+/**
+ * A read-only multimap from keys to values that is stored in a memory-mapped local file instead of
+ * on the Java heap, for use by the {@link MapsideJoinStrategy}.
+ * <p>
+ * The file starts with the number of hash table slots and the number of entries, followed by an
+ * open-addressing hash table of the offsets of the entries (with linear probing and a load factor of
+ * at most 1/2) and the serialized entries themselves. Keys are matched on their serialized form, and
+ * values are only deserialized when their key matches a lookup. Index files are written by a
+ * {@link Writer}, either to a local file by {@link #build} or to the output of a job by the
+ * {@link JoinIndexOutputFormat}, and read by {@link #open}.
+ */
+class OffHeapJoinIndex<K, V> implements Closeable {
+
+  private static final int HEADER_SIZE = 16;
+  // Each slot holds the hash of the key and the offset of the entry plus one, or zero if it is empty
+  private static final int SLOT_SIZE = 12;
+  private static final long SLOT_CHUNK_SIZE = SLOT_SIZE * (1L << 26);
+  private static final long DATA_CHUNK_SIZE = 1L << 30;
+
+  private static final HashFunction HASH = Hashing.murmur3_32();
+
+  private final BinaryCodec<K> keyCodec;
+  private final BinaryCodec<V> valueCodec;
+  private final File file;
+  private final boolean deleteOnClose;
+  private final MappedFile slots;
+  private final MappedFile data;
+  private final long mask;
+  private final long size;
+  private byte[] buffer = new byte[64];
+
+  private OffHeapJoinIndex(BinaryCodec<K> keyCodec, BinaryCodec<V> valueCodec, File file, boolean deleteOnClose)
+      throws IOException {
+    this.keyCodec = keyCodec;
+    this.valueCodec = valueCodec;
+    this.file = file;
+    this.deleteOnClose = deleteOnClose;
+    long numSlots;
+    try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+      numSlots = in.readLong();
+      this.size = in.readLong();
+    }
+    long dataStart = HEADER_SIZE + numSlots * SLOT_SIZE;
+    this.slots = new MappedFile(file, FileChannel.MapMode.READ_ONLY, HEADER_SIZE, numSlots * SLOT_SIZE,
+        SLOT_CHUNK_SIZE);
+    this.data = new MappedFile(file, FileChannel.MapMode.READ_ONLY, dataStart, file.length() - dataStart,
+        DATA_CHUNK_SIZE);
+    this.mask = numSlots - 1;
+  }
+
+  /**
+   * Writes the given entries to an index in a temporary local file. Entries with a null key are
+   * skipped, since they can never be matched.
+   *
+   * @param entries the entries of the index
+   * @param tableType the (initialized) type of the entries
+   * @param conf the configuration used to create the serializers of the keys and values
+   * @return the index, which should be closed to delete its file
+   */
+  static <K, V> OffHeapJoinIndex<K, V> build(Iterable<Pair<K, V>> entries, PTableType<K, V> tableType,
+      Configuration conf) throws IOException {
+    BinaryCodec<K> keyCodec = BinaryCodec.create(tableType.getKeyType(), conf);
+    BinaryCodec<V> valueCodec = BinaryCodec.create(tableType.getValueType(), conf);
+    File file = File.createTempFile("crunch-mapjoin", ".index");
+    try (Writer writer = new Writer()) {
+      for (Pair<K, V> entry : entries) {
+        if (entry.first() != null) {
+          writer.add(keyCodec.toBytes(entry.first()),
+              entry.second() == null ? null : valueCodec.toBytes(entry.second()));
+        }
+      }
+      try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+        writer.writeTo(out);
+      }
+      return new OffHeapJoinIndex<K, V>(keyCodec, valueCodec, file, true);
+    } catch (IOException e) {
+      file.delete();
+      throw e;
+    }
+  }
+
+  /**
+   * Maps an index file that was written by a {@link Writer}, which is left in place when the index is closed.
+   *
+   * @param file the index file
+   * @param tableType the (initialized) type of the entries
+   * @param conf the configuration used to create the serializers of the keys and values
+   */
+  static <K, V> OffHeapJoinIndex<K, V> open(File file, PTableType<K, V> tableType, Configuration conf)
+      throws IOException {
+    return new OffHeapJoinIndex<K, V>(BinaryCodec.create(tableType.getKeyType(), conf),
+        BinaryCodec.create(tableType.getValueType(), conf), file, false);
+  }
+
+  /**
+   * Writes the serialized entries of an index. The entries are streamed to temporary local files, and
+   * the hash table is built from them when the index is written out.
+   */
+  static class Writer implements Closeable {
+
+    private final File dataFile;
+    private final File hashesFile;
+    private final DataOutputStream dataOut;
+    private final DataOutputStream hashesOut;
+    private long count;
+    private long offset;
+
+    Writer() throws IOException {
+      this.dataFile = File.createTempFile("crunch-mapjoin", ".data");
+      this.hashesFile = File.createTempFile("crunch-mapjoin", ".hashes");
+      this.dataOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(dataFile)));
+      this.hashesOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(hashesFile)));
+    }
+
+    /**
+     * Adds an entry with the given serialized key and value, where a null value stands for a null.
+     */
+    void add(byte[] key, byte[] value) throws IOException {
+      hashesOut.writeInt(hash(key, key.length));
+      hashesOut.writeLong(offset);
+      dataOut.writeInt(key.length);
+      dataOut.write(key);
+      offset += 4 + key.length;
+      if (value == null) {
+        dataOut.writeInt(-1);
+        offset += 4;
+      } else {
+        dataOut.writeInt(value.length);
+        dataOut.write(value);
+        offset += 4 + value.length;
+      }
+      count++;
+    }
+
+    /**
+     * Writes the index of the entries that were added to the given stream.
+     */
+    void writeTo(OutputStream out) throws IOException {
+      dataOut.close();
+      hashesOut.close();
+      long numSlots = Long.highestOneBit(2 * Math.max(1L, count) - 1) << 1;
+      File slotsFile = File.createTempFile("crunch-mapjoin", ".slots");
+      try {
+        try (RandomAccessFile raf = new RandomAccessFile(slotsFile, "rw")) {
+          raf.setLength(numSlots * SLOT_SIZE);
+        }
+        MappedFile slots = new MappedFile(slotsFile, FileChannel.MapMode.READ_WRITE, 0, numSlots * SLOT_SIZE,
+            SLOT_CHUNK_SIZE);
+        try (DataInputStream hashesIn = new DataInputStream(
+            new BufferedInputStream(new FileInputStream(hashesFile)))) {
+          for (long i = 0; i < count; i++) {
+            int hash = hashesIn.readInt();
+            long entryOffset = hashesIn.readLong();
+            long slot = hash & (numSlots - 1);
+            while (slots.getLong(slot * SLOT_SIZE + 4) != 0) {
+              slot = (slot + 1) & (numSlots - 1);
+            }
+            slots.putInt(slot * SLOT_SIZE, hash);
+            slots.putLong(slot * SLOT_SIZE + 4, entryOffset + 1);
+          }
+        }
+        slots.force();
+        DataOutputStream header = new DataOutputStream(out);
+        header.writeLong(numSlots);
+        header.writeLong(count);
+        header.flush();
+        Files.copy(slotsFile, out);
+        Files.copy(dataFile, out);
+      } finally {
+        slotsFile.delete();
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        dataOut.close();
+        hashesOut.close();
+      } finally {
+        dataFile.delete();
+        hashesFile.delete();
+      }
+    }
+  }
+
+  private static int hash(byte[] key, int length) {
+    return HASH.hashBytes(key, 0, length).asInt();
+  }
+
+  /** @return the number of entries in this index */
+  long size() {
+    return size;
+  }
+
+  /**
+   * Returns the values of the given key, in no particular order.
+   */
+  List<V> get(K key) {
+    if (key == null) {
+      return Collections.emptyList();
+    }
+    byte[] keyBytes = keyCodec.toBytes(key);
+    int hash = hash(keyBytes, keyBytes.length);
+    List<V> values = null;
+    for (long slot = hash & mask; ; slot = (slot + 1) & mask) {
+      long offset = slots.getLong(slot * SLOT_SIZE + 4) - 1;
+      if (offset < 0) {
+        break;
+      }
+      if (slots.getInt(slot * SLOT_SIZE) == hash && keyEquals(offset, keyBytes)) {
+        if (values == null) {
+          values = Lists.newArrayList();
+        }
+        values.add(readValue(offset + 4 + keyBytes.length));
+      }
+    }
+    return values == null ? Collections.<V>emptyList() : values;
+  }
+
+  private boolean keyEquals(long offset, byte[] key) {
+    if (readInt(offset) != key.length) {
+      return false;
+    }
+    byte[] stored = read(offset + 4, key.length);
+    for (int i = 0; i < key.length; i++) {
+      if (stored[i] != key[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private V readValue(long offset) {
+    int length = readInt(offset);
+    if (length < 0) {
+      return null;
+    }
+    return valueCodec.fromBytes(read(offset + 4, length), 0, length);
+  }
+
+  private int readInt(long offset) {
+    byte[] b = read(offset, 4);
+    return ((b[0] & 0xff) << 24) | ((b[1] & 0xff) << 16) | ((b[2] & 0xff) << 8) | (b[3] & 0xff);
+  }
+
+  // Reads into a shared buffer, which is only valid until the next read
+  private byte[] read(long offset, int length) {
+    if (buffer.length < length) {
+      buffer = new byte[Math.max(length, 2 * buffer.length)];
+    }
+    data.read(offset, buffer, length);
+    return buffer;
+  }
+
+  @Override
+  public void close() {
+    if (deleteOnClose) {
+      file.delete();
+    }
+  }
+
+  /**
+   * A region of a file that is mapped into memory in chunks, since a single mapping is limited to 2GB.
+   */
+  private static class MappedFile {
+
+    private final long chunkSize;
+    private final MappedByteBuffer[] chunks;
+
+    MappedFile(File file, FileChannel.MapMode mode, long offset, long length, long chunkSize) throws IOException {
+      this.chunkSize = chunkSize;
+      try (RandomAccessFile raf = new RandomAccessFile(file, mode == FileChannel.MapMode.READ_ONLY ? "r" : "rw")) {
+        FileChannel channel = raf.getChannel();
+        this.chunks = new MappedByteBuffer[(int) Math.max(1, (length + chunkSize - 1) / chunkSize)];
+        for (int i = 0; i < chunks.length; i++) {
+          long start = i * chunkSize;
+          chunks[i] = channel.map(mode, offset + start, Math.max(0, Math.min(chunkSize, length - start)));
+        }
+      }
+    }
+
+    // Fixed-width accessors must not cross a chunk boundary
+    int getInt(long pos) {
+      return chunks[(int) (pos / chunkSize)].getInt((int) (pos % chunkSize));
+    }
+
+    long getLong(long pos) {
+      return chunks[(int) (pos / chunkSize)].getLong((int) (pos % chunkSize));
+    }
+
+    void putInt(long pos, int value) {
+      chunks[(int) (pos / chunkSize)].putInt((int) (pos % chunkSize), value);
+    }
+
+    void putLong(long pos, long value) {
+      chunks[(int) (pos / chunkSize)].putLong((int) (pos % chunkSize), value);
+    }
+
+    void read(long pos, byte[] dst, int length) {
+      int copied = 0;
+      while (copied < length) {
+        ByteBuffer chunk = chunks[(int) (pos / chunkSize)].duplicate();
+        chunk.position((int) (pos % chunkSize));
+        int n = Math.min(length - copied, chunk.remaining());
+        chunk.get(dst, copied, n);
+        copied += n;
+        pos += n;
+      }
+    }
+
+    void force() {
+      for (MappedByteBuffer chunk : chunks) {
+        chunk.force();
+      }
+    }
+  }
+}
@@ -0,0 +1,275 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.lib.join;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.crunch.CrunchRuntimeException;
+import org.apache.crunch.DoFn;
+import org.apache.crunch.Emitter;
+import org.apache.crunch.MapFn;
+import org.apache.crunch.PTable;
+import org.apache.crunch.Pair;
+import org.apache.crunch.ParallelDoOptions;
+import org.apache.crunch.ReadableData;
+import org.apache.crunch.lib.Aggregate;
+import org.apache.crunch.lib.Sample;
+import org.apache.crunch.types.PTableType;
+import org.apache.crunch.types.PType;
+import org.apache.crunch.types.PTypeFamily;
+import org.apache.hadoop.conf.Configuration;
+
+import com.google.common.collect.Maps;
+
+/**
+ * JoinStrategy that detects the keys that are mapped to a large number of values and spreads the
+ * processing of only those keys over multiple reduce groups.
+ * <p>
+ * The keys of the right-side table (which should be the larger one) are sampled to estimate how
+ * many values each key has. Every key whose estimated number of values is at least the hot key
+ * threshold is split into one shard per threshold's worth of values: the right-side values of a
+ * hot key are spread randomly over its shards and the left-side values are replicated to all of
+ * them. All other keys are joined as they would be by the {@link DefaultJoinStrategy}.
+ * <p>
+ * Unlike the {@link ShardedJoinStrategy}, the skewed keys do not need to be known in advance, at the
+ * cost of a job that samples the right-side table before the join.
+ * <p>
+ * Left outer joins are supported by sampling and salting the left-side table instead. Full outer
+ * joins are not supported.
+ */
+public class SkewAwareJoinStrategy<K, U, V> implements JoinStrategy<K, U, V> {
+
+  private final double sampleProbability;
+  private final long hotKeyThreshold;
+  private final int maxShards;
+  private final int numReducers;
+
+  /**
+   * Instantiate with a sample of 1% of the right-side table, treating keys with an estimated
+   * one million or more values as hot keys that are split over at most 100 shards.
+   */
+  public SkewAwareJoinStrategy() {
+    this(0.01, 1000000L, 100);
+  }
+
+  /**
+   * Instantiate with the given sampling and sharding parameters.
+   *
+   * @param sampleProbability fraction of the right-side table to sample when estimating key frequencies
+   * @param hotKeyThreshold estimated number of values at or above which a key is sharded, and the
+   *                        number of values that each shard should receive
+   * @param maxShards maximum number of shards to split any one key into
+   */
+  public SkewAwareJoinStrategy(double sampleProbability, long hotKeyThreshold, int maxShards) {
+    this(sampleProbability, hotKeyThreshold, maxShards, -1);
+  }
+
+  /**
+   * Instantiate with the given sampling and sharding parameters and a specified number of reducers.
+   *
+   * @param sampleProbability fraction of the right-side table to sample when estimating key frequencies
+   * @param hotKeyThreshold estimated number of values at or above which a key is sharded, and the
+   *                        number of values that each shard should receive
+   * @param maxShards maximum number of shards to split any one key into
+   * @param numReducers the amount of reducers to run the join with
+   */
+  public SkewAwareJoinStrategy(double sampleProbability, long hotKeyThreshold, int maxShards, int numReducers) {
+    if (sampleProbability <= 0.0 || sampleProbability > 1.0) {
+      throw new IllegalArgumentException("Sample probability must be in (0, 1], got " + sampleProbability);
+    }
+    if (hotKeyThreshold < 1) {
+      throw new IllegalArgumentException("Hot key threshold must be > 0, got " + hotKeyThreshold);
+    }
+    if (maxShards < 1) {
+      throw new IllegalArgumentException("Max shards must be > 0, got " + maxShards);
+    }
+    this.sampleProbability = sampleProbability;
+    this.hotKeyThreshold = hotKeyThreshold;
+    this.maxShards = maxShards;
+    this.numReducers = numReducers;
+  }
+
+  @Override
+  public PTable<K, Pair<U, V>> join(PTable<K, U> left, PTable<K, V> right, JoinType joinType) {
+    switch (joinType) {
+    case INNER_JOIN:
+    case RIGHT_OUTER_JOIN:
+      return saltedJoin(left, right, joinType);
+    case LEFT_OUTER_JOIN:
+      SkewAwareJoinStrategy<K, V, U> reversed = new SkewAwareJoinStrategy<K, V, U>(
+          sampleProbability, hotKeyThreshold, maxShards, numReducers);
+      PTypeFamily ptf = left.getTypeFamily();
+      return reversed.saltedJoin(right, left, JoinType.RIGHT_OUTER_JOIN)
+          .mapValues("Reverse join values", new ReversePairFn<V, U>(),
+              ptf.pairs(left.getValueType(), right.getValueType()));
+    default:
+      throw new UnsupportedOperationException("Join type " + joinType + " not supported by SkewAwareJoinStrategy");
+    }
+  }
+
+  private PTable<K, Pair<U, V>> saltedJoin(PTable<K, U> left, PTable<K, V> right, JoinType joinType) {
+    PTypeFamily ptf = left.getTypeFamily();
+    PType<K> keyType = right.getKeyType();
+
+    PTable<K, Integer> hotKeys = Aggregate.count(Sample.sample(right, sampleProbability).keys())
+        .parallelDo("Find hot keys", new HotKeyFn<K>(sampleProbability, hotKeyThreshold, maxShards),
+            ptf.tableOf(keyType, ptf.ints()));
+    ReadableData<Pair<K, Integer>> hotKeyData = hotKeys.asReadable(true);
+    ParallelDoOptions options = ParallelDoOptions.builder()
+        .sourceTargets(hotKeyData.getSourceTargets())
+        .build();
+
+    PTableType<Pair<K, Integer>, U> saltedLeftType = ptf.tableOf(ptf.pairs(keyType, ptf.ints()), left.getValueType());
+    PTableType<Pair<K, Integer>, V> saltedRightType = ptf.tableOf(ptf.pairs(keyType, ptf.ints()), right.getValueType());
+    PTableType<K, Pair<U, V>> outputType = ptf.tableOf(keyType, ptf.pairs(left.getValueType(), right.getValueType()));
+
+    PTable<Pair<K, Integer>, U> saltedLeft = left.parallelDo("Replicate hot keys",
+        new ReplicateHotKeysFn<K, U>(hotKeyData, keyType), saltedLeftType, options);
+    PTable<Pair<K, Integer>, V> saltedRight = right.parallelDo("Salt hot keys",
+        new SaltHotKeysFn<K, V>(hotKeyData, keyType), saltedRightType, options);
+
+    return new DefaultJoinStrategy<Pair<K, Integer>, U, V>(numReducers)
+        .join(saltedLeft, saltedRight, joinType)
+        .parallelDo("Unsalt", new UnsaltFn<K, U, V>(), outputType);
+  }
+
+  /**
+   * Converts the sampled count of each key into the number of shards for the keys that are hot.
+   */
+  private static class HotKeyFn<K> extends DoFn<Pair<K, Long>, Pair<K, Integer>> {
+
+    private final double sampleProbability;
+    private final long hotKeyThreshold;
+    private final int maxShards;
+
+    HotKeyFn(double sampleProbability, long hotKeyThreshold, int maxShards) {
+      this.sampleProbability = sampleProbability;
+      this.hotKeyThreshold = hotKeyThreshold;
+      this.maxShards = maxShards;
+    }
+
+    @Override
+    public void process(Pair<K, Long> input, Emitter<Pair<K, Integer>> emitter) {
+      double estimatedCount = input.second() / sampleProbability;
+      if (estimatedCount >= hotKeyThreshold) {
+        int numShards = (int) Math.min(maxShards, Math.ceil(estimatedCount / hotKeyThreshold));
+        if (numShards > 1) {
+          emitter.emit(Pair.of(input.first(), numShards));
+        }
+      }
+    }
+
+    @Override
+    public float scaleFactor() {
+      return 0.0001f;
+    }
+  }
+
+  /**
+   * Base class for functions that look up the number of shards of each key in the hot key data.
+   */
+  private abstract static class HotKeyLookupFn<K, T> extends DoFn<Pair<K, T>, Pair<Pair<K, Integer>, T>> {
+
+    private final ReadableData<Pair<K, Integer>> hotKeyData;
+    private final PType<K> keyType;
+    private transient Map<K, Integer> numShards;
+
+    HotKeyLookupFn(ReadableData<Pair<K, Integer>> hotKeyData, PType<K> keyType) {
+      this.hotKeyData = hotKeyData;
+      this.keyType = keyType;
+    }
+
+    @Override
+    public void configure(Configuration conf) {
+      hotKeyData.configure(conf);
+    }
+
+    @Override
+    public void initialize() {
+      super.initialize();
+      keyType.initialize(getConfiguration());
+      numShards = Maps.newHashMap();
+      try {
+        for (Pair<K, Integer> hotKey : hotKeyData.read(getContext())) {
+          numShards.put(keyType.getDetachedValue(hotKey.first()), hotKey.second());
+        }
+      } catch (IOException e) {
+        throw new CrunchRuntimeException("Error reading hot keys for skew-aware join", e);
+      }
+    }
+
+    protected int getNumShards(K key) {
+      Integer shards = numShards.get(key);
+      return shards == null ? 1 : shards;
+    }
+  }
+
+  private static class ReplicateHotKeysFn<K, U> extends HotKeyLookupFn<K, U> {
+
+    ReplicateHotKeysFn(ReadableData<Pair<K, Integer>> hotKeyData, PType<K> keyType) {
+      super(hotKeyData, keyType);
+    }
+
+    @Override
+    public void process(Pair<K, U> input, Emitter<Pair<Pair<K, Integer>, U>> emitter) {
+      K key = input.first();
+      int shards = getNumShards(key);
+      for (int i = 0; i < shards; i++) {
+        emitter.emit(Pair.of(Pair.of(key, i), input.second()));
+      }
+    }
+  }
+
+  private static class SaltHotKeysFn<K, V> extends HotKeyLookupFn<K, V> {
+
+    private transient Random random;
+
+    SaltHotKeysFn(ReadableData<Pair<K, Integer>> hotKeyData, PType<K> keyType) {
+      super(hotKeyData, keyType);
+    }
+
+    @Override
+    public void initialize() {
+      super.initialize();
+      random = new Random(getTaskAttemptID().getTaskID().getId());
+    }
+
+    @Override
+    public void process(Pair<K, V> input, Emitter<Pair<Pair<K, Integer>, V>> emitter) {
+      K key = input.first();
+      int shards = getNumShards(key);
+      emitter.emit(Pair.of(Pair.of(key, shards == 1 ? 0 : random.nextInt(shards)), input.second()));
+    }
+  }
+
+  private static class UnsaltFn<K, U, V> extends MapFn<Pair<Pair<K, Integer>, Pair<U, V>>, Pair<K, Pair<U, V>>> {
+    @Override
+    public Pair<K, Pair<U, V>> map(Pair<Pair<K, Integer>, Pair<U, V>> input) {
+      return Pair.of(input.first().first(), input.second());
+    }
+  }
+
+  private static class ReversePairFn<V, U> extends MapFn<Pair<V, U>, Pair<U, V>> {
+    @Override
+    public Pair<U, V> map(Pair<V, U> input) {
+      return Pair.of(input.second(), input.first());
+    }
+  }
+}
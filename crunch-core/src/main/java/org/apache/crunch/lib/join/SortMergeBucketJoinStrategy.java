@@ -0,0 +1,332 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.lib.join;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.crunch.CreateOptions;
+import org.apache.crunch.CrunchRuntimeException;
+import org.apache.crunch.DoFn;
+import org.apache.crunch.Emitter;
+import org.apache.crunch.PTable;
+import org.apache.crunch.Pair;
+import org.apache.crunch.Source;
+import org.apache.crunch.Target;
+import org.apache.crunch.impl.dist.collect.BaseInputTable;
+import org.apache.crunch.io.FileNamingScheme;
+import org.apache.crunch.io.avro.AvroFileTarget;
+import org.apache.crunch.io.impl.FileSourceImpl;
+import org.apache.crunch.io.seq.SeqFileTarget;
+import org.apache.crunch.types.PTableType;
+import org.apache.crunch.types.PType;
+import org.apache.crunch.types.PTypeFamily;
+import org.apache.crunch.types.avro.AvroTypeFamily;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+
+/**
+ * JoinStrategy that joins two tables that were written into the same number of buckets by
+ * {@link #writeBucketed(PTable, int, Path)}, without a shuffle.
+ * <p>
+ * A bucketed table is partitioned on its keys by the shuffle of the job that writes it, and each
+ * bucket file is sorted by key, with the bucket number and the number of buckets recorded in the
+ * file name. When both sides of a join are read from bucketed tables with the same key type and
+ * number of buckets, each map task streams the matching bucket files of the two tables side by
+ * side and merges them. Only the right-side values of a single key are held in memory at a time.
+ * <p>
+ * All join types are supported. If either side of the join is not read directly from a bucketed
+ * table, or the tables were bucketed differently, the join is performed by a fallback strategy
+ * instead.
+ */
+public class SortMergeBucketJoinStrategy<K, U, V> implements JoinStrategy<K, U, V> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SortMergeBucketJoinStrategy.class);
+
+  private static final Pattern BUCKET_FILE = Pattern.compile("part-r-(\\d+)-of-(\\d+)(\\..*)?");
+
+  private final JoinStrategy<K, U, V> fallbackStrategy;
+
+  /**
+   * Instantiate with the {@link DefaultJoinStrategy} as the fallback for inputs that are not bucketed.
+   */
+  public SortMergeBucketJoinStrategy() {
+    this(new DefaultJoinStrategy<K, U, V>());
+  }
+
+  /**
+   * Instantiate with the strategy to use for inputs that are not bucketed.
+   *
+   * @param fallbackStrategy join strategy for inputs that cannot be merged directly
+   */
+  public SortMergeBucketJoinStrategy(JoinStrategy<K, U, V> fallbackStrategy) {
+    this.fallbackStrategy = fallbackStrategy;
+  }
+
+  /**
+   * Writes the given table to the given path as a bucketed table that can be joined by this strategy.
+   * The table is written as a sequence file for the {@code Writable} type family and as an Avro file
+   * for the Avro type family, which are the formats read by the table type's default file source.
+   *
+   * @param table the table to write
+   * @param numBuckets the number of buckets (and reducers) to write the table with
+   * @param path the directory to write the bucket files to
+   */
+  public static <K, V> void writeBucketed(PTable<K, V> table, int numBuckets, Path path) {
+    if (numBuckets < 1) {
+      throw new IllegalArgumentException("Num buckets must be > 0, got " + numBuckets);
+    }
+    FileNamingScheme namingScheme = new BucketFileNamingScheme(numBuckets);
+    Target target;
+    if (table.getTypeFamily() == AvroTypeFamily.getInstance()) {
+      target = new AvroFileTarget(path, namingScheme);
+    } else {
+      target = new SeqFileTarget(path, namingScheme);
+    }
+    table.groupByKey(numBuckets).ungroup().write(target);
+  }
+
+  @Override
+  public PTable<K, Pair<U, V>> join(PTable<K, U> left, PTable<K, V> right, JoinType joinType) {
+    Configuration conf = left.getPipeline().getConfiguration();
+    String[] leftBuckets = getBucketFiles(left, conf);
+    String[] rightBuckets = getBucketFiles(right, conf);
+    if (leftBuckets == null || rightBuckets == null || leftBuckets.length != rightBuckets.length
+        || !left.getKeyType().equals(right.getKeyType())) {
+      LOG.info("Inputs of join are not bucketed compatibly, using {}", fallbackStrategy.getClass().getSimpleName());
+      return fallbackStrategy.join(left, right, joinType);
+    }
+
+    PTypeFamily ptf = left.getTypeFamily();
+    int numBuckets = leftBuckets.length;
+    List<Integer> buckets = Lists.newArrayListWithCapacity(numBuckets);
+    for (int i = 0; i < numBuckets; i++) {
+      buckets.add(i);
+    }
+    return left.getPipeline()
+        .create(buckets, ptf.ints(), CreateOptions.nameAndParallelism("buckets", numBuckets))
+        .parallelDo("sort-merge bucket join",
+            new MergeBucketsFn<K, U, V>(leftBuckets, rightBuckets, left.getPTableType(), right.getPTableType(),
+                joinType),
+            ptf.tableOf(left.getKeyType(), ptf.pairs(left.getValueType(), right.getValueType())));
+  }
+
+  /**
+   * Returns the bucket files of the given table indexed by bucket number (with null for empty buckets),
+   * or null if the table is not read directly from a bucketed table.
+   */
+  private static String[] getBucketFiles(PTable<?, ?> table, Configuration conf) {
+    if (!(table instanceof BaseInputTable)) {
+      return null;
+    }
+    Source<?> source = ((BaseInputTable<?, ?>) table).getSource();
+    if (!(source instanceof FileSourceImpl) || ((FileSourceImpl<?>) source).getPaths().size() != 1) {
+      return null;
+    }
+    Path dir = ((FileSourceImpl<?>) source).getPath();
+    FileStatus[] statuses;
+    try {
+      FileSystem fs = dir.getFileSystem(conf);
+      if (!fs.exists(dir)) {
+        return null;
+      }
+      statuses = fs.listStatus(dir);
+    } catch (IOException e) {
+      throw new CrunchRuntimeException("Error listing the bucket files of " + dir, e);
+    }
+    String[] buckets = null;
+    for (FileStatus status : statuses) {
+      Matcher m = BUCKET_FILE.matcher(status.getPath().getName());
+      if (!m.matches()) {
+        continue;
+      }
+      int bucket = Integer.parseInt(m.group(1));
+      int numBuckets = Integer.parseInt(m.group(2));
+      if (buckets == null) {
+        buckets = new String[numBuckets];
+      } else if (buckets.length != numBuckets || bucket >= numBuckets) {
+        LOG.warn("Inconsistent bucket files in {}", dir);
+        return null;
+      }
+      buckets[bucket] = status.getPath().toString();
+    }
+    return buckets;
+  }
+
+  /**
+   * Names the output file of each reduce task after its partition and the total number of partitions,
+   * so that the bucket that each file holds can be recovered when the files are read.
+   */
+  public static class BucketFileNamingScheme implements FileNamingScheme {
+
+    private final int numBuckets;
+
+    public BucketFileNamingScheme(int numBuckets) {
+      this.numBuckets = numBuckets;
+    }
+
+    @Override
+    public String getMapOutputName(Configuration configuration, Path outputDirectory) throws IOException {
+      throw new IOException("Bucketed outputs must be written by reduce tasks");
+    }
+
+    @Override
+    public String getReduceOutputName(Configuration configuration, Path outputDirectory, int partitionId)
+        throws IOException {
+      return String.format("part-r-%05d-of-%05d", partitionId, numBuckets);
+    }
+  }
+
+  private static class MergeBucketsFn<K, U, V> extends DoFn<Integer, Pair<K, Pair<U, V>>> {
+
+    private final String[] leftBuckets;
+    private final String[] rightBuckets;
+    private final PTableType<K, U> leftType;
+    private final PTableType<K, V> rightType;
+    private final JoinType joinType;
+    private transient BinaryCodec<K> keyCodec;
+
+    MergeBucketsFn(String[] leftBuckets, String[] rightBuckets, PTableType<K, U> leftType,
+        PTableType<K, V> rightType, JoinType joinType) {
+      this.leftBuckets = leftBuckets;
+      this.rightBuckets = rightBuckets;
+      this.leftType = leftType;
+      this.rightType = rightType;
+      this.joinType = joinType;
+    }
+
+    @Override
+    public void initialize() {
+      leftType.initialize(getConfiguration());
+      rightType.initialize(getConfiguration());
+      keyCodec = BinaryCodec.create(leftType.getKeyType(), getConfiguration());
+    }
+
+    @Override
+    public void process(Integer bucket, Emitter<Pair<K, Pair<U, V>>> emitter) {
+      merge(read(leftType, leftBuckets[bucket]).iterator(), read(rightType, rightBuckets[bucket]).iterator(),
+          keyCodec, leftType.getKeyType(), rightType.getValueType(), joinType, emitter);
+    }
+
+    private <T> Iterable<Pair<K, T>> read(PTableType<K, T> ptype, String file) {
+      if (file == null) {
+        return Collections.emptyList();
+      }
+      try {
+        return ptype.getDefaultFileSource(new Path(file)).read(getConfiguration());
+      } catch (IOException e) {
+        throw new CrunchRuntimeException("Error reading bucket file " + file, e);
+      }
+    }
+  }
+
+  /**
+   * Merges two streams of pairs that are sorted by their serialized keys, emitting the join of the
+   * pairs with equal keys.
+   */
+  static <K, U, V> void merge(Iterator<Pair<K, U>> left, Iterator<Pair<K, V>> right, BinaryCodec<K> keyCodec,
+      PType<K> keyType, PType<V> rightValueType, JoinType joinType, Emitter<Pair<K, Pair<U, V>>> emitter) {
+    boolean emitUnmatchedLeft = joinType == JoinType.LEFT_OUTER_JOIN || joinType == JoinType.FULL_OUTER_JOIN;
+    boolean emitUnmatchedRight = joinType == JoinType.RIGHT_OUTER_JOIN || joinType == JoinType.FULL_OUTER_JOIN;
+    Cursor<K, U> l = new Cursor<K, U>(left, keyCodec);
+    Cursor<K, V> r = new Cursor<K, V>(right, keyCodec);
+    while (l.current != null || r.current != null) {
+      int cmp;
+      if (l.current == null) {
+        cmp = 1;
+      } else if (r.current == null) {
+        cmp = -1;
+      } else {
+        cmp = keyCodec.compare(l.keyBytes, r.keyBytes);
+      }
+
+      if (cmp < 0) {
+        byte[] keyBytes = l.keyBytes;
+        K key = keyType.getDetachedValue(l.current.first());
+        while (l.atKey(keyBytes)) {
+          if (emitUnmatchedLeft) {
+            emitter.emit(Pair.of(key, Pair.<U, V>of(l.current.second(), null)));
+          }
+          l.advance();
+        }
+      } else if (cmp > 0) {
+        byte[] keyBytes = r.keyBytes;
+        K key = keyType.getDetachedValue(r.current.first());
+        while (r.atKey(keyBytes)) {
+          if (emitUnmatchedRight) {
+            emitter.emit(Pair.of(key, Pair.<U, V>of(null, r.current.second())));
+          }
+          r.advance();
+        }
+      } else {
+        byte[] keyBytes = r.keyBytes;
+        K key = keyType.getDetachedValue(r.current.first());
+        List<V> rightValues = Lists.newArrayList();
+        while (r.atKey(keyBytes)) {
+          rightValues.add(rightValueType.getDetachedValue(r.current.second()));
+          r.advance();
+        }
+        while (l.atKey(keyBytes)) {
+          U leftValue = l.current.second();
+          for (V rightValue : rightValues) {
+            emitter.emit(Pair.of(key, Pair.of(leftValue, rightValue)));
+          }
+          l.advance();
+        }
+      }
+    }
+  }
+
+  private static class Cursor<K, T> {
+    private final Iterator<Pair<K, T>> iterator;
+    private final BinaryCodec<K> keyCodec;
+    private Pair<K, T> current;
+    private byte[] keyBytes;
+
+    Cursor(Iterator<Pair<K, T>> iterator, BinaryCodec<K> keyCodec) {
+      this.iterator = iterator;
+      this.keyCodec = keyCodec;
+      advance();
+    }
+
+    void advance() {
+      if (iterator.hasNext()) {
+        current = iterator.next();
+        keyBytes = keyCodec.toBytes(current.first());
+      } else {
+        current = null;
+        keyBytes = null;
+      }
+    }
+
+    boolean atKey(byte[] key) {
+      return current != null && Arrays.equals(keyBytes, key);
+    }
+  }
+}
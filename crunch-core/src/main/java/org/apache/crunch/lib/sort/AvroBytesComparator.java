@@ -0,0 +1,56 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.lib.sort;
+
+import java.nio.ByteBuffer;
+
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryData;
+import org.apache.avro.mapred.AvroWrapper;
+import org.apache.hadoop.io.RawComparator;
+
+/**
+ * Compares Avro {@code bytes} keys as unsigned bytes, both in their serialized form and as {@code ByteBuffer}s,
+ * whose own {@code compareTo} compares signed bytes. Keys encoded by {@link OrderedBytes} must be compared this
+ * way to sort in the order of the columns that they encode.
+ */
+public class AvroBytesComparator implements RawComparator<AvroWrapper<ByteBuffer>> {
+
+  private static final Schema BYTES = Schema.create(Schema.Type.BYTES);
+
+  @Override
+  public int compare(AvroWrapper<ByteBuffer> o1, AvroWrapper<ByteBuffer> o2) {
+    ByteBuffer b1 = o1.datum();
+    ByteBuffer b2 = o2.datum();
+    int p1 = b1.position();
+    int p2 = b2.position();
+    int n = Math.min(b1.remaining(), b2.remaining());
+    for (int i = 0; i < n; i++) {
+      int cmp = (b1.get(p1 + i) & 0xff) - (b2.get(p2 + i) & 0xff);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+    return b1.remaining() - b2.remaining();
+  }
+
+  @Override
+  public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+    return BinaryData.compare(b1, s1, l1, b2, s2, l2, BYTES);
+  }
+}
@@ -0,0 +1,160 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.lib.sort;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.apache.crunch.lib.Sort.Order;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Encodes a sequence of values into bytes whose unsigned lexicographic order is the order of the values, so
+ * that keys made of several columns can be sorted with a single byte comparison.
+ * <p>
+ * Each value is written as a marker byte that sorts {@code null}s first, followed by the value: fixed-width
+ * numbers are written big-endian with their sign bits flipped (and, for negative floating point numbers, all of
+ * their bits), so that they sort like {@code Float.compare} and {@code Double.compare}; strings are written as
+ * UTF-8 and byte arrays as is, with each zero byte escaped as {@code 0x00 0xFF} and the value terminated by
+ * {@code 0x00 0x00}, so that a value sorts before any longer value that it is a prefix of. The bytes of
+ * {@link Order#DESCENDING} values are inverted, and {@link Order#IGNORE} values are not written at all.
+ */
+public class OrderedBytes {
+
+  private static final byte NULL = 0x00;
+  private static final byte NOT_NULL = 0x01;
+
+  private static final ImmutableSet<Class<?>> SUPPORTED_CLASSES = ImmutableSet.<Class<?>>of(
+      Integer.class, Long.class, Float.class, Double.class, Boolean.class, String.class, ByteBuffer.class);
+
+  private byte[] bytes = new byte[64];
+  private int length = 0;
+
+  /**
+   * Returns true if values of the given class can be encoded.
+   */
+  public static boolean isSupported(Class<?> clazz) {
+    return SUPPORTED_CLASSES.contains(clazz) || CharSequence.class.isAssignableFrom(clazz);
+  }
+
+  /**
+   * Discards the values that have been written so far.
+   */
+  public OrderedBytes reset() {
+    length = 0;
+    return this;
+  }
+
+  /**
+   * Appends the encoding of the given value in the given order.
+   */
+  public OrderedBytes write(Object value, Order order) {
+    if (order == Order.IGNORE) {
+      return this;
+    }
+    int start = length;
+    if (value == null) {
+      writeByte(NULL);
+    } else {
+      writeByte(NOT_NULL);
+      writeValue(value);
+    }
+    if (order == Order.DESCENDING) {
+      for (int i = start; i < length; i++) {
+        bytes[i] = (byte) ~bytes[i];
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Returns a copy of the bytes that have been written.
+   */
+  public byte[] toBytes() {
+    return Arrays.copyOf(bytes, length);
+  }
+
+  private void writeValue(Object value) {
+    if (value instanceof Integer) {
+      writeInt(((Integer) value) ^ Integer.MIN_VALUE);
+    } else if (value instanceof Long) {
+      writeLong(((Long) value) ^ Long.MIN_VALUE);
+    } else if (value instanceof Float) {
+      int bits = Float.floatToIntBits((Float) value);
+      writeInt(bits ^ ((bits >> 31) | Integer.MIN_VALUE));
+    } else if (value instanceof Double) {
+      long bits = Double.doubleToLongBits((Double) value);
+      writeLong(bits ^ ((bits >> 63) | Long.MIN_VALUE));
+    } else if (value instanceof Boolean) {
+      writeByte((Boolean) value ? (byte) 1 : (byte) 0);
+    } else if (value instanceof CharSequence) {
+      byte[] utf8 = value.toString().getBytes(Charsets.UTF_8);
+      writeEscaped(utf8, 0, utf8.length);
+    } else if (value instanceof ByteBuffer) {
+      ByteBuffer buffer = (ByteBuffer) value;
+      if (buffer.hasArray()) {
+        writeEscaped(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+      } else {
+        byte[] copy = new byte[buffer.remaining()];
+        buffer.duplicate().get(copy);
+        writeEscaped(copy, 0, copy.length);
+      }
+    } else {
+      throw new IllegalArgumentException("Cannot encode values of " + value.getClass() + " in order");
+    }
+  }
+
+  private void writeEscaped(byte[] value, int offset, int len) {
+    ensureCapacity(2 * len + 2);
+    for (int i = offset; i < offset + len; i++) {
+      bytes[length++] = value[i];
+      if (value[i] == 0) {
+        bytes[length++] = (byte) 0xFF;
+      }
+    }
+    bytes[length++] = 0;
+    bytes[length++] = 0;
+  }
+
+  private void writeInt(int value) {
+    ensureCapacity(4);
+    for (int shift = 24; shift >= 0; shift -= 8) {
+      bytes[length++] = (byte) (value >>> shift);
+    }
+  }
+
+  private void writeLong(long value) {
+    ensureCapacity(8);
+    for (int shift = 56; shift >= 0; shift -= 8) {
+      bytes[length++] = (byte) (value >>> shift);
+    }
+  }
+
+  private void writeByte(byte value) {
+    ensureCapacity(1);
+    bytes[length++] = value;
+  }
+
+  private void ensureCapacity(int extra) {
+    if (length + extra > bytes.length) {
+      bytes = Arrays.copyOf(bytes, Math.max(2 * bytes.length, length + extra));
+    }
+  }
+}
@@ -17,6 +17,7 @@
  */
 package org.apache.crunch.lib.sort;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.UUID;
 
@@ -108,6 +109,40 @@ public class SortFns {
     }
   }
   
+  /**
+   * Encodes the ordered columns of a {@code Tuple} instance into a single key whose bytes sort in the order
+   * given by the columns, using {@link OrderedBytes}.
+   */
+  public static class OrderedBytesKeyFn<V extends Tuple> extends MapFn<V, ByteBuffer> {
+
+    private final int[] indices;
+    private final Order[] orders;
+    private transient OrderedBytes encoder;
+
+    public OrderedBytesKeyFn(ColumnOrder[] columnOrders) {
+      this.indices = new int[columnOrders.length];
+      this.orders = new Order[columnOrders.length];
+      for (int i = 0; i < columnOrders.length; i++) {
+        indices[i] = columnOrders[i].column() - 1;
+        orders[i] = columnOrders[i].order();
+      }
+    }
+
+    @Override
+    public void initialize() {
+      this.encoder = new OrderedBytes();
+    }
+
+    @Override
+    public ByteBuffer map(V input) {
+      encoder.reset();
+      for (int i = 0; i < indices.length; i++) {
+        encoder.write(input.get(indices[i]), orders[i]);
+      }
+      return ByteBuffer.wrap(encoder.toBytes());
+    }
+  }
+
   /**
    * Constructs an Avro schema for the given {@code PType<S>} that respects the given column
    * orderings.
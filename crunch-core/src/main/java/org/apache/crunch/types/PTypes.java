@@ -20,12 +20,18 @@ package org.apache.crunch.types;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
+import java.util.Collection;
 import java.util.UUID;
 
 import com.google.protobuf.ExtensionRegistry;
 import org.apache.crunch.CrunchRuntimeException;
 import org.apache.crunch.MapFn;
+import org.apache.crunch.Pair;
+import org.apache.crunch.Tuple3;
+import org.apache.crunch.util.HyperLogLog;
+import org.apache.crunch.util.QuantileSketch;
 import org.apache.crunch.util.SerializableSupplier;
+import org.apache.crunch.util.SpaceSaving;
 import org.apache.hadoop.util.ReflectionUtils;
 import org.apache.thrift.TBase;
 import org.apache.thrift.TDeserializer;
@@ -65,6 +71,32 @@ public class PTypes {
     return ptf.derivedImmutable(UUID.class, BYTE_TO_UUID, UUID_TO_BYTE, ptf.bytes());
   }
 
+  /**
+   * A PType for {@link HyperLogLog} sketches.
+   */
+  public static PType<HyperLogLog> hyperLogLogs(PTypeFamily ptf) {
+    return ptf.derived(HyperLogLog.class, BYTE_TO_HLL, HLL_TO_BYTE, ptf.bytes());
+  }
+
+  /**
+   * A PType for {@link QuantileSketch} sketches.
+   */
+  public static PType<QuantileSketch> quantileSketches(PTypeFamily ptf) {
+    return ptf.derived(QuantileSketch.class, BYTE_TO_QUANTILES, QUANTILES_TO_BYTE, ptf.bytes());
+  }
+
+  /**
+   * A PType for {@link SpaceSaving} summaries of items of the given type.
+   */
+  public static <T> PType<SpaceSaving<T>> spaceSavings(PType<T> itemType) {
+    PTypeFamily ptf = itemType.getFamily();
+    @SuppressWarnings("unchecked")
+    Class<SpaceSaving<T>> clazz = (Class<SpaceSaving<T>>) (Class) SpaceSaving.class;
+    return ptf.derived(clazz, new SpaceSavingInputMapFn<T>(), new SpaceSavingOutputMapFn<T>(),
+        ptf.pairs(ptf.pairs(ptf.ints(), ptf.longs()),
+            ptf.collections(ptf.triples(itemType, ptf.longs(), ptf.longs()))));
+  }
+
   /**
    * Constructs a PType for reading a Java type from a JSON string using Jackson's {@link ObjectMapper}.
    */
@@ -321,6 +353,51 @@ public class PTypes {
     }
   };
 
+  private static final MapFn<ByteBuffer, HyperLogLog> BYTE_TO_HLL = new MapFn<ByteBuffer, HyperLogLog>() {
+    @Override
+    public HyperLogLog map(ByteBuffer input) {
+      return input == null ? null : HyperLogLog.fromBytes(input);
+    }
+  };
+
+  private static final MapFn<HyperLogLog, ByteBuffer> HLL_TO_BYTE = new MapFn<HyperLogLog, ByteBuffer>() {
+    @Override
+    public ByteBuffer map(HyperLogLog input) {
+      return input == null ? null : input.toBytes();
+    }
+  };
+
+  private static final MapFn<ByteBuffer, QuantileSketch> BYTE_TO_QUANTILES = new MapFn<ByteBuffer, QuantileSketch>() {
+    @Override
+    public QuantileSketch map(ByteBuffer input) {
+      return input == null ? null : QuantileSketch.fromBytes(input);
+    }
+  };
+
+  private static final MapFn<QuantileSketch, ByteBuffer> QUANTILES_TO_BYTE = new MapFn<QuantileSketch, ByteBuffer>() {
+    @Override
+    public ByteBuffer map(QuantileSketch input) {
+      return input == null ? null : input.toBytes();
+    }
+  };
+
+  private static class SpaceSavingInputMapFn<T> extends
+      MapFn<Pair<Pair<Integer, Long>, Collection<Tuple3<T, Long, Long>>>, SpaceSaving<T>> {
+    @Override
+    public SpaceSaving<T> map(Pair<Pair<Integer, Long>, Collection<Tuple3<T, Long, Long>>> input) {
+      return SpaceSaving.of(input.first().first(), input.first().second(), input.second());
+    }
+  }
+
+  private static class SpaceSavingOutputMapFn<T> extends
+      MapFn<SpaceSaving<T>, Pair<Pair<Integer, Long>, Collection<Tuple3<T, Long, Long>>>> {
+    @Override
+    public Pair<Pair<Integer, Long>, Collection<Tuple3<T, Long, Long>>> map(SpaceSaving<T> input) {
+      return Pair.<Pair<Integer, Long>, Collection<Tuple3<T, Long, Long>>>of(
+          Pair.of(input.getCapacity(), input.getFloor()), input.getCounters());
+    }
+  }
+
   private static BigDecimal byteBufferToBigDecimal(ByteBuffer input) {
     int scale = input.getInt();
     byte[] bytes = new byte[input.remaining()];
@@ -35,6 +35,8 @@ import org.apache.avro.specific.SpecificData;
 import org.apache.crunch.CrunchRuntimeException;
 import org.apache.crunch.types.DeepCopier;
 import org.apache.hadoop.conf.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Performs deep copies of Avro-serializable objects.
@@ -45,6 +47,8 @@ import org.apache.hadoop.conf.Configuration;
  */
 abstract class AvroDeepCopier<T> implements DeepCopier<T>, Serializable {
 
+  private static final Logger LOG = LoggerFactory.getLogger(AvroDeepCopier.class);
+
   private String jsonSchema;
   protected transient Configuration conf;
   private transient Schema schema;
@@ -104,6 +108,8 @@ abstract class AvroDeepCopier<T> implements DeepCopier<T>, Serializable {
     private transient DatumWriter<T> datumWriter;
     private transient BinaryEncoder binaryEncoder;
     private transient BinaryDecoder binaryDecoder;
+    private transient ReflectCopier copier;
+    private transient boolean copierUnsupported;
 
     public AvroReflectDeepCopier(Schema schema) {
       super(schema);
@@ -128,6 +134,17 @@ abstract class AvroDeepCopier<T> implements DeepCopier<T>, Serializable {
       if (source == null) {
         return null;
       }
+      if (!copierUnsupported) {
+        try {
+          if (copier == null) {
+            copier = new ReflectCopier(getSchema(), getReflectMode().getData());
+          }
+          return (T) copier.copy(source);
+        } catch (ReflectCopier.UnsupportedValueException e) {
+          LOG.info("Deep copying {} through serialization: {}", source.getClass().getName(), e.getMessage());
+          copierUnsupported = true;
+        }
+      }
       if (datumReader == null) {
         datumReader = createDatumReader(conf);
       }
@@ -148,6 +165,10 @@ abstract class AvroDeepCopier<T> implements DeepCopier<T>, Serializable {
       }
     }
 
+    private AvroMode getReflectMode() {
+      return conf == null ? AvroMode.REFLECT : AvroMode.REFLECT.withFactoryFromConfiguration(conf);
+    }
+
     protected T createNewInstance(Class<T> targetClass) {
       try {
         Constructor<T> ctor = targetClass.getDeclaredConstructor();
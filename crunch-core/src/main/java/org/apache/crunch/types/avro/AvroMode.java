@@ -26,8 +26,6 @@ import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.DatumWriter;
 import org.apache.avro.reflect.ReflectData;
-import org.apache.avro.reflect.ReflectDatumReader;
-import org.apache.avro.reflect.ReflectDatumWriter;
 import org.apache.avro.specific.SpecificData;
 import org.apache.avro.specific.SpecificDatumReader;
 import org.apache.avro.specific.SpecificDatumWriter;
@@ -213,9 +211,9 @@ public class AvroMode implements ReaderWriterFactory {
     switch (this.modeType) {
       case REFLECT:
         if (specificLoader != null) {
-          return new ReflectDatumReader<T>(schema, schema, new ReflectData(specificLoader));
+          return new CrunchReflectDatumReader<T>(schema, schema, new ReflectData(specificLoader));
         } else {
-          return new ReflectDatumReader<T>(schema);
+          return new CrunchReflectDatumReader<T>(schema);
         }
       case SPECIFIC:
         if (specificLoader != null) {
@@ -242,7 +240,7 @@ public class AvroMode implements ReaderWriterFactory {
 
     switch (this.modeType) {
       case REFLECT:
-        return new ReflectDatumWriter<T>(schema);
+        return new CrunchReflectDatumWriter<T>(schema);
       case SPECIFIC:
         return new SpecificDatumWriter<T>(schema);
       default:
@@ -17,12 +17,13 @@
  */
 package org.apache.crunch.types.avro;
 
+import org.apache.avro.file.DataFileConstants;
 import org.apache.avro.file.DataFileWriter;
 import org.apache.avro.mapred.AvroWrapper;
 import org.apache.avro.mapred.Pair;
 import org.apache.avro.util.Utf8;
+import org.apache.crunch.io.PathPerKeyWriterPool;
 import org.apache.hadoop.conf.Configuration;
-import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.RecordWriter;
@@ -35,9 +36,10 @@ import java.io.IOException;
  * A {@link FileOutputFormat} that takes in a {@link Utf8} and an Avro record and writes the Avro records to
  * a sub-directory of the output path whose name is equal to the string-form of the {@code Utf8}.
  *
- * This {@code OutputFormat} only keeps one {@code RecordWriter} open at a time, so it's a very good idea to write
- * out all of the records for the same key at the same time within each partition so as not to be frequently opening
- * and closing files.
+ * This {@code OutputFormat} keeps a bounded number of files open in each task with a {@link PathPerKeyWriterPool}, and
+ * starts a new file for a key whenever its file had to be closed, so it's a very good idea to write out all of the
+ * records for the same key at the same time within each partition so as not to be frequently opening and closing
+ * files.
  */
 public class AvroPathPerKeyOutputFormat<T> extends FileOutputFormat<AvroWrapper<Pair<Utf8, T>>, NullWritable> {
   @Override
@@ -50,43 +52,35 @@ public class AvroPathPerKeyOutputFormat<T> extends FileOutputFormat<AvroWrapper<
 
   private class AvroFilePerKeyRecordWriter<T> extends RecordWriter<AvroWrapper<Pair<Utf8, T>>, NullWritable> {
 
-    private final Path basePath;
-    private final String uniqueFileName;
-    private final Configuration conf;
-    private String currentKey;
-    private DataFileWriter<T> currentWriter;
+    private final PathPerKeyWriterPool<DataFileWriter<T>> writers;
+    private final long blockSize;
 
-    public AvroFilePerKeyRecordWriter(Path basePath, String uniqueFileName, Configuration conf) {
-      this.basePath = basePath;
-      this.uniqueFileName = uniqueFileName;
-      this.conf = conf;
+    public AvroFilePerKeyRecordWriter(Path basePath, String uniqueFileName, final Configuration conf) {
+      this.blockSize = conf.getInt(org.apache.avro.mapred.AvroOutputFormat.SYNC_INTERVAL_KEY,
+          DataFileConstants.DEFAULT_SYNC_INTERVAL);
+      this.writers = new PathPerKeyWriterPool<DataFileWriter<T>>(basePath, uniqueFileName, conf, blockSize) {
+        @Override
+        protected DataFileWriter<T> open(Path file) throws IOException {
+          return AvroOutputFormat.getDataFileWriter(file, conf);
+        }
+
+        @Override
+        protected void close(DataFileWriter<T> writer) throws IOException {
+          writer.close();
+        }
+      };
     }
 
     @Override
     public void write(AvroWrapper<Pair<Utf8, T>> record, NullWritable n) throws IOException, InterruptedException {
-      String key = record.datum().key().toString();
-      if (!key.equals(currentKey)) {
-        if (currentWriter != null) {
-          currentWriter.close();
-        }
-        currentKey = key;
-        Path dir = new Path(basePath, key);
-        FileSystem fs = dir.getFileSystem(conf);
-        if (!fs.exists(dir)) {
-          fs.mkdirs(dir);
-        }
-        currentWriter = AvroOutputFormat.getDataFileWriter(new Path(dir, uniqueFileName), conf);
-      }
-      currentWriter.append(record.datum().value());
+      writers.get(record.datum().key().toString()).append(record.datum().value());
+      // Sizing each record would mean serializing it twice, so each open writer is assumed to buffer a full block
+      writers.written(blockSize);
     }
 
     @Override
     public void close(TaskAttemptContext taskAttemptContext) throws IOException, InterruptedException {
-      if (currentWriter != null) {
-        currentWriter.close();
-        currentKey = null;
-        currentWriter = null;
-      }
+      writers.close();
     }
   }
 }
@@ -0,0 +1,104 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.types.avro;
+
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.IndexedRecord;
+import org.apache.avro.io.ResolvingDecoder;
+import org.apache.avro.reflect.ReflectData;
+import org.apache.avro.reflect.ReflectDatumReader;
+import org.apache.crunch.types.avro.ReflectCopier.UnsupportedValueException;
+
+/**
+ * A {@link ReflectDatumReader} that reads the fields of reflect-based records through a {@link ReflectRecordPlan}
+ * that is resolved once for each record schema, instead of looking up the accessor of each field for each record
+ * that is read. Records whose class the plan does not support are read by the {@code ReflectDatumReader}.
+ * <p>
+ * <b>Warning:</b> Instances of this class are not thread-safe.
+ */
+public class CrunchReflectDatumReader<T> extends ReflectDatumReader<T> {
+
+  private final Map<Schema, ReflectRecordPlan> plans = new IdentityHashMap<Schema, ReflectRecordPlan>();
+
+  public CrunchReflectDatumReader(Schema root) {
+    super(root);
+  }
+
+  public CrunchReflectDatumReader(Schema writer, Schema reader, ReflectData data) {
+    super(writer, reader, data);
+  }
+
+  @Override
+  protected Object read(Object old, Schema expected, ResolvingDecoder in) throws IOException {
+    ReflectRecordPlan plan = expected.getType() == Schema.Type.RECORD && expected.getLogicalType() == null
+        ? getPlan(expected) : null;
+    if (plan == null) {
+      return super.read(old, expected, in);
+    }
+    Object record = old != null && old.getClass() == plan.getRecordClass() ? old : plan.newInstance();
+    try {
+      // The fields are read in the order of the writer's schema, and are positioned in the reader's schema
+      for (Schema.Field f : in.readFieldOrder()) {
+        int pos = f.pos();
+        switch (plan.kinds[pos]) {
+        case ReflectRecordPlan.INT:
+          plan.fields[pos].setInt(record, in.readInt());
+          break;
+        case ReflectRecordPlan.LONG:
+          plan.fields[pos].setLong(record, in.readLong());
+          break;
+        case ReflectRecordPlan.FLOAT:
+          plan.fields[pos].setFloat(record, in.readFloat());
+          break;
+        case ReflectRecordPlan.DOUBLE:
+          plan.fields[pos].setDouble(record, in.readDouble());
+          break;
+        case ReflectRecordPlan.BOOLEAN:
+          plan.fields[pos].setBoolean(record, in.readBoolean());
+          break;
+        default:
+          plan.fields[pos].set(record, read(null, plan.schemas[pos], in));
+        }
+      }
+    } catch (IllegalAccessException e) {
+      throw new AvroRuntimeException(e);
+    }
+    return record;
+  }
+
+  private ReflectRecordPlan getPlan(Schema schema) {
+    if (!plans.containsKey(schema)) {
+      Class<?> clazz = getSpecificData().getClass(schema);
+      ReflectRecordPlan plan = null;
+      if (clazz != null && !IndexedRecord.class.isAssignableFrom(clazz)) {
+        try {
+          plan = new ReflectRecordPlan(clazz, schema);
+        } catch (UnsupportedValueException e) {
+          plan = null;
+        }
+      }
+      plans.put(schema, plan);
+    }
+    return plans.get(schema);
+  }
+}
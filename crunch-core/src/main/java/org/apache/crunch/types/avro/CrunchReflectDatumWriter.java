@@ -0,0 +1,108 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.types.avro;
+
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericContainer;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.reflect.ReflectData;
+import org.apache.avro.reflect.ReflectDatumWriter;
+import org.apache.crunch.types.avro.ReflectCopier.UnsupportedValueException;
+
+import com.google.common.collect.Maps;
+
+/**
+ * A {@link ReflectDatumWriter} that writes the fields of reflect-based records through a {@link ReflectRecordPlan}
+ * that is resolved once for each record schema and class, instead of looking up the accessor of each field for
+ * each record that is written. Records whose class the plan does not support are written by the
+ * {@code ReflectDatumWriter}.
+ * <p>
+ * <b>Warning:</b> Instances of this class are not thread-safe.
+ */
+public class CrunchReflectDatumWriter<T> extends ReflectDatumWriter<T> {
+
+  private final Map<Schema, Map<Class<?>, ReflectRecordPlan>> plans =
+      new IdentityHashMap<Schema, Map<Class<?>, ReflectRecordPlan>>();
+
+  public CrunchReflectDatumWriter(Schema root) {
+    super(root);
+  }
+
+  public CrunchReflectDatumWriter(Schema root, ReflectData data) {
+    super(root, data);
+  }
+
+  @Override
+  protected void write(Schema schema, Object datum, Encoder out) throws IOException {
+    ReflectRecordPlan plan = schema.getType() == Schema.Type.RECORD && datum != null
+        && !(datum instanceof GenericContainer) && schema.getLogicalType() == null
+        ? getPlan(schema, datum.getClass()) : null;
+    if (plan == null) {
+      super.write(schema, datum, out);
+      return;
+    }
+    try {
+      for (int i = 0; i < plan.fields.length; i++) {
+        switch (plan.kinds[i]) {
+        case ReflectRecordPlan.INT:
+          out.writeInt(plan.fields[i].getInt(datum));
+          break;
+        case ReflectRecordPlan.LONG:
+          out.writeLong(plan.fields[i].getLong(datum));
+          break;
+        case ReflectRecordPlan.FLOAT:
+          out.writeFloat(plan.fields[i].getFloat(datum));
+          break;
+        case ReflectRecordPlan.DOUBLE:
+          out.writeDouble(plan.fields[i].getDouble(datum));
+          break;
+        case ReflectRecordPlan.BOOLEAN:
+          out.writeBoolean(plan.fields[i].getBoolean(datum));
+          break;
+        default:
+          write(plan.schemas[i], plan.fields[i].get(datum), out);
+        }
+      }
+    } catch (IllegalAccessException e) {
+      throw new AvroRuntimeException(e);
+    }
+  }
+
+  private ReflectRecordPlan getPlan(Schema schema, Class<?> clazz) {
+    Map<Class<?>, ReflectRecordPlan> byClass = plans.get(schema);
+    if (byClass == null) {
+      byClass = Maps.newHashMap();
+      plans.put(schema, byClass);
+    }
+    if (!byClass.containsKey(clazz)) {
+      ReflectRecordPlan plan;
+      try {
+        plan = new ReflectRecordPlan(clazz, schema);
+      } catch (UnsupportedValueException e) {
+        plan = null;
+      }
+      byClass.put(clazz, plan);
+    }
+    return byClass.get(clazz);
+  }
+}
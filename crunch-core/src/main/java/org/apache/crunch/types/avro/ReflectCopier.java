@@ -0,0 +1,448 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.types.avro;
+
+import java.io.File;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericContainer;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericEnumSymbol;
+import org.apache.avro.generic.GenericFixed;
+import org.apache.avro.reflect.AvroEncode;
+import org.apache.avro.reflect.AvroName;
+import org.apache.avro.util.Utf8;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Copies reflect-based Avro values directly, following a plan that is built once for their schema, instead of
+ * writing them out and reading them back in.
+ * <p>
+ * The plan resolves the Java field and the no-argument constructor of each record class on first use, and then
+ * copies the fields that are in the schema, sharing immutable values and copying mutable ones. A value that the
+ * plan cannot copy faithfully, such as a field with a custom encoding or a collection type that does not match its
+ * schema, causes an {@link UnsupportedValueException}, so that the caller can fall back to copying the value through
+ * serialization.
+ * <p>
+ * <b>Warning:</b> Instances of this class are not thread-safe.
+ */
+class ReflectCopier {
+
+  /**
+   * Thrown when a value cannot be copied by following the plan.
+   */
+  static class UnsupportedValueException extends RuntimeException {
+    public UnsupportedValueException(String message) {
+      super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+      return this;
+    }
+  }
+
+  private final GenericData data;
+  private final Map<Schema, Node> nodes = new IdentityHashMap<Schema, Node>();
+  private final Node root;
+
+  public ReflectCopier(Schema schema, GenericData data) {
+    this.data = data;
+    this.root = getNode(schema);
+  }
+
+  public Object copy(Object value) {
+    return root.copy(value);
+  }
+
+  private Node getNode(Schema schema) {
+    Node node = nodes.get(schema);
+    if (node == null) {
+      // Records resolve the nodes of their fields lazily, so recursive schemas terminate
+      node = createNode(schema);
+      nodes.put(schema, node);
+    }
+    return node;
+  }
+
+  private Node createNode(Schema schema) {
+    switch (schema.getType()) {
+    case NULL:
+      return NULL_NODE;
+    case BOOLEAN:
+    case INT:
+    case LONG:
+    case FLOAT:
+    case DOUBLE:
+    case STRING:
+    case ENUM:
+      return IMMUTABLE_NODE;
+    case BYTES:
+    case FIXED:
+      return new BytesNode(schema);
+    case ARRAY:
+      return new ArrayNode(schema);
+    case MAP:
+      return new MapNode(schema);
+    case UNION:
+      return new UnionNode(schema);
+    case RECORD:
+      return new RecordNode(schema);
+    default:
+      throw new UnsupportedValueException("Unknown schema type " + schema.getType());
+    }
+  }
+
+  private static boolean isImmutable(Object value) {
+    return value instanceof String || value instanceof Number && (value.getClass().getName().startsWith("java.lang.")
+        || value instanceof BigDecimal || value instanceof BigInteger) || value instanceof Boolean
+        || value instanceof Character || value instanceof Enum || value instanceof GenericEnumSymbol
+        || value instanceof URI || value instanceof URL || value instanceof File;
+  }
+
+  private abstract static class Node {
+    public abstract Object copy(Object value);
+  }
+
+  private static final Node NULL_NODE = new Node() {
+    @Override
+    public Object copy(Object value) {
+      if (value != null) {
+        throw new UnsupportedValueException("Expected null but found " + value.getClass());
+      }
+      return null;
+    }
+  };
+
+  private static final Node IMMUTABLE_NODE = new Node() {
+    @Override
+    public Object copy(Object value) {
+      if (value == null || isImmutable(value)) {
+        return value;
+      } else if (value instanceof Utf8) {
+        return new Utf8((Utf8) value);
+      }
+      throw new UnsupportedValueException("Cannot copy " + value.getClass());
+    }
+  };
+
+  private class BytesNode extends Node {
+    private final Schema schema;
+
+    public BytesNode(Schema schema) {
+      this.schema = schema;
+    }
+
+    @Override
+    public Object copy(Object value) {
+      if (value == null) {
+        return null;
+      } else if (value instanceof byte[]) {
+        return ((byte[]) value).clone();
+      } else if (value instanceof ByteBuffer) {
+        ByteBuffer source = (ByteBuffer) value;
+        ByteBuffer copy = ByteBuffer.allocate(source.remaining());
+        copy.put(source.duplicate()).flip();
+        return copy;
+      } else if (value instanceof GenericFixed) {
+        return data.deepCopy(schema, value);
+      }
+      throw new UnsupportedValueException("Cannot copy " + value.getClass() + " as " + schema.getType());
+    }
+  }
+
+  private class ArrayNode extends Node {
+    private final Node elementNode;
+    private final Map<Class<?>, Constructor<?>> constructors = Maps.newHashMap();
+
+    public ArrayNode(Schema schema) {
+      this.elementNode = getNode(schema.getElementType());
+    }
+
+    @Override
+    public Object copy(Object value) {
+      if (value == null) {
+        return null;
+      } else if (value instanceof Collection) {
+        Collection<?> source = (Collection<?>) value;
+        Collection<Object> copy = newCollection(source);
+        for (Object element : source) {
+          copy.add(elementNode.copy(element));
+        }
+        return copy;
+      } else if (value instanceof Object[]) {
+        Object[] source = (Object[]) value;
+        Object[] copy = (Object[]) java.lang.reflect.Array.newInstance(
+            source.getClass().getComponentType(), source.length);
+        for (int i = 0; i < source.length; i++) {
+          copy[i] = elementNode.copy(source[i]);
+        }
+        return copy;
+      } else if (value instanceof int[]) {
+        return ((int[]) value).clone();
+      } else if (value instanceof long[]) {
+        return ((long[]) value).clone();
+      } else if (value instanceof double[]) {
+        return ((double[]) value).clone();
+      } else if (value instanceof float[]) {
+        return ((float[]) value).clone();
+      } else if (value instanceof boolean[]) {
+        return ((boolean[]) value).clone();
+      } else if (value instanceof short[]) {
+        return ((short[]) value).clone();
+      } else if (value instanceof char[]) {
+        return ((char[]) value).clone();
+      } else if (value instanceof byte[]) {
+        return ((byte[]) value).clone();
+      }
+      throw new UnsupportedValueException("Cannot copy " + value.getClass() + " as an array");
+    }
+
+    private Collection<Object> newCollection(Collection<?> source) {
+      if (source instanceof GenericData.Array) {
+        return new GenericData.Array<Object>(source.size(), ((GenericData.Array<?>) source).getSchema());
+      }
+      Class<?> clazz = source.getClass();
+      Constructor<?> ctor = constructors.get(clazz);
+      if (ctor == null && !constructors.containsKey(clazz)) {
+        ctor = getDefaultConstructor(clazz);
+        constructors.put(clazz, ctor);
+      }
+      if (ctor == null) {
+        if (source instanceof List) {
+          return Lists.newArrayListWithCapacity(source.size());
+        }
+        throw new UnsupportedValueException("Cannot create a copy of " + clazz);
+      }
+      return (Collection<Object>) newInstance(ctor);
+    }
+  }
+
+  private class MapNode extends Node {
+    private final Node valueNode;
+    private final Map<Class<?>, Constructor<?>> constructors = Maps.newHashMap();
+
+    public MapNode(Schema schema) {
+      this.valueNode = getNode(schema.getValueType());
+    }
+
+    @Override
+    public Object copy(Object value) {
+      if (value == null) {
+        return null;
+      } else if (!(value instanceof Map)) {
+        throw new UnsupportedValueException("Cannot copy " + value.getClass() + " as a map");
+      }
+      Map<?, ?> source = (Map<?, ?>) value;
+      Map<Object, Object> copy = newMap(source);
+      for (Map.Entry<?, ?> e : source.entrySet()) {
+        copy.put(IMMUTABLE_NODE.copy(e.getKey()), valueNode.copy(e.getValue()));
+      }
+      return copy;
+    }
+
+    private Map<Object, Object> newMap(Map<?, ?> source) {
+      Class<?> clazz = source.getClass();
+      Constructor<?> ctor = constructors.get(clazz);
+      if (ctor == null && !constructors.containsKey(clazz)) {
+        ctor = getDefaultConstructor(clazz);
+        constructors.put(clazz, ctor);
+      }
+      return ctor == null ? new HashMap<Object, Object>(source.size()) : (Map<Object, Object>) newInstance(ctor);
+    }
+  }
+
+  private class UnionNode extends Node {
+    private final Schema schema;
+    private final Node[] branches;
+    private final int nullBranch;
+
+    public UnionNode(Schema schema) {
+      this.schema = schema;
+      List<Schema> types = schema.getTypes();
+      this.branches = new Node[types.size()];
+      int nullIndex = -1;
+      for (int i = 0; i < branches.length; i++) {
+        branches[i] = getNode(types.get(i));
+        if (types.get(i).getType() == Schema.Type.NULL) {
+          nullIndex = i;
+        }
+      }
+      this.nullBranch = nullIndex;
+    }
+
+    @Override
+    public Object copy(Object value) {
+      if (value == null) {
+        if (nullBranch < 0) {
+          throw new UnsupportedValueException("Found null for a union without null");
+        }
+        return null;
+      } else if (branches.length == 2 && nullBranch >= 0) {
+        return branches[1 - nullBranch].copy(value);
+      }
+      return branches[data.resolveUnion(schema, value)].copy(value);
+    }
+  }
+
+  private class RecordNode extends Node {
+    private final Schema schema;
+    private final Map<Class<?>, RecordPlan> plans = Maps.newHashMap();
+
+    public RecordNode(Schema schema) {
+      this.schema = schema;
+    }
+
+    @Override
+    public Object copy(Object value) {
+      if (value == null) {
+        return null;
+      } else if (value instanceof GenericContainer) {
+        return data.deepCopy(schema, value);
+      }
+      RecordPlan plan = plans.get(value.getClass());
+      if (plan == null) {
+        plan = new RecordPlan(value.getClass(), schema);
+        plans.put(value.getClass(), plan);
+      }
+      return plan.copy(value);
+    }
+  }
+
+  /**
+   * The constructor and fields of a record class, with the nodes that copy the values of the fields.
+   */
+  private class RecordPlan {
+    private final Constructor<?> ctor;
+    private final Field[] fields;
+    private final Node[] fieldNodes;
+
+    public RecordPlan(Class<?> clazz, Schema schema) {
+      this.ctor = getDefaultConstructor(clazz);
+      if (ctor == null) {
+        throw new UnsupportedValueException(clazz + " has no default constructor");
+      }
+      List<Schema.Field> schemaFields = schema.getFields();
+      this.fields = new Field[schemaFields.size()];
+      this.fieldNodes = new Node[schemaFields.size()];
+      for (int i = 0; i < fields.length; i++) {
+        Schema.Field schemaField = schemaFields.get(i);
+        fields[i] = findField(clazz, schemaField.name());
+        if (fields[i].isAnnotationPresent(AvroEncode.class)) {
+          throw new UnsupportedValueException(fields[i] + " has a custom encoding");
+        }
+        fields[i].setAccessible(true);
+        fieldNodes[i] = fields[i].getType().isPrimitive() ? null : getNode(schemaField.schema());
+      }
+    }
+
+    public Object copy(Object value) {
+      Object copy = newInstance(ctor);
+      try {
+        for (int i = 0; i < fields.length; i++) {
+          Field field = fields[i];
+          if (fieldNodes[i] == null) {
+            copyPrimitive(field, value, copy);
+          } else {
+            field.set(copy, fieldNodes[i].copy(field.get(value)));
+          }
+        }
+      } catch (IllegalAccessException e) {
+        throw new UnsupportedValueException(e.getMessage());
+      } catch (IllegalArgumentException e) {
+        throw new UnsupportedValueException(e.getMessage());
+      }
+      return copy;
+    }
+  }
+
+  private static void copyPrimitive(Field field, Object source, Object target) throws IllegalAccessException {
+    Class<?> type = field.getType();
+    if (type == int.class) {
+      field.setInt(target, field.getInt(source));
+    } else if (type == long.class) {
+      field.setLong(target, field.getLong(source));
+    } else if (type == double.class) {
+      field.setDouble(target, field.getDouble(source));
+    } else if (type == float.class) {
+      field.setFloat(target, field.getFloat(source));
+    } else if (type == boolean.class) {
+      field.setBoolean(target, field.getBoolean(source));
+    } else if (type == short.class) {
+      field.setShort(target, field.getShort(source));
+    } else if (type == byte.class) {
+      field.setByte(target, field.getByte(source));
+    } else {
+      field.setChar(target, field.getChar(source));
+    }
+  }
+
+  static Field findField(Class<?> clazz, String name) {
+    for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+      for (Field field : c.getDeclaredFields()) {
+        int modifiers = field.getModifiers();
+        if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) {
+          continue;
+        }
+        AvroName avroName = field.getAnnotation(AvroName.class);
+        if (name.equals(avroName != null ? avroName.value() : field.getName())) {
+          if (Modifier.isFinal(modifiers)) {
+            throw new UnsupportedValueException(field + " is final");
+          }
+          return field;
+        }
+      }
+    }
+    throw new UnsupportedValueException(clazz + " has no field named " + name);
+  }
+
+  static Constructor<?> getDefaultConstructor(Class<?> clazz) {
+    try {
+      Constructor<?> ctor = clazz.getDeclaredConstructor();
+      ctor.setAccessible(true);
+      return ctor;
+    } catch (NoSuchMethodException e) {
+      return null;
+    } catch (SecurityException e) {
+      return null;
+    }
+  }
+
+  static Object newInstance(Constructor<?> ctor) {
+    try {
+      return ctor.newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new UnsupportedValueException("Could not create an instance of " + ctor.getDeclaringClass());
+    }
+  }
+}
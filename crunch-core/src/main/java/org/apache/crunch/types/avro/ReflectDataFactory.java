@@ -34,11 +34,11 @@ public class ReflectDataFactory implements ReaderWriterFactory {
 
   @Override
   public <T> ReflectDatumReader<T> getReader(Schema schema) {
-    return new ReflectDatumReader<T>(schema);
+    return new CrunchReflectDatumReader<T>(schema);
   }
 
   @Override
   public <T> ReflectDatumWriter<T> getWriter(Schema schema) {
-    return new ReflectDatumWriter<T>(schema);
+    return new CrunchReflectDatumWriter<T>(schema);
   }
 }
@@ -0,0 +1,122 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.types.avro;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.List;
+
+import org.apache.avro.Schema;
+import org.apache.avro.reflect.AvroEncode;
+import org.apache.avro.reflect.Stringable;
+import org.apache.crunch.types.avro.ReflectCopier.UnsupportedValueException;
+
+/**
+ * The no-argument constructor and the fields of a reflect-based record class that hold the fields of a record
+ * schema, resolved once so that the fields of records can be read and written directly by the
+ * {@link CrunchReflectDatumWriter} and {@link CrunchReflectDatumReader}. Fields of the primitive types that Avro
+ * encodes natively are accessed without boxing.
+ */
+class ReflectRecordPlan {
+
+  static final int OBJECT = 0;
+  static final int INT = 1;
+  static final int LONG = 2;
+  static final int FLOAT = 3;
+  static final int DOUBLE = 4;
+  static final int BOOLEAN = 5;
+
+  private final Class<?> clazz;
+  private final Constructor<?> ctor;
+  // The fields, their kinds and their schemas, by the position of the field in the record schema
+  final Field[] fields;
+  final int[] kinds;
+  final Schema[] schemas;
+
+  /**
+   * @throws UnsupportedValueException if the class has no no-argument constructor, or if a field cannot be
+   *     accessed directly, such as a field with a custom encoding or a logical type
+   */
+  ReflectRecordPlan(Class<?> clazz, Schema schema) {
+    this.clazz = clazz;
+    this.ctor = Modifier.isAbstract(clazz.getModifiers()) ? null : ReflectCopier.getDefaultConstructor(clazz);
+    if (ctor == null) {
+      throw new UnsupportedValueException(clazz + " has no default constructor");
+    }
+    List<Schema.Field> schemaFields = schema.getFields();
+    this.fields = new Field[schemaFields.size()];
+    this.kinds = new int[fields.length];
+    this.schemas = new Schema[fields.length];
+    for (int i = 0; i < fields.length; i++) {
+      Schema.Field schemaField = schemaFields.get(i);
+      Field field = ReflectCopier.findField(clazz, schemaField.name());
+      if (field.isAnnotationPresent(AvroEncode.class) || field.isAnnotationPresent(Stringable.class)
+          || schemaField.schema().getLogicalType() != null) {
+        throw new UnsupportedValueException(field + " has a custom encoding");
+      }
+      field.setAccessible(true);
+      fields[i] = field;
+      kinds[i] = getKind(field.getType(), schemaField.schema());
+      schemas[i] = schemaField.schema();
+    }
+  }
+
+  private static int getKind(Class<?> type, Schema schema) {
+    if (!type.isPrimitive()) {
+      return OBJECT;
+    }
+    switch (schema.getType()) {
+    case INT:
+      if (type == int.class) {
+        return INT;
+      }
+      break;
+    case LONG:
+      if (type == long.class) {
+        return LONG;
+      }
+      break;
+    case FLOAT:
+      if (type == float.class) {
+        return FLOAT;
+      }
+      break;
+    case DOUBLE:
+      if (type == double.class) {
+        return DOUBLE;
+      }
+      break;
+    case BOOLEAN:
+      if (type == boolean.class) {
+        return BOOLEAN;
+      }
+      break;
+    default:
+    }
+    throw new UnsupportedValueException("Cannot access a field of type " + type + " as " + schema.getType());
+  }
+
+  Class<?> getRecordClass() {
+    return clazz;
+  }
+
+  Object newInstance() {
+    return ReflectCopier.newInstance(ctor);
+  }
+}
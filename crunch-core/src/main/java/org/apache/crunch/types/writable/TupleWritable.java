@@ -21,8 +21,10 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Map;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
 import org.apache.commons.lang.builder.HashCodeBuilder;
 import org.apache.crunch.CrunchRuntimeException;
 import org.apache.hadoop.conf.Configurable;
@@ -274,6 +276,17 @@ public class TupleWritable extends Configured implements WritableComparable<Tupl
       return INSTANCE;
     }
 
+    /**
+     * The comparators for the fields of each code, per thread, since the generic comparators that Hadoop
+     * creates for classes without a registered raw comparator deserialize into shared instances.
+     */
+    private static final ThreadLocal<FieldComparators> FIELD_COMPARATORS = new ThreadLocal<FieldComparators>() {
+      @Override
+      protected FieldComparators initialValue() {
+        return new FieldComparators();
+      }
+    };
+
     public Comparator() {
       super(TupleWritable.class);
     }
@@ -295,22 +308,47 @@ public class TupleWritable extends Configured implements WritableComparable<Tupl
 
     @Override
     public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
-      DataInputBuffer buffer1 = new DataInputBuffer();
-      DataInputBuffer buffer2 = new DataInputBuffer();
-
+      // Fields are compared in place, reading the vint headers straight from the arrays and delegating
+      // the bodies to the comparators of their classes, so that nothing is allocated per comparison.
+      FieldComparators comparators = FIELD_COMPARATORS.get();
       try {
-        buffer1.reset(b1, s1, l1);
-        buffer2.reset(b2, s2, l2);
-
-        int card1 = WritableUtils.readVInt(buffer1);
-        int card2 = WritableUtils.readVInt(buffer2);
+        int card1 = readVInt(b1, s1);
+        int card2 = readVInt(b2, s2);
+        int p1 = s1 + WritableUtils.decodeVIntSize(b1[s1]);
+        int p2 = s2 + WritableUtils.decodeVIntSize(b2[s2]);
         int minCard = Math.min(card1, card2);
 
         for (int i = 0; i < minCard; i++) {
-          int cmp = compareField(buffer1, buffer2);
+          int written1 = readVInt(b1, p1);
+          int written2 = readVInt(b2, p2);
+          p1 += WritableUtils.decodeVIntSize(b1[p1]);
+          p2 += WritableUtils.decodeVIntSize(b2[p2]);
+          boolean hasValue1 = (written1 != 0);
+          boolean hasValue2 = (written2 != 0);
+          if (!hasValue1 && !hasValue2) {
+            continue;
+          }
+          if (hasValue1 && !hasValue2) {
+            return 1;
+          }
+          if (!hasValue1 && hasValue2) {
+            return -1;
+          }
+
+          // both side have value
+          if (written1 != written2) {
+            return written1 - written2;
+          }
+          int bodySize1 = readVInt(b1, p1);
+          int bodySize2 = readVInt(b2, p2);
+          p1 += WritableUtils.decodeVIntSize(b1[p1]);
+          p2 += WritableUtils.decodeVIntSize(b2[p2]);
+          int cmp = comparators.get(written1).compare(b1, p1, bodySize1, b2, p2, bodySize2);
           if (cmp != 0) {
             return cmp;
           }
+          p1 += bodySize1;
+          p2 += bodySize2;
         }
         return card1 - card2;
       } catch (IOException e) {
@@ -318,50 +356,76 @@ public class TupleWritable extends Configured implements WritableComparable<Tupl
       }
     }
 
-    private int compareField(DataInputBuffer buffer1, DataInputBuffer buffer2) throws IOException {
-      int written1 = WritableUtils.readVInt(buffer1);
-      int written2 = WritableUtils.readVInt(buffer2);
-      boolean hasValue1 = (written1 != 0);
-      boolean hasValue2 = (written2 != 0);
-      if (!hasValue1 && !hasValue2) {
-        return 0;
-      }
-      if (hasValue1 && !hasValue2) {
-        return 1;
+    @Override
+    public int compare(WritableComparable a, WritableComparable b) {
+      return super.compare(a, b);
+    }
+  }
+
+  /**
+   * Caches the comparator for the fields of each code that is registered in {@link Writables#WRITABLE_CODES},
+   * so that it is only resolved on the first comparison of a field with that code.
+   */
+  private static class FieldComparators {
+
+    private final WritableComparator[] byCode = new WritableComparator[Writables.WRITABLE_CODES.size() + 1];
+    private final Map<Integer, WritableComparator> byLargeCode = Maps.newHashMap();
+
+    public WritableComparator get(int code) {
+      if (code >= 0 && code < byCode.length) {
+        WritableComparator comparator = byCode[code];
+        if (comparator == null) {
+          comparator = create(code);
+          byCode[code] = comparator;
+        }
+        return comparator;
       }
-      if (!hasValue1 && hasValue2) {
-        return -1;
+      WritableComparator comparator = byLargeCode.get(code);
+      if (comparator == null) {
+        comparator = create(code);
+        byLargeCode.put(code, comparator);
       }
+      return comparator;
+    }
 
-      // both side have value
-      if (written1 != written2) {
-        return written1 - written2;
+    private static WritableComparator create(int code) {
+      Class<? extends Writable> clazz = Writables.WRITABLE_CODES.get(code);
+      if (clazz == null) {
+        throw new IllegalStateException("Unknown Writable code: " + code);
       }
-      int bodySize1 = WritableUtils.readVInt(buffer1);
-      int bodySize2 = WritableUtils.readVInt(buffer2);
-      Class<? extends Writable> clazz = Writables.WRITABLE_CODES.get(written1);
       if (WritableComparable.class.isAssignableFrom(clazz)) {
-        int cmp = WritableComparator.get(clazz.asSubclass(WritableComparable.class)).compare(
-            buffer1.getData(), buffer1.getPosition(), bodySize1,
-            buffer2.getData(), buffer2.getPosition(), bodySize2);
-        long skipped1 = buffer1.skip(bodySize1);
-        long skipped2 = buffer2.skip(bodySize2);
-        Preconditions.checkState(skipped1 == bodySize1);
-        Preconditions.checkState(skipped2 == bodySize2);
-        return cmp;
-      } else {
-        // fallback to deserialization
-        Writable w1 = ReflectionUtils.newInstance(clazz, null);
-        Writable w2 = ReflectionUtils.newInstance(clazz, null);
-        w1.readFields(buffer1);
-        w2.readFields(buffer2);
-        return w1.hashCode() - w2.hashCode();
+        return WritableComparator.get(clazz.asSubclass(WritableComparable.class));
       }
+      return new HashCodeComparator(clazz);
+    }
+  }
+
+  /**
+   * Orders the fields of a class that is not {@link WritableComparable} by their hash codes, deserializing them
+   * into instances that are reused between comparisons.
+   */
+  private static class HashCodeComparator extends WritableComparator {
+
+    private final DataInputBuffer buffer = new DataInputBuffer();
+    private final Writable w1;
+    private final Writable w2;
+
+    public HashCodeComparator(Class<? extends Writable> clazz) {
+      this.w1 = ReflectionUtils.newInstance(clazz, null);
+      this.w2 = ReflectionUtils.newInstance(clazz, null);
     }
 
     @Override
-    public int compare(WritableComparable a, WritableComparable b) {
-      return super.compare(a, b);
+    public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+      try {
+        buffer.reset(b1, s1, l1);
+        w1.readFields(buffer);
+        buffer.reset(b2, s2, l2);
+        w2.readFields(buffer);
+      } catch (IOException e) {
+        throw new CrunchRuntimeException(e);
+      }
+      return w1.hashCode() - w2.hashCode();
     }
   }
 
@@ -0,0 +1,192 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.io.Writable;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A Bloom filter that keeps all of the bits for each key in a single 512-bit block, the size of a
+ * typical CPU cache line, so that adding or testing a key touches one cache line instead of one per
+ * hash function. The price is a somewhat higher false positive rate than a standard Bloom filter of
+ * the same size, which {@link #create(long, double)} compensates for with extra space.
+ * <p>
+ * Keys are added and tested by their 64-bit hashes, which callers can compute without allocating.
+ * Filters with the same dimensions can be merged with {@link #or(BlockedBloomFilter)}. The filter is
+ * a {@link Writable}, so it can be used with {@code Writables.writables} and {@code Avros.writables}.
+ */
+public class BlockedBloomFilter implements Writable {
+
+  private static final int WORDS_PER_BLOCK = 8;
+  private static final int MAX_HASHES = 16;
+
+  private int numBlocks;
+  private int numHashes;
+  private long[] bits;
+
+  /**
+   * Creates an empty filter that will be populated by {@link #readFields(DataInput)}.
+   */
+  public BlockedBloomFilter() {
+  }
+
+  /**
+   * Creates an empty filter with the given number of 512-bit blocks and hash functions.
+   */
+  public BlockedBloomFilter(int numBlocks, int numHashes) {
+    Preconditions.checkArgument(numBlocks > 0, "Number of blocks must be positive: %s", numBlocks);
+    Preconditions.checkArgument(numHashes > 0 && numHashes <= MAX_HASHES,
+        "Number of hashes must be between 1 and %s: %s", MAX_HASHES, numHashes);
+    this.numBlocks = numBlocks;
+    this.numHashes = numHashes;
+    this.bits = new long[numBlocks * WORDS_PER_BLOCK];
+  }
+
+  /**
+   * Creates an empty filter that is sized for the given number of keys and false positive rate.
+   */
+  public static BlockedBloomFilter create(long expectedKeys, double falsePositiveRate) {
+    Preconditions.checkArgument(falsePositiveRate > 0.0 && falsePositiveRate < 1.0,
+        "False positive rate must be in (0, 1): %s", falsePositiveRate);
+    long n = Math.max(1L, expectedKeys);
+    // Blocking skews the number of keys per block, so allocate a fifth more bits than a standard filter
+    double numBits = 1.2 * -n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+    int numBlocks = (int) Math.min(Integer.MAX_VALUE / WORDS_PER_BLOCK,
+        Math.max(1L, (long) Math.ceil(numBits / (64 * WORDS_PER_BLOCK))));
+    int numHashes = (int) Math.round(-Math.log(falsePositiveRate) / Math.log(2));
+    return new BlockedBloomFilter(numBlocks, Math.max(1, Math.min(MAX_HASHES, numHashes)));
+  }
+
+  public int getNumBlocks() {
+    return numBlocks;
+  }
+
+  public int getNumHashes() {
+    return numHashes;
+  }
+
+  /**
+   * Adds a key with the given 64-bit hash to this filter.
+   */
+  public void addHash(long hash) {
+    int base = block(hash);
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 0; i < numHashes; i++) {
+      int bit = (h1 + i * h2) >>> 23;
+      bits[base + (bit >>> 6)] |= 1L << bit;
+    }
+  }
+
+  /**
+   * Returns false if a key with the given 64-bit hash was definitely not added to this filter.
+   */
+  public boolean mightContainHash(long hash) {
+    int base = block(hash);
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 0; i < numHashes; i++) {
+      int bit = (h1 + i * h2) >>> 23;
+      if ((bits[base + (bit >>> 6)] & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // The block is chosen by bits that are independent of those that choose the bits within it
+  private int block(long hash) {
+    return (int) (((HashUtil.mix64(hash) >>> 32) * numBlocks) >>> 32) * WORDS_PER_BLOCK;
+  }
+
+  /**
+   * Adds the given key to this filter, using {@link #hash(Object)} to hash it.
+   */
+  public void add(Object key) {
+    addHash(hash(key));
+  }
+
+  /**
+   * Returns false if the given key was definitely not added to this filter.
+   */
+  public boolean mightContain(Object key) {
+    return mightContainHash(hash(key));
+  }
+
+  /**
+   * Hashes a key without allocating for strings, byte arrays and integral numbers. Other keys are
+   * hashed by their {@code hashCode}, which must be consistent across JVMs.
+   */
+  public static long hash(Object key) {
+    if (key == null) {
+      return 0L;
+    } else if (key instanceof CharSequence) {
+      return HashUtil.hashChars64((CharSequence) key);
+    } else if (key instanceof byte[]) {
+      byte[] bytes = (byte[]) key;
+      return HashUtil.hashBytes64(bytes, 0, bytes.length);
+    } else if (key instanceof Long || key instanceof Integer || key instanceof Short || key instanceof Byte) {
+      return HashUtil.mix64(((Number) key).longValue() * 0x9E3779B97F4A7C15L);
+    }
+    return HashUtil.mix64(key.hashCode());
+  }
+
+  /**
+   * Merges the given filter into this one, so that this filter contains the keys of both. The filters
+   * must have the same dimensions.
+   */
+  public BlockedBloomFilter or(BlockedBloomFilter other) {
+    Preconditions.checkArgument(numBlocks == other.numBlocks && numHashes == other.numHashes,
+        "Cannot merge filters with different dimensions");
+    for (int i = 0; i < bits.length; i++) {
+      bits[i] |= other.bits[i];
+    }
+    return this;
+  }
+
+  @Override
+  public void write(DataOutput out) throws IOException {
+    out.writeInt(numBlocks);
+    out.writeInt(numHashes);
+    for (long word : bits) {
+      out.writeLong(word);
+    }
+  }
+
+  @Override
+  public void readFields(DataInput in) throws IOException {
+    numBlocks = in.readInt();
+    numHashes = in.readInt();
+    if (bits == null || bits.length != numBlocks * WORDS_PER_BLOCK) {
+      bits = new long[numBlocks * WORDS_PER_BLOCK];
+    }
+    for (int i = 0; i < bits.length; i++) {
+      bits[i] = in.readLong();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "BlockedBloomFilter(blocks=" + numBlocks + ", hashes=" + numHashes + ")";
+  }
+}
@@ -18,6 +18,11 @@
 
 package org.apache.crunch.util;
 
+import java.nio.ByteBuffer;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
 /**
  * Utility methods for working with hash codes.
  */
@@ -39,4 +44,97 @@ public class HashUtil {
     hashCode ^= (hashCode >>> 20) ^ (hashCode >>> 12);
     return hashCode ^ (hashCode >>> 7) ^ (hashCode >>> 4);
   }
+
+  private static final HashFunction MURMUR3 = Hashing.murmur3_128();
+
+  /**
+   * Computes a well-distributed 64-bit hash of the given value, e.g. for use in probabilistic data
+   * structures. Strings, byte arrays, byte buffers and integral numbers are hashed by their contents;
+   * other values are hashed by mixing the bits of their {@code hashCode}, and so only have 32 bits of
+   * entropy: distinct values of other types collide once there are more than a few tens of millions of
+   * them, which biases cardinality estimates well before 2^32 values. Use a {@link ValueHasher} to hash
+   * such values by their serialized form instead.
+   */
+  public static long hash64(Object value) {
+    if (value == null) {
+      return 0L;
+    } else if (value instanceof CharSequence) {
+      return MURMUR3.hashString((CharSequence) value).asLong();
+    } else if (value instanceof byte[]) {
+      return MURMUR3.hashBytes((byte[]) value).asLong();
+    } else if (value instanceof ByteBuffer) {
+      ByteBuffer bb = ((ByteBuffer) value).duplicate();
+      byte[] bytes = new byte[bb.remaining()];
+      bb.get(bytes);
+      return MURMUR3.hashBytes(bytes).asLong();
+    } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+      return MURMUR3.hashLong(((Number) value).longValue()).asLong();
+    }
+    return mix64(value.hashCode());
+  }
+
+  /**
+   * Returns true if {@link #hash64(Object)} hashes the given non-null value by its contents rather than
+   * by its {@code hashCode}.
+   */
+  public static boolean hashesContents(Object value) {
+    return value instanceof CharSequence || value instanceof byte[] || value instanceof ByteBuffer
+        || value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+  }
+
+  private static final long PRIME = 0x9E3779B97F4A7C15L;
+
+  /**
+   * Computes a well-distributed 64-bit hash of the given range of bytes without allocating any objects,
+   * for use on hot paths where {@link #hash64(Object)} is too expensive.
+   */
+  public static long hashBytes64(byte[] bytes, int offset, int length) {
+    long h = length * PRIME;
+    int i = offset;
+    int end = offset + length;
+    for (; i + 8 <= end; i += 8) {
+      long k = (bytes[i] & 0xffL) | (bytes[i + 1] & 0xffL) << 8 | (bytes[i + 2] & 0xffL) << 16
+          | (bytes[i + 3] & 0xffL) << 24 | (bytes[i + 4] & 0xffL) << 32 | (bytes[i + 5] & 0xffL) << 40
+          | (bytes[i + 6] & 0xffL) << 48 | (bytes[i + 7] & 0xffL) << 56;
+      h = Long.rotateLeft(h ^ mix64(k), 27) * PRIME;
+    }
+    long k = 0;
+    for (int shift = 0; i < end; i++, shift += 8) {
+      k |= (bytes[i] & 0xffL) << shift;
+    }
+    return mix64(h ^ mix64(k));
+  }
+
+  /**
+   * Computes a well-distributed 64-bit hash of the characters of the given sequence without allocating
+   * any objects.
+   */
+  public static long hashChars64(CharSequence chars) {
+    int length = chars.length();
+    long h = length * PRIME;
+    int i = 0;
+    for (; i + 4 <= length; i += 4) {
+      long k = chars.charAt(i) | (long) chars.charAt(i + 1) << 16 | (long) chars.charAt(i + 2) << 32
+          | (long) chars.charAt(i + 3) << 48;
+      h = Long.rotateLeft(h ^ mix64(k), 27) * PRIME;
+    }
+    long k = 0;
+    for (int shift = 0; i < length; i++, shift += 16) {
+      k |= (long) chars.charAt(i) << shift;
+    }
+    return mix64(h ^ mix64(k));
+  }
+
+  /**
+   * The finalization step of the 64-bit MurmurHash3 function, which mixes the bits of the given value
+   * so that each input bit affects each output bit.
+   */
+  public static long mix64(long k) {
+    k ^= k >>> 33;
+    k *= 0xff51afd7ed558ccdL;
+    k ^= k >>> 33;
+    k *= 0xc4ceb9fe1a85ec53L;
+    k ^= k >>> 33;
+    return k;
+  }
 }
@@ -0,0 +1,268 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A HyperLogLog sketch for estimating the number of distinct values in a data set using a fixed
+ * amount of memory. The relative standard error of the estimate is about {@code 1.04 / sqrt(2^p)} for
+ * a sketch with precision {@code p}, e.g. 0.8% for the default precision of 14, which uses 16KB.
+ * <p>
+ * Sketches with the same precision can be merged, so that sketches of the parts of a data set can
+ * be combined into a sketch of the whole. Sketches that have seen few distinct values are stored
+ * sparsely, which keeps sketches of single values small.
+ */
+public class HyperLogLog {
+
+  /** The default precision of a sketch. */
+  public static final int DEFAULT_PRECISION = 14;
+
+  public static final int MIN_PRECISION = 4;
+  public static final int MAX_PRECISION = 18;
+
+  private static final byte SPARSE = 0;
+  private static final byte DENSE = 1;
+
+  private final int precision;
+  // Registers of a sparse sketch, encoded as (index << 6 | value) and sorted by index
+  private int[] sparse;
+  private int sparseSize;
+  private byte[] registers;
+
+  /**
+   * Creates an empty sketch with the {@link #DEFAULT_PRECISION}.
+   */
+  public HyperLogLog() {
+    this(DEFAULT_PRECISION);
+  }
+
+  /**
+   * Creates an empty sketch that uses {@code 2^precision} registers.
+   */
+  public HyperLogLog(int precision) {
+    Preconditions.checkArgument(precision >= MIN_PRECISION && precision <= MAX_PRECISION,
+        "Precision must be between %s and %s: %s", MIN_PRECISION, MAX_PRECISION, precision);
+    this.precision = precision;
+    this.sparse = new int[4];
+  }
+
+  public int getPrecision() {
+    return precision;
+  }
+
+  /**
+   * Adds the given value to this sketch, using {@link HashUtil#hash64(Object)} to hash it. Values that
+   * it only hashes by their {@code hashCode} should be added with {@link #addHash} and a
+   * {@link ValueHasher} instead, since their 32-bit hashes limit the cardinalities that can be estimated.
+   */
+  public HyperLogLog add(Object value) {
+    return addHash(HashUtil.hash64(value));
+  }
+
+  /**
+   * Adds a value with the given 64-bit hash to this sketch.
+   */
+  public HyperLogLog addHash(long hash) {
+    int index = (int) (hash >>> (64 - precision));
+    // The marker bit bounds the register value when the remaining bits are all zero
+    long w = (hash << precision) | (1L << (precision - 1));
+    update(index, Long.numberOfLeadingZeros(w) + 1);
+    return this;
+  }
+
+  private void update(int index, int value) {
+    if (registers != null) {
+      if (registers[index] < value) {
+        registers[index] = (byte) value;
+      }
+      return;
+    }
+    int pos = findSparse(index);
+    if (pos >= 0) {
+      if ((sparse[pos] & 0x3f) < value) {
+        sparse[pos] = (index << 6) | value;
+      }
+      return;
+    }
+    if (sparseSize >= maxSparseSize()) {
+      toDense();
+      registers[index] = (byte) value;
+      return;
+    }
+    int insertAt = -(pos + 1);
+    if (sparseSize == sparse.length) {
+      sparse = Arrays.copyOf(sparse, Math.min(2 * sparse.length, maxSparseSize()));
+    }
+    System.arraycopy(sparse, insertAt, sparse, insertAt + 1, sparseSize - insertAt);
+    sparse[insertAt] = (index << 6) | value;
+    sparseSize++;
+  }
+
+  // A sparse sketch takes up as much memory as a dense one at this size
+  private int maxSparseSize() {
+    return Math.max(4, (1 << precision) / 4);
+  }
+
+  private int findSparse(int index) {
+    int lo = 0;
+    int hi = sparseSize - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      int midIndex = sparse[mid] >>> 6;
+      if (midIndex < index) {
+        lo = mid + 1;
+      } else if (midIndex > index) {
+        hi = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(lo + 1);
+  }
+
+  private void toDense() {
+    registers = new byte[1 << precision];
+    for (int i = 0; i < sparseSize; i++) {
+      registers[sparse[i] >>> 6] = (byte) (sparse[i] & 0x3f);
+    }
+    sparse = null;
+    sparseSize = 0;
+  }
+
+  /**
+   * Merges the given sketch into this one, so that this sketch estimates the number of distinct values
+   * that were added to either of them.
+   */
+  public HyperLogLog merge(HyperLogLog other) {
+    Preconditions.checkArgument(precision == other.precision,
+        "Cannot merge sketches with different precisions: %s and %s", precision, other.precision);
+    if (other.registers != null) {
+      if (registers == null) {
+        toDense();
+      }
+      for (int i = 0; i < registers.length; i++) {
+        if (registers[i] < other.registers[i]) {
+          registers[i] = other.registers[i];
+        }
+      }
+    } else {
+      for (int i = 0; i < other.sparseSize; i++) {
+        update(other.sparse[i] >>> 6, other.sparse[i] & 0x3f);
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Returns the estimated number of distinct values that were added to this sketch.
+   */
+  public long cardinality() {
+    int m = 1 << precision;
+    double sum = 0.0;
+    int zeros = 0;
+    if (registers != null) {
+      for (byte r : registers) {
+        sum += 1.0 / (1L << r);
+        if (r == 0) {
+          zeros++;
+        }
+      }
+    } else {
+      zeros = m - sparseSize;
+      sum = zeros;
+      for (int i = 0; i < sparseSize; i++) {
+        sum += 1.0 / (1L << (sparse[i] & 0x3f));
+      }
+    }
+    double estimate = alpha(m) * m * m / sum;
+    if (estimate <= 2.5 * m && zeros > 0) {
+      // Linear counting is more accurate for small cardinalities
+      estimate = m * Math.log((double) m / zeros);
+    }
+    return Math.round(estimate);
+  }
+
+  private static double alpha(int m) {
+    switch (m) {
+    case 16:
+      return 0.673;
+    case 32:
+      return 0.697;
+    case 64:
+      return 0.709;
+    default:
+      return 0.7213 / (1.0 + 1.079 / m);
+    }
+  }
+
+  /**
+   * Returns a serialized form of this sketch that can be read by {@link #fromBytes(ByteBuffer)}.
+   */
+  public ByteBuffer toBytes() {
+    ByteBuffer bb;
+    if (registers != null) {
+      bb = ByteBuffer.allocate(2 + registers.length);
+      bb.put(DENSE).put((byte) precision).put(registers);
+    } else {
+      bb = ByteBuffer.allocate(6 + 4 * sparseSize);
+      bb.put(SPARSE).put((byte) precision).putInt(sparseSize);
+      for (int i = 0; i < sparseSize; i++) {
+        bb.putInt(sparse[i]);
+      }
+    }
+    bb.flip();
+    return bb;
+  }
+
+  /**
+   * Reads a sketch that was serialized by {@link #toBytes()}.
+   */
+  public static HyperLogLog fromBytes(ByteBuffer input) {
+    ByteBuffer bb = input.duplicate();
+    byte format = bb.get();
+    HyperLogLog hll = new HyperLogLog(bb.get());
+    if (format == DENSE) {
+      hll.sparse = null;
+      hll.registers = new byte[1 << hll.precision];
+      bb.get(hll.registers);
+    } else {
+      hll.sparseSize = bb.getInt();
+      hll.sparse = new int[Math.max(4, hll.sparseSize)];
+      for (int i = 0; i < hll.sparseSize; i++) {
+        hll.sparse[i] = bb.getInt();
+      }
+    }
+    return hll;
+  }
+
+  /**
+   * Returns a copy of this sketch.
+   */
+  public HyperLogLog copy() {
+    return fromBytes(toBytes());
+  }
+
+  @Override
+  public String toString() {
+    return "HyperLogLog(precision=" + precision + ", cardinality=" + cardinality() + ")";
+  }
+}
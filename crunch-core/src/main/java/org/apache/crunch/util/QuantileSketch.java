@@ -0,0 +1,306 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+/**
+ * A mergeable sketch for estimating the quantiles of a stream of numbers using bounded memory, based
+ * on the KLL algorithm from "Optimal Quantile Approximation in Streams" by Karnin, Lang and Liberty.
+ * <p>
+ * The sketch retains a sample of the values it has seen in a hierarchy of levels, where each value on
+ * level {@code h} stands for {@code 2^h} of the original values. The accuracy parameter {@code k}
+ * bounds the number of retained values to about {@code 3k}; the rank error of the estimates is about
+ * 1.7% with the default {@code k} of 200. The minimum and maximum values are tracked exactly.
+ */
+public class QuantileSketch {
+
+  /** The default accuracy parameter of a sketch. */
+  public static final int DEFAULT_K = 200;
+
+  private static final double DECAY = 2.0 / 3.0;
+
+  private final int k;
+  private final List<Level> levels = Lists.newArrayList();
+  private long count;
+  private double min = Double.NaN;
+  private double max = Double.NaN;
+  // State of the generator used to pick which half of a level is promoted
+  private long random = 0x9E3779B97F4A7C15L;
+
+  private static class Level {
+    private double[] items = new double[8];
+    private int size;
+
+    void add(double value) {
+      if (size == items.length) {
+        items = Arrays.copyOf(items, 2 * size);
+      }
+      items[size++] = value;
+    }
+  }
+
+  /**
+   * Creates an empty sketch with the {@link #DEFAULT_K} accuracy parameter.
+   */
+  public QuantileSketch() {
+    this(DEFAULT_K);
+  }
+
+  /**
+   * Creates an empty sketch with the given accuracy parameter. Larger values of {@code k} give more
+   * accurate estimates, using memory proportional to {@code k}.
+   */
+  public QuantileSketch(int k) {
+    Preconditions.checkArgument(k >= 8, "k must be at least 8: %s", k);
+    this.k = k;
+    levels.add(new Level());
+  }
+
+  public int getK() {
+    return k;
+  }
+
+  /** @return the number of values that were added to this sketch */
+  public long getCount() {
+    return count;
+  }
+
+  /** @return the smallest value that was added to this sketch, or NaN if the sketch is empty */
+  public double getMin() {
+    return min;
+  }
+
+  /** @return the largest value that was added to this sketch, or NaN if the sketch is empty */
+  public double getMax() {
+    return max;
+  }
+
+  /**
+   * Adds the given value to this sketch. NaN values are ignored.
+   */
+  public QuantileSketch add(double value) {
+    if (Double.isNaN(value)) {
+      return this;
+    }
+    updateMinMax(value, value);
+    count++;
+    levels.get(0).add(value);
+    compress();
+    return this;
+  }
+
+  private void updateMinMax(double otherMin, double otherMax) {
+    if (Double.isNaN(min) || otherMin < min) {
+      min = otherMin;
+    }
+    if (Double.isNaN(max) || otherMax > max) {
+      max = otherMax;
+    }
+  }
+
+  /**
+   * Merges the given sketch into this one, so that this sketch summarizes the values that were added
+   * to either of them. Both sketches must have the same accuracy parameter.
+   */
+  public QuantileSketch merge(QuantileSketch other) {
+    Preconditions.checkArgument(k == other.k, "Cannot merge sketches with different k: %s and %s", k, other.k);
+    if (other.count == 0) {
+      return this;
+    }
+    updateMinMax(other.min, other.max);
+    count += other.count;
+    for (int h = 0; h < other.levels.size(); h++) {
+      if (h == levels.size()) {
+        levels.add(new Level());
+      }
+      Level from = other.levels.get(h);
+      Level to = levels.get(h);
+      for (int i = 0; i < from.size; i++) {
+        to.add(from.items[i]);
+      }
+    }
+    compress();
+    return this;
+  }
+
+  private int capacity(int level) {
+    return Math.max(2, (int) Math.ceil(k * Math.pow(DECAY, levels.size() - 1 - level)));
+  }
+
+  private void compress() {
+    while (true) {
+      int retained = 0;
+      int totalCapacity = 0;
+      for (int h = 0; h < levels.size(); h++) {
+        retained += levels.get(h).size;
+        totalCapacity += capacity(h);
+      }
+      if (retained <= totalCapacity) {
+        return;
+      }
+      for (int h = 0; h < levels.size(); h++) {
+        if (levels.get(h).size >= capacity(h)) {
+          compact(h);
+          break;
+        }
+      }
+    }
+  }
+
+  // Promotes either the odd or the even items of a sorted level to the next level
+  private void compact(int h) {
+    if (h + 1 == levels.size()) {
+      levels.add(new Level());
+    }
+    Level level = levels.get(h);
+    Level next = levels.get(h + 1);
+    Arrays.sort(level.items, 0, level.size);
+    // When the level has an odd number of items, the smallest one stays behind
+    int start = level.size % 2;
+    for (int i = start + (nextBit() ? 1 : 0); i < level.size; i += 2) {
+      next.add(level.items[i]);
+    }
+    level.size = start;
+  }
+
+  private boolean nextBit() {
+    random ^= random << 13;
+    random ^= random >>> 7;
+    random ^= random << 17;
+    return (random & 1L) == 1L;
+  }
+
+  /**
+   * Returns an estimate of the given quantile using the "nearest rank" definition, or NaN if the
+   * sketch is empty.
+   */
+  public double getQuantile(double quantile) {
+    return getQuantiles(new double[] { quantile })[0];
+  }
+
+  /**
+   * Returns estimates of the given quantiles using the "nearest rank" definition.
+   */
+  public double[] getQuantiles(double[] quantiles) {
+    double[] ret = new double[quantiles.length];
+    if (count == 0) {
+      Arrays.fill(ret, Double.NaN);
+      return ret;
+    }
+
+    for (Level level : levels) {
+      Arrays.sort(level.items, 0, level.size);
+    }
+    for (int q = 0; q < quantiles.length; q++) {
+      if (quantiles[q] <= 0.0) {
+        ret[q] = min;
+      } else if (quantiles[q] >= 1.0) {
+        ret[q] = max;
+      } else {
+        ret[q] = valueAtRank(Math.max((long) Math.ceil(quantiles[q] * count), 1L));
+      }
+    }
+    return ret;
+  }
+
+  // Walks the sorted levels in value order, weighting each item on level h by 2^h
+  private double valueAtRank(long rank) {
+    int[] positions = new int[levels.size()];
+    long cumulative = 0;
+    while (true) {
+      int best = -1;
+      for (int h = 0; h < levels.size(); h++) {
+        Level level = levels.get(h);
+        if (positions[h] < level.size
+            && (best < 0 || level.items[positions[h]] < levels.get(best).items[positions[best]])) {
+          best = h;
+        }
+      }
+      if (best < 0) {
+        return max;
+      }
+      cumulative += 1L << best;
+      if (cumulative >= rank) {
+        return levels.get(best).items[positions[best]];
+      }
+      positions[best]++;
+    }
+  }
+
+  /**
+   * Returns a serialized form of this sketch that can be read by {@link #fromBytes(ByteBuffer)}.
+   */
+  public ByteBuffer toBytes() {
+    int size = 4 + 8 + 8 + 8 + 4;
+    for (Level level : levels) {
+      size += 4 + 8 * level.size;
+    }
+    ByteBuffer bb = ByteBuffer.allocate(size);
+    bb.putInt(k).putLong(count).putDouble(min).putDouble(max).putInt(levels.size());
+    for (Level level : levels) {
+      bb.putInt(level.size);
+      for (int i = 0; i < level.size; i++) {
+        bb.putDouble(level.items[i]);
+      }
+    }
+    bb.flip();
+    return bb;
+  }
+
+  /**
+   * Reads a sketch that was serialized by {@link #toBytes()}.
+   */
+  public static QuantileSketch fromBytes(ByteBuffer input) {
+    ByteBuffer bb = input.duplicate();
+    QuantileSketch sketch = new QuantileSketch(bb.getInt());
+    sketch.count = bb.getLong();
+    sketch.min = bb.getDouble();
+    sketch.max = bb.getDouble();
+    int numLevels = bb.getInt();
+    sketch.levels.clear();
+    for (int h = 0; h < numLevels; h++) {
+      Level level = new Level();
+      int size = bb.getInt();
+      level.items = new double[Math.max(8, size)];
+      for (int i = 0; i < size; i++) {
+        level.items[i] = bb.getDouble();
+      }
+      level.size = size;
+      sketch.levels.add(level);
+    }
+    return sketch;
+  }
+
+  /**
+   * Returns a copy of this sketch.
+   */
+  public QuantileSketch copy() {
+    return fromBytes(toBytes());
+  }
+
+  @Override
+  public String toString() {
+    return "QuantileSketch(k=" + k + ", count=" + count + ", min=" + min + ", max=" + max + ")";
+  }
+}
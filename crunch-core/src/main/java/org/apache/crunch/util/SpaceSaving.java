@@ -0,0 +1,207 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.util;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.crunch.Pair;
+import org.apache.crunch.Tuple3;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * A mergeable summary for finding the most frequent items in a stream (the "heavy hitters") using bounded
+ * memory, based on the Space-Saving algorithm of Metwally, Agrawal and El Abbadi and the merge procedure
+ * from "Mergeable Summaries" by Agarwal et al.
+ * <p>
+ * The summary monitors up to {@code 2 * capacity} items. The count that it reports for an item is never
+ * less than its true count, and overestimates it by at most {@code N / capacity} for a stream of
+ * {@code N} items; every item whose true count is greater than that is guaranteed to be monitored.
+ * Counters are pruned in batches, so updates take amortized constant time.
+ */
+public class SpaceSaving<T> {
+
+  private final int capacity;
+  private final Map<T, Counter> counters = Maps.newHashMap();
+  // An upper bound on the count of any item that is not monitored
+  private long floor;
+
+  private static class Counter {
+    private long count;
+    private long error;
+
+    Counter(long count, long error) {
+      this.count = count;
+      this.error = error;
+    }
+  }
+
+  private static final Comparator<Map.Entry<?, Counter>> BY_COUNT_DESC = new Comparator<Map.Entry<?, Counter>>() {
+    @Override
+    public int compare(Map.Entry<?, Counter> a, Map.Entry<?, Counter> b) {
+      return Long.compare(b.getValue().count, a.getValue().count);
+    }
+  };
+
+  /**
+   * Creates an empty summary that guarantees to monitor the given number of most frequent items.
+   */
+  public SpaceSaving(int capacity) {
+    Preconditions.checkArgument(capacity > 0, "Capacity must be positive: %s", capacity);
+    this.capacity = capacity;
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Returns an upper bound on the count of any item that is not monitored by this summary.
+   */
+  public long getFloor() {
+    return floor;
+  }
+
+  /**
+   * Counts an occurrence of the given item. The item is retained by the summary, so it should not be
+   * modified afterwards.
+   */
+  public SpaceSaving<T> offer(T item) {
+    return offer(item, 1L);
+  }
+
+  /**
+   * Counts the given number of occurrences of the given item. The item is retained by the summary, so
+   * it should not be modified afterwards.
+   */
+  public SpaceSaving<T> offer(T item, long count) {
+    Counter counter = counters.get(item);
+    if (counter == null) {
+      // The item may have been seen as often as the floor before it was monitored
+      counters.put(item, new Counter(floor + count, floor));
+      if (counters.size() > 2 * capacity) {
+        prune();
+      }
+    } else {
+      counter.count += count;
+    }
+    return this;
+  }
+
+  private void prune() {
+    List<Map.Entry<T, Counter>> entries = sortedEntries();
+    for (Map.Entry<T, Counter> e : entries.subList(capacity, entries.size())) {
+      floor = Math.max(floor, e.getValue().count);
+      counters.remove(e.getKey());
+    }
+  }
+
+  private List<Map.Entry<T, Counter>> sortedEntries() {
+    List<Map.Entry<T, Counter>> entries = Lists.newArrayList(counters.entrySet());
+    Collections.sort(entries, BY_COUNT_DESC);
+    return entries;
+  }
+
+  /**
+   * Merges the given summary into this one, so that this summary counts the items that were offered to
+   * either of them.
+   */
+  public SpaceSaving<T> merge(SpaceSaving<T> other) {
+    // Items that are only monitored by one of the summaries may have occurred as often as the floor
+    // of the other one
+    for (Map.Entry<T, Counter> e : counters.entrySet()) {
+      if (!other.counters.containsKey(e.getKey())) {
+        e.getValue().count += other.floor;
+        e.getValue().error += other.floor;
+      }
+    }
+    long thisFloor = floor;
+    for (Map.Entry<T, Counter> e : other.counters.entrySet()) {
+      Counter counter = counters.get(e.getKey());
+      if (counter == null) {
+        counters.put(e.getKey(), new Counter(e.getValue().count + thisFloor, e.getValue().error + thisFloor));
+      } else {
+        counter.count += e.getValue().count;
+        counter.error += e.getValue().error;
+      }
+    }
+    floor += other.floor;
+    if (counters.size() > 2 * capacity) {
+      prune();
+    }
+    return this;
+  }
+
+  /**
+   * Returns the estimated count of the given item, which is never less than its true count.
+   */
+  public long estimateCount(T item) {
+    Counter counter = counters.get(item);
+    return counter == null ? floor : counter.count;
+  }
+
+  /**
+   * Returns up to {@code k} of the most frequent items along with their estimated counts, in descending
+   * order of count. {@code k} should be no more than the capacity of the summary.
+   */
+  public List<Pair<T, Long>> top(int k) {
+    List<Pair<T, Long>> ret = Lists.newArrayList();
+    for (Map.Entry<T, Counter> e : sortedEntries()) {
+      if (ret.size() == k) {
+        break;
+      }
+      ret.add(Pair.of(e.getKey(), e.getValue().count));
+    }
+    return ret;
+  }
+
+  /**
+   * Returns the monitored items along with their estimated counts and the maximum overestimate of
+   * each count, e.g. for serializing the summary.
+   */
+  public List<Tuple3<T, Long, Long>> getCounters() {
+    List<Tuple3<T, Long, Long>> ret = Lists.newArrayListWithCapacity(counters.size());
+    for (Map.Entry<T, Counter> e : counters.entrySet()) {
+      ret.add(Tuple3.of(e.getKey(), e.getValue().count, e.getValue().error));
+    }
+    return ret;
+  }
+
+  /**
+   * Recreates a summary from the values returned by {@link #getCapacity()}, {@link #getFloor()} and
+   * {@link #getCounters()}.
+   */
+  public static <T> SpaceSaving<T> of(int capacity, long floor, Iterable<Tuple3<T, Long, Long>> counters) {
+    SpaceSaving<T> ret = new SpaceSaving<T>(capacity);
+    ret.floor = floor;
+    for (Tuple3<T, Long, Long> c : counters) {
+      ret.counters.put(c.first(), new Counter(c.second(), c.third()));
+    }
+    return ret;
+  }
+
+  @Override
+  public String toString() {
+    return "SpaceSaving(capacity=" + capacity + ", floor=" + floor + ", top=" + top(10) + ")";
+  }
+}
@@ -0,0 +1,81 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.util;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.crunch.CrunchRuntimeException;
+import org.apache.crunch.types.PType;
+import org.apache.crunch.types.avro.AvroMode;
+import org.apache.crunch.types.avro.AvroType;
+import org.apache.crunch.types.writable.WritableType;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.Writable;
+
+/**
+ * Computes 64-bit hashes of the values of a {@link PType}. Values that {@link HashUtil#hash64(Object)}
+ * hashes by their contents are hashed with it; other values are hashed by the bytes of their serialized
+ * form, so that all of their fields contribute to the hash rather than just the 32 bits of their
+ * {@code hashCode}.
+ */
+public class ValueHasher<T> implements Serializable {
+
+  private final PType<T> ptype;
+  private transient DataOutputBuffer out;
+  private transient DatumWriter<Object> avroWriter;
+  private transient BinaryEncoder encoder;
+
+  public ValueHasher(PType<T> ptype) {
+    this.ptype = ptype;
+  }
+
+  public void initialize(Configuration conf) {
+    ptype.initialize(conf);
+    out = new DataOutputBuffer();
+    if (ptype instanceof AvroType) {
+      AvroType<T> avroType = (AvroType<T>) ptype;
+      avroWriter = AvroMode.fromType(avroType).withFactoryFromConfiguration(conf).getWriter(avroType.getSchema());
+    }
+  }
+
+  public long hash(T value) {
+    if (value == null || HashUtil.hashesContents(value)) {
+      return HashUtil.hash64(value);
+    }
+    out.reset();
+    try {
+      if (ptype instanceof WritableType) {
+        ((Writable) ptype.getOutputMapFn().map(value)).write(out);
+      } else if (avroWriter != null) {
+        encoder = EncoderFactory.get().directBinaryEncoder(out, encoder);
+        avroWriter.write(ptype.getOutputMapFn().map(value), encoder);
+        encoder.flush();
+      } else {
+        return HashUtil.hash64(value);
+      }
+    } catch (IOException e) {
+      throw new CrunchRuntimeException(e);
+    }
+    return HashUtil.hashBytes64(out.getData(), 0, out.getLength());
+  }
+}
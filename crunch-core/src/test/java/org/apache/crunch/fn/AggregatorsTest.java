@@ -35,6 +35,10 @@ import org.apache.crunch.Tuple3;
 import org.apache.crunch.Tuple4;
 import org.apache.crunch.TupleN;
 import org.apache.crunch.impl.mem.emit.InMemoryEmitter;
+import org.apache.crunch.types.writable.Writables;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.LongWritable;
 import org.junit.Test;
 
 import com.google.common.base.Function;
@@ -90,6 +94,45 @@ public class AggregatorsTest {
     assertThat(sapply(Aggregators.<String>MIN_COMPARABLES(), "b", "a", "d", "c"), is("a"));
   }
 
+  @Test
+  public void testWritables() {
+    assertThat(sapply(SUM_LONG_WRITABLES(), longW(29L), longW(17L), longW(1729L)), is(longW(1775L)));
+    assertThat(sapply(MAX_LONG_WRITABLES(), longW(29L), longW(17L), longW(1729L)), is(longW(1729L)));
+    assertThat(sapply(MIN_LONG_WRITABLES(), longW(29L), longW(17L), longW(-1729L)), is(longW(-1729L)));
+    assertThat(sapply(SUM_DOUBLE_WRITABLES(), doubleW(0.5), doubleW(0.25)), is(doubleW(0.75)));
+    assertThat(sapply(MAX_DOUBLE_WRITABLES(), doubleW(29.0), doubleW(1729.0), doubleW(17.0)), is(doubleW(1729.0)));
+    assertThat(sapply(MIN_DOUBLE_WRITABLES(), doubleW(29.0), doubleW(1729.0), doubleW(17.0)), is(doubleW(17.0)));
+  }
+
+  @Test
+  public void testWritablesWithReusedValue() {
+    // Hadoop reuses the same value instance when iterating over the values of a group
+    final LongWritable reused = new LongWritable();
+    Iterable<LongWritable> values = Iterables.transform(ImmutableList.of(1L, 2L, 3L),
+        new Function<Long, LongWritable>() {
+          @Override
+          public LongWritable apply(Long input) {
+            reused.set(input);
+            return reused;
+          }
+        });
+    CombineFn<String, LongWritable> fn = Aggregators.toCombineFn(MAX_LONG_WRITABLES(),
+        Writables.writables(LongWritable.class));
+    fn.setConfiguration(new Configuration());
+    fn.initialize();
+    InMemoryEmitter<Pair<String, LongWritable>> emitter = InMemoryEmitter.create();
+    fn.process(Pair.of("", values), emitter);
+    assertThat(getValues(emitter), is(ImmutableList.of(longW(3L))));
+  }
+
+  @Test
+  public void testMinMaxEmpty() {
+    assertThat(apply(MAX_LONGS(), ImmutableList.<Long>of()), is(ImmutableList.<Long>of()));
+    assertThat(apply(MIN_DOUBLE_WRITABLES(), ImmutableList.<DoubleWritable>of()),
+        is(ImmutableList.<DoubleWritable>of()));
+    assertThat(sapply(SUM_LONG_WRITABLES(), ImmutableList.<LongWritable>of()), is(longW(0L)));
+  }
+
   @Test
   public void testMaxN() {
     assertThat(apply(MAX_INTS(2), 17, 34, 98, 29, 1009), is(ImmutableList.of(98, 1009)));
@@ -210,6 +253,14 @@ public class AggregatorsTest {
   }
 
 
+  private static LongWritable longW(long value) {
+    return new LongWritable(value);
+  }
+
+  private static DoubleWritable doubleW(double value) {
+    return new DoubleWritable(value);
+  }
+
   private static <T> T sapply(Aggregator<T> a, T... values) {
     return sapply(a, ImmutableList.copyOf(values));
   }
@@ -0,0 +1,110 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.fn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Map;
+
+import org.apache.crunch.Pair;
+import org.apache.crunch.impl.mem.emit.InMemoryEmitter;
+import org.apache.crunch.types.PTableType;
+import org.apache.crunch.types.writable.Writables;
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+public class MapSideCombineFnTest {
+
+  private static final PTableType<String, Long> PTYPE = Writables.tableOf(Writables.strings(), Writables.longs());
+
+  private static InMemoryEmitter<Pair<String, Long>> run(MapSideCombineFn<String, Long> fn, int numRecords) {
+    fn.setConfiguration(new Configuration());
+    fn.initialize();
+    InMemoryEmitter<Pair<String, Long>> emitter = InMemoryEmitter.create();
+    for (int i = 0; i < numRecords; i++) {
+      // Skewed keys: half of the records have key "k0"
+      String key = i % 2 == 0 ? "k0" : "k" + (i % 7);
+      fn.process(Pair.of(key, 1L), emitter);
+    }
+    fn.cleanup(emitter);
+    return emitter;
+  }
+
+  private static Map<String, Long> sum(Iterable<Pair<String, Long>> output) {
+    Map<String, Long> sums = Maps.newTreeMap();
+    for (Pair<String, Long> p : output) {
+      Long current = sums.get(p.first());
+      sums.put(p.first(), current == null ? p.second() : current + p.second());
+    }
+    return sums;
+  }
+
+  @Test
+  public void testDisabledByDefault() {
+    assertNull(MapSideCombineFn.create(Aggregators.<String, Long>toCombineFn(Aggregators.SUM_LONGS(),
+        Writables.longs()), PTYPE, new Configuration()));
+  }
+
+  @Test
+  public void testCombines() {
+    for (MapSideCombineFn.Eviction eviction : MapSideCombineFn.Eviction.values()) {
+      Configuration conf = new Configuration();
+      conf.setInt(MapSideCombineFn.MAX_ENTRIES, 100);
+      conf.set(MapSideCombineFn.EVICTION, eviction.name().toLowerCase());
+      InMemoryEmitter<Pair<String, Long>> emitter = run(MapSideCombineFn.create(
+          Aggregators.<String, Long>toCombineFn(Aggregators.SUM_LONGS(), Writables.longs()), PTYPE, conf), 1000);
+
+      assertEquals(7, emitter.getOutput().size());
+      Map<String, Long> sums = sum(emitter.getOutput());
+      assertEquals(Long.valueOf(500L + 71L), sums.get("k0"));
+      assertEquals(Long.valueOf(1000L), Long.valueOf(total(sums)));
+    }
+  }
+
+  @Test
+  public void testEvictionBoundsEntries() {
+    for (MapSideCombineFn.Eviction eviction : MapSideCombineFn.Eviction.values()) {
+      InMemoryEmitter<Pair<String, Long>> emitter = run(new MapSideCombineFn<String, Long>(
+          Aggregators.<String, Long>toCombineFn(Aggregators.SUM_LONGS(), Writables.longs()), PTYPE, 2, eviction),
+          1000);
+
+      Map<String, Long> sums = sum(emitter.getOutput());
+      assertEquals(7, sums.size());
+      assertEquals(1000L, total(sums));
+    }
+  }
+
+  @Test
+  public void testMultipleResultsPerKey() {
+    InMemoryEmitter<Pair<String, Long>> emitter = run(new MapSideCombineFn<String, Long>(
+        Aggregators.<String, Long>toCombineFn(Aggregators.<Long>FIRST_N(3), Writables.longs()), PTYPE, 10,
+        MapSideCombineFn.Eviction.LRU), 1000);
+    assertEquals(21, emitter.getOutput().size());
+  }
+
+  private static long total(Map<String, Long> sums) {
+    long total = 0;
+    for (Long v : sums.values()) {
+      total += v;
+    }
+    return total;
+  }
+}
@@ -0,0 +1,178 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.impl.mem;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.crunch.DoFn;
+import org.apache.crunch.Emitter;
+import org.apache.crunch.MapFn;
+import org.apache.crunch.PCollection;
+import org.apache.crunch.Pair;
+import org.apache.crunch.Pipeline;
+import org.apache.crunch.fn.Aggregators;
+import org.apache.crunch.lib.SecondarySort;
+import org.apache.crunch.types.writable.Writables;
+import org.apache.hadoop.conf.Configuration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+public class MemPipelineParallelTest implements Serializable {
+
+  private transient Pipeline pipeline;
+  private transient Configuration originalConf;
+
+  @Before
+  public void setUp() {
+    pipeline = MemPipeline.getInstance();
+    originalConf = pipeline.getConfiguration();
+    Configuration conf = new Configuration(originalConf);
+    conf.setInt(MemPipeline.PARALLELISM, 4);
+    pipeline.setConfiguration(conf);
+    MemPipeline.clearCounters();
+  }
+
+  @After
+  public void tearDown() {
+    pipeline.setConfiguration(originalConf);
+  }
+
+  private static List<Integer> numbers(int n) {
+    List<Integer> ret = Lists.newArrayList();
+    for (int i = 0; i < n; i++) {
+      ret.add(i);
+    }
+    return ret;
+  }
+
+  @Test
+  public void testParallelDoPreservesOrder() {
+    PCollection<Integer> nums = MemPipeline.typedCollectionOf(Writables.ints(), numbers(1000));
+    PCollection<Integer> doubled = nums.parallelDo(new MapFn<Integer, Integer>() {
+      @Override
+      public Integer map(Integer input) {
+        increment("test", "records");
+        return 2 * input;
+      }
+    }, Writables.ints());
+
+    List<Integer> expected = Lists.newArrayList();
+    for (int i = 0; i < 1000; i++) {
+      expected.add(2 * i);
+    }
+    assertEquals(expected, Lists.newArrayList(doubled.materialize()));
+    assertEquals(1000L, MemPipeline.getCounters().findCounter("test", "records").getValue());
+  }
+
+  @Test
+  public void testDoFnLifecyclePerChunk() {
+    PCollection<Integer> nums = MemPipeline.typedCollectionOf(Writables.ints(), numbers(100));
+    PCollection<Integer> counts = nums.parallelDo(new DoFn<Integer, Integer>() {
+      private transient int count;
+
+      @Override
+      public void initialize() {
+        count = 0;
+      }
+
+      @Override
+      public void process(Integer input, Emitter<Integer> emitter) {
+        count++;
+      }
+
+      @Override
+      public void cleanup(Emitter<Integer> emitter) {
+        emitter.emit(count);
+      }
+    }, Writables.ints());
+
+    List<Integer> chunkCounts = Lists.newArrayList(counts.materialize());
+    assertEquals(4, chunkCounts.size());
+    int total = 0;
+    for (Integer c : chunkCounts) {
+      total += c;
+    }
+    assertEquals(100, total);
+  }
+
+  @Test
+  public void testParallelGroupByKey() {
+    PCollection<Integer> nums = MemPipeline.typedCollectionOf(Writables.ints(), numbers(1000));
+    Map<Integer, Long> sums = nums.parallelDo(new MapFn<Integer, Pair<Integer, Long>>() {
+      @Override
+      public Pair<Integer, Long> map(Integer input) {
+        return Pair.of(input % 10, (long) input);
+      }
+    }, Writables.tableOf(Writables.ints(), Writables.longs()))
+        .groupByKey()
+        .combineValues(Aggregators.SUM_LONGS())
+        .materializeToMap();
+
+    assertEquals(10, sums.size());
+    for (int k = 0; k < 10; k++) {
+      long expected = 0;
+      for (int i = k; i < 1000; i += 10) {
+        expected += i;
+      }
+      assertEquals(Long.valueOf(expected), sums.get(k));
+    }
+  }
+
+  @Test
+  public void testParallelGroupByKeyIsOrdered() {
+    PCollection<Integer> nums = MemPipeline.typedCollectionOf(Writables.ints(), numbers(100));
+    List<Integer> keys = Lists.newArrayList(nums.parallelDo(new MapFn<Integer, Pair<Integer, Integer>>() {
+      @Override
+      public Pair<Integer, Integer> map(Integer input) {
+        return Pair.of(99 - input, input);
+      }
+    }, Writables.tableOf(Writables.ints(), Writables.ints())).groupByKey().ungroup().keys().materialize());
+    assertEquals(numbers(100), keys);
+  }
+
+  @Test
+  public void testParallelSecondarySort() {
+    PCollection<Pair<String, Pair<Integer, Integer>>> input = MemPipeline.typedCollectionOf(
+        Writables.pairs(Writables.strings(), Writables.pairs(Writables.ints(), Writables.ints())),
+        ImmutableList.of(
+            Pair.of("a", Pair.of(3, 3)), Pair.of("b", Pair.of(2, 2)), Pair.of("a", Pair.of(1, 1)),
+            Pair.of("b", Pair.of(1, 1)), Pair.of("a", Pair.of(2, 2))));
+    List<String> sorted = Lists.newArrayList(SecondarySort.sortAndApply(
+        MemPipeline.typedTableOf(Writables.tableOf(Writables.strings(),
+            Writables.pairs(Writables.ints(), Writables.ints())), input.materialize()),
+        new MapFn<Pair<String, Iterable<Pair<Integer, Integer>>>, String>() {
+          @Override
+          public String map(Pair<String, Iterable<Pair<Integer, Integer>>> input) {
+            StringBuilder sb = new StringBuilder(input.first());
+            for (Pair<Integer, Integer> p : input.second()) {
+              sb.append(p.second());
+            }
+            return sb.toString();
+          }
+        }, Writables.strings()).materialize());
+    assertEquals(ImmutableList.of("a123", "b12"), sorted);
+  }
+}
@@ -0,0 +1,183 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.impl.mem.collect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.crunch.GroupingOptions;
+import org.apache.crunch.Pair;
+import org.apache.crunch.Pipeline;
+import org.apache.crunch.impl.mem.MemPipeline;
+import org.apache.crunch.lib.sort.TupleWritableComparator;
+import org.apache.crunch.types.PTypeFamily;
+import org.apache.crunch.types.avro.AvroTypeFamily;
+import org.apache.crunch.types.writable.WritableTypeFamily;
+import org.apache.hadoop.conf.Configuration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class SpillingShufflerTest {
+
+  @Rule
+  public TemporaryFolder tmpDir = new TemporaryFolder();
+
+  private Pipeline pipeline;
+  private Configuration originalConf;
+
+  @Before
+  public void setUp() {
+    pipeline = MemPipeline.getInstance();
+    originalConf = pipeline.getConfiguration();
+    Configuration conf = new Configuration(originalConf);
+    conf.setLong(MemPipeline.SHUFFLE_SPILL_BYTES, 256);
+    conf.set(MemPipeline.SHUFFLE_SPILL_DIR, tmpDir.getRoot().getAbsolutePath());
+    pipeline.setConfiguration(conf);
+  }
+
+  @After
+  public void tearDown() {
+    pipeline.setConfiguration(originalConf);
+  }
+
+  @Test
+  public void testGroupWritables() {
+    runGroupTest(WritableTypeFamily.getInstance());
+  }
+
+  @Test
+  public void testGroupAvros() {
+    runGroupTest(AvroTypeFamily.getInstance());
+  }
+
+  private void runGroupTest(PTypeFamily tf) {
+    Shuffler<String, Integer> shuffler = Shuffler.create(tf.strings(), tf.ints(), null, pipeline);
+    assertTrue(shuffler instanceof SpillingShuffler);
+    for (int i = 0; i < 1000; i++) {
+      shuffler.add(Pair.of("key" + (i % 37), i));
+    }
+    assertTrue(tmpDir.getRoot().list().length > 1);
+
+    List<String> keys = Lists.newArrayList();
+    Map<String, Integer> sums = Maps.newHashMap();
+    for (Pair<String, Iterable<Integer>> group : shuffler) {
+      keys.add(group.first());
+      int sum = 0;
+      for (Integer value : group.second()) {
+        sum += value;
+      }
+      sums.put(group.first(), sum);
+    }
+    assertEquals(37, keys.size());
+    List<String> sortedKeys = Lists.newArrayList(keys);
+    Collections.sort(sortedKeys);
+    assertEquals(sortedKeys, keys);
+    for (int k = 0; k < 37; k++) {
+      int expected = 0;
+      for (int i = k; i < 1000; i += 37) {
+        expected += i;
+      }
+      assertEquals(Integer.valueOf(expected), sums.get("key" + k));
+    }
+
+    // The shuffled data can be iterated more than once, even if values are skipped
+    int groups = 0;
+    for (Pair<String, Iterable<Integer>> group : shuffler) {
+      groups++;
+    }
+    assertEquals(37, groups);
+  }
+
+  @Test
+  public void testMultiPassMerge() throws IOException {
+    Configuration conf = new Configuration(pipeline.getConfiguration());
+    conf.setInt(MemPipeline.SHUFFLE_MERGE_FACTOR, 3);
+    pipeline.setConfiguration(conf);
+    PTypeFamily tf = WritableTypeFamily.getInstance();
+    Shuffler<String, Integer> shuffler = Shuffler.create(tf.strings(), tf.ints(), null, pipeline);
+    for (int i = 0; i < 1000; i++) {
+      shuffler.add(Pair.of("key" + (i % 37), i));
+    }
+    // Hundreds of runs are spilled, but at most two of each size are kept
+    assertTrue(tmpDir.getRoot().list().length <= 12);
+
+    Iterator<Pair<String, Iterable<Integer>>> groups = shuffler.iterator();
+    assertTrue(tmpDir.getRoot().list().length <= 3);
+    int count = 0;
+    long sum = 0;
+    while (groups.hasNext()) {
+      count++;
+      for (Integer value : groups.next().second()) {
+        sum += value;
+      }
+    }
+    assertEquals(37, count);
+    assertEquals(999L * 1000 / 2, sum);
+
+    // Iterators that are abandoned can be closed
+    groups = shuffler.iterator();
+    groups.next();
+    ((Closeable) groups).close();
+    assertFalse(groups.hasNext());
+  }
+
+  @Test
+  public void testSecondarySort() {
+    PTypeFamily tf = WritableTypeFamily.getInstance();
+    GroupingOptions options = GroupingOptions.builder()
+        .groupingComparatorClass(TupleWritableComparator.class).build();
+    Shuffler<Pair<String, Integer>, Integer> shuffler = Shuffler.create(
+        tf.pairs(tf.strings(), tf.ints()), tf.ints(), options, pipeline);
+    assertTrue(shuffler instanceof SpillingShuffler);
+    for (int i = 200; i > 0; i--) {
+      shuffler.add(Pair.of(Pair.of(i % 2 == 0 ? "even" : "odd", i), i));
+    }
+
+    List<Pair<String, Integer>> keys = Lists.newArrayList();
+    for (Pair<Pair<String, Integer>, Iterable<Integer>> group : shuffler) {
+      keys.add(group.first());
+      int last = Integer.MIN_VALUE;
+      for (Integer value : group.second()) {
+        assertTrue(value > last);
+        last = value;
+      }
+    }
+    assertEquals(ImmutableList.of(Pair.of("even", 2), Pair.of("odd", 1)), keys);
+  }
+
+  @Test
+  public void testUntypedTablesStayInMemory() {
+    Shuffler<String, Integer> shuffler = Shuffler.create(null, null, null, pipeline);
+    assertTrue(!(shuffler instanceof SpillingShuffler));
+  }
+}
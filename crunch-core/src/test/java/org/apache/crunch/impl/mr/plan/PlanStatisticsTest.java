@@ -0,0 +1,137 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.impl.mr.plan;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.Map;
+
+import org.apache.crunch.MapFn;
+import org.apache.crunch.PCollection;
+import org.apache.crunch.Pair;
+import org.apache.crunch.fn.IdentityFn;
+import org.apache.crunch.impl.dist.collect.PCollectionImpl;
+import org.apache.crunch.impl.mr.MRPipeline;
+import org.apache.crunch.impl.mr.run.RuntimeParameters;
+import org.apache.crunch.types.writable.Writables;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+
+public class PlanStatisticsTest {
+
+  @Rule
+  public TemporaryFolder tempDir = new TemporaryFolder();
+
+  private Configuration conf;
+  private PCollection<String> lines;
+  private PCollectionImpl<Pair<String, Integer>> table;
+  private PCollectionImpl<?> grouped;
+
+  @Before
+  public void setUp() throws Exception {
+    conf = new Configuration();
+    conf.set(RuntimeParameters.TMP_DIR, tempDir.getRoot().getAbsolutePath());
+    File input = tempDir.newFile("input.txt");
+    Files.write("a\nb\nc\n", input, Charsets.UTF_8);
+    MRPipeline pipeline = new MRPipeline(PlanStatisticsTest.class, conf);
+    lines = pipeline.readTextFile(input.getAbsolutePath());
+    table = (PCollectionImpl<Pair<String, Integer>>) lines.parallelDo("pairs", new PairFn(),
+        Writables.tableOf(Writables.strings(), Writables.ints()));
+    grouped = (PCollectionImpl<?>) lines.parallelDo("pairs", new PairFn(),
+        Writables.tableOf(Writables.strings(), Writables.ints())).groupByKey();
+  }
+
+  @Test
+  public void testAppliesObservedSizes() {
+    PlanStatistics statistics = new PlanStatistics(new Path(tempDir.getRoot().getAbsolutePath(), "stats"),
+        Maps.<String, Long>newHashMap());
+    PCollectionImpl<?> pairs = grouped.getOnlyParent();
+    assertEquals(6L, grouped.getSize());
+    assertNull(statistics.getSize(pairs));
+
+    Map<String, Long> sizes = Maps.newHashMap();
+    sizes.put(statistics.getFingerprint(pairs), 1000L);
+    statistics = new PlanStatistics(new Path(tempDir.getRoot().getAbsolutePath(), "stats"), sizes);
+    assertEquals(1, statistics.apply(ImmutableList.of(grouped)));
+    assertEquals(1000L, pairs.getSize());
+    assertEquals(1000L, grouped.getSize());
+  }
+
+  @Test
+  public void testAppliesObservedSizesThroughUnions() {
+    PCollection<Pair<String, Integer>> other = lines.parallelDo("other", new PairFn(),
+        Writables.tableOf(Writables.strings(), Writables.ints()));
+    PCollectionImpl<Pair<String, Integer>> consumer = (PCollectionImpl<Pair<String, Integer>>) table.union(other)
+        .parallelDo("consumer", IdentityFn.<Pair<String, Integer>>getInstance(), table.getPType());
+    assertEquals(12L, consumer.getSize());
+
+    PlanStatistics statistics = new PlanStatistics(new Path(tempDir.getRoot().getAbsolutePath(), "stats"),
+        Maps.<String, Long>newHashMap());
+    Map<String, Long> sizes = Maps.newHashMap();
+    sizes.put(statistics.getFingerprint(table), 1000L);
+    statistics = new PlanStatistics(new Path(tempDir.getRoot().getAbsolutePath(), "stats"), sizes);
+    assertEquals(1, statistics.apply(ImmutableList.of(consumer)));
+    assertEquals(1006L, consumer.getSize());
+  }
+
+  @Test
+  public void testFingerprintsAreStableAcrossInstances() {
+    PlanStatistics first = new PlanStatistics(new Path("/stats"), Maps.<String, Long>newHashMap());
+    PlanStatistics second = new PlanStatistics(new Path("/stats"), Maps.<String, Long>newHashMap());
+    assertEquals(first.getFingerprint(table), second.getFingerprint(table));
+    assertEquals(first.getFingerprint(table), first.getFingerprint(grouped.getOnlyParent()));
+    assertFalse(first.getFingerprint(table).equals(first.getFingerprint(grouped)));
+  }
+
+  @Test
+  public void testSaveAndLoad() {
+    Path path = new Path(tempDir.getRoot().getAbsolutePath(), "stats.json");
+    conf.set(PlanningParameters.PLAN_STATISTICS_PATH, path.toString());
+    assertNull(PlanStatistics.load(conf).getSize(table));
+
+    PlanStatistics statistics = new PlanStatistics(path, Maps.<String, Long>newHashMap());
+    Map<String, Long> sizes = Maps.newHashMap();
+    sizes.put(statistics.getFingerprint(table), 5000000000L);
+    new PlanStatistics(path, sizes).save(conf);
+    assertEquals(Long.valueOf(5000000000L), PlanStatistics.load(conf).getSize(table));
+  }
+
+  @Test
+  public void testLoadWithoutPath() {
+    assertNull(PlanStatistics.load(new Configuration()));
+  }
+
+  private static class PairFn extends MapFn<String, Pair<String, Integer>> {
+    @Override
+    public Pair<String, Integer> map(String input) {
+      return Pair.of(input, 1);
+    }
+  }
+}
@@ -0,0 +1,138 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.impl.mr.plan;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.apache.crunch.MapFn;
+import org.apache.crunch.PCollection;
+import org.apache.crunch.SourceTarget;
+import org.apache.crunch.impl.dist.collect.PCollectionImpl;
+import org.apache.crunch.impl.mr.MRPipeline;
+import org.apache.crunch.impl.mr.run.RuntimeParameters;
+import org.apache.crunch.io.PathTarget;
+import org.apache.crunch.types.writable.Writables;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+
+public class ResultCacheTest {
+
+  @Rule
+  public TemporaryFolder tempDir = new TemporaryFolder();
+
+  private Configuration conf;
+  private File input;
+  private File cacheDir;
+
+  @Before
+  public void setUp() throws Exception {
+    conf = new Configuration();
+    conf.set(RuntimeParameters.TMP_DIR, tempDir.newFolder("tmp").getAbsolutePath());
+    cacheDir = tempDir.newFolder("cache");
+    conf.set(PlanningParameters.RESULT_CACHE_DIR, cacheDir.getAbsolutePath());
+    input = tempDir.newFile("input.txt");
+    Files.write("a\nb\nc\n", input, Charsets.UTF_8);
+  }
+
+  private PCollectionImpl<String> upper(MapFn<String, String> fn) {
+    MRPipeline pipeline = new MRPipeline(ResultCacheTest.class, conf);
+    PCollection<String> lines = pipeline.readTextFile(input.getAbsolutePath());
+    return (PCollectionImpl<String>) lines.parallelDo("upper", fn, Writables.strings());
+  }
+
+  @Test
+  public void testFingerprints() throws Exception {
+    String fingerprint = ResultCache.create(conf).getFingerprint(upper(new UpperFn()));
+    assertNotNull(fingerprint);
+    assertEquals(fingerprint, ResultCache.create(conf).getFingerprint(upper(new UpperFn())));
+    assertFalse(fingerprint.equals(ResultCache.create(conf).getFingerprint(upper(new LowerFn()))));
+
+    assertTrue(input.setLastModified(input.lastModified() - 10000L));
+    assertFalse(fingerprint.equals(ResultCache.create(conf).getFingerprint(upper(new UpperFn()))));
+
+    conf.set(PlanningParameters.RESULT_CACHE_CONF_KEYS, "my.setting");
+    conf.set("my.setting", "1");
+    String withSetting = ResultCache.create(conf).getFingerprint(upper(new UpperFn()));
+    conf.set("my.setting", "2");
+    assertFalse(withSetting.equals(ResultCache.create(conf).getFingerprint(upper(new UpperFn()))));
+  }
+
+  @Test
+  public void testReusesCompletedOutputs() throws Exception {
+    ResultCache cache = ResultCache.create(conf);
+    PCollectionImpl<String> upper = upper(new UpperFn());
+    SourceTarget<?> output = cache.createOutput(upper);
+    Path outputPath = ((PathTarget) output).getPath();
+    assertEquals(new Path(cacheDir.getAbsolutePath(), cache.getFingerprint(upper)), outputPath);
+
+    // Outputs without a success indicator are ignored
+    new File(outputPath.toUri().getPath()).mkdirs();
+    assertEquals(0, ResultCache.create(conf).reuse(ImmutableList.of(upper(new UpperFn()))));
+
+    new File(outputPath.toUri().getPath(), "_SUCCESS").createNewFile();
+    PCollectionImpl<String> rerun = upper(new UpperFn());
+    assertEquals(1, ResultCache.create(conf).reuse(ImmutableList.of(rerun)));
+    assertEquals(outputPath, ((PathTarget) rerun.getMaterializedAt()).getPath());
+  }
+
+  @Test
+  public void testEvictsExpiredEntries() throws Exception {
+    File old = new File(cacheDir, "old");
+    File recent = new File(cacheDir, "recent");
+    assertTrue(old.mkdirs());
+    assertTrue(recent.mkdirs());
+    assertTrue(old.setLastModified(System.currentTimeMillis() - 60000L));
+    conf.setLong(PlanningParameters.RESULT_CACHE_MAX_AGE_MS, 30000L);
+    ResultCache.create(conf).evict();
+    assertFalse(old.exists());
+    assertTrue(recent.exists());
+  }
+
+  @Test
+  public void testDisabledWithoutDirectory() {
+    assertNull(ResultCache.create(new Configuration()));
+  }
+
+  private static class UpperFn extends MapFn<String, String> {
+    @Override
+    public String map(String input) {
+      return input.toUpperCase();
+    }
+  }
+
+  private static class LowerFn extends MapFn<String, String> {
+    @Override
+    public String map(String input) {
+      return input.toLowerCase();
+    }
+  }
+}
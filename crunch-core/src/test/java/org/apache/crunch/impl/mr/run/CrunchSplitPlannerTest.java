@@ -0,0 +1,99 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.impl.mr.run;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.apache.crunch.io.FormatBundle;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.lib.input.CombineFileSplit;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class CrunchSplitPlannerTest {
+
+  private static final long MB = 1024L * 1024;
+
+  private static InputSplit split(String name, long length, String... hosts) {
+    return new FileSplit(new Path("/data/" + name), 0, length, hosts);
+  }
+
+  private static List<InputSplit> plan(Configuration conf, int maxSplits, List<InputSplit> splits) throws Exception {
+    CrunchSplitPlanner planner = new CrunchSplitPlanner(maxSplits);
+    planner.add(FormatBundle.forInput(TextInputFormat.class), 0, conf, splits);
+    List<InputSplit> ret = Lists.newArrayList();
+    for (InputSplit split : planner.plan()) {
+      ret.add(((CrunchInputSplit) split).get());
+    }
+    return ret;
+  }
+
+  private static Configuration conf(long targetSize) {
+    Configuration conf = new Configuration();
+    conf.setLong(RuntimeParameters.COMBINE_FILE_BLOCK_SIZE, targetSize);
+    return conf;
+  }
+
+  @Test
+  public void testCombinesSplitsOnTheSameHost() throws Exception {
+    List<InputSplit> splits = Lists.newArrayList(
+        split("a", 40 * MB, "host1"), split("b", 40 * MB, "host2"),
+        split("c", 40 * MB, "host1"), split("d", 40 * MB, "host2"));
+    List<InputSplit> planned = plan(conf(80 * MB), 0, splits);
+    assertEquals(2, planned.size());
+    for (InputSplit split : planned) {
+      CombineFileSplit combined = (CombineFileSplit) split;
+      assertEquals(2, combined.getNumPaths());
+      assertEquals(1, combined.getLocations().length);
+    }
+  }
+
+  @Test
+  public void testCompressedFilesAreNotCombined() throws Exception {
+    List<InputSplit> splits = Lists.newArrayList(
+        split("a.gz", 50 * MB, "host1"), split("b", 50 * MB, "host1"), split("c", 50 * MB, "host1"));
+    List<InputSplit> planned = plan(conf(100 * MB), 0, splits);
+    assertEquals(2, planned.size());
+    assertEquals(new Path("/data/a.gz"), ((FileSplit) planned.get(0)).getPath());
+    assertEquals(2, ((CombineFileSplit) planned.get(1)).getNumPaths());
+  }
+
+  @Test
+  public void testMaxSplits() throws Exception {
+    List<InputSplit> splits = Lists.newArrayList();
+    for (int i = 0; i < 1000; i++) {
+      splits.add(split("part-" + i, MB, "host" + (i % 10)));
+    }
+    assertEquals(100, plan(conf(10 * MB), 0, splits).size());
+    assertEquals(10, plan(conf(10 * MB), 10, splits).size());
+  }
+
+  @Test
+  public void testUncombinableSplitsArePassedThrough() throws Exception {
+    List<InputSplit> splits = Lists.newArrayList(split("a", MB), split("b", MB));
+    splits.add(new CombineFileSplit(new Path[] { new Path("/data/c") }, new long[] { MB }));
+    assertEquals(3, plan(conf(10 * MB), 0, splits).size());
+  }
+}
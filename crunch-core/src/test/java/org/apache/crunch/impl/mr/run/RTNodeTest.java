@@ -0,0 +1,128 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.impl.mr.run;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.apache.crunch.DoFn;
+import org.apache.crunch.Emitter;
+import org.apache.crunch.FilterFn;
+import org.apache.crunch.MapFn;
+import org.apache.crunch.types.PType;
+import org.apache.crunch.types.writable.Writables;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.google.common.collect.ImmutableList;
+
+public class RTNodeTest {
+
+  private static class AddOneFn extends MapFn<Integer, Integer> {
+    @Override
+    public Integer map(Integer input) {
+      return input + 1;
+    }
+  }
+
+  private static class EvenFn extends FilterFn<Integer> {
+    @Override
+    public boolean accept(Integer input) {
+      return input % 2 == 0;
+    }
+  }
+
+  private static class DuplicateFn extends MapFn<Integer, Integer> {
+    @Override
+    public Integer map(Integer input) {
+      return input;
+    }
+
+    @Override
+    public void process(Integer input, Emitter<Integer> emitter) {
+      emitter.emit(input);
+      emitter.emit(input);
+    }
+  }
+
+  private static RTNode node(DoFn fn, RTNode child) {
+    return new RTNode(fn, (PType) Writables.ints(), fn.getClass().getSimpleName(),
+        ImmutableList.of(child), null, null, null);
+  }
+
+  private static List<Object> run(RTNode root, boolean fuse, RTNode sink, Object... inputs) {
+    Configuration conf = new Configuration();
+    conf.setBoolean(RuntimeParameters.FUSE_NODES, fuse);
+    return run(root, conf, sink, inputs);
+  }
+
+  private static List<Object> run(RTNode root, Configuration conf, RTNode sink, Object... inputs) {
+    TaskInputOutputContext context = mock(TaskInputOutputContext.class);
+    when(context.getConfiguration()).thenReturn(conf);
+    CrunchTaskContext ctxt = mock(CrunchTaskContext.class);
+    when(ctxt.getContext()).thenReturn(context);
+
+    root.initialize(ctxt);
+    for (Object input : inputs) {
+      root.process(input);
+    }
+    ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+    verify(sink, atLeast(0)).process(captor.capture());
+    return captor.getAllValues();
+  }
+
+  @Test
+  public void testFusedChain() {
+    for (boolean fuse : new boolean[] { true, false }) {
+      RTNode sink = mock(RTNode.class);
+      RTNode root = node(new AddOneFn(), node(new EvenFn(), node(new AddOneFn(), sink)));
+      assertEquals(ImmutableList.<Object>of(3, 5), run(root, fuse, sink, 1, 2, 3, 4));
+    }
+  }
+
+  @Test
+  public void testChainStopsAtOverriddenProcess() {
+    for (boolean fuse : new boolean[] { true, false }) {
+      RTNode sink = mock(RTNode.class);
+      RTNode root = node(new AddOneFn(), node(new DuplicateFn(), node(new AddOneFn(), sink)));
+      assertEquals(ImmutableList.<Object>of(3, 3, 4, 4), run(root, fuse, sink, 1, 2));
+    }
+  }
+
+  @Test
+  public void testProfiling() {
+    Configuration conf = new Configuration();
+    conf.setBoolean(RuntimeParameters.PROFILE_NODES, true);
+    RTNode sink = mock(RTNode.class);
+    RTNode even = node(new EvenFn(), node(new AddOneFn(), sink));
+    RTNode root = node(new AddOneFn(), even);
+    assertEquals(ImmutableList.<Object>of(3, 5), run(root, conf, sink, 1, 2, 3, 4));
+
+    assertEquals(4L, root.getProfile().getRecordsIn());
+    assertEquals(4L, root.getProfile().getRecordsOut());
+    assertEquals(4L, even.getProfile().getRecordsIn());
+    assertEquals(2L, even.getProfile().getRecordsOut());
+  }
+}
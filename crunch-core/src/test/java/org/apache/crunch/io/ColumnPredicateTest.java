@@ -0,0 +1,75 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.io;
+
+import static org.apache.crunch.io.ColumnPredicate.and;
+import static org.apache.crunch.io.ColumnPredicate.eq;
+import static org.apache.crunch.io.ColumnPredicate.gtEq;
+import static org.apache.crunch.io.ColumnPredicate.in;
+import static org.apache.crunch.io.ColumnPredicate.isNull;
+import static org.apache.crunch.io.ColumnPredicate.not;
+import static org.apache.crunch.io.ColumnPredicate.or;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.commons.lang.SerializationUtils;
+import org.junit.Test;
+
+public class ColumnPredicateTest {
+
+  @Test
+  public void testToString() {
+    ColumnPredicate predicate = and(gtEq("ts", 1000L), or(in("tenant", "a", "b"), not(isNull("user.id"))));
+    assertEquals("(ts >= 1000 and (tenant in (a, b) or not user.id is null))", predicate.toString());
+  }
+
+  @Test
+  public void testGetColumns() {
+    ColumnPredicate predicate = and(gtEq("ts", 1000L), or(in("tenant", "a", "b"), not(isNull("ts"))));
+    assertEquals(ImmutableList.of("ts", "tenant"), ImmutableList.copyOf(predicate.getColumns()));
+  }
+
+  @Test
+  public void testSerializable() {
+    ColumnPredicate predicate = and(eq("name", new StringBuilder("x")), in("age", 1, 2L));
+    assertEquals(predicate, SerializationUtils.clone(predicate));
+    assertEquals("x", predicate.getChildren().get(0).getValues().get(0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testOrderingBooleans() {
+    gtEq("deleted", true);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsupportedValue() {
+    eq("date", new java.util.Date());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testEmptyInList() {
+    in("tenant", Collections.emptyList());
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testNullValue() {
+    eq("name", null);
+  }
+}
@@ -0,0 +1,123 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+
+import org.apache.crunch.impl.mr.run.RuntimeParameters;
+import org.apache.crunch.io.impl.FileTargetImpl;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+public class PathPerKeyWriterPoolTest {
+
+  @Rule
+  public TemporaryFolder tmpOutputDir = new TemporaryFolder();
+
+  private Configuration conf;
+  private List<String> opened;
+  private List<String> closed;
+
+  @Before
+  public void setUp() {
+    conf = new Configuration();
+    opened = Lists.newArrayList();
+    closed = Lists.newArrayList();
+  }
+
+  private PathPerKeyWriterPool<String> createPool() {
+    return new PathPerKeyWriterPool<String>(new Path(tmpOutputDir.getRoot().getAbsolutePath()),
+        "part-r-00003.avro", conf, 100L) {
+      @Override
+      protected String open(Path file) {
+        String name = file.getParent().getName() + "/" + file.getName();
+        opened.add(name);
+        return name;
+      }
+
+      @Override
+      protected void close(String writer) {
+        closed.add(writer);
+      }
+    };
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsedWriter() throws Exception {
+    conf.setInt(RuntimeParameters.PATH_PER_KEY_MAX_OPEN_WRITERS, 2);
+    PathPerKeyWriterPool<String> pool = createPool();
+    assertEquals("a/part-r-00003.avro", pool.get("a"));
+    assertEquals("b/part-r-00003.avro", pool.get("b"));
+    assertSame(pool.get("a"), pool.get("a"));
+    pool.get("c");
+    assertEquals(ImmutableList.of("b/part-r-00003.avro"), closed);
+    assertEquals(2, pool.getOpenWriterCount());
+
+    assertEquals("b/part-r-00003-1.avro", pool.get("b"));
+    assertEquals("a/part-r-00003.avro", closed.get(1));
+    pool.close();
+    assertEquals(4, closed.size());
+    assertEquals(0, pool.getOpenWriterCount());
+    assertEquals(4, opened.size());
+    assertTrue(new File(tmpOutputDir.getRoot(), "c").isDirectory());
+  }
+
+  @Test
+  public void testEvictsWhenOpenBytesExceeded() throws Exception {
+    assertFalse(createPool().isLimitingBytes());
+    conf.setLong(RuntimeParameters.PATH_PER_KEY_MAX_OPEN_BYTES, 150L);
+    PathPerKeyWriterPool<String> pool = createPool();
+    assertTrue(pool.isLimitingBytes());
+    pool.get("a");
+    pool.written(60L);
+    pool.get("b");
+    pool.written(60L);
+    assertEquals(2, pool.getOpenWriterCount());
+    pool.written(60L);
+    assertEquals(ImmutableList.of("a/part-r-00003.avro"), closed);
+
+    // The estimate for each writer is capped at the bytes it can buffer
+    pool.written(1000L);
+    assertEquals(1, pool.getOpenWriterCount());
+    pool.get("a");
+    pool.written(10L);
+    assertEquals(2, pool.getOpenWriterCount());
+    pool.close();
+  }
+
+  @Test
+  public void testRolledFileNames() {
+    assertEquals("part-r-00003-2.avro", PathPerKeyWriterPool.getRolledFileName("part-r-00003.avro", 2));
+    assertEquals("part-m-00001-1", PathPerKeyWriterPool.getRolledFileName("part-m-00001", 1));
+    assertEquals(3, FileTargetImpl.extractPartitionNumber(
+        PathPerKeyWriterPool.getRolledFileName("part-r-00003.avro", 7)));
+  }
+}
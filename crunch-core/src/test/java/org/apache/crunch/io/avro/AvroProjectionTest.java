@@ -0,0 +1,95 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.io.avro;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class AvroProjectionTest {
+
+  private static final Schema USER = SchemaBuilder.record("User").namespace("org.apache.crunch.test").fields()
+      .requiredLong("id")
+      .optionalString("email")
+      .endRecord();
+
+  private static final Schema EVENT = SchemaBuilder.record("Event").namespace("org.apache.crunch.test").fields()
+      .requiredString("type")
+      .requiredLong("timestamp")
+      .name("user").type().optional().type(USER)
+      .name("tags").type().array().items().stringType().noDefault()
+      .endRecord();
+
+  @Test
+  public void testProjectFieldPaths() {
+    Schema projected = AvroProjection.project(EVENT, ImmutableList.of("user.id", "type"));
+    assertEquals(EVENT.getFullName(), projected.getFullName());
+    assertEquals(2, projected.getFields().size());
+    assertEquals("type", projected.getFields().get(0).name());
+    Schema user = projected.getField("user").schema().getTypes().get(1);
+    assertEquals(Schema.Type.RECORD, user.getType());
+    assertEquals(1, user.getFields().size());
+    assertEquals("id", user.getFields().get(0).name());
+  }
+
+  @Test
+  public void testWholeFieldWinsOverNestedPath() {
+    Schema projected = AvroProjection.project(EVENT, ImmutableList.of("user.id", "user"));
+    assertEquals(EVENT.getField("user").schema(), projected.getField("user").schema());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownField() {
+    AvroProjection.project(EVENT, ImmutableList.of("user.name"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPathThroughNonRecord() {
+    AvroProjection.project(EVENT, ImmutableList.of("tags.value"));
+  }
+
+  @Test
+  public void testProjectFromSubset() {
+    Schema subset = SchemaBuilder.record("Summary").fields()
+        .requiredLong("timestamp")
+        .name("user").type(SchemaBuilder.record("UserId").fields().requiredLong("id").endRecord()).noDefault()
+        .optionalString("missing")
+        .endRecord();
+    Schema projected = AvroProjection.project(EVENT, subset);
+    assertEquals(EVENT.getFullName(), projected.getFullName());
+    assertEquals(2, projected.getFields().size());
+    assertNull(projected.getField("missing"));
+    assertEquals(1, projected.getField("user").schema().getTypes().get(1).getFields().size());
+  }
+
+  @Test
+  public void testAliasTo() {
+    Schema reader = SchemaBuilder.record("Summary").fields().requiredLong("timestamp").endRecord();
+    Schema aliased = AvroProjection.aliasTo(reader, EVENT);
+    assertEquals("Summary", aliased.getFullName());
+    assertTrue(aliased.getAliases().contains(EVENT.getFullName()));
+    assertSame(EVENT, AvroProjection.aliasTo(EVENT, EVENT));
+  }
+}
@@ -20,16 +20,19 @@ package org.apache.crunch.io.impl;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.crunch.Target;
+import org.apache.crunch.impl.mr.run.RuntimeParameters;
 import org.apache.crunch.io.SequentialFileNamingScheme;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RawLocalFileSystem;
 import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URI;
 import java.util.Arrays;
 import java.util.Collection;
@@ -41,7 +44,9 @@ import java.util.Set;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.junit.matchers.JUnitMatchers.hasItem;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -84,6 +89,101 @@ public class FileTargetImplTest {
     }
   }
 
+  @Test
+  public void testHandleOutputsRenamesWorkingDirectory() throws Exception {
+    File workingDir = TMP.newFolder();
+    File destinationDir = new File(TMP.getRoot(), "directory-commit");
+    FileUtils.writeStringToFile(new File(workingDir, "part-r-00000"), "test1");
+    FileUtils.writeStringToFile(new File(workingDir, "part-r-00001"), "test2");
+    FileUtils.writeStringToFile(new File(workingDir, "_SUCCESS"), "");
+    FileTargetImpl fileTarget = new FileTargetImpl(new Path(destinationDir.getAbsolutePath()),
+        SequenceFileOutputFormat.class, SequentialFileNamingScheme.getInstance());
+
+    Configuration conf = new Configuration();
+    conf.setBoolean(RuntimeParameters.FILE_TARGET_COMMIT_DIRECTORY, true);
+    fileTarget.handleOutputs(conf, new Path(workingDir.getAbsolutePath()), -1);
+
+    assertEquals("test1", FileUtils.readFileToString(new File(destinationDir, "part-r-00000")));
+    assertEquals("test2", FileUtils.readFileToString(new File(destinationDir, "part-r-00001")));
+    assertTrue(new File(destinationDir, "_SUCCESS").exists());
+    assertTrue(workingDir.isDirectory());
+    assertEquals(0, workingDir.list().length);
+  }
+
+  @Test
+  public void testHandleOutputsRenamesFilesWhenNamesDiffer() throws Exception {
+    File workingDir = TMP.newFolder();
+    File destinationDir = new File(TMP.getRoot(), "renamed-commit");
+    FileUtils.writeStringToFile(new File(workingDir, "out0-r-00000"), "test1");
+    FileUtils.writeStringToFile(new File(workingDir, "_SUCCESS"), "");
+    FileTargetImpl fileTarget = new FileTargetImpl(new Path(destinationDir.getAbsolutePath()),
+        SequenceFileOutputFormat.class, SequentialFileNamingScheme.getInstance());
+
+    Configuration conf = new Configuration();
+    conf.setBoolean(RuntimeParameters.FILE_TARGET_COMMIT_DIRECTORY, true);
+    fileTarget.handleOutputs(conf, new Path(workingDir.getAbsolutePath()), 0);
+
+    // The files are renamed into place once, rather than moved with the directory and then renamed
+    assertEquals("test1", FileUtils.readFileToString(new File(destinationDir, "part-r-00000")));
+    assertTrue(new File(workingDir, "_SUCCESS").exists());
+  }
+
+  @Test
+  public void testHandleOutputsDoesNotSucceedWhenMoveFails() throws Exception {
+    File workingDir = TMP.newFolder();
+    File destinationDir = new File(TMP.getRoot(), "failed-commit");
+    FileUtils.writeStringToFile(new File(workingDir, "part-m-00000"), "test1");
+    FileTargetImpl fileTarget = new FileTargetImpl(
+        new Path(FailingRenameFileSystem.SCHEME + "://" + destinationDir.getAbsolutePath()),
+        SequenceFileOutputFormat.class, SequentialFileNamingScheme.getInstance());
+
+    Configuration conf = new Configuration();
+    conf.setClass("fs." + FailingRenameFileSystem.SCHEME + ".impl", FailingRenameFileSystem.class, FileSystem.class);
+    conf.setBoolean("fs." + FailingRenameFileSystem.SCHEME + ".impl.disable.cache", true);
+    conf.setInt(RuntimeParameters.FILE_TARGET_MAX_RETRIES, 1);
+    conf.setLong(RuntimeParameters.FILE_TARGET_RETRY_BACKOFF_MS, 1L);
+    fileTarget.handleOutputs(conf,
+        new Path(FailingRenameFileSystem.SCHEME + "://" + workingDir.getAbsolutePath()), -1);
+
+    assertTrue(new File(workingDir, "part-m-00000").exists());
+    assertFalse(new File(destinationDir, "_SUCCESS").exists());
+  }
+
+  /**
+   * A local file system whose renames always fail with an exception.
+   */
+  public static class FailingRenameFileSystem extends RawLocalFileSystem {
+    static final String SCHEME = "failrename";
+
+    @Override
+    public URI getUri() {
+      return URI.create(SCHEME + ":///");
+    }
+
+    @Override
+    public boolean rename(Path src, Path dst) throws IOException {
+      throw new IOException("Cannot rename " + src);
+    }
+  }
+
+  @Test
+  public void testHandleOutputsRenamesFilesWhenWorkingDirectoryIsShared() throws Exception {
+    File workingDir = TMP.newFolder();
+    File destinationDir = new File(TMP.getRoot(), "shared-commit");
+    FileUtils.writeStringToFile(new File(workingDir, "out0-r-00000"), "test1");
+    FileUtils.writeStringToFile(new File(workingDir, "out1-r-00000"), "other");
+    FileTargetImpl fileTarget = new FileTargetImpl(new Path(destinationDir.getAbsolutePath()),
+        SequenceFileOutputFormat.class, SequentialFileNamingScheme.getInstance());
+
+    Configuration conf = new Configuration();
+    conf.setBoolean(RuntimeParameters.FILE_TARGET_COMMIT_DIRECTORY, true);
+    fileTarget.handleOutputs(conf, new Path(workingDir.getAbsolutePath()), 0);
+
+    assertEquals("test1", FileUtils.readFileToString(new File(destinationDir, "part-r-00000")));
+    assertEquals("other", FileUtils.readFileToString(new File(workingDir, "out1-r-00000")));
+    assertTrue(new File(destinationDir, "_SUCCESS").exists());
+  }
+
   @Test
   public void testEquality() {
     Target target = new FileTargetImpl(new Path("/path"), SequenceFileOutputFormat.class,
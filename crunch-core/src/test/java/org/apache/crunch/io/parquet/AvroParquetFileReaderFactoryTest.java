@@ -27,8 +27,11 @@ import java.io.IOException;
 import java.util.Iterator;
 import java.util.List;
 import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
 import org.apache.avro.generic.GenericData.Record;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.crunch.io.ColumnPredicate;
+import org.apache.crunch.io.avro.AvroProjection;
 import org.apache.crunch.test.Person;
 import org.apache.crunch.test.TemporaryPath;
 import org.apache.crunch.test.TemporaryPaths;
@@ -97,6 +100,52 @@ public class AvroParquetFileReaderFactoryTest {
     assertFalse(recordIterator.hasNext());
   }
 
+  @Test
+  public void testProjectedSchema() throws IOException {
+    GenericRecord savedRecord = new Record(Person.SCHEMA$);
+    savedRecord.put("name", "John Doe");
+    savedRecord.put("age", 42);
+    savedRecord.put("siblingnames", Lists.newArrayList("Jimmy", "Jane"));
+    populateGenericFile(Lists.newArrayList(savedRecord), Person.SCHEMA$);
+
+    Schema ageOnly = SchemaBuilder.record("AgeOnly").fields().optionalInt("age").endRecord();
+    AvroParquetFileReaderFactory<Record> genericReader = new AvroParquetFileReaderFactory<Record>(
+        Avros.generics(ageOnly), AvroProjection.project(Person.SCHEMA$, ageOnly), null);
+    Iterator<Record> recordIterator = genericReader.read(FileSystem.getLocal(new Configuration()),
+        new Path(this.parquetFile.getAbsolutePath()));
+
+    GenericRecord genericRecord = recordIterator.next();
+    assertEquals(ageOnly, genericRecord.getSchema());
+    assertEquals(42, genericRecord.get("age"));
+    assertFalse(recordIterator.hasNext());
+  }
+
+  @Test
+  public void testPredicate() throws IOException {
+    String genericSchemaJson = Person.SCHEMA$.toString().replace("Person", "GenericPerson");
+    Schema genericPersonSchema = new Schema.Parser().parse(genericSchemaJson);
+    List<GenericRecord> savedRecords = Lists.newArrayList();
+    for (int age = 20; age < 25; age++) {
+      GenericRecord savedRecord = new Record(genericPersonSchema);
+      savedRecord.put("name", age == 22 ? null : "Person " + age);
+      savedRecord.put("age", age);
+      savedRecords.add(savedRecord);
+    }
+    populateGenericFile(savedRecords, genericPersonSchema);
+
+    AvroParquetFileReaderFactory<Record> genericReader = new AvroParquetFileReaderFactory<Record>(
+        Avros.generics(genericPersonSchema),
+        ColumnPredicate.and(ColumnPredicate.gtEq("age", 21L), ColumnPredicate.isNotNull("name")));
+    Iterator<Record> recordIterator = genericReader.read(FileSystem.getLocal(new Configuration()),
+        new Path(this.parquetFile.getAbsolutePath()));
+
+    List<Object> ages = Lists.newArrayList();
+    while (recordIterator.hasNext()) {
+      ages.add(recordIterator.next().get("age"));
+    }
+    assertEquals(Lists.<Object>newArrayList(21, 23, 24), ages);
+  }
+
   public static Schema.Field cloneField(Schema.Field field) {
     return new Schema.Field(field.name(), field.schema(), field.doc(), field.defaultVal());
   }
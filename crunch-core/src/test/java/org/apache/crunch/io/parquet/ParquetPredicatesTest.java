@@ -0,0 +1,92 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.io.parquet;
+
+import static org.apache.parquet.filter2.predicate.FilterApi.and;
+import static org.apache.parquet.filter2.predicate.FilterApi.binaryColumn;
+import static org.apache.parquet.filter2.predicate.FilterApi.booleanColumn;
+import static org.apache.parquet.filter2.predicate.FilterApi.doubleColumn;
+import static org.apache.parquet.filter2.predicate.FilterApi.eq;
+import static org.apache.parquet.filter2.predicate.FilterApi.gtEq;
+import static org.apache.parquet.filter2.predicate.FilterApi.longColumn;
+import static org.apache.parquet.filter2.predicate.FilterApi.lt;
+import static org.apache.parquet.filter2.predicate.FilterApi.not;
+import static org.apache.parquet.filter2.predicate.FilterApi.notEq;
+import static org.apache.parquet.filter2.predicate.FilterApi.or;
+import static org.junit.Assert.assertEquals;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.crunch.io.ColumnPredicate;
+import org.apache.parquet.filter2.predicate.FilterPredicate;
+import org.apache.parquet.io.api.Binary;
+import org.junit.Test;
+
+public class ParquetPredicatesTest {
+
+  private static final Schema USER = SchemaBuilder.record("User").fields()
+      .requiredLong("id")
+      .optionalString("email")
+      .endRecord();
+
+  private static final Schema EVENT = SchemaBuilder.record("Event").fields()
+      .requiredString("tenant")
+      .requiredLong("timestamp")
+      .requiredDouble("score")
+      .optionalBoolean("deleted")
+      .name("user").type().optional().type(USER)
+      .endRecord();
+
+  private static FilterPredicate translate(ColumnPredicate predicate) {
+    return ParquetPredicates.toFilterPredicate(predicate, EVENT);
+  }
+
+  @Test
+  public void testComparisons() {
+    assertEquals(and(gtEq(longColumn("timestamp"), 1000L), lt(longColumn("timestamp"), 2000L)),
+        translate(ColumnPredicate.and(
+            ColumnPredicate.gtEq("timestamp", 1000), ColumnPredicate.lt("timestamp", 2000L))));
+    assertEquals(not(eq(doubleColumn("score"), 0.5)),
+        translate(ColumnPredicate.not(ColumnPredicate.eq("score", 0.5f))));
+    assertEquals(eq(booleanColumn("deleted"), false), translate(ColumnPredicate.eq("deleted", false)));
+  }
+
+  @Test
+  public void testInListsAndNullChecks() {
+    assertEquals(
+        or(eq(binaryColumn("tenant"), Binary.fromString("a")), eq(binaryColumn("tenant"), Binary.fromString("b"))),
+        translate(ColumnPredicate.in("tenant", "a", "b")));
+    assertEquals(eq(binaryColumn("user.email"), null), translate(ColumnPredicate.isNull("user.email")));
+    assertEquals(notEq(longColumn("user.id"), null), translate(ColumnPredicate.isNotNull("user.id")));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownColumn() {
+    translate(ColumnPredicate.eq("user.name", "x"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMismatchedValue() {
+    translate(ColumnPredicate.eq("timestamp", "yesterday"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNonPrimitiveColumn() {
+    translate(ColumnPredicate.isNull("user"));
+  }
+}
@@ -18,10 +18,14 @@
 package org.apache.crunch.io.text.csv;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.List;
 
 import org.apache.crunch.test.TemporaryPath;
 import org.apache.crunch.test.TemporaryPaths;
@@ -29,6 +33,9 @@ import org.apache.hadoop.io.Text;
 import org.junit.Rule;
 import org.junit.Test;
 
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+
 public class CSVLineReaderTest {
   @Rule
   public transient TemporaryPath tmpDir = TemporaryPaths.create();
@@ -95,4 +102,58 @@ public class CSVLineReaderTest {
       fileInputStream.close();
     }
   }
-}
\ No newline at end of file
+
+  private static List<String> readAll(String csv, int bufferSize, boolean allowBytePath) throws IOException {
+    final byte[] bytes = csv.getBytes(Charsets.UTF_8);
+    final CSVLineReader csvLineReader = new CSVLineReader(new ByteArrayInputStream(bytes), bufferSize,
+        CSVLineReader.DEFAULT_INPUT_FILE_ENCODING, CSVLineReader.DEFAULT_QUOTE_CHARACTER,
+        CSVLineReader.DEFAULT_QUOTE_CHARACTER, CSVLineReader.DEFAULT_ESCAPE_CHARACTER,
+        CSVLineReader.DEFAULT_MAXIMUM_RECORD_SIZE, allowBytePath);
+    assertEquals(allowBytePath, csvLineReader.isBytePath());
+    final List<String> records = Lists.newArrayList();
+    int totalBytes = 0;
+    final Text readText = new Text();
+    int bytesRead;
+    while ((bytesRead = csvLineReader.readCSVLine(readText)) > 0) {
+      totalBytes += bytesRead;
+      records.add(readText.toString() + "@" + totalBytes);
+    }
+    assertEquals(bytes.length, totalBytes);
+    return records;
+  }
+
+  @Test
+  public void testBytePathMatchesCharacterPath() throws IOException {
+    final String csv = "a,b,c\r\n\"multi\nline \\\" quoted\",€uro\r\n\"x\"\"y\",漢字\rlast,\"cr\r\nlf\"\n,\n";
+    final List<String> expected = readAll(csv, CSVLineReader.DEFAULT_BUFFER_SIZE, false);
+    assertEquals(5, expected.size());
+    for (int bufferSize = 1; bufferSize < 16; bufferSize++) {
+      assertEquals("Buffer size " + bufferSize, expected, readAll(csv, bufferSize, true));
+    }
+    assertEquals(expected, readAll(csv, CSVLineReader.DEFAULT_BUFFER_SIZE, true));
+  }
+
+  @Test
+  public void testBytePathIsOnlyUsedForAsciiControlCharacters() throws IOException {
+    final ByteArrayInputStream in = new ByteArrayInputStream(new byte[0]);
+    assertTrue(new CSVLineReader(in).isBytePath());
+    assertFalse(new CSVLineReader(in, CSVLineReader.DEFAULT_BUFFER_SIZE, CSVLineReader.DEFAULT_INPUT_FILE_ENCODING,
+        '“', '”', '、', CSVLineReader.DEFAULT_MAXIMUM_RECORD_SIZE).isBytePath());
+    assertFalse(new CSVLineReader(in, CSVLineReader.DEFAULT_BUFFER_SIZE, "UTF-16",
+        '"', '"', '\\', CSVLineReader.DEFAULT_MAXIMUM_RECORD_SIZE).isBytePath());
+  }
+
+  @Test
+  public void testFieldOffsets() throws IOException {
+    final CSVLineReader csvLineReader = new CSVLineReader(new ByteArrayInputStream(new byte[0]));
+    final Text record = new Text("a,\"b,\\\"c\",,€");
+    final int[] offsets = new int[5];
+    assertEquals(4, csvLineReader.getFieldOffsets(record, ',', offsets));
+    final byte[] bytes = record.getBytes();
+    assertEquals("a", Text.decode(bytes, offsets[0], offsets[1] - 1 - offsets[0]));
+    assertEquals("\"b,\\\"c\"", Text.decode(bytes, offsets[1], offsets[2] - 1 - offsets[1]));
+    assertEquals("", Text.decode(bytes, offsets[2], offsets[3] - 1 - offsets[2]));
+    assertEquals("€", Text.decode(bytes, offsets[3], offsets[4] - 1 - offsets[3]));
+    assertEquals(4, csvLineReader.getFieldOffsets(record, ',', new int[2]));
+  }
+}
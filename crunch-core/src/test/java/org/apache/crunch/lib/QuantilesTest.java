@@ -23,9 +23,11 @@ import org.apache.crunch.PTable;
 import org.apache.crunch.Pair;
 import org.apache.crunch.impl.mem.MemPipeline;
 import org.apache.crunch.lib.Quantiles.Result;
+import org.apache.hadoop.conf.Configuration;
 
 import org.junit.Test;
 
+import java.util.List;
 import java.util.Map;
 
 import static org.apache.crunch.types.avro.Avros.*;
@@ -48,12 +50,14 @@ public class QuantilesTest {
             "a", 1);
     Map<String, Result<Integer>> actualS = Quantiles.distributed(testTable, 0, 0.5, 1.0).materializeToMap();
     Map<String, Result<Integer>> actualM = Quantiles.inMemory(testTable, 0, 0.5, 1.0).materializeToMap();
+    Map<String, Result<Integer>> actualA = Quantiles.approximate(testTable, 0, 0.5, 1.0).materializeToMap();
     Map<String, Result<Integer>> expected = ImmutableMap.of(
             "a", result(5, Pair.of(0.0, 1), Pair.of(0.5, 3), Pair.of(1.0, 5))
     );
 
     assertEquals(expected, actualS);
     assertEquals(expected, actualM);
+    assertEquals(expected, actualA);
   }
 
   @Test
@@ -66,12 +70,14 @@ public class QuantilesTest {
             "a", 1);
     Map<String, Result<Integer>> actualS = Quantiles.distributed(testTable, 0.5).materializeToMap();
     Map<String, Result<Integer>> actualM = Quantiles.inMemory(testTable, 0.5).materializeToMap();
+    Map<String, Result<Integer>> actualA = Quantiles.approximate(testTable, 0.5).materializeToMap();
     Map<String, Result<Integer>> expected = ImmutableMap.of(
             "a", result(4, Pair.of(0.5, 2))
     );
 
     assertEquals(expected, actualS);
     assertEquals(expected, actualM);
+    assertEquals(expected, actualA);
   }
 
   @Test
@@ -90,12 +96,14 @@ public class QuantilesTest {
             "a", 100);
     Map<String, Result<Integer>> actualS = Quantiles.distributed(testTable, 0.9, 0.99).materializeToMap();
     Map<String, Result<Integer>> actualM = Quantiles.inMemory(testTable, 0.9, 0.99).materializeToMap();
+    Map<String, Result<Integer>> actualA = Quantiles.approximate(testTable, 0.9, 0.99).materializeToMap();
     Map<String, Result<Integer>> expected = ImmutableMap.of(
             "a", result(10, Pair.of(0.9, 90), Pair.of(0.99, 100))
     );
 
     assertEquals(expected, actualS);
     assertEquals(expected, actualM);
+    assertEquals(expected, actualA);
   }
 
   @Test
@@ -114,13 +122,55 @@ public class QuantilesTest {
             "a", 100);
     Map<String, Result<Integer>> actualS = Quantiles.distributed(testTable, 0.5).materializeToMap();
     Map<String, Result<Integer>> actualM = Quantiles.inMemory(testTable, 0.5).materializeToMap();
+    Map<String, Result<Integer>> actualA = Quantiles.approximate(testTable, 0.5).materializeToMap();
     Map<String, Result<Integer>> expected = ImmutableMap.of(
             "a", result(10, Pair.of(0.5, 50))
     );
 
     assertEquals(expected, actualS);
     assertEquals(expected, actualM);
+    assertEquals(expected, actualA);
   }
 
+  @Test
+  public void testQuantilesApproximate() {
+    List<Pair<String, Long>> values = Lists.newArrayList();
+    for (long i = 1; i <= 100000; i++) {
+      // Interleave the values so that the sketches see them out of order
+      values.add(Pair.of("a", (i * 7919) % 100000 + 1));
+    }
+    PTable<String, Long> testTable = MemPipeline.typedTableOf(tableOf(strings(), longs()), values);
+    Result<Long> result = Quantiles.approximate(testTable, 0, 0.5, 0.99, 1.0).materializeToMap().get("a");
+
+    assertEquals(100000L, result.count);
+    assertEquals(Long.valueOf(1L), result.quantiles.get(0.0));
+    assertEquals(Long.valueOf(100000L), result.quantiles.get(1.0));
+    // The rank error is well within 3% with the default sketch size
+    assertEquals(50000.0, result.quantiles.get(0.5), 3000.0);
+    assertEquals(99000.0, result.quantiles.get(0.99), 3000.0);
+  }
 
+  @Test
+  public void testQuantilesApproximateEvictsSketches() {
+    List<Pair<String, Long>> values = Lists.newArrayList();
+    for (long i = 1; i <= 1000; i++) {
+      // Alternate the keys so that each value evicts the sketch of the other key
+      values.add(Pair.of(i % 2 == 0 ? "even" : "odd", i));
+    }
+    Configuration conf = MemPipeline.getInstance().getConfiguration();
+    conf.setLong(Quantiles.SKETCH_MEMORY_BYTES, 1L);
+    try {
+      PTable<String, Long> testTable = MemPipeline.typedTableOf(tableOf(strings(), longs()), values);
+      Map<String, Result<Long>> results = Quantiles.approximate(testTable, 0, 1.0).materializeToMap();
+
+      assertEquals(500L, results.get("even").count);
+      assertEquals(Long.valueOf(2L), results.get("even").quantiles.get(0.0));
+      assertEquals(Long.valueOf(1000L), results.get("even").quantiles.get(1.0));
+      assertEquals(500L, results.get("odd").count);
+      assertEquals(Long.valueOf(1L), results.get("odd").quantiles.get(0.0));
+      assertEquals(Long.valueOf(999L), results.get("odd").quantiles.get(1.0));
+    } finally {
+      conf.unset(Quantiles.SKETCH_MEMORY_BYTES);
+    }
+  }
 }
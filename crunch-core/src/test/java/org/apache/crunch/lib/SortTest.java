@@ -20,7 +20,13 @@ package org.apache.crunch.lib;
 import com.google.common.collect.ImmutableList;
 import org.apache.crunch.PCollection;
 import org.apache.crunch.Pair;
+import org.apache.crunch.Tuple3;
 import org.apache.crunch.impl.mem.MemPipeline;
+import org.apache.crunch.lib.Sort.ColumnOrder;
+import org.apache.crunch.lib.Sort.Order;
+import org.apache.crunch.types.PTypeFamily;
+import org.apache.crunch.types.avro.AvroTypeFamily;
+import org.apache.crunch.types.writable.WritableTypeFamily;
 import org.junit.Test;
 
 import static org.apache.crunch.types.avro.Avros.longs;
@@ -38,4 +44,30 @@ public class SortTest {
     assertEquals(ImmutableList.of(Pair.of("b", 10L), Pair.of("c", 7L), Pair.of("a", 1L)),
         ImmutableList.copyOf(sorted.materialize()));
   }
+
+  @Test
+  public void testInMemorySortTuplesByBytesAvro() throws Exception {
+    runSortTuplesByBytes(AvroTypeFamily.getInstance());
+  }
+
+  @Test
+  public void testInMemorySortTuplesByBytesWritable() throws Exception {
+    runSortTuplesByBytes(WritableTypeFamily.getInstance());
+  }
+
+  private static void runSortTuplesByBytes(PTypeFamily tf) {
+    PCollection<Tuple3<Integer, Long, String>> pc = MemPipeline.typedCollectionOf(
+        tf.triples(tf.ints(), tf.longs(), tf.strings()),
+        Tuple3.of(3, 2L, "\u00e4"), Tuple3.of(-5, 1L, "a"), Tuple3.of(Integer.MAX_VALUE, 0L, "x"),
+        Tuple3.of(3, 2L, "z"), Tuple3.of(0, 4L, "e"), Tuple3.of(-5, 9L, "c"), Tuple3.of(3, 2L, "b"),
+        Tuple3.of(Integer.MIN_VALUE, 0L, "y"), Tuple3.of(3, -1L, "a"));
+    PCollection<Tuple3<Integer, Long, String>> sorted = Sort.sortTuplesByBytes(pc,
+        ColumnOrder.by(1, Order.ASCENDING), ColumnOrder.by(2, Order.DESCENDING), ColumnOrder.by(3, Order.ASCENDING));
+    // Strings are ordered by their UTF-8 bytes, so non-ASCII characters sort after ASCII ones
+    assertEquals(ImmutableList.of(
+        Tuple3.of(Integer.MIN_VALUE, 0L, "y"), Tuple3.of(-5, 9L, "c"), Tuple3.of(-5, 1L, "a"), Tuple3.of(0, 4L, "e"),
+        Tuple3.of(3, 2L, "b"), Tuple3.of(3, 2L, "z"), Tuple3.of(3, 2L, "\u00e4"), Tuple3.of(3, -1L, "a"),
+        Tuple3.of(Integer.MAX_VALUE, 0L, "x")),
+        ImmutableList.copyOf(sorted.materialize()));
+  }
 }
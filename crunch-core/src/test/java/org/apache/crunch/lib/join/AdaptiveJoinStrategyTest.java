@@ -0,0 +1,111 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.lib.join;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.apache.crunch.PTable;
+import org.apache.crunch.Pair;
+import org.apache.crunch.impl.mem.MemPipeline;
+import org.apache.crunch.impl.mem.collect.MemTable;
+import org.apache.crunch.lib.join.AdaptiveJoinStrategy.Choice;
+import org.apache.crunch.types.writable.Writables;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class AdaptiveJoinStrategyTest {
+
+  private static final long MB = 1024L * 1024;
+  private static final long GB = 1024L * MB;
+
+  private final AdaptiveJoinStrategy<Integer, String, String> strategy = AdaptiveJoinStrategy.builder().build();
+
+  @Test
+  public void testBroadcastsSmallerSide() {
+    assertEquals(Choice.BROADCAST_LEFT, strategy.choose(MB, 10 * GB, JoinType.INNER_JOIN));
+    assertEquals(Choice.BROADCAST_RIGHT, strategy.choose(10 * GB, MB, JoinType.INNER_JOIN));
+    assertEquals(Choice.BROADCAST_LEFT, strategy.choose(MB, 10 * GB, JoinType.RIGHT_OUTER_JOIN));
+    assertEquals(Choice.BROADCAST_RIGHT, strategy.choose(MB, 2 * MB, JoinType.LEFT_OUTER_JOIN));
+  }
+
+  @Test
+  public void testFullOuterJoinsAreNotBroadcast() {
+    assertEquals(Choice.REDUCE_SIDE, strategy.choose(MB, 2 * MB, JoinType.FULL_OUTER_JOIN));
+  }
+
+  @Test
+  public void testBloomFilterForMuchLargerRightSide() {
+    assertEquals(Choice.BLOOM_FILTER, strategy.choose(GB, 100 * GB, JoinType.INNER_JOIN));
+    assertEquals(Choice.BLOOM_FILTER, strategy.choose(GB, 100 * GB, JoinType.FULL_OUTER_JOIN));
+    // The Bloom filter for 1TB of left-side keys would be too large
+    assertEquals(Choice.REDUCE_SIDE, strategy.choose(1024 * GB, 100 * 1024 * GB, JoinType.INNER_JOIN));
+  }
+
+  @Test
+  public void testShardsSkewedKeys() {
+    AdaptiveJoinStrategy<Integer, String, String> hinted = AdaptiveJoinStrategy.builder()
+        .keyCardinalities(-1, 10)
+        .build();
+    assertEquals(Choice.SHARDED, hinted.choose(10 * GB, 50 * GB, JoinType.INNER_JOIN));
+    assertEquals(Choice.REDUCE_SIDE, hinted.choose(10 * GB, 50 * GB, JoinType.LEFT_OUTER_JOIN));
+  }
+
+  @Test
+  public void testUnknownSizes() {
+    assertEquals(Choice.REDUCE_SIDE, strategy.choose(-1, MB, JoinType.INNER_JOIN));
+  }
+
+  @Test
+  public void testJoin() {
+    PTable<Integer, String> left = MemPipeline.typedTableOf(Writables.tableOf(Writables.ints(), Writables.strings()),
+        1, "one", 2, "two");
+    PTable<Integer, String> right = MemPipeline.typedTableOf(Writables.tableOf(Writables.ints(), Writables.strings()),
+        2, "2A", 3, "3A");
+    PTable<Integer, Pair<String, String>> joined = strategy.join(left, right, JoinType.INNER_JOIN);
+    assertTrue(joined.getName(), joined.getName().startsWith("Adaptive INNER_JOIN join: BROADCAST_LEFT"));
+    List<Pair<Integer, Pair<String, String>>> result = Lists.newArrayList(joined.materialize());
+    assertEquals(Lists.newArrayList(Pair.of(2, Pair.of("two", "2A"))), result);
+  }
+
+  @Test
+  public void testShardedJoin() {
+    AdaptiveJoinStrategy<Integer, String, String> hinted = AdaptiveJoinStrategy.builder()
+        .keyCardinalities(1, 1)
+        .build();
+    PTable<Integer, String> left = sized(10 * GB, Pair.of(1, "one"), Pair.of(2, "two"));
+    PTable<Integer, String> right = sized(10 * GB, Pair.of(2, "2A"), Pair.of(3, "3A"));
+    PTable<Integer, Pair<String, String>> joined = hinted.join(left, right, JoinType.INNER_JOIN);
+    assertTrue(joined.getName(), joined.getName().startsWith("Adaptive INNER_JOIN join: SHARDED"));
+    List<Pair<Integer, Pair<String, String>>> result = Lists.newArrayList(joined.materialize());
+    assertEquals(Lists.newArrayList(Pair.of(2, Pair.of("two", "2A"))), result);
+  }
+
+  private static PTable<Integer, String> sized(final long size, Pair<Integer, String>... entries) {
+    return new MemTable<Integer, String>(Lists.newArrayList(entries),
+        Writables.tableOf(Writables.ints(), Writables.strings()), "sized") {
+      @Override
+      public long getSize() {
+        return size;
+      }
+    };
+  }
+}
@@ -0,0 +1,130 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.lib.join;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.crunch.PTable;
+import org.apache.crunch.Pair;
+import org.apache.crunch.impl.mem.MemPipeline;
+import org.apache.crunch.types.PTableType;
+import org.apache.crunch.types.PTypeFamily;
+import org.apache.crunch.types.avro.AvroTypeFamily;
+import org.apache.crunch.types.avro.Avros;
+import org.apache.crunch.types.writable.WritableTypeFamily;
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+public class OffHeapJoinIndexTest {
+
+  @Test
+  public void testLookups() throws Exception {
+    for (PTypeFamily ptf : new PTypeFamily[] { WritableTypeFamily.getInstance(), AvroTypeFamily.getInstance() }) {
+      PTableType<String, Long> tableType = ptf.tableOf(ptf.strings(), ptf.longs());
+      tableType.initialize(new Configuration());
+      List<Pair<String, Long>> entries = Lists.newArrayList();
+      for (long i = 0; i < 1000; i++) {
+        entries.add(Pair.of("key" + (i % 100), i));
+      }
+      entries.add(Pair.<String, Long>of(null, 0L));
+
+      OffHeapJoinIndex<String, Long> index = OffHeapJoinIndex.build(entries, tableType, new Configuration());
+      try {
+        assertEquals(1000L, index.size());
+        List<Long> values = Lists.newArrayList(index.get("key7"));
+        Collections.sort(values);
+        assertEquals(10, values.size());
+        for (int i = 0; i < 10; i++) {
+          assertEquals(Long.valueOf(7 + 100 * i), values.get(i));
+        }
+        assertTrue(index.get("missing").isEmpty());
+        assertTrue(index.get(null).isEmpty());
+      } finally {
+        index.close();
+      }
+    }
+  }
+
+  @Test
+  public void testEmpty() throws Exception {
+    PTableType<String, Long> tableType = Avros.tableOf(Avros.strings(), Avros.longs());
+    tableType.initialize(new Configuration());
+    OffHeapJoinIndex<String, Long> index = OffHeapJoinIndex.build(
+        ImmutableList.<Pair<String, Long>>of(), tableType, new Configuration());
+    assertEquals(0L, index.size());
+    assertTrue(index.get("a").isEmpty());
+    index.close();
+  }
+
+  @Test
+  public void testOpenWrittenIndex() throws Exception {
+    PTableType<String, Long> tableType = Avros.tableOf(Avros.strings(), Avros.longs());
+    tableType.initialize(new Configuration());
+    BinaryCodec<String> keyCodec = BinaryCodec.create(tableType.getKeyType(), new Configuration());
+    BinaryCodec<Long> valueCodec = BinaryCodec.create(tableType.getValueType(), new Configuration());
+    File file = File.createTempFile("crunch-mapjoin", ".index");
+    try {
+      OffHeapJoinIndex.Writer writer = new OffHeapJoinIndex.Writer();
+      try (OutputStream out = new FileOutputStream(file)) {
+        writer.add(keyCodec.toBytes("a"), valueCodec.toBytes(1L));
+        writer.add(keyCodec.toBytes("b"), null);
+        writer.writeTo(out);
+      } finally {
+        writer.close();
+      }
+
+      OffHeapJoinIndex<String, Long> index = OffHeapJoinIndex.open(file, tableType, new Configuration());
+      assertEquals(2L, index.size());
+      assertEquals(ImmutableList.of(1L), index.get("a"));
+      assertEquals(Collections.<Long>singletonList(null), index.get("b"));
+      index.close();
+      // Indices that are opened from a file leave it in place
+      assertTrue(file.exists());
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testMapsideJoin() {
+    PTable<Integer, String> left = MemPipeline.typedTableOf(Avros.tableOf(Avros.ints(), Avros.strings()),
+        1, "one", 2, "two", 2, "deux");
+    PTable<Integer, String> right = MemPipeline.typedTableOf(Avros.tableOf(Avros.ints(), Avros.strings()),
+        1, "1A", 2, "2A", 3, "3A");
+
+    List<Pair<Integer, Pair<String, String>>> joined = Lists.newArrayList(
+        MapsideJoinStrategy.<Integer, String, String>create(false, true)
+            .join(left, right, JoinType.RIGHT_OUTER_JOIN).materialize());
+
+    assertEquals(4, joined.size());
+    assertTrue(joined.contains(Pair.of(1, Pair.of("one", "1A"))));
+    assertTrue(joined.contains(Pair.of(2, Pair.of("two", "2A"))));
+    assertTrue(joined.contains(Pair.of(2, Pair.of("deux", "2A"))));
+    assertTrue(joined.contains(Pair.of(3, Pair.<String, String>of(null, "3A"))));
+  }
+}
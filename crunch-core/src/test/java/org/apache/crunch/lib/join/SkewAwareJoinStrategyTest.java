@@ -0,0 +1,78 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.lib.join;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.crunch.PTable;
+import org.apache.crunch.Pair;
+import org.apache.crunch.impl.mem.MemPipeline;
+import org.apache.crunch.types.avro.Avros;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class SkewAwareJoinStrategyTest {
+
+  private static PTable<String, Integer> left() {
+    List<Pair<String, Integer>> values = Lists.newArrayList();
+    values.add(Pair.of("hot", 1));
+    values.add(Pair.of("hot", 2));
+    values.add(Pair.of("warm", 3));
+    values.add(Pair.of("leftonly", 4));
+    return MemPipeline.typedTableOf(Avros.tableOf(Avros.strings(), Avros.ints()), values);
+  }
+
+  private static PTable<String, Long> right() {
+    List<Pair<String, Long>> values = Lists.newArrayList();
+    for (long i = 0; i < 100; i++) {
+      values.add(Pair.of("hot", i));
+    }
+    for (long i = 0; i < 5; i++) {
+      values.add(Pair.of("warm", i));
+      values.add(Pair.of("rightonly", i));
+    }
+    return MemPipeline.typedTableOf(Avros.tableOf(Avros.strings(), Avros.longs()), values);
+  }
+
+  private static List<String> join(JoinStrategy<String, Integer, Long> strategy, JoinType joinType) {
+    List<String> ret = Lists.newArrayList();
+    for (Pair<String, Pair<Integer, Long>> p : strategy.join(left(), right(), joinType).materialize()) {
+      ret.add(p.toString());
+    }
+    Collections.sort(ret);
+    return ret;
+  }
+
+  @Test
+  public void testMatchesDefaultJoin() {
+    for (JoinType joinType : new JoinType[] {
+        JoinType.INNER_JOIN, JoinType.LEFT_OUTER_JOIN, JoinType.RIGHT_OUTER_JOIN }) {
+      List<String> expected = join(new DefaultJoinStrategy<String, Integer, Long>(), joinType);
+      assertEquals(expected, join(new SkewAwareJoinStrategy<String, Integer, Long>(1.0, 10L, 4), joinType));
+    }
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testFullOuterJoinNotSupported() {
+    new SkewAwareJoinStrategy<String, Integer, Long>().join(left(), right(), JoinType.FULL_OUTER_JOIN);
+  }
+}
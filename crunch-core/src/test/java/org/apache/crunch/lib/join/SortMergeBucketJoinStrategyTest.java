@@ -0,0 +1,97 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.lib.join;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.apache.crunch.PTable;
+import org.apache.crunch.Pair;
+import org.apache.crunch.impl.mem.MemPipeline;
+import org.apache.crunch.impl.mem.emit.InMemoryEmitter;
+import org.apache.crunch.types.PTableType;
+import org.apache.crunch.types.writable.Writables;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+public class SortMergeBucketJoinStrategyTest {
+
+  private static final PTableType<Integer, String> TYPE = Writables.tableOf(Writables.ints(), Writables.strings());
+
+  private static final List<Pair<Integer, String>> LEFT = ImmutableList.of(
+      Pair.of(1, "a"), Pair.of(2, "b"), Pair.of(2, "c"), Pair.of(4, "d"));
+  private static final List<Pair<Integer, String>> RIGHT = ImmutableList.of(
+      Pair.of(2, "x"), Pair.of(3, "y"), Pair.of(4, "z"), Pair.of(4, "w"));
+
+  private static List<Pair<Integer, Pair<String, String>>> merge(JoinType joinType) {
+    TYPE.initialize(new Configuration());
+    InMemoryEmitter<Pair<Integer, Pair<String, String>>> emitter = InMemoryEmitter.create();
+    SortMergeBucketJoinStrategy.merge(LEFT.iterator(), RIGHT.iterator(),
+        BinaryCodec.create(TYPE.getKeyType(), new Configuration()), TYPE.getKeyType(), TYPE.getValueType(),
+        joinType, emitter);
+    return emitter.getOutput();
+  }
+
+  @Test
+  public void testInnerMerge() {
+    assertEquals(ImmutableList.of(
+        Pair.of(2, Pair.of("b", "x")),
+        Pair.of(2, Pair.of("c", "x")),
+        Pair.of(4, Pair.of("d", "z")),
+        Pair.of(4, Pair.of("d", "w"))), merge(JoinType.INNER_JOIN));
+  }
+
+  @Test
+  public void testFullOuterMerge() {
+    assertEquals(ImmutableList.of(
+        Pair.of(1, Pair.<String, String>of("a", null)),
+        Pair.of(2, Pair.of("b", "x")),
+        Pair.of(2, Pair.of("c", "x")),
+        Pair.of(3, Pair.<String, String>of(null, "y")),
+        Pair.of(4, Pair.of("d", "z")),
+        Pair.of(4, Pair.of("d", "w"))), merge(JoinType.FULL_OUTER_JOIN));
+  }
+
+  @Test
+  public void testLeftAndRightOuterMerge() {
+    assertEquals(5, merge(JoinType.LEFT_OUTER_JOIN).size());
+    assertEquals(5, merge(JoinType.RIGHT_OUTER_JOIN).size());
+  }
+
+  @Test
+  public void testBucketFileNames() throws Exception {
+    SortMergeBucketJoinStrategy.BucketFileNamingScheme scheme =
+        new SortMergeBucketJoinStrategy.BucketFileNamingScheme(16);
+    assertEquals("part-r-00003-of-00016", scheme.getReduceOutputName(new Configuration(), new Path("/tmp"), 3));
+  }
+
+  @Test
+  public void testFallsBackForUnbucketedInputs() {
+    PTable<Integer, String> left = MemPipeline.typedTableOf(TYPE, LEFT);
+    PTable<Integer, String> right = MemPipeline.typedTableOf(TYPE, RIGHT);
+    List<Pair<Integer, Pair<String, String>>> joined = Lists.newArrayList(
+        new SortMergeBucketJoinStrategy<Integer, String, String>().join(left, right, JoinType.INNER_JOIN)
+            .materialize());
+    assertEquals(4, joined.size());
+  }
+}
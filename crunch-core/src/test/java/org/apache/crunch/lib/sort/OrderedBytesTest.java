@@ -0,0 +1,101 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.lib.sort;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.apache.crunch.Pair;
+import org.apache.crunch.lib.Sort.ColumnOrder;
+import org.apache.crunch.lib.Sort.Order;
+import org.apache.hadoop.io.WritableComparator;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class OrderedBytesTest {
+
+  private static byte[] encode(Object value, Order order) {
+    return new OrderedBytes().write(value, order).toBytes();
+  }
+
+  private static int compare(byte[] left, byte[] right) {
+    int cmp = WritableComparator.compareBytes(left, 0, left.length, right, 0, right.length);
+    return cmp < 0 ? -1 : (cmp > 0 ? 1 : 0);
+  }
+
+  private static void assertOrdered(List<?> values) {
+    for (Order order : new Order[] { Order.ASCENDING, Order.DESCENDING }) {
+      int sign = order == Order.ASCENDING ? -1 : 1;
+      for (int i = 0; i + 1 < values.size(); i++) {
+        assertEquals(values.get(i) + " vs " + values.get(i + 1) + " " + order, sign,
+            compare(encode(values.get(i), order), encode(values.get(i + 1), order)));
+      }
+    }
+  }
+
+  @Test
+  public void testNumbers() {
+    assertOrdered(ImmutableList.of(Integer.MIN_VALUE, -300, -1, 0, 1, 255, 256, Integer.MAX_VALUE));
+    assertOrdered(ImmutableList.of(Long.MIN_VALUE, -1L, 0L, 1L << 40, Long.MAX_VALUE));
+    assertOrdered(ImmutableList.of(Float.NEGATIVE_INFINITY, -2.5f, -0.0f, 0.0f, 1e-10f, 3f, Float.NaN));
+    assertOrdered(ImmutableList.of(-Double.MAX_VALUE, -1.0, -Double.MIN_VALUE, 0.0, 0.5, Double.POSITIVE_INFINITY));
+    assertOrdered(ImmutableList.of(false, true));
+  }
+
+  @Test
+  public void testVariableLengthValues() {
+    assertOrdered(ImmutableList.of("", "\u0000", "\u0000a", "a", "a\u0000", "ab", "b", "é"));
+    assertOrdered(ImmutableList.of(ByteBuffer.wrap(new byte[0]), ByteBuffer.wrap(new byte[] { 0 }),
+        ByteBuffer.wrap(new byte[] { 1, -1 }), ByteBuffer.wrap(new byte[] { -1 })));
+  }
+
+  @Test
+  public void testNullsSortFirst() {
+    assertEquals(-1, compare(encode(null, Order.ASCENDING), encode(Integer.MIN_VALUE, Order.ASCENDING)));
+    assertEquals(-1, compare(encode(null, Order.ASCENDING), encode("", Order.ASCENDING)));
+    assertEquals(1, compare(encode(null, Order.DESCENDING), encode("", Order.DESCENDING)));
+  }
+
+  @Test
+  public void testColumns() {
+    SortFns.OrderedBytesKeyFn<Pair<String, Integer>> fn = new SortFns.OrderedBytesKeyFn<Pair<String, Integer>>(
+        new ColumnOrder[] { ColumnOrder.by(2, Order.DESCENDING), ColumnOrder.by(1, Order.ASCENDING) });
+    fn.initialize();
+    List<Pair<String, Integer>> sorted = ImmutableList.of(Pair.of("b", 2), Pair.of("a", 1), Pair.of("ab", 1),
+        Pair.of("b", 1), Pair.of("a", -5));
+    for (int i = 0; i + 1 < sorted.size(); i++) {
+      ByteBuffer left = fn.map(sorted.get(i));
+      ByteBuffer right = fn.map(sorted.get(i + 1));
+      assertEquals(-1, compare(left.array(), right.array()));
+    }
+    assertEquals(0, compare(new OrderedBytes().write("x", Order.IGNORE).toBytes(), new byte[0]));
+  }
+
+  @Test
+  public void testSupportedClasses() {
+    assertTrue(OrderedBytes.isSupported(String.class));
+    assertTrue(OrderedBytes.isSupported(Long.class));
+    assertTrue(OrderedBytes.isSupported(ByteBuffer.class));
+    assertFalse(OrderedBytes.isSupported(Pair.class));
+  }
+}
@@ -27,11 +27,18 @@ import java.io.ByteArrayOutputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericData.Record;
+import org.apache.avro.reflect.AvroEncode;
+import org.apache.avro.reflect.DateAsLongEncoding;
 import org.apache.crunch.test.Person;
 import org.apache.crunch.types.PType;
 import org.apache.crunch.types.avro.AvroDeepCopier.AvroSpecificDeepCopier;
@@ -105,6 +112,64 @@ public class AvroDeepCopierTest {
     assertEquals(orig.getField(), deepCopy.getField());
   }
 
+  @Test
+  public void testDeepCopyReflect_nested() {
+    ReflectedPerson friend = new ReflectedPerson();
+    friend.setName("Jane Doe");
+    friend.setSiblingnames(Lists.newArrayList("Jim"));
+    PojoWithCollections orig = new PojoWithCollections();
+    orig.people = new ReflectedPerson[] { friend, null };
+    orig.scores = new int[] { 1, 2 };
+    orig.tags = Maps.newHashMap(ImmutableMap.of("a", Lists.newArrayList(1L, 2L)));
+    orig.payload = ByteBuffer.wrap(new byte[] { 1, 2, 3 });
+    orig.next = new PojoWithCollections();
+
+    AvroDeepCopier<PojoWithCollections> avroDeepCopier = new AvroDeepCopier.AvroReflectDeepCopier<PojoWithCollections>(
+        Avros.reflects(PojoWithCollections.class).getSchema());
+    avroDeepCopier.initialize(new Configuration());
+    PojoWithCollections deepCopy = avroDeepCopier.deepCopy(orig);
+
+    assertEquals(friend, deepCopy.people[0]);
+    assertNotSame(friend, deepCopy.people[0]);
+    assertNotSame(friend.getSiblingnames(), deepCopy.people[0].getSiblingnames());
+    assertNull(deepCopy.people[1]);
+    assertArrayEquals(new int[] { 1, 2 }, deepCopy.scores);
+    assertNotSame(orig.scores, deepCopy.scores);
+    assertEquals(orig.tags, deepCopy.tags);
+    assertNotSame(orig.tags.get("a"), deepCopy.tags.get("a"));
+    assertEquals(orig.payload, deepCopy.payload);
+    assertNotSame(orig.payload.array(), deepCopy.payload.array());
+    assertNotSame(orig.next, deepCopy.next);
+    assertNull(deepCopy.next.next);
+  }
+
+  @Test
+  public void testDeepCopyReflect_customEncoding() {
+    PojoWithDate orig = new PojoWithDate();
+    orig.date = new Date(1000L);
+    AvroDeepCopier<PojoWithDate> avroDeepCopier = new AvroDeepCopier.AvroReflectDeepCopier<PojoWithDate>(
+        Avros.reflects(PojoWithDate.class).getSchema());
+    avroDeepCopier.initialize(new Configuration());
+
+    // Falls back to copying through serialization
+    PojoWithDate deepCopy = avroDeepCopier.deepCopy(orig);
+    assertEquals(orig.date, deepCopy.date);
+    assertNotSame(orig.date, deepCopy.date);
+  }
+
+  public static class PojoWithCollections {
+    private ReflectedPerson[] people;
+    private int[] scores;
+    private Map<String, List<Long>> tags;
+    private ByteBuffer payload;
+    private PojoWithCollections next;
+  }
+
+  public static class PojoWithDate {
+    @AvroEncode(using = DateAsLongEncoding.class)
+    private Date date;
+  }
+
   @Test
   public void testSerializableReflectPType() throws Exception {
     ReflectedPerson person = new ReflectedPerson();
@@ -62,6 +62,13 @@ public class AvroModeTest {
     assertThat(AvroMode.GENERIC.getData(), is(instanceOf(GenericData.class)));
   }
 
+  @Test
+  public void getReaderWriterReflect(){
+    Schema schema = Avros.reflects(ReflectedPerson.class).getSchema();
+    assertThat(AvroMode.REFLECT.getReader(schema), is(instanceOf(CrunchReflectDatumReader.class)));
+    assertThat(AvroMode.REFLECT.getWriter(schema), is(instanceOf(CrunchReflectDatumWriter.class)));
+  }
+
   @Test
   public void getDataReflect(){
     assertThat(AvroMode.REFLECT.getData(), is(instanceOf(ReflectData.class)));
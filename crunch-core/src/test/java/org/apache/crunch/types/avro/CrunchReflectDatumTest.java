@@ -0,0 +1,131 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.types.avro;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Date;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.reflect.ReflectData;
+import org.apache.avro.reflect.ReflectDatumReader;
+import org.apache.avro.reflect.ReflectDatumWriter;
+import org.apache.crunch.types.avro.AvroDeepCopierTest.PojoWithCollections;
+import org.apache.crunch.types.avro.AvroDeepCopierTest.PojoWithDate;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class CrunchReflectDatumTest {
+
+  private static byte[] write(ReflectDatumWriter<Object> writer, Object value) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    writer.write(value, encoder);
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  private static <T> T read(ReflectDatumReader<T> reader, byte[] bytes) throws IOException {
+    return reader.read(null, DecoderFactory.get().binaryDecoder(bytes, null));
+  }
+
+  private static ReflectedPerson person(String name, int age, String... siblingnames) {
+    ReflectedPerson person = new ReflectedPerson();
+    person.setName(name);
+    person.setAge(age);
+    person.setSiblingnames(Lists.newArrayList(siblingnames));
+    return person;
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    Schema schema = Avros.reflects(ReflectedPerson.class).getSchema();
+    ReflectedPerson person = person("John Doe", 42, "Jim", "Jane");
+
+    byte[] bytes = write(new CrunchReflectDatumWriter<Object>(schema), person);
+
+    // The encoding is that of the reflect writer, and can be read by either reader
+    assertArrayEquals(write(new ReflectDatumWriter<Object>(schema), person), bytes);
+    assertEquals(person, read(new CrunchReflectDatumReader<ReflectedPerson>(schema), bytes));
+    assertEquals(person, read(new ReflectDatumReader<ReflectedPerson>(schema), bytes));
+  }
+
+  @Test
+  public void testRoundTrip_nested() throws Exception {
+    Schema schema = Avros.reflects(PojoWithCollections.class).getSchema();
+    PojoWithCollections orig = new PojoWithCollections();
+    orig.people = new ReflectedPerson[] { person("Jane Doe", 7, "Jim"), null };
+    orig.scores = new int[] { 1, 2 };
+    orig.tags = Maps.newHashMap(ImmutableMap.of("a", Lists.newArrayList(1L, 2L)));
+    orig.payload = ByteBuffer.wrap(new byte[] { 1, 2, 3 });
+    orig.next = new PojoWithCollections();
+
+    CrunchReflectDatumWriter<Object> writer = new CrunchReflectDatumWriter<Object>(schema);
+    CrunchReflectDatumReader<PojoWithCollections> reader = new CrunchReflectDatumReader<PojoWithCollections>(schema);
+    byte[] bytes = write(writer, orig);
+    assertArrayEquals(write(new ReflectDatumWriter<Object>(schema), orig), bytes);
+
+    // Read twice, so that the second read uses the cached plans
+    read(reader, bytes);
+    PojoWithCollections copy = read(reader, bytes);
+    assertEquals(orig.people[0], copy.people[0]);
+    assertNull(copy.people[1]);
+    assertArrayEquals(orig.scores, copy.scores);
+    assertEquals(orig.tags, copy.tags);
+    assertEquals(orig.payload, copy.payload);
+    assertNull(copy.next.next);
+  }
+
+  @Test
+  public void testRoundTrip_customEncoding() throws Exception {
+    Schema schema = Avros.reflects(PojoWithDate.class).getSchema();
+    PojoWithDate orig = new PojoWithDate();
+    orig.date = new Date(1000L);
+
+    // Falls back to the accessors of the reflect reader and writer
+    byte[] bytes = write(new CrunchReflectDatumWriter<Object>(schema), orig);
+    assertEquals(orig.date, read(new CrunchReflectDatumReader<PojoWithDate>(schema), bytes).date);
+  }
+
+  @Test
+  public void testRoundTrip_resolvesWriterSchema() throws Exception {
+    Schema writerSchema = Avros.reflects(ReflectedPerson.class).getSchema();
+    Schema readerSchema = SchemaBuilder.record(writerSchema.getFullName()).fields()
+        .requiredInt("age")
+        .endRecord();
+    byte[] bytes = write(new CrunchReflectDatumWriter<Object>(writerSchema), person("John Doe", 42, "Jim"));
+
+    // Only the fields of the reader's schema are set, from the fields of the writer's schema
+    ReflectedPerson read = read(new CrunchReflectDatumReader<ReflectedPerson>(writerSchema, readerSchema,
+        ReflectData.get()), bytes);
+    assertEquals(42, read.getAge());
+    assertNull(read.getName());
+  }
+}
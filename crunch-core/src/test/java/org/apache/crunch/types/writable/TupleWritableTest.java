@@ -19,6 +19,7 @@ package org.apache.crunch.types.writable;
 
 import org.apache.hadoop.io.DataOutputBuffer;
 import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.io.WritableUtils;
@@ -83,6 +84,28 @@ public class TupleWritableTest {
         -1); // shorter is less
   }
 
+  @Test
+  public void testCompareNestedAndVariableLengthFields() throws IOException {
+    doTestCompare(
+        new TupleWritable(new Writable[] { new Text("apple"), new LongWritable(5L) }),
+        new TupleWritable(new Writable[] { new Text("apple"), new LongWritable(7L) }),
+        -1);
+    doTestCompare(
+        new TupleWritable(new Writable[] { new Text("b"), new LongWritable(5L) }),
+        new TupleWritable(new Writable[] { new Text("ab"), new LongWritable(5L) }),
+        1);
+    doTestCompare(
+        new TupleWritable(new Writable[] {
+            new TupleWritable(new Writable[] { new IntWritable(1), new Text("x") }), new IntWritable(3) }),
+        new TupleWritable(new Writable[] {
+            new TupleWritable(new Writable[] { new IntWritable(1), new Text("x") }), new IntWritable(4) }),
+        -1);
+    doTestCompare(
+        new TupleWritable(new Writable[] { null, new IntWritable(300000), null }),
+        new TupleWritable(new Writable[] { null, new IntWritable(300000), null }),
+        0);
+  }
+
   private void doTestCompare(TupleWritable t1, TupleWritable t2, int result) throws IOException {
     // test comparing objects
     TupleWritable.Comparator comparator = TupleWritable.Comparator.getInstance();
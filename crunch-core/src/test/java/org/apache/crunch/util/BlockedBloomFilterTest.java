@@ -0,0 +1,106 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.Charset;
+
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.junit.Test;
+
+public class BlockedBloomFilterTest {
+
+  @Test
+  public void testNoFalseNegatives() {
+    BlockedBloomFilter filter = BlockedBloomFilter.create(10000, 0.01);
+    for (int i = 0; i < 10000; i++) {
+      filter.add("key" + i);
+      filter.add((long) i);
+    }
+    for (int i = 0; i < 10000; i++) {
+      assertTrue(filter.mightContain("key" + i));
+      assertTrue(filter.mightContain((long) i));
+    }
+  }
+
+  @Test
+  public void testFalsePositiveRate() {
+    BlockedBloomFilter filter = BlockedBloomFilter.create(10000, 0.01);
+    for (int i = 0; i < 10000; i++) {
+      filter.add("key" + i);
+    }
+    int falsePositives = 0;
+    for (int i = 0; i < 100000; i++) {
+      if (filter.mightContain("other" + i)) {
+        falsePositives++;
+      }
+    }
+    assertTrue("False positives: " + falsePositives, falsePositives < 2000);
+  }
+
+  @Test
+  public void testOr() {
+    BlockedBloomFilter first = new BlockedBloomFilter(16, 5);
+    BlockedBloomFilter second = new BlockedBloomFilter(16, 5);
+    first.add("a");
+    second.add("b");
+    assertFalse(first.mightContain("b"));
+    first.or(second);
+    assertTrue(first.mightContain("a"));
+    assertTrue(first.mightContain("b"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testOrWithDifferentDimensions() {
+    new BlockedBloomFilter(16, 5).or(new BlockedBloomFilter(8, 5));
+  }
+
+  @Test
+  public void testWritable() throws Exception {
+    BlockedBloomFilter filter = BlockedBloomFilter.create(100, 0.05);
+    for (int i = 0; i < 100; i++) {
+      filter.add(i);
+    }
+    DataOutputBuffer out = new DataOutputBuffer();
+    filter.write(out);
+    DataInputBuffer in = new DataInputBuffer();
+    in.reset(out.getData(), out.getLength());
+    BlockedBloomFilter copy = new BlockedBloomFilter();
+    copy.readFields(in);
+    assertEquals(filter.getNumBlocks(), copy.getNumBlocks());
+    assertEquals(filter.getNumHashes(), copy.getNumHashes());
+    for (int i = 0; i < 100; i++) {
+      assertTrue(copy.mightContain(i));
+    }
+  }
+
+  @Test
+  public void testHashBytesUsesOnlyTheGivenRange() {
+    byte[] bytes = "hello, world".getBytes(Charset.forName("UTF-8"));
+    byte[] padded = new byte[bytes.length + 3];
+    System.arraycopy(bytes, 0, padded, 2, bytes.length);
+    padded[0] = 7;
+    padded[padded.length - 1] = 9;
+    assertEquals(HashUtil.hashBytes64(bytes, 0, bytes.length), HashUtil.hashBytes64(padded, 2, bytes.length));
+    assertEquals(BlockedBloomFilter.hash(bytes), HashUtil.hashBytes64(bytes, 0, bytes.length));
+  }
+}
@@ -0,0 +1,157 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.crunch.PCollection;
+import org.apache.crunch.Pair;
+import org.apache.crunch.impl.mem.MemPipeline;
+import org.apache.crunch.lib.Aggregate;
+import org.apache.crunch.types.PType;
+import org.apache.crunch.types.PTypeFamily;
+import org.apache.crunch.types.PTypes;
+import org.apache.crunch.types.avro.AvroTypeFamily;
+import org.apache.crunch.types.writable.WritableTypeFamily;
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class HyperLogLogTest {
+
+  private static void assertWithin(long expected, long actual, double relativeError) {
+    assertTrue("Expected " + expected + " but was " + actual,
+        Math.abs(actual - expected) <= relativeError * expected);
+  }
+
+  @Test
+  public void testEmpty() {
+    assertEquals(0L, new HyperLogLog().cardinality());
+  }
+
+  @Test
+  public void testSmallCardinalities() {
+    HyperLogLog hll = new HyperLogLog();
+    for (int i = 0; i < 100; i++) {
+      hll.add("value" + (i % 10));
+    }
+    assertEquals(10L, hll.cardinality());
+  }
+
+  @Test
+  public void testLargeCardinalities() {
+    for (int precision : new int[] { 10, 14 }) {
+      HyperLogLog hll = new HyperLogLog(precision);
+      for (long i = 0; i < 200000; i++) {
+        hll.add(i);
+        hll.add(i);
+      }
+      // Allow for four standard errors
+      assertWithin(200000L, hll.cardinality(), 4 * 1.04 / Math.sqrt(1 << precision));
+    }
+  }
+
+  @Test
+  public void testMerge() {
+    HyperLogLog a = new HyperLogLog();
+    HyperLogLog b = new HyperLogLog();
+    HyperLogLog single = new HyperLogLog().add("single");
+    for (int i = 0; i < 50000; i++) {
+      a.add("a" + i);
+      b.add("b" + i);
+    }
+    a.merge(b).merge(single);
+    assertWithin(100001L, a.cardinality(), 0.04);
+    assertEquals(2L, new HyperLogLog().add("other").merge(single).cardinality());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMergeDifferentPrecisions() {
+    new HyperLogLog(10).merge(new HyperLogLog(12));
+  }
+
+  @Test
+  public void testSerialization() {
+    HyperLogLog sparse = new HyperLogLog();
+    HyperLogLog dense = new HyperLogLog();
+    for (int i = 0; i < 100000; i++) {
+      if (i < 100) {
+        sparse.add(i);
+      }
+      dense.add(i);
+    }
+    assertEquals(sparse.cardinality(), HyperLogLog.fromBytes(sparse.toBytes()).cardinality());
+    assertEquals(dense.cardinality(), HyperLogLog.fromBytes(dense.toBytes()).cardinality());
+    assertEquals(dense.cardinality(), dense.copy().add(1).cardinality());
+  }
+
+  @Test
+  public void testPTypes() {
+    HyperLogLog hll = new HyperLogLog(12).add("a").add("b");
+    for (PTypeFamily ptf : new PTypeFamily[] { WritableTypeFamily.getInstance(), AvroTypeFamily.getInstance() }) {
+      PType<HyperLogLog> ptype = PTypes.hyperLogLogs(ptf);
+      ptype.initialize(new Configuration());
+      HyperLogLog roundTrip = ptype.getInputMapFn().map(ptype.getOutputMapFn().map(hll));
+      assertEquals(12, roundTrip.getPrecision());
+      assertEquals(2L, roundTrip.cardinality());
+      assertEquals(2L, ptype.getDetachedValue(hll).cardinality());
+    }
+  }
+
+  @Test
+  public void testApproxCountDistinct() {
+    for (PTypeFamily ptf : new PTypeFamily[] { WritableTypeFamily.getInstance(), AvroTypeFamily.getInstance() }) {
+      List<Long> values = Lists.newArrayList();
+      List<Pair<String, Long>> pairs = Lists.newArrayList();
+      for (long i = 0; i < 10000; i++) {
+        values.add(i % 5000);
+        pairs.add(Pair.of(i % 2 == 0 ? "even" : "odd", i % 1000));
+      }
+      PCollection<Long> collect = MemPipeline.typedCollectionOf(ptf.longs(), values);
+      assertWithin(5000L, Aggregate.approxCountDistinct(collect).getValue(), 0.04);
+
+      Map<String, Long> counts = Aggregate.approxCountDistinctValues(
+          MemPipeline.typedTableOf(ptf.tableOf(ptf.strings(), ptf.longs()), pairs)).materializeToMap();
+      assertWithin(500L, counts.get("even"), 0.04);
+      assertWithin(500L, counts.get("odd"), 0.04);
+    }
+  }
+
+  @Test
+  public void testValueHasher() {
+    // Pairs with equal hash codes are only told apart by their serialized form
+    Pair<String, Long> first = Pair.of("Aa", 1L);
+    Pair<String, Long> second = Pair.of("BB", 1L);
+    assertEquals(first.hashCode(), second.hashCode());
+    assertEquals(HashUtil.hash64(first), HashUtil.hash64(second));
+    for (PTypeFamily ptf : new PTypeFamily[] { WritableTypeFamily.getInstance(), AvroTypeFamily.getInstance() }) {
+      ValueHasher<Pair<String, Long>> hasher = new ValueHasher<Pair<String, Long>>(
+          ptf.pairs(ptf.strings(), ptf.longs()));
+      hasher.initialize(new Configuration());
+      assertFalse(hasher.hash(first) == hasher.hash(second));
+      assertEquals(hasher.hash(first), hasher.hash(Pair.of("Aa", 1L)));
+      assertEquals(HashUtil.hash64("Aa"), new ValueHasher<String>(ptf.strings()).hash("Aa"));
+    }
+  }
+}
@@ -0,0 +1,121 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.crunch.PCollection;
+import org.apache.crunch.Pair;
+import org.apache.crunch.impl.mem.MemPipeline;
+import org.apache.crunch.lib.Aggregate;
+import org.apache.crunch.types.PType;
+import org.apache.crunch.types.PTypeFamily;
+import org.apache.crunch.types.PTypes;
+import org.apache.crunch.types.avro.AvroTypeFamily;
+import org.apache.crunch.types.writable.WritableTypeFamily;
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class SpaceSavingTest {
+
+  // "hot0" occurs 1000 times, "hot1" 900 times, ... "hot4" 600 times, plus 5000 items that occur once
+  private static List<String> skewed() {
+    List<String> items = Lists.newArrayList();
+    for (int i = 0; i < 5; i++) {
+      for (int j = 0; j < 1000 - 100 * i; j++) {
+        items.add("hot" + i);
+      }
+    }
+    for (int i = 0; i < 5000; i++) {
+      items.add(i * 7 % items.size(), "cold" + i);
+    }
+    return items;
+  }
+
+  private static void assertTop(List<Pair<String, Long>> top, long maxError) {
+    assertEquals(5, top.size());
+    for (int i = 0; i < 5; i++) {
+      long expected = 1000 - 100 * i;
+      assertEquals("hot" + i, top.get(i).first());
+      assertTrue(top.get(i).second() >= expected);
+      assertTrue(top.get(i).second() <= expected + maxError);
+    }
+  }
+
+  @Test
+  public void testTop() {
+    SpaceSaving<String> summary = new SpaceSaving<String>(50);
+    for (String item : skewed()) {
+      summary.offer(item);
+    }
+    assertTop(summary.top(5), 9000 / 50);
+    assertTrue(summary.estimateCount("cold1") <= summary.getFloor() + 1);
+  }
+
+  @Test
+  public void testExact() {
+    SpaceSaving<String> summary = new SpaceSaving<String>(10);
+    summary.offer("a", 3L).offer("b").offer("a");
+    assertEquals(0L, summary.getFloor());
+    assertEquals(4L, summary.estimateCount("a"));
+    assertEquals(1L, summary.estimateCount("b"));
+    assertEquals(0L, summary.estimateCount("c"));
+  }
+
+  @Test
+  public void testMerge() {
+    List<String> items = skewed();
+    SpaceSaving<String> a = new SpaceSaving<String>(50);
+    SpaceSaving<String> b = new SpaceSaving<String>(50);
+    for (int i = 0; i < items.size(); i++) {
+      (i % 2 == 0 ? a : b).offer(items.get(i));
+    }
+    assertTop(a.merge(b).top(5), 9000 / 50);
+  }
+
+  @Test
+  public void testPTypes() {
+    SpaceSaving<String> summary = new SpaceSaving<String>(20).offer("a", 5L).offer("b", 2L);
+    for (PTypeFamily ptf : new PTypeFamily[] { WritableTypeFamily.getInstance(), AvroTypeFamily.getInstance() }) {
+      PType<SpaceSaving<String>> ptype = PTypes.spaceSavings(ptf.strings());
+      ptype.initialize(new Configuration());
+      SpaceSaving<String> roundTrip = ptype.getInputMapFn().map(ptype.getOutputMapFn().map(summary));
+      assertEquals(20, roundTrip.getCapacity());
+      assertEquals(summary.top(2), roundTrip.top(2));
+      assertEquals(5L, ptype.getDetachedValue(summary).estimateCount("a"));
+    }
+  }
+
+  @Test
+  public void testApproxTop() {
+    for (PTypeFamily ptf : new PTypeFamily[] { WritableTypeFamily.getInstance(), AvroTypeFamily.getInstance() }) {
+      PCollection<String> collect = MemPipeline.typedCollectionOf(ptf.strings(), skewed());
+      Map<String, Long> top = Aggregate.approxTop(collect, 5).materializeToMap();
+      assertEquals(5, top.size());
+      for (int i = 0; i < 5; i++) {
+        assertTrue(top.get("hot" + i) >= 1000 - 100 * i);
+      }
+    }
+  }
+}
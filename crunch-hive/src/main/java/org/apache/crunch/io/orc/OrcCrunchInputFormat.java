@@ -28,6 +28,7 @@ import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
 
 public class OrcCrunchInputFormat extends InputFormat<NullWritable, OrcWritable> {
 
@@ -43,6 +44,9 @@ public class OrcCrunchInputFormat extends InputFormat<NullWritable, OrcWritable>
   public RecordReader<NullWritable, OrcWritable> createRecordReader(
       InputSplit split, TaskAttemptContext context) throws IOException,
       InterruptedException {
+    if (split instanceof FileSplit) {
+      OrcPredicates.setReadColumnNames(context.getConfiguration(), ((FileSplit) split).getPath());
+    }
     RecordReader<NullWritable, OrcStruct> reader = inputFormat.createRecordReader(
         split, context);
     return new OrcCrunchRecordReader(reader);
@@ -21,6 +21,7 @@ import java.util.Iterator;
 
 import org.apache.crunch.CrunchRuntimeException;
 import org.apache.crunch.MapFn;
+import org.apache.crunch.io.ColumnPredicate;
 import org.apache.crunch.io.FileReaderFactory;
 import org.apache.crunch.types.PType;
 import org.apache.hadoop.fs.FileStatus;
@@ -42,14 +43,20 @@ public class OrcFileReaderFactory<T> implements FileReaderFactory<T> {
   private MapFn<Object, T> inputFn;
   private OrcInputFormat inputFormat = new OrcInputFormat();
   private int[] readColumns;
+  private ColumnPredicate predicate;
   
   public OrcFileReaderFactory(PType<T> ptype) {
     this(ptype, null);
   }
   
   public OrcFileReaderFactory(PType<T> ptype, int[] readColumns) {
+    this(ptype, readColumns, null);
+  }
+
+  public OrcFileReaderFactory(PType<T> ptype, int[] readColumns, ColumnPredicate predicate) {
     inputFn = ptype.getInputMapFn();
     this.readColumns = readColumns;
+    this.predicate = predicate;
   }
 
   @Override
@@ -69,6 +76,10 @@ public class OrcFileReaderFactory<T> implements FileReaderFactory<T> {
         conf.setBoolean(OrcFileSource.HIVE_READ_ALL_COLUMNS, false);
         conf.set(ColumnProjectionUtils.READ_COLUMN_IDS_CONF_STR, OrcFileSource.getColumnIdsStr(readColumns));
       }
+      if (predicate != null) {
+        OrcPredicates.configure(conf, predicate);
+        OrcPredicates.setReadColumnNames(conf, path);
+      }
       final RecordReader<NullWritable, OrcStruct> reader = inputFormat.getRecordReader(split, conf, Reporter.NULL);
       
       return new UnmodifiableIterator<T>() {
@@ -21,26 +21,33 @@ import java.io.IOException;
 import java.util.List;
 
 import org.apache.crunch.ReadableData;
+import org.apache.crunch.io.ColumnPredicate;
 import org.apache.crunch.io.FormatBundle;
 import org.apache.crunch.io.ReadableSource;
 import org.apache.crunch.io.impl.FileSourceImpl;
 import org.apache.crunch.types.PType;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.io.sarg.ConvertAstToSearchArg;
 import org.apache.hadoop.hive.serde2.ColumnProjectionUtils;
 
 public class OrcFileSource<T> extends FileSourceImpl<T> implements ReadableSource<T> {
   
   private int[] readColumns;
+  private ColumnPredicate predicate;
     
   public static final String HIVE_READ_ALL_COLUMNS = "hive.io.file.read.all.columns";
   
-  private static <S> FormatBundle<OrcCrunchInputFormat> getBundle(int[] readColumns) {
+  private static <S> FormatBundle<OrcCrunchInputFormat> getBundle(int[] readColumns, ColumnPredicate predicate) {
     FormatBundle<OrcCrunchInputFormat> fb = FormatBundle.forInput(OrcCrunchInputFormat.class);
     if (readColumns != null) {  // setting configurations for column pruning
       fb.set(HIVE_READ_ALL_COLUMNS, "false");
       fb.set(ColumnProjectionUtils.READ_COLUMN_IDS_CONF_STR, getColumnIdsStr(readColumns));
     }
+    if (predicate != null) {  // setting configurations for skipping row groups and stripes
+      fb.set(ConvertAstToSearchArg.SARG_PUSHDOWN, OrcPredicates.serialize(predicate));
+      fb.set(OrcPredicates.PREDICATE_COLUMNS, OrcPredicates.getColumnsStr(predicate));
+    }
     return fb;
   }
   
@@ -65,8 +72,24 @@ public class OrcFileSource<T> extends FileSourceImpl<T> implements ReadableSourc
    * @param readColumns columns which will be read
    */
   public OrcFileSource(Path path, PType<T> ptype, int[] readColumns) {
-    super(path, ptype, getBundle(readColumns));
+    this(path, ptype, readColumns, null);
+  }
+
+  /**
+   * Constructor for column pruning and predicate pushdown optimizations. Row groups and stripes whose column
+   * statistics show that none of their rows match the predicate are skipped, but the rows of the others are
+   * not filtered. The columns of the predicate are the names of the top-level fields of the ORC files, and
+   * must be among the columns which are read.
+   *
+   * @param path
+   * @param ptype
+   * @param readColumns columns which will be read, or null to read all columns
+   * @param predicate predicate which is used to skip row groups and stripes
+   */
+  public OrcFileSource(Path path, PType<T> ptype, int[] readColumns, ColumnPredicate predicate) {
+    super(path, ptype, getBundle(readColumns, predicate));
     this.readColumns = readColumns;
+    this.predicate = predicate;
   }
   
   public OrcFileSource(List<Path> paths, PType<T> ptype) {
@@ -81,22 +104,37 @@ public class OrcFileSource<T> extends FileSourceImpl<T> implements ReadableSourc
    * @param columns columns which will be reserved
    */
   public OrcFileSource(List<Path> paths, PType<T> ptype, int[] columns) {
-    super(paths, ptype, getBundle(columns));
+    this(paths, ptype, columns, null);
+  }
+
+  /**
+   * Constructor for column pruning and predicate pushdown optimizations
+   *
+   * @param paths
+   * @param ptype
+   * @param columns columns which will be reserved, or null to read all columns
+   * @param predicate predicate which is used to skip row groups and stripes
+   * @see #OrcFileSource(Path, PType, int[], ColumnPredicate)
+   */
+  public OrcFileSource(List<Path> paths, PType<T> ptype, int[] columns, ColumnPredicate predicate) {
+    super(paths, ptype, getBundle(columns, predicate));
+    this.readColumns = columns;
+    this.predicate = predicate;
   }
   
   @Override
   public String toString() {
-    return "Orc(" + pathsAsString() + ")";
+    return "Orc(" + pathsAsString() + ")" + (predicate == null ? "" : " where " + predicate);
   }
 
   @Override
   public Iterable<T> read(Configuration conf) throws IOException {
-    return read(conf, new OrcFileReaderFactory<T>(ptype, readColumns));
+    return read(conf, new OrcFileReaderFactory<T>(ptype, readColumns, predicate));
   }
 
   @Override
   public ReadableData<T> asReadable() {
-    return new OrcReadableData<T>(this.paths, ptype, readColumns);
+    return new OrcReadableData<T>(this.paths, ptype, readColumns, predicate);
   }
 
 }
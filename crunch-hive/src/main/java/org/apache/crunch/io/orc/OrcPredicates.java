@@ -0,0 +1,213 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.crunch.io.orc;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.crunch.io.ColumnPredicate;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.io.orc.OrcFile;
+import org.apache.hadoop.hive.ql.io.orc.Reader;
+import org.apache.hadoop.hive.ql.io.sarg.ConvertAstToSearchArg;
+import org.apache.hadoop.hive.ql.io.sarg.PredicateLeaf;
+import org.apache.hadoop.hive.ql.io.sarg.SearchArgument;
+import org.apache.hadoop.hive.ql.io.sarg.SearchArgumentFactory;
+import org.apache.hadoop.hive.serde2.ColumnProjectionUtils;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Translates {@link ColumnPredicate}s into ORC {@link SearchArgument}s, which the ORC record reader uses to skip
+ * the row groups and stripes whose column statistics show that none of their rows match. Rows of the row groups
+ * that are read are not filtered.
+ */
+class OrcPredicates {
+
+  private OrcPredicates() {
+  }
+
+  /**
+   * Returns the search argument for the given predicate, serialized as the ORC input format expects it in
+   * {@link ConvertAstToSearchArg#SARG_PUSHDOWN}.
+   */
+  static String serialize(ColumnPredicate predicate) {
+    return ConvertAstToSearchArg.sargToKryo(toSearchArgument(predicate));
+  }
+
+  static SearchArgument toSearchArgument(ColumnPredicate predicate) {
+    SearchArgument.Builder builder = SearchArgumentFactory.newBuilder();
+    add(builder, predicate);
+    return builder.build();
+  }
+
+  /**
+   * The key of the comma-separated names of the columns of the predicate, which are checked against the columns
+   * that are read.
+   */
+  static final String PREDICATE_COLUMNS = "crunch.orc.predicate.columns";
+
+  /**
+   * Sets the search argument for the given predicate, and the names of its columns, in the given configuration.
+   */
+  static void configure(Configuration conf, ColumnPredicate predicate) {
+    conf.set(ConvertAstToSearchArg.SARG_PUSHDOWN, serialize(predicate));
+    conf.set(PREDICATE_COLUMNS, getColumnsStr(predicate));
+  }
+
+  static String getColumnsStr(ColumnPredicate predicate) {
+    return Joiner.on(',').join(predicate.getColumns());
+  }
+
+  /**
+   * Sets the names of the columns that are read from the given ORC file, which the ORC input format needs to
+   * resolve the columns of a search argument. The names are those of the fields of the struct in the file, so
+   * the columns of a predicate are resolved by the names that the file was written with.
+   * <p>
+   * The names are taken from the footer of the file, which is read here in addition to the reader that the ORC
+   * input format opens for the file, since the input format does not expose its reader. The footer is read
+   * from the end of the file, and only for files that are read with a predicate.
+   *
+   * @throws IllegalArgumentException if a column of the predicate is not one of the columns that are read
+   */
+  static void setReadColumnNames(Configuration conf, Path path) throws IOException {
+    if (conf.get(ConvertAstToSearchArg.SARG_PUSHDOWN) == null) {
+      return;
+    }
+    Reader reader = OrcFile.createReader(path, OrcFile.readerOptions(conf));
+    List<? extends StructField> fields = ((StructObjectInspector) reader.getObjectInspector()).getAllStructFieldRefs();
+    Set<Integer> readColumns = ColumnProjectionUtils.isReadAllColumns(conf) ? null
+        : Sets.newHashSet(ColumnProjectionUtils.getReadColumnIDs(conf));
+    // The names are matched with the columns that are read in the order of the file
+    List<String> names = Lists.newArrayList();
+    for (int i = 0; i < fields.size(); i++) {
+      if (readColumns == null || readColumns.contains(i)) {
+        names.add(fields.get(i).getFieldName());
+      }
+    }
+    // The input format cannot resolve the columns of a search argument that are not read
+    for (String column : conf.getTrimmedStringCollection(PREDICATE_COLUMNS)) {
+      if (!names.contains(column)) {
+        throw new IllegalArgumentException("Column " + column + " of the predicate is not read from " + path
+            + ", which reads columns: " + names);
+      }
+    }
+    conf.set(ColumnProjectionUtils.READ_COLUMN_NAMES_CONF_STR, Joiner.on(',').join(names));
+  }
+
+  private static void add(SearchArgument.Builder builder, ColumnPredicate predicate) {
+    String column = predicate.getColumn();
+    List<Object> values = predicate.getValues();
+    PredicateLeaf.Type type = values.isEmpty() ? null : getType(values.get(0), predicate);
+    switch (predicate.getOperator()) {
+      case AND:
+        builder.startAnd();
+        addChildren(builder, predicate);
+        builder.end();
+        break;
+      case OR:
+        builder.startOr();
+        addChildren(builder, predicate);
+        builder.end();
+        break;
+      case NOT:
+        builder.startNot();
+        addChildren(builder, predicate);
+        builder.end();
+        break;
+      case EQ:
+        builder.equals(column, type, literal(values.get(0), type, predicate));
+        break;
+      case NOT_EQ:
+        builder.startNot().equals(column, type, literal(values.get(0), type, predicate)).end();
+        break;
+      case LT:
+        builder.lessThan(column, type, literal(values.get(0), type, predicate));
+        break;
+      case LT_EQ:
+        builder.lessThanEquals(column, type, literal(values.get(0), type, predicate));
+        break;
+      case GT:
+        builder.startNot().lessThanEquals(column, type, literal(values.get(0), type, predicate)).end();
+        break;
+      case GT_EQ:
+        builder.startNot().lessThan(column, type, literal(values.get(0), type, predicate)).end();
+        break;
+      case IN:
+        Object[] literals = new Object[values.size()];
+        for (int i = 0; i < literals.length; i++) {
+          literals[i] = literal(values.get(i), type, predicate);
+        }
+        builder.in(column, type, literals);
+        break;
+      case IS_NULL:
+        // Null checks only use the null counts of the statistics, which are there whatever the type
+        builder.isNull(column, PredicateLeaf.Type.STRING);
+        break;
+      case IS_NOT_NULL:
+        builder.startNot().isNull(column, PredicateLeaf.Type.STRING).end();
+        break;
+      default:
+        throw new IllegalArgumentException("Unexpected operator: " + predicate.getOperator());
+    }
+  }
+
+  private static void addChildren(SearchArgument.Builder builder, ColumnPredicate predicate) {
+    for (ColumnPredicate child : predicate.getChildren()) {
+      add(builder, child);
+    }
+  }
+
+  private static PredicateLeaf.Type getType(Object value, ColumnPredicate predicate) {
+    if (value instanceof Integer || value instanceof Long) {
+      return PredicateLeaf.Type.LONG;
+    } else if (value instanceof Float || value instanceof Double) {
+      return PredicateLeaf.Type.FLOAT;
+    } else if (value instanceof Boolean) {
+      return PredicateLeaf.Type.BOOLEAN;
+    } else if (value instanceof String) {
+      return PredicateLeaf.Type.STRING;
+    }
+    throw new IllegalArgumentException("Cannot compare column " + predicate.getColumn() + " with value: " + value);
+  }
+
+  /**
+   * Returns the given value as an instance of the value class of the given type, which is {@code Long} for
+   * all integer columns and {@code Double} for all floating point columns.
+   */
+  private static Object literal(Object value, PredicateLeaf.Type type, ColumnPredicate predicate) {
+    if (getType(value, predicate) != type) {
+      throw new IllegalArgumentException("Cannot compare column " + predicate.getColumn() + " of type " + type
+          + " with value: " + value);
+    }
+    switch (type) {
+      case LONG:
+        return ((Number) value).longValue();
+      case FLOAT:
+        return ((Number) value).doubleValue();
+      default:
+        return value;
+    }
+  }
+}
@@ -19,6 +19,7 @@ package org.apache.crunch.io.orc;
 
 import java.util.List;
 
+import org.apache.crunch.io.ColumnPredicate;
 import org.apache.crunch.io.FileReaderFactory;
 import org.apache.crunch.io.impl.ReadableDataImpl;
 import org.apache.crunch.types.PType;
@@ -28,20 +29,26 @@ public class OrcReadableData<T> extends ReadableDataImpl<T> {
   
   private final PType<T> ptype;
   private final int[] readColumns;
+  private final ColumnPredicate predicate;
 
   public OrcReadableData(List<Path> paths, PType<T> ptype) {
     this(paths, ptype, null);
   }
   
   public OrcReadableData(List<Path> paths, PType<T> ptype, int[] readColumns) {
+    this(paths, ptype, readColumns, null);
+  }
+
+  public OrcReadableData(List<Path> paths, PType<T> ptype, int[] readColumns, ColumnPredicate predicate) {
     super(paths);
     this.ptype = ptype;
     this.readColumns = readColumns;
+    this.predicate = predicate;
   }
 
   @Override
   public FileReaderFactory<T> getFileReaderFactory() {
-    return new OrcFileReaderFactory<T>(ptype, readColumns);
+    return new OrcFileReaderFactory<T>(ptype, readColumns, predicate);
   }
 
 }
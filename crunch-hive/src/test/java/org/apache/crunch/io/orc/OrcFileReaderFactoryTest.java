@@ -17,12 +17,17 @@
  */
 package org.apache.crunch.io.orc;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.IOException;
 import java.util.List;
 
+import org.apache.crunch.CrunchRuntimeException;
+import org.apache.crunch.io.ColumnPredicate;
 import org.apache.crunch.types.PType;
 import org.apache.crunch.types.orc.OrcUtils;
 import org.apache.crunch.types.orc.Orcs;
@@ -62,4 +67,63 @@ public class OrcFileReaderFactoryTest extends OrcFileTest {
     }
   }
 
+  @Test
+  public void testPredicatePushdown() throws IOException {
+    Path path = new Path(tempPath, "test.orc");
+
+    String typeStr = "struct<a:int,b:string>";
+    TypeInfo info = TypeInfoUtils.getTypeInfoFromTypeString(typeStr);
+    StructObjectInspector soi = (StructObjectInspector) OrcStruct.createObjectInspector(info);
+    PType<OrcStruct> ptype = Orcs.orcs(info);
+
+    // Three row groups of the default 10000 rows
+    OrcFileWriter<OrcStruct> writer = new OrcFileWriter<OrcStruct>(conf, path, ptype);
+    for (int i = 0; i < 25000; i++) {
+      writer.write(OrcUtils.createOrcStruct(info, new IntWritable(i), new Text("row " + i)));
+    }
+    writer.close();
+
+    ColumnPredicate predicate = ColumnPredicate.and(ColumnPredicate.gtEq("a", 20000L), ColumnPredicate.isNotNull("b"));
+    OrcFileSource<OrcStruct> source = new OrcFileSource<OrcStruct>(path, ptype, null, predicate);
+    int count = 0;
+    for (OrcStruct row : source.read(conf)) {
+      IntWritable a = (IntWritable) soi.getStructFieldsDataAsList(row).get(0);
+      assertEquals(20000 + count, a.get());
+      count++;
+    }
+    assertEquals(5000, count);
+
+    // Rows of the row groups that are read are not filtered
+    int[] readColumns = {0};
+    source = new OrcFileSource<OrcStruct>(path, ptype, readColumns, ColumnPredicate.in("a", 5, 10005));
+    count = 0;
+    for (OrcStruct row : source.read(conf)) {
+      count++;
+    }
+    assertEquals(20000, count);
+  }
+
+  @Test
+  public void testPredicateOnColumnNotRead() throws IOException {
+    Path path = new Path(tempPath, "test.orc");
+
+    String typeStr = "struct<a:int,b:string>";
+    TypeInfo info = TypeInfoUtils.getTypeInfoFromTypeString(typeStr);
+    PType<OrcStruct> ptype = Orcs.orcs(info);
+
+    OrcFileWriter<OrcStruct> writer = new OrcFileWriter<OrcStruct>(conf, path, ptype);
+    writer.write(OrcUtils.createOrcStruct(info, new IntWritable(1), new Text("row 1")));
+    writer.close();
+
+    int[] readColumns = {1};
+    OrcFileSource<OrcStruct> source = new OrcFileSource<OrcStruct>(path, ptype, readColumns,
+        ColumnPredicate.gtEq("a", 0L));
+    try {
+      source.read(conf).iterator().hasNext();
+      fail("The predicate on a column that is not read should be rejected");
+    } catch (CrunchRuntimeException e) {
+      assertTrue(e.getCause() instanceof IllegalArgumentException);
+    }
+  }
+
 }